@@ -148,6 +148,68 @@ public abstract class AbstractAgentMojo extends AbstractJacocoMojo {
 	 */
 	@Parameter(property = "jacoco.classDumpDir")
 	File classDumpDir;
+	/**
+	 * If a directory is specified for this parameter the JaCoCo agent caches
+	 * instrumented class files in the given location, so subsequent JVMs like
+	 * forked test runs can skip instrumentation of unchanged classes. The
+	 * directory can be shared by multiple JVMs.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.classCacheDir")
+	File classCacheDir;
+	/**
+	 * Maximum size of the class cache in megabytes. When the cache exceeds this
+	 * size the least recently used entries are deleted. A value of 0 disables
+	 * the limit. Default is 100.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.classCacheSize")
+	Integer classCacheSize;
+	/**
+	 * If set to true probes record how often they have been executed instead of
+	 * a single flag. Reports show these hit counts per source line.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.hitCounts")
+	Boolean hitCounts;
+	/**
+	 * If set to true probes only write to the probe array if they have not been
+	 * set before. This reduces contention between threads executing the same
+	 * code on different cores.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.conditionalProbes")
+	Boolean conditionalProbes;
+	/**
+	 * If set to true classes compiled for Java 7 or later obtain their probe
+	 * array with an invokedynamic instruction. This makes instrumented classes
+	 * slightly smaller but their initialization slower.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.invokeDynamic")
+	Boolean invokeDynamic;
+	/**
+	 * Interval in seconds in which the agent removes the probes of covered
+	 * classes by retransforming them. These classes then run without overhead
+	 * but do not record further executions. 0 disables the removal.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.removeProbesInterval")
+	Integer removeProbesInterval;
+	/**
+	 * Minimum percentage of executed probes at which the probes of a class are
+	 * removed. The default is 100, i.e. only fully covered classes.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.removeProbesThreshold")
+	Integer removeProbesThreshold;
 	/**
 	 * If set to true the agent exposes functionality via JMX.
 	 */
@@ -225,6 +287,29 @@ public abstract class AbstractAgentMojo extends AbstractJacocoMojo {
 		if (classDumpDir != null) {
 			agentOptions.setClassDumpDir(classDumpDir.getAbsolutePath());
 		}
+		if (classCacheDir != null) {
+			agentOptions.setClassCacheDir(classCacheDir.getAbsolutePath());
+		}
+		if (classCacheSize != null) {
+			agentOptions.setClassCacheSize(classCacheSize.intValue());
+		}
+		if (hitCounts != null) {
+			agentOptions.setHitCounts(hitCounts.booleanValue());
+		}
+		if (conditionalProbes != null) {
+			agentOptions.setConditionalProbes(conditionalProbes.booleanValue());
+		}
+		if (invokeDynamic != null) {
+			agentOptions.setInvokeDynamic(invokeDynamic.booleanValue());
+		}
+		if (removeProbesInterval != null) {
+			agentOptions
+					.setRemoveProbesInterval(removeProbesInterval.intValue());
+		}
+		if (removeProbesThreshold != null) {
+			agentOptions
+					.setRemoveProbesThreshold(removeProbesThreshold.intValue());
+		}
 		if (jmx != null) {
 			agentOptions.setJmx(jmx.booleanValue());
 		}
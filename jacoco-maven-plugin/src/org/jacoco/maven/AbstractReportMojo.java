@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.jacoco.maven;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
@@ -74,6 +75,50 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 	@Parameter
 	List<String> excludes;
 
+	/**
+	 * Number of threads used to analyze class files. With more than one thread
+	 * classes are analyzed concurrently, the resulting reports are the same.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.analysisThreads", defaultValue = "1")
+	int analysisThreads;
+
+	/**
+	 * Directory to cache the structure of analyzed class files. Class files
+	 * which have been analyzed before are not parsed again, only their coverage
+	 * is calculated from the current execution data. The directory can be
+	 * shared between builds and modules. When not specified no cache is used.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.analysisCache")
+	File analysisCache;
+
+	/**
+	 * If set to true class files are analyzed and written to the report package
+	 * by package. Only the coverage data of a single package is kept in memory,
+	 * which allows reports for very large sets of class files. Class files are
+	 * temporarily copied to a spool file for this.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.streaming", defaultValue = "false")
+	boolean streaming;
+
+	/**
+	 * UTF-8 encoded file with changed lines, either a unified diff (e.g. the
+	 * output of <code>git diff</code>) or a list of lines in the form
+	 * <code>path:first-last</code>. If specified the report only contains
+	 * classes compiled from changed source files and their counters only
+	 * consider the changed lines. Paths are matched by their end, so they may
+	 * be relative to any directory.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.changes")
+	File changes;
+
 	/**
 	 * Flag used to suppress execution.
 	 */
@@ -174,12 +219,20 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 	protected void executeReport(final Locale locale)
 			throws MavenReportException {
 		try {
-			final ReportSupport support = new ReportSupport(getLog());
-			loadExecutionData(support);
-			addFormatters(support, locale);
-			final IReportVisitor visitor = support.initRootVisitor();
-			createReport(visitor, support);
-			visitor.visitEnd();
+			final ReportSupport support = new ReportSupport(getLog(),
+					analysisThreads);
+			support.setAnalysisCache(analysisCache);
+			support.setStreaming(streaming);
+			support.setChanges(changes);
+			try {
+				loadExecutionData(support);
+				addFormatters(support, locale);
+				final IReportVisitor visitor = support.initRootVisitor();
+				createReport(visitor, support);
+				visitor.visitEnd();
+			} finally {
+				support.close();
+			}
 		} catch (final IOException e) {
 			throw new MavenReportException(
 					"Error while creating report: " + e.getMessage(), e);
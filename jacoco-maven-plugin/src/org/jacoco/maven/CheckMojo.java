@@ -143,6 +143,18 @@ public class CheckMojo extends AbstractJacocoMojo implements IViolationsOutput {
 	@Parameter
 	private List<String> excludes;
 
+	/**
+	 * UTF-8 encoded file with changed lines, either a unified diff (e.g. the
+	 * output of <code>git diff</code>) or a list of lines in the form
+	 * <code>path:first-last</code>. If specified the rules are only checked
+	 * against classes compiled from changed source files and their changed
+	 * lines.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.changes")
+	private File changes;
+
 	private boolean violations;
 
 	private boolean canCheckCoverage() {
@@ -182,9 +194,15 @@ public class CheckMojo extends AbstractJacocoMojo implements IViolationsOutput {
 
 		try {
 			final IReportVisitor visitor = support.initRootVisitor();
-			support.loadExecutionData(dataFile);
-			support.processProject(visitor, getProject(), includes, excludes);
-			visitor.visitEnd();
+			support.setChanges(changes);
+			try {
+				support.loadExecutionData(dataFile);
+				support.processProject(visitor, getProject(), includes,
+						excludes);
+				visitor.visitEnd();
+			} finally {
+				support.close();
+			}
 		} catch (final IOException e) {
 			throw new MojoExecutionException(
 					"Error while checking code coverage: " + e.getMessage(), e);
@@ -18,7 +18,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -63,6 +69,14 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 	@Parameter
 	private List<String> excludes;
 
+	/**
+	 * Number of threads used to instrument class files concurrently.
+	 *
+	 * @since 0.8.6
+	 */
+	@Parameter(property = "jacoco.instrumentationThreads", defaultValue = "1")
+	private int instrumentationThreads;
+
 	@Override
 	public void executeMojo()
 			throws MojoExecutionException, MojoFailureException {
@@ -90,25 +104,70 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
-		for (final String fileName : fileNames) {
-			if (fileName.endsWith(".class")) {
-				final File source = new File(classesDir, fileName);
-				final File backup = new File(originalClassesDir, fileName);
-				InputStream input = null;
-				OutputStream output = null;
-				try {
-					FileUtils.copyFile(source, backup);
-					input = new FileInputStream(backup);
-					output = new FileOutputStream(source);
-					instrumenter.instrument(input, output, source.getPath());
-				} catch (final IOException e2) {
-					throw new MojoExecutionException(
-							"Unable to instrument file.", e2);
-				} finally {
-					IOUtil.close(input);
-					IOUtil.close(output);
+		final ExecutorService executor = instrumentationThreads > 1
+				? Executors.newFixedThreadPool(instrumentationThreads)
+				: null;
+		try {
+			final List<Future<?>> results = new ArrayList<Future<?>>();
+			for (final String fileName : fileNames) {
+				if (fileName.endsWith(".class")) {
+					final File source = new File(classesDir, fileName);
+					final File backup = new File(originalClassesDir, fileName);
+					if (executor == null) {
+						instrument(instrumenter, source, backup);
+					} else {
+						results.add(executor.submit(new Callable<Void>() {
+							public Void call() throws MojoExecutionException {
+								instrument(instrumenter, source, backup);
+								return null;
+							}
+						}));
+					}
 				}
 			}
+			for (final Future<?> result : results) {
+				await(result);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private void instrument(final Instrumenter instrumenter, final File source,
+			final File backup) throws MojoExecutionException {
+		InputStream input = null;
+		OutputStream output = null;
+		try {
+			FileUtils.copyFile(source, backup);
+			input = new FileInputStream(backup);
+			output = new FileOutputStream(source);
+			instrumenter.instrument(input, output, source.getPath());
+		} catch (final IOException e2) {
+			throw new MojoExecutionException("Unable to instrument file.", e2);
+		} finally {
+			IOUtil.close(input);
+			IOUtil.close(output);
+		}
+	}
+
+	private static void await(final Future<?> result)
+			throws MojoExecutionException {
+		try {
+			result.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Instrumentation interrupted.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof MojoExecutionException) {
+				throw (MojoExecutionException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
 		}
 	}
 
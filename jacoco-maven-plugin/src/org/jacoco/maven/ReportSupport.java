@@ -25,18 +25,29 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ChangedLines;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.PackageAnalyzer;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IndexedSourceFileLocator;
 import org.jacoco.report.MultiReportVisitor;
 import org.jacoco.report.check.IViolationsOutput;
 import org.jacoco.report.check.Rule;
@@ -61,6 +72,10 @@ import org.jacoco.report.xml.XMLFormatter;
 final class ReportSupport {
 
 	private final Log log;
+	private final int threads;
+	private AnalysisCache analysisCache;
+	private boolean streaming;
+	private ChangedLines changedLines;
 	private final ExecFileLoader loader;
 	private final List<IReportVisitor> formatters;
 
@@ -71,11 +86,74 @@ final class ReportSupport {
 	 *            for log output
 	 */
 	public ReportSupport(final Log log) {
+		this(log, 1);
+	}
+
+	/**
+	 * Construct a new instance with the given log output which analyzes class
+	 * files with the given number of threads.
+	 *
+	 * @param log
+	 *            for log output
+	 * @param threads
+	 *            number of threads to analyze class files
+	 */
+	public ReportSupport(final Log log, final int threads) {
 		this.log = log;
+		this.threads = threads;
 		this.loader = new ExecFileLoader();
 		this.formatters = new ArrayList<IReportVisitor>();
 	}
 
+	/**
+	 * Sets a directory to cache the structure of analyzed class files.
+	 *
+	 * @param directory
+	 *            cache directory or <code>null</code> to disable the cache
+	 */
+	public void setAnalysisCache(final File directory) {
+		this.analysisCache = directory == null ? null
+				: new AnalysisCache(directory);
+	}
+
+	/**
+	 * Sets whether class files are analyzed and reported package by package.
+	 *
+	 * @param streaming
+	 *            <code>true</code> to keep only the coverage data of a single
+	 *            package in memory
+	 */
+	public void setStreaming(final boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Restricts the analysis to the changed lines listed in the given file,
+	 * which is either a unified diff or a list of lines in the form
+	 * <code>path:first-last</code>.
+	 *
+	 * @param changes
+	 *            file with changed lines or <code>null</code> to analyze all
+	 *            lines
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public void setChanges(final File changes) throws IOException {
+		if (changes == null) {
+			changedLines = null;
+			return;
+		}
+		log.info("Loading changed lines " + changes);
+		changedLines = new ChangedLines();
+		final Reader reader = new InputStreamReader(
+				new FileInputStream(changes), "UTF-8");
+		try {
+			changedLines.read(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
 	/**
 	 * Loads the given execution data file.
 	 *
@@ -86,7 +164,18 @@ final class ReportSupport {
 	 */
 	public void loadExecutionData(final File execFile) throws IOException {
 		log.info("Loading execution data file " + execFile);
-		loader.load(execFile);
+		loader.open(execFile);
+	}
+
+	/**
+	 * Releases execution data files which are kept open for report generation.
+	 * Must be called after the report has been written.
+	 *
+	 * @throws IOException
+	 *             if a file can't be closed
+	 */
+	public void close() throws IOException {
+		loader.close();
 	}
 
 	public void addXmlFormatter(final File targetfile, final String encoding)
@@ -133,7 +222,7 @@ final class ReportSupport {
 	public IReportVisitor initRootVisitor() throws IOException {
 		final IReportVisitor visitor = new MultiReportVisitor(formatters);
 		visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
-				loader.getExecutionDataStore().getContents());
+				loader.getExecutionDataContents());
 		return visitor;
 	}
 
@@ -183,23 +272,35 @@ final class ReportSupport {
 			final List<String> includes, final List<String> excludes,
 			final String srcEncoding) throws IOException {
 		processProject(visitor, bundeName, project, includes, excludes,
-				new SourceFileCollection(project, srcEncoding));
+				createSourceFileLocator(project, srcEncoding));
 	}
 
 	private void processProject(final IReportGroupVisitor visitor,
 			final String bundeName, final MavenProject project,
 			final List<String> includes, final List<String> excludes,
 			final ISourceFileLocator locator) throws IOException {
-		final CoverageBuilder builder = new CoverageBuilder();
 		final File classesDir = new File(
 				project.getBuild().getOutputDirectory());
+		if (streaming) {
+			processPackages(visitor, bundeName, classesDir, includes, excludes,
+					locator);
+			return;
+		}
 
+		final CoverageBuilder builder = new CoverageBuilder();
 		if (classesDir.isDirectory()) {
-			final Analyzer analyzer = new Analyzer(
-					loader.getExecutionDataStore(), builder);
-			final FileFilter filter = new FileFilter(includes, excludes);
-			for (final File file : filter.getFiles(classesDir)) {
-				analyzer.analyzeAll(file);
+			final ExecutorService executor = createExecutor();
+			try {
+				final Analyzer analyzer = new Analyzer(
+						loader.getExecutionDataSource(), builder, executor);
+				analyzer.setCache(analysisCache);
+				analyzer.setChangedLines(changedLines);
+				final FileFilter filter = new FileFilter(includes, excludes);
+				analyzer.analyzeAll(filter.getFiles(classesDir));
+			} finally {
+				if (executor != null) {
+					executor.shutdown();
+				}
 			}
 		}
 
@@ -209,7 +310,52 @@ final class ReportSupport {
 		visitor.visitBundle(bundle, locator);
 	}
 
-	private void logBundleInfo(final IBundleCoverage bundle,
+	private void processPackages(final IReportGroupVisitor visitor,
+			final String bundleName, final File classesDir,
+			final List<String> includes, final List<String> excludes,
+			final ISourceFileLocator locator) throws IOException {
+		final CoverageNodeImpl total = new CoverageNodeImpl(ElementType.BUNDLE,
+				bundleName);
+		final Collection<IClassCoverage> nomatch = new ArrayList<IClassCoverage>();
+		final ExecutorService executor = createExecutor();
+		final PackageAnalyzer analyzer = new PackageAnalyzer(
+				loader.getExecutionDataSource(), executor);
+		try {
+			analyzer.setCache(analysisCache);
+			analyzer.setChangedLines(changedLines);
+			if (classesDir.isDirectory()) {
+				final FileFilter filter = new FileFilter(includes, excludes);
+				for (final File file : filter.getFiles(classesDir)) {
+					analyzer.analyzeAll(file);
+				}
+			}
+			final IReportBundleVisitor bundle = visitor.visitBundle(bundleName,
+					locator);
+			for (final String packageName : analyzer.getPackageNames()) {
+				final IPackageCoverage p = analyzer.analyzePackage(packageName);
+				for (final IClassCoverage c : p.getClasses()) {
+					if (c.isNoMatch()) {
+						nomatch.add(c);
+					}
+				}
+				total.increment(p);
+				bundle.visitPackage(p);
+			}
+			bundle.visitEnd();
+		} finally {
+			analyzer.close();
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+		logBundleInfo(total, nomatch);
+	}
+
+	private ExecutorService createExecutor() {
+		return threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+	}
+
+	private void logBundleInfo(final ICoverageNode bundle,
 			final Collection<IClassCoverage> nomatch) {
 		log.info(format("Analyzed bundle '%s' with %s classes",
 				bundle.getName(),
@@ -243,38 +389,14 @@ final class ReportSupport {
 		}
 	}
 
-	private class SourceFileCollection implements ISourceFileLocator {
-
-		private final List<File> sourceRoots;
-		private final String encoding;
-
-		public SourceFileCollection(final MavenProject project,
-				final String encoding) {
-			this.sourceRoots = getCompileSourceRoots(project);
-			this.encoding = encoding;
-		}
-
-		public Reader getSourceFile(final String packageName,
-				final String fileName) throws IOException {
-			final String r;
-			if (packageName.length() > 0) {
-				r = packageName + '/' + fileName;
-			} else {
-				r = fileName;
-			}
-			for (final File sourceRoot : sourceRoots) {
-				final File file = new File(sourceRoot, r);
-				if (file.exists() && file.isFile()) {
-					return new InputStreamReader(new FileInputStream(file),
-							encoding);
-				}
-			}
-			return null;
-		}
-
-		public int getTabWidth() {
-			return 4;
+	private static ISourceFileLocator createSourceFileLocator(
+			final MavenProject project, final String encoding) {
+		final IndexedSourceFileLocator locator = new IndexedSourceFileLocator(
+				encoding, 4);
+		for (final File sourceRoot : getCompileSourceRoots(project)) {
+			locator.add(sourceRoot);
 		}
+		return locator;
 	}
 
 	private static List<File> getCompileSourceRoots(
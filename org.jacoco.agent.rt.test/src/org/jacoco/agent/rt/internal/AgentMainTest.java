@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AgentMain}.
+ */
+public class AgentMainTest {
+
+	@Test
+	public void checkOptions_should_accept_same_options() {
+		AgentMain.checkOptions("output=none", "output=none");
+	}
+
+	@Test
+	public void checkOptions_should_accept_missing_options() {
+		AgentMain.checkOptions("output=none", null);
+		AgentMain.checkOptions("output=none", "");
+	}
+
+	@Test
+	public void checkOptions_should_fail_for_different_options() {
+		try {
+			AgentMain.checkOptions("output=none", "output=file");
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals(
+					"JaCoCo agent has already been attached with options \"output=none\".",
+					e.getMessage());
+		}
+	}
+
+}
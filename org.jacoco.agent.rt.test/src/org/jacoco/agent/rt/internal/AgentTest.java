@@ -34,6 +34,7 @@ import org.jacoco.agent.rt.internal.output.TcpServerOutput;
 import org.jacoco.core.JaCoCo;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.AgentOptions.OutputMode;
+import org.jacoco.core.runtime.LoggerRuntime;
 import org.jacoco.core.runtime.RuntimeData;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.junit.Before;
@@ -244,6 +245,51 @@ public class AgentTest implements IExceptionLogger, IAgentOutput {
 		assertEquals(JaCoCo.VERSION, agent.getVersion());
 	}
 
+	@Test
+	public void getDeinstrumentedClassCount_should_return_zero_without_probe_remover() {
+		Agent agent = createAgent();
+		assertEquals(0, agent.getDeinstrumentedClassCount());
+	}
+
+	@Test
+	public void getDeinstrumentedClassCount_should_return_count_of_probe_remover()
+			throws Exception {
+		Agent agent = createAgent();
+		ProbeRemover remover = new ProbeRemover(
+				new StubInstrumentation().create(), agent.getData(), 1000, 100,
+				this);
+		remover.removedProbes();
+		agent.setProbeRemover(remover);
+		assertEquals(1, agent.getDeinstrumentedClassCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void attach_should_throw_IllegalStateException_without_attachment()
+			throws Exception {
+		Agent agent = createAgent();
+		agent.attach();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void detach_should_throw_IllegalStateException_without_attachment()
+			throws Exception {
+		Agent agent = createAgent();
+		agent.detach();
+	}
+
+	@Test
+	public void attach_and_detach_should_return_summary_of_attachment()
+			throws Exception {
+		Agent agent = createAgent();
+		final LoggerRuntime runtime = new LoggerRuntime();
+		agent.setAttachment(new Attachment(new StubInstrumentation().create(),
+				new CoverageTransformer(runtime, runtime, options, this, true),
+				100, this));
+
+		assertTrue(agent.attach().startsWith("0 classes"));
+		assertTrue(agent.detach().startsWith("0 classes"));
+	}
+
 	@Test
 	public void getSessionId_should_return_session_id() throws Exception {
 		Agent agent = createAgent();
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.Arrays;
+
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Attachment}.
+ */
+public class AttachmentTest {
+
+	private StubInstrumentation inst;
+
+	private ExceptionRecorder recorder;
+
+	private CoverageTransformer transformer;
+
+	private Attachment attachment;
+
+	@Before
+	public void setup() throws Exception {
+		inst = new StubInstrumentation();
+		// only classes outside of the agent with a source location match:
+		inst.loadedClasses = new Class<?>[] { String.class, int.class,
+				AttachmentTest.class, Test.class, Before.class, After.class,
+				Rule.class, Assert.class };
+		recorder = new ExceptionRecorder();
+		final LoggerRuntime runtime = new LoggerRuntime();
+		transformer = new CoverageTransformer(runtime, runtime,
+				new AgentOptions(), recorder, true);
+		attachment = new Attachment(inst.create(), transformer, 2, recorder);
+	}
+
+	@After
+	public void teardown() {
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void attach_should_register_transformer_and_retransform_loaded_classes_in_batches()
+			throws Exception {
+		final Attachment.Statistics statistics = attachment.attach();
+
+		assertSame(transformer, inst.transformer);
+		assertTrue(inst.canRetransform);
+		assertTrue(attachment.isAttached());
+		assertEquals(Arrays.asList(Test.class, Before.class, After.class,
+				Rule.class, Assert.class), inst.retransformed);
+		assertEquals(3, inst.retransformations);
+		assertEquals(5, statistics.getClasses());
+		assertEquals(0, statistics.getFailed());
+		assertEquals(3, statistics.getBatches());
+		assertTrue(statistics.getMaxTime() <= statistics.getTotalTime());
+	}
+
+	@Test
+	public void attach_should_do_nothing_when_already_attached()
+			throws Exception {
+		attachment.attach();
+		inst.retransformed.clear();
+
+		final Attachment.Statistics statistics = attachment.attach();
+
+		assertTrue(inst.retransformed.isEmpty());
+		assertEquals(0, statistics.getClasses());
+		assertEquals(0, statistics.getBatches());
+	}
+
+	@Test
+	public void attach_should_retry_failed_batch_class_by_class()
+			throws Exception {
+		inst.failingClass = Before.class;
+
+		final Attachment.Statistics statistics = attachment.attach();
+
+		assertEquals(Arrays.asList(Test.class, After.class, Rule.class,
+				Assert.class), inst.retransformed);
+		assertEquals(5, statistics.getClasses());
+		assertEquals(1, statistics.getFailed());
+		recorder.assertException(UnmodifiableClassException.class,
+				Before.class.getName());
+		recorder.clear();
+	}
+
+	@Test
+	public void detach_should_remove_transformer_and_retransform_loaded_classes()
+			throws Exception {
+		attachment.attach();
+		inst.retransformed.clear();
+
+		final Attachment.Statistics statistics = attachment.detach();
+
+		assertNull(inst.transformer);
+		assertFalse(attachment.isAttached());
+		assertEquals(Arrays.asList(Test.class, Before.class, After.class,
+				Rule.class, Assert.class), inst.retransformed);
+		assertEquals(5, statistics.getClasses());
+	}
+
+	@Test
+	public void detach_should_do_nothing_when_not_attached() throws Exception {
+		final Attachment.Statistics statistics = attachment.detach();
+
+		assertTrue(inst.retransformed.isEmpty());
+		assertEquals(0, statistics.getClasses());
+	}
+
+	@Test
+	public void attach_should_be_possible_again_after_detach()
+			throws Exception {
+		attachment.attach();
+		attachment.detach();
+
+		attachment.attach();
+
+		assertSame(transformer, inst.transformer);
+		assertEquals(15, inst.retransformed.size());
+	}
+
+	@Test
+	public void statistics_should_provide_summary() throws Exception {
+		final String summary = attachment.attach().toString();
+
+		assertTrue(summary, summary.matches(
+				"5 classes \\(0 failed\\) in 3 batches, max \\d+ ms, total \\d+ ms"));
+	}
+
+}
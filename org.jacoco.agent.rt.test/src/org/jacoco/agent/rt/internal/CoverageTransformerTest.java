@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -19,26 +20,39 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 import java.security.cert.Certificate;
+import java.util.Arrays;
 
 import org.jacoco.core.JaCoCo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Unit tests for {@link CoverageTransformer}.
  */
 public class CoverageTransformerTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private ExceptionRecorder recorder;
 
 	private AgentOptions options;
@@ -233,6 +247,118 @@ public class CoverageTransformerTest {
 				protectionDomain, getClassData(target)));
 	}
 
+	@Test
+	public void testTransformWithClassCache() throws Exception {
+		options.setClassCacheDir(folder.getRoot().getAbsolutePath());
+		final Class<?> target = JaCoCo.class;
+		final byte[] instrumented = createTransformer().transform(classLoader,
+				target.getName(), null, protectionDomain, getClassData(target));
+		assertEquals(1, folder.getRoot().list().length);
+
+		// Replace cache entry to verify it is used by the next transformer:
+		final File entry = folder.getRoot().listFiles()[0];
+		final byte[] replacement = getClassData(CoverageTransformer.class);
+		final OutputStream out = new FileOutputStream(entry);
+		out.write(replacement);
+		out.close();
+		final byte[] cached = createTransformer().transform(classLoader,
+				target.getName(), null, protectionDomain, getClassData(target));
+
+		assertFalse(Arrays.equals(getClassData(target), instrumented));
+		assertArrayEquals(replacement, cached);
+	}
+
+	@Test
+	public void testTransformWithClassCacheFailure() throws Exception {
+		final File file = folder.newFile();
+		options.setClassCacheDir(file.getAbsolutePath());
+		final CoverageTransformer t = createTransformer();
+		final Class<?> target = JaCoCo.class;
+
+		final byte[] instrumented1 = t.transform(classLoader, target.getName(),
+				null, protectionDomain, getClassData(target));
+		recorder.assertException(IOException.class,
+				"Unable to create cache directory " + file + ".");
+		recorder.clear();
+		final byte[] instrumented2 = t.transform(classLoader, target.getName(),
+				null, protectionDomain, getClassData(target));
+
+		assertArrayEquals(instrumented1, instrumented2);
+	}
+
+	@Test
+	public void testTransformWithAccessorGenerator() throws Exception {
+		options.setInclBootstrapClasses(true);
+		final StubRuntime generator = new StubRuntime();
+		final CoverageTransformer t = new CoverageTransformer(runtime,
+				generator, options, recorder);
+		final Class<?> target = JaCoCo.class;
+
+		t.transform(classLoader, target.getName(), null, protectionDomain,
+				getClassData(target));
+		assertEquals(0, runtime.accessors);
+		assertEquals(1, generator.accessors);
+
+		t.transform((ClassLoader) null, target.getName(), null,
+				protectionDomain, getClassData(target));
+		assertEquals(1, runtime.accessors);
+		assertEquals(1, generator.accessors);
+	}
+
+	@Test
+	public void testRetransformWithProbeRemover() throws Exception {
+		final RuntimeData data = new RuntimeData();
+		final ProbeRemover remover = new ProbeRemover(
+				new StubInstrumentation().create(), data, 1000, 100, recorder);
+		final CoverageTransformer t = createTransformer();
+		t.setProbeRemover(remover);
+		final Class<?> target = JaCoCo.class;
+		final byte[] original = getClassData(target);
+
+		final byte[] instrumented = t.transform(classLoader, target.getName(),
+				target, protectionDomain, original);
+		assertFalse(Arrays.equals(original, instrumented));
+		assertEquals(0, remover.getRemovedCount());
+
+		data.getExecutionData(Long.valueOf(CRC64.classId(original)),
+				"org/jacoco/core/JaCoCo", 1).getProbes()[0] = true;
+		remover.check();
+		final byte[] probeFree = t.transform(classLoader, target.getName(),
+				target, protectionDomain, original);
+		assertTrue(probeFree.length < instrumented.length);
+		assertEquals(1, remover.getRemovedCount());
+	}
+
+	@Test
+	public void testRetransformWhenAttached() throws Exception {
+		options.setInclBootstrapClasses(true);
+		final CoverageTransformer t = new CoverageTransformer(runtime, runtime,
+				options, recorder, true);
+		final Class<?> target = JaCoCo.class;
+		final byte[] original = getClassData(target);
+		InstrSupport.setMajorVersion(Opcodes.V1_7, original);
+
+		final byte[] instrumented = t.transform(classLoader, target.getName(),
+				target, protectionDomain, original);
+		assertFalse(Arrays.equals(original, instrumented));
+
+		// bootstrap classes are not supported when attached:
+		assertNull(t.transform((ClassLoader) null, target.getName(), target,
+				protectionDomain, original));
+	}
+
+	@Test
+	public void testTransformBeforeJava7WhenAttached() throws Exception {
+		final CoverageTransformer t = new CoverageTransformer(runtime, runtime,
+				options, recorder, true);
+		final Class<?> target = JaCoCo.class;
+		final byte[] original = getClassData(target);
+		InstrSupport.setMajorVersion(Opcodes.V1_6, original);
+
+		assertNull(t.transform(classLoader, target.getName(), null,
+				protectionDomain, original));
+	}
+
 	private CoverageTransformer createTransformer() {
 		return new CoverageTransformer(runtime, options, recorder);
 	}
@@ -253,11 +379,14 @@ public class CoverageTransformerTest {
 
 	private static class StubRuntime extends AbstractRuntime {
 
+		int accessors;
+
 		public StubRuntime() {
 		}
 
 		public int generateDataAccessor(long classid, String classname,
 				int probecount, MethodVisitor mv) {
+			accessors++;
 			return 0;
 		}
 
@@ -24,11 +24,21 @@ public class ExceptionRecorder implements IExceptionLogger {
 	private String message;
 	private Class<?> causeType;
 
-	public void logExeption(Exception ex) {
+	public synchronized void logExeption(Exception ex) {
 		assertNull("multiple exeptions", exceptionType);
 		exceptionType = ex.getClass();
 		message = ex.getMessage();
 		causeType = ex.getCause() == null ? null : ex.getCause().getClass();
+		notifyAll();
+	}
+
+	/**
+	 * Blocks until an exception has been logged by another thread.
+	 */
+	public synchronized void waitForException() throws InterruptedException {
+		while (exceptionType == null) {
+			wait();
+		}
 	}
 
 	public void clear() {
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PreMain}.
+ */
+public class PreMainTest {
+
+	private StubInstrumentation inst;
+
+	@Before
+	public void setup() {
+		inst = new StubInstrumentation();
+	}
+
+	@Test
+	public void checkNotLoaded_should_accept_class_which_is_not_loaded() {
+		inst.loadedClasses = new Class<?>[] { String.class };
+
+		PreMain.checkNotLoaded(inst.create(), PreMain.RUNTIME_CLASS);
+	}
+
+	@Test
+	public void checkNotLoaded_should_fail_when_class_is_already_loaded() {
+		inst.loadedClasses = new Class<?>[] { String.class,
+				UnknownError.class };
+
+		try {
+			PreMain.checkNotLoaded(inst.create(), PreMain.RUNTIME_CLASS);
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals(
+					"Class java.lang.UnknownError has already been loaded, the JaCoCo runtime can't be added to it.",
+					e.getMessage());
+		}
+	}
+
+}
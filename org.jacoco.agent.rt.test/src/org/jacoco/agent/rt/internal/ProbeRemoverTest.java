@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProbeRemover}.
+ */
+public class ProbeRemoverTest {
+
+	private static final String NAME = "org/jacoco/agent/rt/internal/ProbeRemoverTest";
+
+	private StubInstrumentation inst;
+
+	private RuntimeData data;
+
+	private ExceptionRecorder recorder;
+
+	private ProbeRemover remover;
+
+	@Before
+	public void setup() throws Exception {
+		inst = new StubInstrumentation();
+		inst.loadedClasses = new Class<?>[] { String.class, int.class,
+				ProbeRemoverTest.class };
+		data = new RuntimeData();
+		recorder = new ExceptionRecorder();
+		remover = new ProbeRemover(inst.create(), data, 10, 50, recorder);
+	}
+
+	@After
+	public void teardown() throws Exception {
+		remover.shutdown();
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void isSupported_should_return_true_when_retransformation_is_supported()
+			throws Exception {
+		assertTrue(ProbeRemover.isSupported(inst.create()));
+	}
+
+	@Test
+	public void register_should_add_retransformation_capable_transformer()
+			throws Exception {
+		final CoverageTransformer transformer = new CoverageTransformer(
+				new LoggerRuntime(), new AgentOptions(), recorder);
+
+		remover.register(transformer);
+
+		assertSame(transformer, inst.transformer);
+		assertTrue(inst.canRetransform);
+	}
+
+	@Test
+	public void check_should_retransform_classes_which_reached_threshold() {
+		setProbes(42, 1, 2);
+
+		remover.check();
+
+		assertEquals(Arrays.asList(ProbeRemoverTest.class), inst.retransformed);
+		assertTrue(remover.isRemoved(42));
+	}
+
+	@Test
+	public void check_should_not_retransform_classes_below_threshold() {
+		setProbes(42, 1, 3);
+
+		remover.check();
+
+		assertEquals(Collections.emptyList(), inst.retransformed);
+		assertFalse(remover.isRemoved(42));
+	}
+
+	@Test
+	public void check_should_retransform_classes_only_once() {
+		setProbes(42, 2, 2);
+		remover.check();
+		inst.retransformed.clear();
+
+		remover.check();
+
+		assertEquals(Collections.emptyList(), inst.retransformed);
+		assertTrue(remover.isRemoved(42));
+	}
+
+	@Test
+	public void check_should_retransform_removed_classes_again_after_reset() {
+		setProbes(42, 2, 2);
+		remover.check();
+		inst.retransformed.clear();
+		data.reset();
+
+		remover.check();
+
+		assertEquals(Arrays.asList(ProbeRemoverTest.class), inst.retransformed);
+		assertFalse(remover.isRemoved(42));
+	}
+
+	@Test
+	public void check_should_log_retransformation_failure() {
+		inst.failure = new UnmodifiableClassException();
+		setProbes(42, 2, 2);
+
+		remover.check();
+
+		recorder.assertException(UnmodifiableClassException.class, null);
+		recorder.clear();
+	}
+
+	@Test
+	public void start_should_check_periodically() throws Exception {
+		remover.start();
+
+		setProbes(42, 2, 2);
+		inst.waitForRetransformation();
+		remover.shutdown();
+
+		assertTrue(remover.isRemoved(42));
+	}
+
+	@Test
+	public void getRemovedCount_should_return_number_of_removals() {
+		assertEquals(0, remover.getRemovedCount());
+
+		remover.removedProbes();
+		remover.removedProbes();
+
+		assertEquals(2, remover.getRemovedCount());
+	}
+
+	private void setProbes(final long id, final int executed, final int count) {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(id), NAME, count).getProbes();
+		for (int i = 0; i < executed; i++) {
+			probes[i] = true;
+		}
+	}
+
+}
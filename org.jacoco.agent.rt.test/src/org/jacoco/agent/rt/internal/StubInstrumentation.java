@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link Instrumentation} implementation for testing purposes which records
+ * retransformation requests. As the interface gained methods with every Java
+ * version the implementation is a dynamic proxy.
+ */
+public class StubInstrumentation implements InvocationHandler {
+
+	final List<Class<?>> retransformed = new ArrayList<Class<?>>();
+
+	Class<?>[] loadedClasses = new Class<?>[0];
+
+	Exception failure;
+
+	Class<?> failingClass;
+
+	int retransformations;
+
+	ClassFileTransformer transformer;
+
+	boolean canRetransform;
+
+	public Instrumentation create() {
+		return (Instrumentation) Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class<?>[] { Instrumentation.class }, this);
+	}
+
+	public synchronized Object invoke(final Object proxy, final Method method,
+			final Object[] args) throws Throwable {
+		final String name = method.getName();
+		if ("getAllLoadedClasses".equals(name)) {
+			return loadedClasses;
+		}
+		if ("isModifiableClass".equals(name)) {
+			return Boolean.valueOf(!((Class<?>) args[0]).isPrimitive());
+		}
+		if ("isRetransformClassesSupported".equals(name)) {
+			return Boolean.TRUE;
+		}
+		if ("retransformClasses".equals(name)) {
+			if (failure != null) {
+				throw failure;
+			}
+			final List<Class<?>> classes = Arrays.asList((Class<?>[]) args[0]);
+			if (classes.contains(failingClass)) {
+				throw new UnmodifiableClassException(failingClass.getName());
+			}
+			retransformations++;
+			retransformed.addAll(classes);
+			notifyAll();
+			return null;
+		}
+		if ("addTransformer".equals(name)) {
+			transformer = (ClassFileTransformer) args[0];
+			canRetransform = args.length > 1
+					&& ((Boolean) args[1]).booleanValue();
+			return null;
+		}
+		if ("removeTransformer".equals(name)) {
+			final boolean removed = transformer == args[0];
+			transformer = null;
+			return Boolean.valueOf(removed);
+		}
+		throw new UnsupportedOperationException(name);
+	}
+
+	/**
+	 * Blocks until classes have been retransformed by another thread.
+	 */
+	public synchronized void waitForRetransformation()
+			throws InterruptedException {
+		while (retransformed.isEmpty()) {
+			wait();
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExecutionDataSnapshot}.
+ */
+public class ExecutionDataSnapshotTest {
+
+	private RuntimeData data;
+
+	private ExecutionDataStore execStore;
+
+	private SessionInfoStore infoStore;
+
+	@Before
+	public void setup() {
+		data = new RuntimeData();
+		data.setSessionId("stubid");
+		execStore = new ExecutionDataStore();
+		infoStore = new SessionInfoStore();
+	}
+
+	@Test
+	public void testCollectCopiesProbesBeforeReset() throws IOException {
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[0] = true;
+		data.getExecutionData(Long.valueOf(2), "Bar", 2);
+
+		final ExecutionDataSnapshot snapshot = ExecutionDataSnapshot
+				.collect(data, true);
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[1] = true;
+		read(snapshot);
+
+		assertFalse(data.getExecutionData(Long.valueOf(1), "Foo", 2)
+				.getProbes()[0]);
+		assertTrue(execStore.get(1).getProbes()[0]);
+		assertFalse(execStore.get(1).getProbes()[1]);
+		assertNull(execStore.get(2));
+		assertEquals("stubid", infoStore.getInfos().get(0).getId());
+	}
+
+	@Test
+	public void testCollectDeltaContainsNewProbesOnly() throws IOException {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes();
+		probes[0] = true;
+		ExecutionDataSnapshot.collectDelta(data, "test", false);
+		data.commitDelta("test");
+		probes[1] = true;
+
+		read(ExecutionDataSnapshot.collectDelta(data, "test", false));
+
+		assertFalse(execStore.get(1).getProbes()[0]);
+		assertTrue(execStore.get(1).getProbes()[1]);
+		assertEquals(1, infoStore.getInfos().size());
+	}
+
+	@Test
+	public void testWriteToThrowsIOException() throws IOException {
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[0] = true;
+		final ExecutionDataSnapshot snapshot = ExecutionDataSnapshot
+				.collect(data, false);
+		final IOException failure = new IOException("fail");
+		final ExecutionDataWriter writer = new ExecutionDataWriter(
+				new ByteArrayOutputStream()) {
+			@Override
+			public void visitSessionInfo(final SessionInfo info) {
+				throw new RuntimeException(failure);
+			}
+		};
+		try {
+			snapshot.writeTo(writer);
+			fail("IOException expected");
+		} catch (final IOException e) {
+			assertEquals(failure, e);
+		}
+	}
+
+	private void read(final ExecutionDataSnapshot snapshot) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		snapshot.writeTo(new ExecutionDataWriter(buffer));
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(buffer.toByteArray()));
+		reader.setExecutionDataVisitor(execStore);
+		reader.setSessionInfoVisitor(infoStore);
+		reader.read();
+	}
+
+}
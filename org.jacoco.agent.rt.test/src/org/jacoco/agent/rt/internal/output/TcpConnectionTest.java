@@ -15,6 +15,7 @@ package org.jacoco.agent.rt.internal.output;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -22,8 +23,10 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataDeltaVisitor;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.data.SessionInfoStore;
 import org.jacoco.core.runtime.RemoteControlReader;
@@ -158,6 +161,78 @@ public class TcpConnectionTest extends ExecutorTestBase {
 		f.get();
 	}
 
+	@Test
+	public void testRemoteDeltaDump() throws Exception {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes();
+		probes[0] = true;
+		data.setSessionId("stubid");
+
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				mockConnection.getSocketB().getOutputStream());
+
+		final TcpConnection con = new TcpConnection(mockConnection.getSocketA(),
+				data);
+		con.init();
+
+		final Future<Void> f = executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				con.run();
+				return null;
+			}
+		});
+
+		assertBlocks(f);
+
+		remoteWriter.visitDeltaDumpCommand("test", false);
+		final RemoteControlReader remoteReader = new RemoteControlReader(
+				mockConnection.getSocketB().getInputStream());
+		final ExecutionDataStore execStore = new ExecutionDataStore();
+		remoteReader.setExecutionDataVisitor(execStore);
+		remoteReader.setSessionInfoVisitor(new SessionInfoStore());
+		assertTrue(remoteReader.read());
+		assertTrue(execStore.get(0x12345678).getProbes()[0]);
+
+		probes[1] = true;
+		remoteWriter.visitDeltaDumpCommand("test", false);
+		final ExecutionDataStore deltaStore = new ExecutionDataStore();
+		remoteReader.setExecutionDataVisitor(deltaStore);
+		assertTrue(remoteReader.read());
+		assertFalse(deltaStore.get(0x12345678).getProbes()[0]);
+		assertTrue(deltaStore.get(0x12345678).getProbes()[1]);
+
+		con.close();
+		f.get();
+	}
+
+	@Test
+	public void testRemoteDeltaDumpIsRepeatedWhenWriteFails() throws Exception {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes();
+		probes[0] = true;
+		final TcpConnection con = new TcpConnection(mockConnection.getSocketA(),
+				data);
+		con.init();
+		mockConnection.getSocketA().close();
+
+		try {
+			con.visitDeltaDumpCommand("test", false);
+			fail("IOException expected");
+		} catch (final IOException e) {
+			// expected
+		}
+
+		final ExecutionDataStore deltaStore = new ExecutionDataStore();
+		data.collectDelta("test", new IExecutionDataDeltaVisitor() {
+			public void visitClassExecutionDelta(final ExecutionData delta) {
+				deltaStore.put(delta);
+			}
+		}, new SessionInfoStore(), false);
+		assertTrue(deltaStore.get(0x12345678).getProbes()[0]);
+	}
+
 	@Test
 	public void testLocalDump() throws Exception {
 		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
@@ -14,6 +14,7 @@
 package org.jacoco.agent.rt.internal.output;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -118,6 +119,93 @@ public class TcpServerOutputTest {
 		controller.shutdown();
 	}
 
+	@Test
+	public void testWriteExecutionDataToMultipleClients() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0] = true;
+		data.setSessionId("stubid");
+
+		final Socket socket1 = serverSocket.connect();
+		final Socket socket2 = serverSocket.connect();
+		final RemoteControlReader reader1 = init(socket1);
+		final RemoteControlReader reader2 = init(socket2);
+
+		controller.writeExecutionData(true);
+
+		assertExecutionData(reader1);
+		assertExecutionData(reader2);
+		assertFalse(data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0]);
+
+		logger.assertNoException();
+		controller.shutdown();
+	}
+
+	@Test
+	public void testWriteExecutionDataWithoutConnection() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0] = true;
+
+		controller.writeExecutionData(true);
+
+		// data must not get lost without any client
+		assertTrue(data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0]);
+		controller.shutdown();
+	}
+
+	@Test
+	public void testWriteExecutionDataAfterRemoteClose() throws Exception {
+		data.getExecutionData(Long.valueOf(0x12345678), "Foo", 42)
+				.getProbes()[0] = true;
+		data.setSessionId("stubid");
+
+		final Socket socket1 = serverSocket.connect();
+		final Socket socket2 = serverSocket.connect();
+		init(socket1);
+		final RemoteControlReader reader2 = init(socket2);
+		socket1.close();
+
+		controller.writeExecutionData(false);
+
+		assertExecutionData(reader2);
+		logger.assertNoException();
+		controller.shutdown();
+	}
+
+	@Test
+	public void testShutdownWithMultipleConnections() throws Exception {
+		init(serverSocket.connect());
+		init(serverSocket.connect());
+		controller.shutdown();
+		logger.assertNoException();
+	}
+
+	private RemoteControlReader init(final Socket socket) throws IOException {
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				socket.getOutputStream());
+		final RemoteControlReader remoteReader = new RemoteControlReader(
+				socket.getInputStream());
+		// Process a NOP command to ensure the connection is initialized:
+		remoteWriter.visitDumpCommand(false, false);
+		remoteReader.read();
+		return remoteReader;
+	}
+
+	private void assertExecutionData(final RemoteControlReader remoteReader)
+			throws IOException {
+		final ExecutionDataStore execStore = new ExecutionDataStore();
+		remoteReader.setExecutionDataVisitor(execStore);
+		final SessionInfoStore infoStore = new SessionInfoStore();
+		remoteReader.setSessionInfoVisitor(infoStore);
+		remoteReader.read();
+
+		assertTrue(execStore.get(0x12345678).getProbes()[0]);
+		final List<SessionInfo> infos = infoStore.getInfos();
+		assertEquals(1, infos.size());
+		assertEquals("stubid", infos.get(0).getId());
+	}
+
 	@Test
 	public void testInvalidHeader() throws Exception {
 		final Socket socket = serverSocket.connect();
@@ -126,7 +214,7 @@ public class TcpServerOutputTest {
 		out.write(0xfe);
 		out.write(0xba);
 		out.write(0xbe);
-		serverSocket.waitForAccept();
+		logger.waitForException();
 		logger.assertException(IOException.class,
 				"Invalid execution data file.");
 		controller.shutdown();
@@ -68,4 +68,40 @@ public interface IAgent {
 	 */
 	void dump(boolean reset) throws IOException;
 
+	/**
+	 * Returns the number of classes which have been transformed without probes
+	 * since the agent has been started. Probes are only removed if the agent
+	 * option <code>removeprobesinterval</code> is set.
+	 *
+	 * @return number of classes transformed without probes
+	 */
+	int getDeinstrumentedClassCount();
+
+	/**
+	 * Instruments all loaded classes again after the agent has been detached
+	 * from the running VM. Does nothing if the agent is attached. Only
+	 * supported if the agent has been attached to a running VM, not if it has
+	 * been started with the VM.
+	 *
+	 * @return summary of the retransformed classes and pause times
+	 * @throws IllegalStateException
+	 *             if the agent has not been attached to a running VM
+	 * @throws Exception
+	 *             if the classes can't be retransformed
+	 */
+	String attach() throws Exception;
+
+	/**
+	 * Restores the original definitions of all instrumented classes. The
+	 * recorded execution data is kept. Only supported if the agent has been
+	 * attached to a running VM, not if it has been started with the VM.
+	 *
+	 * @return summary of the retransformed classes and pause times
+	 * @throws IllegalStateException
+	 *             if the agent has not been attached to a running VM
+	 * @throws Exception
+	 *             if the classes can't be retransformed
+	 */
+	String detach() throws Exception;
+
 }
@@ -63,6 +63,15 @@ public class Agent implements IAgent {
 		return singleton;
 	}
 
+	/**
+	 * Checks whether the global instance has already been started.
+	 *
+	 * @return <code>true</code> if the global instance exists
+	 */
+	public static synchronized boolean isStarted() {
+		return singleton != null;
+	}
+
 	/**
 	 * Returns a global instance which is already started. If a agent has not
 	 * been initialized before this method will fail.
@@ -89,6 +98,10 @@ public class Agent implements IAgent {
 
 	private Callable<Void> jmxRegistration;
 
+	private ProbeRemover probeRemover;
+
+	private Attachment attachment;
+
 	/**
 	 * Creates a new agent with the given agent options.
 	 *
@@ -112,6 +125,27 @@ public class Agent implements IAgent {
 		return data;
 	}
 
+	/**
+	 * Sets the remover for probes of covered classes which is stopped when this
+	 * agent is shut down.
+	 *
+	 * @param probeRemover
+	 *            started remover
+	 */
+	public void setProbeRemover(final ProbeRemover probeRemover) {
+		this.probeRemover = probeRemover;
+	}
+
+	/**
+	 * Sets the attachment to a running VM which instruments loaded classes.
+	 *
+	 * @param attachment
+	 *            attachment of this agent
+	 */
+	public void setAttachment(final Attachment attachment) {
+		this.attachment = attachment;
+	}
+
 	/**
 	 * Initializes this agent.
 	 *
@@ -141,6 +175,9 @@ public class Agent implements IAgent {
 	 */
 	public void shutdown() {
 		try {
+			if (probeRemover != null) {
+				probeRemover.shutdown();
+			}
 			if (options.getDumpOnExit()) {
 				output.writeExecutionData(false);
 			}
@@ -220,4 +257,24 @@ public class Agent implements IAgent {
 		output.writeExecutionData(reset);
 	}
 
+	public int getDeinstrumentedClassCount() {
+		return probeRemover == null ? 0 : probeRemover.getRemovedCount();
+	}
+
+	public String attach() throws Exception {
+		return getAttachment().attach().toString();
+	}
+
+	public String detach() throws Exception {
+		return getAttachment().detach().toString();
+	}
+
+	private Attachment getAttachment() {
+		if (attachment == null) {
+			throw new IllegalStateException(
+					"JaCoCo agent has not been attached to a running VM.");
+		}
+		return attachment;
+	}
+
 }
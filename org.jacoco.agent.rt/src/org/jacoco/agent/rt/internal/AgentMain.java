@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.Instrumentation;
+
+import org.jacoco.core.runtime.AbstractRuntime;
+import org.jacoco.core.runtime.AgentOptions;
+
+/**
+ * The agent which is referred as the <code>Agent-Class</code>, i.e. which is
+ * loaded into a running VM through the Attach API. The agent configuration is
+ * provided with the agent parameters when the agent is loaded the first time.
+ * Loading the agent again with the parameter {@value #DETACH} restores the
+ * original classes, loading it again without parameters or with the same
+ * parameters instruments them again. Loading it with different parameters
+ * fails. The result of every load is published as the system property
+ * {@value #STATUS_PROPERTY} of the VM.
+ */
+public final class AgentMain {
+
+	/**
+	 * Agent parameter to detach the agent.
+	 */
+	public static final String DETACH = "detach";
+
+	/**
+	 * System property which holds the summary of the last attach or detach.
+	 */
+	public static final String STATUS_PROPERTY = "jacoco-agent.status";
+
+	private static Agent agent;
+
+	private static String attachedOptions;
+
+	private AgentMain() {
+		// no instances
+	}
+
+	/**
+	 * This method is called by the JVM when the agent is loaded into a running
+	 * VM.
+	 *
+	 * @param options
+	 *            agent options or {@value #DETACH}
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @throws Exception
+	 *             in case initialization fails
+	 */
+	public static void agentmain(final String options,
+			final Instrumentation inst) throws Exception {
+		final String status;
+		if (DETACH.equals(options)) {
+			status = getAgent().detach();
+		} else {
+			status = getAgent(options, inst).attach();
+		}
+		System.setProperty(STATUS_PROPERTY, status);
+	}
+
+	private static synchronized Agent getAgent() {
+		if (agent == null) {
+			throw new IllegalStateException(
+					"JaCoCo agent has not been attached to this VM.");
+		}
+		return agent;
+	}
+
+	private static synchronized Agent getAgent(final String options,
+			final Instrumentation inst) throws Exception {
+		if (agent != null) {
+			checkOptions(attachedOptions, options);
+			return agent;
+		}
+		if (Agent.isStarted()) {
+			throw new IllegalStateException(
+					"JaCoCo agent has already been started with this VM.");
+		}
+		if (!ProbeRemover.isSupported(inst)) {
+			throw new IllegalStateException(
+					"VM does not support retransformation of classes.");
+		}
+
+		final AgentOptions agentOptions = new AgentOptions(options);
+		final Agent newAgent = Agent.getInstance(agentOptions);
+
+		final AbstractRuntime runtime = PreMain.createRuntime(inst, true);
+		runtime.startup(newAgent.getData());
+		final CoverageTransformer transformer = new CoverageTransformer(runtime,
+				runtime.createInvokeDynamicAccessorGenerator(), agentOptions,
+				IExceptionLogger.SYSTEM_ERR, true);
+		final int interval = agentOptions.getRemoveProbesInterval();
+		if (interval > 0) {
+			final ProbeRemover remover = new ProbeRemover(inst,
+					newAgent.getData(), interval * 1000L,
+					agentOptions.getRemoveProbesThreshold(),
+					IExceptionLogger.SYSTEM_ERR);
+			transformer.setProbeRemover(remover);
+			remover.start();
+			newAgent.setProbeRemover(remover);
+		}
+		newAgent.setAttachment(new Attachment(inst, transformer,
+				Attachment.DEFAULT_BATCH_SIZE, IExceptionLogger.SYSTEM_ERR));
+		agent = newAgent;
+		attachedOptions = options == null ? "" : options;
+		return agent;
+	}
+
+	/**
+	 * The configuration of an attached agent can't be changed, so subsequent
+	 * loads must not specify different options.
+	 */
+	static void checkOptions(final String attachedOptions,
+			final String options) {
+		if (options != null && options.length() > 0
+				&& !options.equals(attachedOptions)) {
+			throw new IllegalStateException(String.format(
+					"JaCoCo agent has already been attached with options \"%s\".",
+					attachedOptions));
+		}
+	}
+
+}
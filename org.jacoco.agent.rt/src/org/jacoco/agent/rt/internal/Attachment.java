@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instrumentation of a running VM to which the agent has been attached. Classes
+ * which have been loaded before are instrumented by retransformation. As the VM
+ * suspends all threads while it redefines classes, they are retransformed in
+ * batches of limited size. Detaching removes the transformer and retransforms
+ * the same classes again, which restores their original definitions. The
+ * recorded execution data is kept. Methods which are running while a class is
+ * retransformed keep their current code until they return.
+ * <p>
+ * Retransformation is only available since Java 6, the corresponding methods of
+ * {@link Instrumentation} are therefore called reflectively.
+ */
+public class Attachment {
+
+	/** Default number of classes retransformed at once. */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private final Instrumentation inst;
+
+	private final CoverageTransformer transformer;
+
+	private final int batchSize;
+
+	private final IExceptionLogger logger;
+
+	private final Method addTransformer;
+
+	private final Method isModifiableClass;
+
+	private final Method retransformClasses;
+
+	private boolean attached;
+
+	/**
+	 * Creates a new attachment which is not attached yet.
+	 *
+	 * @param inst
+	 *            instrumentation to retransform classes with
+	 * @param transformer
+	 *            transformer created for an attached agent
+	 * @param batchSize
+	 *            maximum number of classes retransformed at once
+	 * @param logger
+	 *            logger for exceptions during retransformation
+	 * @throws NoSuchMethodException
+	 *             if retransformation is not available
+	 */
+	public Attachment(final Instrumentation inst,
+			final CoverageTransformer transformer, final int batchSize,
+			final IExceptionLogger logger) throws NoSuchMethodException {
+		this.inst = inst;
+		this.transformer = transformer;
+		this.batchSize = batchSize;
+		this.logger = logger;
+		this.addTransformer = Instrumentation.class.getMethod("addTransformer",
+				ClassFileTransformer.class, boolean.class);
+		this.isModifiableClass = Instrumentation.class
+				.getMethod("isModifiableClass", Class.class);
+		this.retransformClasses = Instrumentation.class
+				.getMethod("retransformClasses", Class[].class);
+	}
+
+	/**
+	 * Registers the transformer and instruments all matching classes which have
+	 * been loaded before. Does nothing if already attached.
+	 *
+	 * @return summary of the retransformation
+	 * @throws Exception
+	 *             if the transformer can't be registered
+	 */
+	public synchronized Statistics attach() throws Exception {
+		final Statistics statistics = new Statistics();
+		if (!attached) {
+			addTransformer.invoke(inst, transformer, Boolean.TRUE);
+			attached = true;
+			retransform(getLoadedClasses(), statistics);
+		}
+		return statistics;
+	}
+
+	/**
+	 * Removes the transformer and restores the original definitions of all
+	 * matching classes. Does nothing if not attached.
+	 *
+	 * @return summary of the retransformation
+	 * @throws Exception
+	 *             if the classes can't be listed
+	 */
+	public synchronized Statistics detach() throws Exception {
+		final Statistics statistics = new Statistics();
+		if (attached) {
+			inst.removeTransformer(transformer);
+			attached = false;
+			retransform(getLoadedClasses(), statistics);
+		}
+		return statistics;
+	}
+
+	/**
+	 * @return <code>true</code> if the transformer is currently registered
+	 */
+	public synchronized boolean isAttached() {
+		return attached;
+	}
+
+	private List<Class<?>> getLoadedClasses() throws Exception {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (final Class<?> c : inst.getAllLoadedClasses()) {
+			if (((Boolean) isModifiableClass.invoke(inst, c)).booleanValue()
+					&& transformer.filter(c.getClassLoader(),
+							c.getName().replace('.', '/'),
+							c.getProtectionDomain())) {
+				classes.add(c);
+			}
+		}
+		return classes;
+	}
+
+	private void retransform(final List<Class<?>> classes,
+			final Statistics statistics) throws IllegalAccessException {
+		for (int i = 0; i < classes.size(); i += batchSize) {
+			final Class<?>[] batch = classes
+					.subList(i, Math.min(i + batchSize, classes.size()))
+					.toArray(new Class<?>[0]);
+			final long start = System.nanoTime();
+			int failed = 0;
+			if (!retransform(batch, false)) {
+				// Retry one by one and report the first failure only:
+				for (final Class<?> c : batch) {
+					final boolean log = statistics.failed + failed == 0;
+					if (!retransform(new Class<?>[] { c }, log)) {
+						failed++;
+					}
+				}
+			}
+			statistics.add(batch.length, failed, System.nanoTime() - start);
+		}
+	}
+
+	private boolean retransform(final Class<?>[] classes, final boolean log)
+			throws IllegalAccessException {
+		try {
+			retransformClasses.invoke(inst, (Object) classes);
+			return true;
+		} catch (final InvocationTargetException e) {
+			if (log) {
+				final Throwable cause = e.getCause();
+				logger.logExeption(
+						cause instanceof Exception ? (Exception) cause : e);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Pause times of a retransformation of loaded classes.
+	 */
+	public static class Statistics {
+
+		private int classes;
+
+		private int failed;
+
+		private int batches;
+
+		private long maxTime;
+
+		private long totalTime;
+
+		void add(final int classes, final int failed, final long time) {
+			this.classes += classes;
+			this.failed += failed;
+			this.batches++;
+			this.maxTime = Math.max(this.maxTime, time);
+			this.totalTime += time;
+		}
+
+		/**
+		 * @return number of retransformed classes
+		 */
+		public int getClasses() {
+			return classes;
+		}
+
+		/**
+		 * @return number of classes which could not be retransformed
+		 */
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return number of batches
+		 */
+		public int getBatches() {
+			return batches;
+		}
+
+		/**
+		 * @return longest time for a single batch in nanoseconds
+		 */
+		public long getMaxTime() {
+			return maxTime;
+		}
+
+		/**
+		 * @return total time for all batches in nanoseconds
+		 */
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		/**
+		 * Returns a summary like
+		 * <code>1200 classes (0 failed) in 12 batches, max 15 ms, total 120 ms</code>.
+		 */
+		@Override
+		public String toString() {
+			return String.format(
+					"%s classes (%s failed) in %s batches, max %s ms, total %s ms",
+					Integer.valueOf(classes), Integer.valueOf(failed),
+					Integer.valueOf(batches), Long.valueOf(maxTime / 1000000),
+					Long.valueOf(totalTime / 1000000));
+		}
+
+	}
+
+}
@@ -12,15 +12,22 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.ClassFileCache;
+import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.jacoco.core.runtime.IRuntime;
 import org.jacoco.core.runtime.WildcardMatcher;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Class file transformer to instrument classes for code coverage analysis.
@@ -36,6 +43,13 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private final Instrumenter instrumenter;
 
+	/**
+	 * Instrumenter for classes of the bootstrap class loader which must not
+	 * depend on <code>invokedynamic</code>, as they may be used to link call
+	 * sites.
+	 */
+	private final Instrumenter bootstrapInstrumenter;
+
 	private final IExceptionLogger logger;
 
 	private final WildcardMatcher includes;
@@ -46,10 +60,17 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private final ClassFileDumper classFileDumper;
 
+	/** Cache for instrumented classes, disabled after write failures. */
+	private volatile ClassFileCache classFileCache;
+
 	private final boolean inclBootstrapClasses;
 
 	private final boolean inclNoLocationClasses;
 
+	private final boolean attached;
+
+	private ProbeRemover probeRemover;
+
 	/**
 	 * New transformer with the given delegates.
 	 *
@@ -62,24 +83,117 @@ public class CoverageTransformer implements ClassFileTransformer {
 	 */
 	public CoverageTransformer(final IRuntime runtime,
 			final AgentOptions options, final IExceptionLogger logger) {
-		this.instrumenter = new Instrumenter(runtime);
+		this(runtime, runtime, options, logger);
+	}
+
+	/**
+	 * New transformer with the given delegates which uses a different accessor
+	 * generator for classes not loaded by the bootstrap class loader.
+	 *
+	 * @param runtime
+	 *            coverage runtime used for classes of the bootstrap class
+	 *            loader
+	 * @param accessorGenerator
+	 *            accessor generator for all other classes, e.g.
+	 *            {@link org.jacoco.core.runtime.InvokeDynamicAccessorGenerator}
+	 * @param options
+	 *            configuration options for the generator
+	 * @param logger
+	 *            logger for exceptions during instrumentation
+	 */
+	public CoverageTransformer(final IRuntime runtime,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final AgentOptions options, final IExceptionLogger logger) {
+		this(runtime, accessorGenerator, options, logger, false);
+	}
+
+	/**
+	 * New transformer with the given delegates for an agent which is optionally
+	 * attached to a running VM. In this case instrumented classes don't declare
+	 * additional members, so that classes which have been loaded before can be
+	 * instrumented and restored by retransformation. This is only efficient
+	 * with an accessor generator based on <code>invokedynamic</code>, therefore
+	 * only classes of Java 7 or later which are not loaded by the bootstrap
+	 * class loader are instrumented then.
+	 *
+	 * @param runtime
+	 *            coverage runtime used for classes of the bootstrap class
+	 *            loader
+	 * @param accessorGenerator
+	 *            accessor generator for all other classes, e.g.
+	 *            {@link org.jacoco.core.runtime.InvokeDynamicAccessorGenerator}
+	 * @param options
+	 *            configuration options for the generator
+	 * @param logger
+	 *            logger for exceptions during instrumentation
+	 * @param attached
+	 *            <code>true</code> if the agent has been attached to a running
+	 *            VM
+	 */
+	public CoverageTransformer(final IRuntime runtime,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final AgentOptions options, final IExceptionLogger logger,
+			final boolean attached) {
+		this.attached = attached;
+		this.instrumenter = createInstrumenter(accessorGenerator, options,
+				attached);
+		this.bootstrapInstrumenter = createInstrumenter(runtime, options,
+				attached);
 		this.logger = logger;
 		// Class names will be reported in VM notation:
 		includes = new WildcardMatcher(toVMName(options.getIncludes()));
 		excludes = new WildcardMatcher(toVMName(options.getExcludes()));
 		exclClassloader = new WildcardMatcher(options.getExclClassloader());
 		classFileDumper = new ClassFileDumper(options.getClassDumpDir());
-		inclBootstrapClasses = options.getInclBootstrapClasses();
+		classFileCache = createClassFileCache(options);
+		inclBootstrapClasses = options.getInclBootstrapClasses() && !attached;
 		inclNoLocationClasses = options.getInclNoLocationClasses();
 	}
 
+	private static Instrumenter createInstrumenter(
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final AgentOptions options, final boolean attached) {
+		final Instrumenter instrumenter = new Instrumenter(accessorGenerator);
+		instrumenter.setHitCounts(options.getHitCounts());
+		instrumenter.setConditionalProbes(options.getConditionalProbes());
+		instrumenter.setPreserveMembers(attached);
+		return instrumenter;
+	}
+
+	/**
+	 * Sets a remover which decides which classes are transformed without
+	 * probes. With a remover this transformer also handles retransformation and
+	 * must be registered as retransformation capable. Must be called before the
+	 * transformer is registered.
+	 *
+	 * @param probeRemover
+	 *            remover for probes of covered classes
+	 */
+	public void setProbeRemover(final ProbeRemover probeRemover) {
+		this.probeRemover = probeRemover;
+	}
+
+	private ClassFileCache createClassFileCache(final AgentOptions options) {
+		final String location = options.getClassCacheDir();
+		if (location == null) {
+			return null;
+		}
+		try {
+			return new ClassFileCache(new File(location),
+					options.getClassCacheSize() * 1024L * 1024L, instrumenter);
+		} catch (final IOException e) {
+			logger.logExeption(e);
+			return null;
+		}
+	}
+
 	public byte[] transform(final ClassLoader loader, final String classname,
 			final Class<?> classBeingRedefined,
 			final ProtectionDomain protectionDomain,
 			final byte[] classfileBuffer) throws IllegalClassFormatException {
 
-		// We do not support class retransformation:
-		if (classBeingRedefined != null) {
+		// Retransformation is only supported to remove probes or if attached:
+		if (classBeingRedefined != null && probeRemover == null && !attached) {
 			return null;
 		}
 
@@ -87,9 +201,28 @@ public class CoverageTransformer implements ClassFileTransformer {
 			return null;
 		}
 
+		if (attached && InstrSupport
+				.getMajorVersion(classfileBuffer) < Opcodes.V1_7) {
+			return null;
+		}
+
 		try {
-			classFileDumper.dump(classname, classfileBuffer);
-			return instrumenter.instrument(classfileBuffer, classname);
+			if (classBeingRedefined == null) {
+				classFileDumper.dump(classname, classfileBuffer);
+			} else if (probeRemover != null
+					&& probeRemover.isRemoved(CRC64.classId(classfileBuffer))) {
+				final byte[] result = (loader == null ? bootstrapInstrumenter
+						: instrumenter).instrumentWithoutProbes(classfileBuffer,
+								classname);
+				probeRemover.removedProbes();
+				return result;
+			}
+			if (loader == null) {
+				// the cache only holds classes of the main instrumenter:
+				return bootstrapInstrumenter.instrument(classfileBuffer,
+						classname);
+			}
+			return instrument(classfileBuffer, classname);
 		} catch (final Exception ex) {
 			final IllegalClassFormatException wrapper = new IllegalClassFormatException(
 					ex.getMessage());
@@ -100,6 +233,27 @@ public class CoverageTransformer implements ClassFileTransformer {
 		}
 	}
 
+	private byte[] instrument(final byte[] source, final String classname)
+			throws IOException {
+		final ClassFileCache cache = classFileCache;
+		if (cache == null) {
+			return instrumenter.instrument(source, classname);
+		}
+		final byte[] cached = cache.get(source);
+		if (cached != null) {
+			return cached;
+		}
+		final byte[] instrumented = instrumenter.instrument(source, classname);
+		try {
+			cache.put(source, instrumented);
+		} catch (final IOException e) {
+			// Report only once and continue without cache:
+			classFileCache = null;
+			logger.logExeption(e);
+		}
+		return instrumented;
+	}
+
 	/**
 	 * Checks whether this class should be instrumented.
 	 *
@@ -18,7 +18,8 @@ import java.util.Map;
 import java.util.Set;
 
 import org.jacoco.core.runtime.AgentOptions;
-import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.AbstractRuntime;
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.jacoco.core.runtime.InjectedClassRuntime;
 import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
 
@@ -28,6 +29,11 @@ import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
  */
 public final class PreMain {
 
+	/**
+	 * System class which receives the runtime before Java 9.
+	 */
+	static final String RUNTIME_CLASS = "java/lang/UnknownError";
+
 	private PreMain() {
 		// no instances
 	}
@@ -49,21 +55,70 @@ public final class PreMain {
 
 		final Agent agent = Agent.getInstance(agentOptions);
 
-		final IRuntime runtime = createRuntime(inst);
+		final AbstractRuntime runtime = createRuntime(inst,
+				agentOptions.getInvokeDynamic());
 		runtime.startup(agent.getData());
-		inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
-				IExceptionLogger.SYSTEM_ERR));
+		final IExecutionDataAccessorGenerator accessorGenerator = agentOptions
+				.getInvokeDynamic()
+						? runtime.createInvokeDynamicAccessorGenerator()
+						: runtime;
+		final CoverageTransformer transformer = new CoverageTransformer(runtime,
+				accessorGenerator, agentOptions, IExceptionLogger.SYSTEM_ERR);
+		final int interval = agentOptions.getRemoveProbesInterval();
+		if (interval > 0 && ProbeRemover.isSupported(inst)) {
+			final ProbeRemover remover = new ProbeRemover(inst, agent.getData(),
+					interval * 1000L, agentOptions.getRemoveProbesThreshold(),
+					IExceptionLogger.SYSTEM_ERR);
+			remover.register(transformer);
+			remover.start();
+			agent.setProbeRemover(remover);
+		} else {
+			inst.addTransformer(transformer);
+		}
 	}
 
-	private static IRuntime createRuntime(final Instrumentation inst)
-			throws Exception {
+	/**
+	 * Creates a runtime which is accessible from classes of all class loaders.
+	 *
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param invokeDynamic
+	 *            whether the runtime must support
+	 *            {@link AbstractRuntime#createInvokeDynamicAccessorGenerator()}
+	 * @return runtime which is not started yet
+	 * @throws Exception
+	 *             if the runtime can't be created
+	 */
+	static AbstractRuntime createRuntime(final Instrumentation inst,
+			final boolean invokeDynamic) throws Exception {
 
 		if (redefineJavaBaseModule(inst)) {
 			return new InjectedClassRuntime(Object.class, "$JaCoCo");
 		}
 
-		return ModifiedSystemClassRuntime.createFor(inst,
-				"java/lang/UnknownError");
+		checkNotLoaded(inst, RUNTIME_CLASS);
+		return (AbstractRuntime) ModifiedSystemClassRuntime.createFor(inst,
+				RUNTIME_CLASS, invokeDynamic);
+	}
+
+	/**
+	 * The runtime is added to a system class when it is loaded, which is only
+	 * possible if the class has not been loaded before. This is typically not
+	 * the case when the agent is attached to a running VM.
+	 *
+	 * @throws IllegalStateException
+	 *             if the class has already been loaded
+	 */
+	static void checkNotLoaded(final Instrumentation inst,
+			final String className) {
+		final String name = className.replace('/', '.');
+		for (final Class<?> c : inst.getAllLoadedClasses()) {
+			if (c.getName().equals(name) && c.getClassLoader() == null) {
+				throw new IllegalStateException(String.format(
+						"Class %s has already been loaded, the JaCoCo runtime can't be added to it.",
+						name));
+			}
+		}
 	}
 
 	/**
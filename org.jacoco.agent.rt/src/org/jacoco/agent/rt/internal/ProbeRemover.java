@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Periodically removes the probes of classes which reached a given coverage by
+ * retransforming them. The {@link CoverageTransformer} then creates versions of
+ * these classes without probes. The recorded execution data is kept. If the
+ * coverage of such a class falls below the threshold again, i.e. its execution
+ * data has been reset, its probes are inserted again with the next check.
+ * Methods which are running while a class is retransformed keep their current
+ * code until they return.
+ * <p>
+ * Retransformation is only available since Java 6, the corresponding methods of
+ * {@link Instrumentation} are therefore called reflectively.
+ */
+public class ProbeRemover {
+
+	private final Instrumentation inst;
+
+	private final RuntimeData data;
+
+	private final long interval;
+
+	private final int threshold;
+
+	private final IExceptionLogger logger;
+
+	/** ids of classes which should not have probes */
+	private final ConcurrentMap<Long, Boolean> removed;
+
+	private final AtomicInteger removedCount;
+
+	private final Method isModifiableClass;
+
+	private final Method retransformClasses;
+
+	private Thread worker;
+
+	/**
+	 * Creates a new remover which is not started yet.
+	 *
+	 * @param inst
+	 *            instrumentation to retransform classes with
+	 * @param data
+	 *            execution data of the instrumented classes
+	 * @param interval
+	 *            interval between two checks in milliseconds
+	 * @param threshold
+	 *            minimum percentage of executed probes at which the probes of a
+	 *            class are removed
+	 * @param logger
+	 *            logger for exceptions during retransformation
+	 * @throws NoSuchMethodException
+	 *             if retransformation is not available
+	 */
+	public ProbeRemover(final Instrumentation inst, final RuntimeData data,
+			final long interval, final int threshold,
+			final IExceptionLogger logger) throws NoSuchMethodException {
+		this.inst = inst;
+		this.data = data;
+		this.interval = interval;
+		this.threshold = threshold;
+		this.logger = logger;
+		this.removed = new ConcurrentHashMap<Long, Boolean>();
+		this.removedCount = new AtomicInteger();
+		this.isModifiableClass = Instrumentation.class
+				.getMethod("isModifiableClass", Class.class);
+		this.retransformClasses = Instrumentation.class
+				.getMethod("retransformClasses", Class[].class);
+	}
+
+	/**
+	 * Checks whether the given instrumentation supports retransformation of
+	 * classes.
+	 *
+	 * @param inst
+	 *            instrumentation to check
+	 * @return <code>true</code> if classes can be retransformed
+	 * @throws Exception
+	 *             if the check fails
+	 */
+	public static boolean isSupported(final Instrumentation inst)
+			throws Exception {
+		final Method method;
+		try {
+			method = Instrumentation.class
+					.getMethod("isRetransformClassesSupported");
+		} catch (final NoSuchMethodException e) {
+			return false;
+		}
+		return ((Boolean) method.invoke(inst)).booleanValue();
+	}
+
+	/**
+	 * Registers the given transformer as capable of retransformation and lets
+	 * it consult this remover.
+	 *
+	 * @param transformer
+	 *            transformer to register
+	 * @throws Exception
+	 *             if the transformer can't be registered
+	 */
+	public void register(final CoverageTransformer transformer)
+			throws Exception {
+		transformer.setProbeRemover(this);
+		Instrumentation.class.getMethod("addTransformer",
+				ClassFileTransformer.class, boolean.class)
+				.invoke(inst, transformer, Boolean.TRUE);
+	}
+
+	/**
+	 * Starts a daemon thread which checks the execution data in the configured
+	 * interval.
+	 */
+	public void start() {
+		worker = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(interval);
+						check();
+					}
+				} catch (final InterruptedException e) {
+					// stopped
+				}
+			}
+		});
+		worker.setName(getClass().getName());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stops the checks.
+	 *
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for a
+	 *             running check
+	 */
+	public void shutdown() throws InterruptedException {
+		if (worker != null) {
+			worker.interrupt();
+			worker.join();
+		}
+	}
+
+	/**
+	 * Checks the current execution data once. Probes of classes which reached
+	 * the threshold are removed, probes of classes which fell below the
+	 * threshold are inserted again.
+	 */
+	void check() {
+		final Set<String> names = new HashSet<String>();
+		data.collect(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData entry) {
+				final Long id = Long.valueOf(entry.getId());
+				final boolean covered = isCovered(entry.getProbes());
+				if (removed.containsKey(id)) {
+					if (!covered) {
+						removed.remove(id);
+						names.add(entry.getName());
+					}
+				} else if (covered) {
+					removed.put(id, Boolean.TRUE);
+					names.add(entry.getName());
+				}
+			}
+		}, new ISessionInfoVisitor() {
+			public void visitSessionInfo(final SessionInfo info) {
+				// not needed
+			}
+		}, false);
+		if (!names.isEmpty()) {
+			retransform(names);
+		}
+	}
+
+	private boolean isCovered(final boolean[] probes) {
+		int executed = 0;
+		for (final boolean p : probes) {
+			if (p) {
+				executed++;
+			}
+		}
+		return executed > 0
+				&& executed * 100L >= threshold * (long) probes.length;
+	}
+
+	private void retransform(final Set<String> names) {
+		try {
+			final List<Class<?>> classes = new ArrayList<Class<?>>();
+			for (final Class<?> c : inst.getAllLoadedClasses()) {
+				if (names.contains(c.getName().replace('.', '/'))
+						&& ((Boolean) isModifiableClass.invoke(inst, c))
+								.booleanValue()) {
+					classes.add(c);
+				}
+			}
+			if (!classes.isEmpty()) {
+				retransformClasses.invoke(inst,
+						(Object) classes.toArray(new Class<?>[0]));
+			}
+		} catch (final InvocationTargetException e) {
+			final Throwable cause = e.getCause();
+			logger.logExeption(
+					cause instanceof Exception ? (Exception) cause : e);
+		} catch (final Exception e) {
+			logger.logExeption(e);
+		}
+	}
+
+	/**
+	 * Checks whether the class with the given id should not have probes.
+	 *
+	 * @param classId
+	 *            id of the class
+	 * @return <code>true</code> if the class should be transformed without
+	 *         probes
+	 */
+	public boolean isRemoved(final long classId) {
+		return removed.containsKey(Long.valueOf(classId));
+	}
+
+	/**
+	 * Called by the transformer for every class which has been transformed
+	 * without probes.
+	 */
+	void removedProbes() {
+		removedCount.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of classes transformed without probes so far.
+	 *
+	 * @return number of classes without probes
+	 */
+	public int getRemovedCount() {
+		return removedCount.get();
+	}
+
+}
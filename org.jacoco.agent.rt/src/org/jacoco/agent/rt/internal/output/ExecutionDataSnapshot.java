@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal.output;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataDeltaVisitor;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Immutable copy of the execution data of a {@link RuntimeData} instance. As
+ * {@link RuntimeData} only provides copies of its probe arrays the snapshot can
+ * be written to any number of outputs afterwards without blocking the runtime.
+ */
+class ExecutionDataSnapshot implements ISessionInfoVisitor,
+		IExecutionDataVisitor, IExecutionDataDeltaVisitor {
+
+	private final boolean delta;
+
+	private final List<ExecutionData> entries;
+
+	private SessionInfo info;
+
+	private ExecutionDataSnapshot(final boolean delta) {
+		this.delta = delta;
+		this.entries = new ArrayList<ExecutionData>();
+	}
+
+	/**
+	 * Takes a snapshot of the complete execution data.
+	 *
+	 * @param data
+	 *            runtime data to copy
+	 * @param reset
+	 *            if <code>true</code> the runtime data is cleared afterwards
+	 * @return snapshot of the current execution data
+	 */
+	static ExecutionDataSnapshot collect(final RuntimeData data,
+			final boolean reset) {
+		final ExecutionDataSnapshot snapshot = new ExecutionDataSnapshot(false);
+		data.collect(snapshot, snapshot, reset);
+		return snapshot;
+	}
+
+	/**
+	 * Takes a snapshot of the probes executed since the previous delta
+	 * committed for the given client.
+	 *
+	 * @param data
+	 *            runtime data to copy
+	 * @param clientId
+	 *            identifier of the client the delta is collected for
+	 * @param reset
+	 *            if <code>true</code> the runtime data is cleared afterwards
+	 * @return snapshot of the execution data delta
+	 */
+	static ExecutionDataSnapshot collectDelta(final RuntimeData data,
+			final String clientId, final boolean reset) {
+		final ExecutionDataSnapshot snapshot = new ExecutionDataSnapshot(true);
+		data.collectDelta(clientId, snapshot, snapshot, reset);
+		return snapshot;
+	}
+
+	/**
+	 * Writes the content of this snapshot to the given writer.
+	 *
+	 * @param writer
+	 *            writer to write the snapshot to
+	 * @throws IOException
+	 *             if the underlying stream fails
+	 */
+	void writeTo(final ExecutionDataWriter writer) throws IOException {
+		try {
+			writer.visitSessionInfo(info);
+			for (final ExecutionData data : entries) {
+				if (delta) {
+					writer.visitClassExecutionDelta(data);
+				} else {
+					writer.visitClassExecution(data);
+				}
+			}
+		} catch (final RuntimeException e) {
+			// the visitor methods of the writer wrap I/O problems:
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// === ISessionInfoVisitor ===
+
+	public void visitSessionInfo(final SessionInfo info) {
+		this.info = info;
+	}
+
+	// === IExecutionDataVisitor ===
+
+	public void visitClassExecution(final ExecutionData data) {
+		// classes without hits are not written anyways:
+		if (data.hasHits()) {
+			entries.add(data);
+		}
+	}
+
+	// === IExecutionDataDeltaVisitor ===
+
+	public void visitClassExecutionDelta(final ExecutionData delta) {
+		entries.add(delta);
+	}
+
+}
@@ -22,7 +22,10 @@ import org.jacoco.core.runtime.RemoteControlWriter;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
- * Handler for a single socket based remote connection.
+ * Handler for a single socket based remote connection. Execution data is copied
+ * from the {@link RuntimeData} before it is written to the socket, so the
+ * runtime data is never locked during network I/O. Writes to the socket are
+ * serialized per connection.
  */
 class TcpConnection implements IRemoteCommandVisitor {
 
@@ -34,7 +37,7 @@ class TcpConnection implements IRemoteCommandVisitor {
 
 	private RemoteControlReader reader;
 
-	private boolean initialized;
+	private volatile boolean initialized;
 
 	public TcpConnection(final Socket socket, final RuntimeData data) {
 		this.socket = socket;
@@ -79,11 +82,33 @@ class TcpConnection implements IRemoteCommandVisitor {
 	 * @throws IOException
 	 */
 	public void writeExecutionData(final boolean reset) throws IOException {
-		if (initialized && !socket.isClosed()) {
+		if (isWritable()) {
 			visitDumpCommand(true, reset);
 		}
 	}
 
+	/**
+	 * Checks whether the connection is initialized and the underlying socket is
+	 * still open.
+	 *
+	 * @return <code>true</code> if execution data can be written
+	 */
+	public boolean isWritable() {
+		return initialized && !socket.isClosed();
+	}
+
+	/**
+	 * Writes the given snapshot of execution data.
+	 *
+	 * @param snapshot
+	 *            previously collected execution data
+	 * @throws IOException
+	 */
+	public void writeExecutionData(final ExecutionDataSnapshot snapshot)
+			throws IOException {
+		write(snapshot);
+	}
+
 	/**
 	 * Closes the underlying socket if not closed yet.
 	 *
@@ -100,13 +125,30 @@ class TcpConnection implements IRemoteCommandVisitor {
 	public void visitDumpCommand(final boolean dump, final boolean reset)
 			throws IOException {
 		if (dump) {
-			data.collect(writer, writer, reset);
+			write(ExecutionDataSnapshot.collect(data, reset));
 		} else {
 			if (reset) {
 				data.reset();
 			}
+			synchronized (writer) {
+				writer.sendCmdOk();
+			}
+		}
+	}
+
+	public void visitDeltaDumpCommand(final String clientId,
+			final boolean reset) throws IOException {
+		write(ExecutionDataSnapshot.collectDelta(data, clientId, reset));
+		// Probes are only considered as reported once they have been sent:
+		data.commitDelta(clientId);
+	}
+
+	private void write(final ExecutionDataSnapshot snapshot)
+			throws IOException {
+		synchronized (writer) {
+			snapshot.writeTo(writer);
+			writer.sendCmdOk();
 		}
-		writer.sendCmdOk();
 	}
 
 }
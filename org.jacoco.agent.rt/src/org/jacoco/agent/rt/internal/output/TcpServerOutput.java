@@ -16,14 +16,18 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jacoco.agent.rt.internal.IExceptionLogger;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
- * Output that opens TCP server socket. This controller uses the following agent
- * options:
+ * Output that opens TCP server socket. Any number of clients can connect at the
+ * same time, each connection is served by a separate thread. For a local dump
+ * the execution data is collected once and then written to all connected
+ * clients. This controller uses the following agent options:
  * <ul>
  * <li>address</li>
  * <li>port</li>
@@ -31,13 +35,21 @@ import org.jacoco.core.runtime.RuntimeData;
  */
 public class TcpServerOutput implements IAgentOutput {
 
-	private TcpConnection connection;
+	/** maximum number of pending connections */
+	private static final int BACKLOG = 50;
+
+	/** active connections, also used as lock for {@link #workers} */
+	private final List<TcpConnection> connections;
+
+	private final List<Thread> workers;
 
 	private final IExceptionLogger logger;
 
+	private RuntimeData data;
+
 	private ServerSocket serverSocket;
 
-	private Thread worker;
+	private Thread acceptor;
 
 	/**
 	 * New controller instance.
@@ -47,21 +59,19 @@ public class TcpServerOutput implements IAgentOutput {
 	 */
 	public TcpServerOutput(final IExceptionLogger logger) {
 		this.logger = logger;
+		this.connections = new ArrayList<TcpConnection>();
+		this.workers = new ArrayList<Thread>();
 	}
 
 	public void startup(final AgentOptions options, final RuntimeData data)
 			throws IOException {
+		this.data = data;
 		serverSocket = createServerSocket(options);
-		worker = new Thread(new Runnable() {
+		acceptor = new Thread(new Runnable() {
 			public void run() {
 				while (!serverSocket.isClosed()) {
 					try {
-						synchronized (serverSocket) {
-							connection = new TcpConnection(
-									serverSocket.accept(), data);
-						}
-						connection.init();
-						connection.run();
+						serve(new TcpConnection(serverSocket.accept(), data));
 					} catch (final IOException e) {
 						// If the serverSocket is closed while accepting
 						// connections a SocketException is expected.
@@ -72,24 +82,96 @@ public class TcpServerOutput implements IAgentOutput {
 				}
 			}
 		});
-		worker.setName(getClass().getName());
+		acceptor.setName(getClass().getName());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	private void serve(final TcpConnection connection) throws IOException {
+		final Thread worker = new Thread(new Runnable() {
+			public void run() {
+				try {
+					connection.init();
+					connection.run();
+				} catch (final IOException e) {
+					if (!serverSocket.isClosed()) {
+						logger.logExeption(e);
+					}
+				} finally {
+					close(connection);
+					synchronized (connections) {
+						connections.remove(connection);
+						workers.remove(Thread.currentThread());
+					}
+				}
+			}
+		});
+		worker.setName(getClass().getName() + "-connection");
 		worker.setDaemon(true);
+		synchronized (connections) {
+			// The server might have been shut down in the meantime:
+			if (serverSocket.isClosed()) {
+				connection.close();
+				return;
+			}
+			connections.add(connection);
+			workers.add(worker);
+		}
 		worker.start();
 	}
 
+	private void close(final TcpConnection connection) {
+		try {
+			connection.close();
+		} catch (final IOException e) {
+			logger.logExeption(e);
+		}
+	}
+
 	public void shutdown() throws Exception {
 		serverSocket.close();
-		synchronized (serverSocket) {
-			if (connection != null) {
+		acceptor.join();
+		final List<Thread> running;
+		synchronized (connections) {
+			for (final TcpConnection connection : connections) {
 				connection.close();
 			}
+			running = new ArrayList<Thread>(workers);
+		}
+		for (final Thread worker : running) {
+			worker.join();
 		}
-		worker.join();
 	}
 
 	public void writeExecutionData(final boolean reset) throws IOException {
-		if (connection != null) {
-			connection.writeExecutionData(reset);
+		final List<TcpConnection> targets;
+		synchronized (connections) {
+			targets = new ArrayList<TcpConnection>(connections);
+		}
+		ExecutionDataSnapshot snapshot = null;
+		IOException failure = null;
+		for (final TcpConnection connection : targets) {
+			if (!connection.isWritable()) {
+				continue;
+			}
+			if (snapshot == null) {
+				snapshot = ExecutionDataSnapshot.collect(data, reset);
+			}
+			try {
+				connection.writeExecutionData(snapshot);
+			} catch (final IOException e) {
+				// Connections closed concurrently by the client are expected,
+				// other clients should still receive their data:
+				if (connection.isWritable()) {
+					close(connection);
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
 		}
 	}
 
@@ -104,7 +186,7 @@ public class TcpServerOutput implements IAgentOutput {
 	protected ServerSocket createServerSocket(final AgentOptions options)
 			throws IOException {
 		final InetAddress inetAddr = getInetAddress(options.getAddress());
-		return new ServerSocket(options.getPort(), 1, inetAddr);
+		return new ServerSocket(options.getPort(), BACKLOG, inetAddr);
 	}
 
 	/**
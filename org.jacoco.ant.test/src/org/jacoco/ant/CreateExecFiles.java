@@ -15,9 +15,12 @@ package org.jacoco.ant;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IndexedExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 
 /**
  * Utility class to create exec files required for some Ant tests.
@@ -42,6 +45,14 @@ public class CreateExecFiles {
 		writer.visitClassExecution(new ExecutionData(0,
 				"org/jacoco/ant/TestTarget", new boolean[0]));
 		out.close();
+
+		out = new FileOutputStream(BASE_LOCATION + "nomatch-indexed.exec");
+		new IndexedExecutionDataWriter(out)
+				.write(Collections.<SessionInfo> emptyList(),
+						Collections.singletonList(new ExecutionData(1,
+								"org/jacoco/ant/TestTarget",
+								new boolean[] { true })));
+		out.close();
 	}
 
 }
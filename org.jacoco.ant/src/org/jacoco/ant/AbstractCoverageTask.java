@@ -201,6 +201,79 @@ public class AbstractCoverageTask extends Task {
 		agentOptions.setClassDumpDir(dir.getAbsolutePath());
 	}
 
+	/**
+	 * Sets the directory where the agent caches instrumented class files.
+	 *
+	 * @param dir
+	 *            cache location
+	 */
+	public void setClasscachedir(final File dir) {
+		agentOptions.setClassCacheDir(dir.getAbsolutePath());
+	}
+
+	/**
+	 * Sets the maximum size of the class cache in megabytes.
+	 *
+	 * @param size
+	 *            maximum cache size in megabytes, 0 for no limit
+	 */
+	public void setClasscachesize(final int size) {
+		agentOptions.setClassCacheSize(size);
+	}
+
+	/**
+	 * Sets whether probes record hit counts instead of a single flag.
+	 *
+	 * @param hitCounts
+	 *            <code>true</code> if hit counts should be recorded
+	 */
+	public void setHitcounts(final boolean hitCounts) {
+		agentOptions.setHitCounts(hitCounts);
+	}
+
+	/**
+	 * Sets whether probes only write to the probe array if they have not been
+	 * set before.
+	 *
+	 * @param conditionalProbes
+	 *            <code>true</code> if conditional probes should be used
+	 */
+	public void setConditionalprobes(final boolean conditionalProbes) {
+		agentOptions.setConditionalProbes(conditionalProbes);
+	}
+
+	/**
+	 * Sets whether classes compiled for Java 7 or later obtain their probe
+	 * array with an <code>invokedynamic</code> instruction.
+	 *
+	 * @param invokeDynamic
+	 *            <code>true</code> if <code>invokedynamic</code> should be used
+	 */
+	public void setInvokedynamic(final boolean invokeDynamic) {
+		agentOptions.setInvokeDynamic(invokeDynamic);
+	}
+
+	/**
+	 * Sets the interval in which the probes of covered classes are removed.
+	 *
+	 * @param interval
+	 *            interval in seconds, 0 if probes should never be removed
+	 */
+	public void setRemoveprobesinterval(final int interval) {
+		agentOptions.setRemoveProbesInterval(interval);
+	}
+
+	/**
+	 * Sets the minimum percentage of executed probes at which the probes of a
+	 * class are removed.
+	 *
+	 * @param threshold
+	 *            percentage of executed probes between 1 and 100
+	 */
+	public void setRemoveprobesthreshold(final int threshold) {
+		agentOptions.setRemoveProbesThreshold(threshold);
+	}
+
 	/**
 	 * Sets whether the agent should expose functionality via JMX.
 	 *
@@ -17,7 +17,7 @@ import java.util.Iterator;
 
 import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.resources.FileResource;
-import org.jacoco.report.DirectorySourceFileLocator;
+import org.jacoco.report.IndexedSourceFileLocator;
 import org.jacoco.report.MultiSourceFileLocator;
 
 /**
@@ -26,13 +26,15 @@ import org.jacoco.report.MultiSourceFileLocator;
  * local file name) and afterwards on directories, by the order the directory
  * resources have been added. The directories are considered as source folders
  * that are searched for source files with the fully qualified name (package and
- * local name).
+ * local name). The directories are scanned once with the first lookup.
  */
 class AntResourcesLocator extends MultiSourceFileLocator {
 
 	private final String encoding;
 	private final AntFilesLocator filesLocator;
 
+	private IndexedSourceFileLocator directoriesLocator;
+
 	private boolean empty;
 
 	AntResourcesLocator(final String encoding, final int tabWidth) {
@@ -52,9 +54,12 @@ class AntResourcesLocator extends MultiSourceFileLocator {
 	void add(final Resource resource) {
 		empty = false;
 		if (resource.isDirectory()) {
-			final FileResource dir = (FileResource) resource;
-			super.add(new DirectorySourceFileLocator(dir.getFile(), encoding,
-					getTabWidth()));
+			if (directoriesLocator == null) {
+				directoriesLocator = new IndexedSourceFileLocator(encoding,
+						getTabWidth());
+				super.add(directoriesLocator);
+			}
+			directoriesLocator.add(((FileResource) resource).getFile());
 		} else {
 			filesLocator.add(resource);
 		}
@@ -18,7 +18,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -40,6 +47,8 @@ public class InstrumentTask extends Task {
 
 	private boolean removesignatures = true;
 
+	private int threads = 1;
+
 	/**
 	 * Sets the location of the instrumented classes.
 	 *
@@ -60,6 +69,17 @@ public class InstrumentTask extends Task {
 		this.removesignatures = removesignatures;
 	}
 
+	/**
+	 * Sets the number of threads used to instrument files concurrently. Default
+	 * is 1.
+	 *
+	 * @param threads
+	 *            number of threads to instrument files
+	 */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
 	/**
 	 * This task accepts any number of class file resources.
 	 *
@@ -80,18 +100,58 @@ public class InstrumentTask extends Task {
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
 		instrumenter.setRemoveSignatures(removesignatures);
-		final Iterator<?> resourceIterator = files.iterator();
-		while (resourceIterator.hasNext()) {
-			final Resource resource = (Resource) resourceIterator.next();
-			if (resource.isDirectory()) {
-				continue;
+		final ExecutorService executor = threads > 1
+				? Executors.newFixedThreadPool(threads)
+				: null;
+		// Resources and the class files contained in archives share the pool:
+		instrumenter.setExecutor(executor);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			final Iterator<?> resourceIterator = files.iterator();
+			while (resourceIterator.hasNext()) {
+				final Resource resource = (Resource) resourceIterator.next();
+				if (resource.isDirectory()) {
+					continue;
+				}
+				if (executor == null) {
+					total += instrument(instrumenter, resource);
+				} else {
+					results.add(executor.submit(new Callable<Integer>() {
+						public Integer call() {
+							return Integer.valueOf(
+									instrument(instrumenter, resource));
+						}
+					}));
+				}
+			}
+			for (final Future<Integer> result : results) {
+				total += get(result);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
-			total += instrument(instrumenter, resource);
 		}
 		log(format("Instrumented %s classes to %s", Integer.valueOf(total),
 				destdir.getAbsolutePath()));
 	}
 
+	private int get(final Future<Integer> result) {
+		try {
+			return result.get().intValue();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException("Instrumentation interrupted", e,
+					getLocation());
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+
 	private int instrument(final Instrumenter instrumenter,
 			final Resource resource) {
 		final File file = new File(destdir, resource.getName());
@@ -15,15 +15,20 @@ package org.jacoco.ant;
 import static java.lang.String.format;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -32,18 +37,24 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ChangedLines;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
-import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.PackageAnalyzer;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.jacoco.report.FileMultiReportOutput;
 import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.MultiReportVisitor;
 import org.jacoco.report.ZipMultiReportOutput;
 import org.jacoco.report.check.IViolationsOutput;
@@ -416,14 +427,70 @@ public class ReportTask extends Task {
 
 	private final Union executiondataElement = new Union();
 
-	private SessionInfoStore sessionInfoStore;
-
-	private ExecutionDataStore executionDataStore;
+	private ExecFileLoader loader;
 
 	private final GroupElement structure = new GroupElement();
 
 	private final List<FormatterElement> formatters = new ArrayList<FormatterElement>();
 
+	private int threads = 1;
+
+	private File analysisCache;
+
+	private boolean streaming;
+
+	private File changes;
+
+	private ChangedLines changedLines;
+
+	/**
+	 * Sets the number of threads used to analyze class files. With more than
+	 * one thread classes are analyzed concurrently. Default is 1.
+	 *
+	 * @param threads
+	 *            number of threads to analyze class files
+	 */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets a directory to cache the structure of analyzed class files. Class
+	 * files found in the cache are not parsed again. By default no cache is
+	 * used.
+	 *
+	 * @param analysisCache
+	 *            cache directory
+	 */
+	public void setAnalysisCache(final File analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
+	/**
+	 * Sets whether class files are analyzed and written to the report package
+	 * by package. In this mode only the coverage data of a single package is
+	 * kept in memory. Default is <code>false</code>.
+	 *
+	 * @param streaming
+	 *            <code>true</code> to process class files package by package
+	 */
+	public void setStreaming(final boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Sets a file with changed lines, either a unified diff or a list of lines
+	 * in the form <code>path:first-last</code>. If set the report and the
+	 * coverage checks only consider classes and lines which have been changed.
+	 * By default all lines are considered.
+	 *
+	 * @param changes
+	 *            file with changed lines
+	 */
+	public void setChanges(final File changes) {
+		this.changes = changes;
+	}
+
 	/**
 	 * Returns the nested resource collection for execution data files.
 	 *
@@ -488,11 +555,12 @@ public class ReportTask extends Task {
 
 	@Override
 	public void execute() throws BuildException {
+		loadChangedLines();
 		loadExecutionData();
 		try {
 			final IReportVisitor visitor = createVisitor();
-			visitor.visitInfo(sessionInfoStore.getInfos(),
-					executionDataStore.getContents());
+			visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
+					loader.getExecutionDataContents());
 			createReport(visitor, structure);
 			visitor.visitEnd();
 			for (final FormatterElement f : formatters) {
@@ -501,20 +569,28 @@ public class ReportTask extends Task {
 		} catch (final IOException e) {
 			throw new BuildException("Error while creating report", e,
 					getLocation());
+		} finally {
+			closeExecutionData();
 		}
 	}
 
 	private void loadExecutionData() {
-		final ExecFileLoader loader = new ExecFileLoader();
+		loader = new ExecFileLoader();
 		for (final Iterator<?> i = executiondataElement.iterator(); i
 				.hasNext();) {
 			final Resource resource = (Resource) i.next();
 			log(format("Loading execution data file %s", resource));
 			InputStream in = null;
 			try {
-				in = resource.getInputStream();
-				loader.load(in);
+				if (resource instanceof FileResource) {
+					// indexed files are only read on demand:
+					loader.open(((FileResource) resource).getFile());
+				} else {
+					in = resource.getInputStream();
+					loader.load(in);
+				}
 			} catch (final IOException e) {
+				closeExecutionData();
 				throw new BuildException(
 						format("Unable to read execution data file %s",
 								resource),
@@ -523,8 +599,35 @@ public class ReportTask extends Task {
 				FileUtils.close(in);
 			}
 		}
-		sessionInfoStore = loader.getSessionInfoStore();
-		executionDataStore = loader.getExecutionDataStore();
+	}
+
+	private void closeExecutionData() {
+		try {
+			loader.close();
+		} catch (final IOException e) {
+			throw new BuildException("Unable to close execution data files", e,
+					getLocation());
+		}
+	}
+
+	private void loadChangedLines() {
+		if (changes == null) {
+			return;
+		}
+		log(format("Loading changed lines %s", changes));
+		changedLines = new ChangedLines();
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(changes),
+					"UTF-8");
+			changedLines.read(reader);
+		} catch (final IOException e) {
+			throw new BuildException(
+					format("Unable to read changed lines %s", changes), e,
+					getLocation());
+		} finally {
+			FileUtils.close(reader);
+		}
 	}
 
 	private IReportVisitor createVisitor() throws IOException {
@@ -542,15 +645,23 @@ public class ReportTask extends Task {
 					getLocation());
 		}
 		if (group.children.isEmpty()) {
-			final IBundleCoverage bundle = createBundle(group);
 			final SourceFilesElement sourcefiles = group.sourcefiles;
 			final AntResourcesLocator locator = new AntResourcesLocator(
 					sourcefiles.encoding, sourcefiles.tabWidth);
 			locator.addAll(sourcefiles.iterator());
-			if (!locator.isEmpty()) {
-				checkForMissingDebugInformation(bundle);
+			if (streaming) {
+				final ICoverageNode bundle = createStreamedBundle(visitor,
+						group, locator);
+				if (!locator.isEmpty()) {
+					checkForMissingDebugInformation(bundle);
+				}
+			} else {
+				final IBundleCoverage bundle = createBundle(group);
+				if (!locator.isEmpty()) {
+					checkForMissingDebugInformation(bundle);
+				}
+				visitor.visitBundle(bundle, locator);
 			}
-			visitor.visitBundle(bundle, locator);
 		} else {
 			final IReportGroupVisitor groupVisitor = visitor
 					.visitGroup(group.name);
@@ -563,15 +674,29 @@ public class ReportTask extends Task {
 	private IBundleCoverage createBundle(final GroupElement group)
 			throws IOException {
 		final CoverageBuilder builder = new CoverageBuilder();
-		final Analyzer analyzer = new Analyzer(executionDataStore, builder);
-		for (final Iterator<?> i = group.classfiles.iterator(); i.hasNext();) {
-			final Resource resource = (Resource) i.next();
-			if (resource.isDirectory() && resource instanceof FileResource) {
-				analyzer.analyzeAll(((FileResource) resource).getFile());
-			} else {
-				final InputStream in = resource.getInputStream();
-				analyzer.analyzeAll(in, resource.getName());
-				in.close();
+		final ExecutorService executor = createExecutor();
+		try {
+			final Analyzer analyzer = new Analyzer(
+					loader.getExecutionDataSource(), builder, executor);
+			if (analysisCache != null) {
+				analyzer.setCache(new AnalysisCache(analysisCache));
+			}
+			analyzer.setChangedLines(changedLines);
+			for (final Iterator<?> i = group.classfiles.iterator(); i
+					.hasNext();) {
+				final Resource resource = (Resource) i.next();
+				if (resource.isDirectory()
+						&& resource instanceof FileResource) {
+					analyzer.analyzeAll(((FileResource) resource).getFile());
+				} else {
+					final InputStream in = resource.getInputStream();
+					analyzer.analyzeAll(in, resource.getName());
+					in.close();
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
 			}
 		}
 		final IBundleCoverage bundle = builder.getBundle(group.name);
@@ -579,7 +704,60 @@ public class ReportTask extends Task {
 		return bundle;
 	}
 
-	private void logBundleInfo(final IBundleCoverage bundle,
+	private ICoverageNode createStreamedBundle(
+			final IReportGroupVisitor visitor, final GroupElement group,
+			final ISourceFileLocator locator) throws IOException {
+		final CoverageNodeImpl total = new CoverageNodeImpl(ElementType.BUNDLE,
+				group.name);
+		final Collection<IClassCoverage> nomatch = new ArrayList<IClassCoverage>();
+		final ExecutorService executor = createExecutor();
+		final PackageAnalyzer analyzer = new PackageAnalyzer(
+				loader.getExecutionDataSource(), executor);
+		try {
+			if (analysisCache != null) {
+				analyzer.setCache(new AnalysisCache(analysisCache));
+			}
+			analyzer.setChangedLines(changedLines);
+			for (final Iterator<?> i = group.classfiles.iterator(); i
+					.hasNext();) {
+				final Resource resource = (Resource) i.next();
+				if (resource.isDirectory()
+						&& resource instanceof FileResource) {
+					analyzer.analyzeAll(((FileResource) resource).getFile());
+				} else {
+					final InputStream in = resource.getInputStream();
+					analyzer.analyzeAll(in, resource.getName());
+					in.close();
+				}
+			}
+			final IReportBundleVisitor bundle = visitor.visitBundle(group.name,
+					locator);
+			for (final String packageName : analyzer.getPackageNames()) {
+				final IPackageCoverage p = analyzer.analyzePackage(packageName);
+				for (final IClassCoverage c : p.getClasses()) {
+					if (c.isNoMatch()) {
+						nomatch.add(c);
+					}
+				}
+				total.increment(p);
+				bundle.visitPackage(p);
+			}
+			bundle.visitEnd();
+		} finally {
+			analyzer.close();
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+		logBundleInfo(total, nomatch);
+		return total;
+	}
+
+	private ExecutorService createExecutor() {
+		return threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+	}
+
+	private void logBundleInfo(final ICoverageNode bundle,
 			final Collection<IClassCoverage> nomatch) {
 		log(format("Writing bundle '%s' with %s classes", bundle.getName(),
 				Integer.valueOf(bundle.getClassCounter().getTotalCount())));
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.report.html.HTMLFormatter;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Provides the class files of JaCoCo core, JaCoCo report and ASM as a realistic
+ * set of input classes for the benchmarks.
+ */
+final class ClassFiles {
+
+	private static final String[] PACKAGES = { "org/jacoco/core/",
+			"org/jacoco/report/", "org/objectweb/asm/" };
+
+	private final Set<String> seen = new HashSet<String>();
+
+	private final List<String> names = new ArrayList<String>();
+
+	private final List<byte[]> contents = new ArrayList<byte[]>();
+
+	private ClassFiles() {
+	}
+
+	/**
+	 * Loads all class files of the benchmark subjects from the class path.
+	 *
+	 * @return class files
+	 * @throws IOException
+	 *             if the class path can't be read
+	 */
+	static ClassFiles load() throws IOException {
+		final ClassFiles files = new ClassFiles();
+		final Set<File> locations = new LinkedHashSet<File>();
+		for (final Class<?> c : new Class<?>[] { Analyzer.class,
+				HTMLFormatter.class, ClassReader.class }) {
+			locations.add(getLocation(c));
+		}
+		for (final File location : locations) {
+			files.addLocation(location);
+		}
+		if (files.size() == 0) {
+			throw new IOException("No class files found.");
+		}
+		return files;
+	}
+
+	private static File getLocation(final Class<?> c) throws IOException {
+		try {
+			return new File(c.getProtectionDomain().getCodeSource()
+					.getLocation().toURI());
+		} catch (final URISyntaxException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void addLocation(final File location) throws IOException {
+		if (location.isDirectory()) {
+			addDirectory(location, "");
+		} else {
+			final ZipInputStream zip = new ZipInputStream(
+					new FileInputStream(location));
+			try {
+				ZipEntry entry;
+				while ((entry = zip.getNextEntry()) != null) {
+					add(entry.getName(), zip);
+				}
+			} finally {
+				zip.close();
+			}
+		}
+	}
+
+	private void addDirectory(final File dir, final String path)
+			throws IOException {
+		final File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (final File child : children) {
+			final String name = path + child.getName();
+			if (child.isDirectory()) {
+				addDirectory(child, name + "/");
+			} else {
+				final InputStream in = new FileInputStream(child);
+				try {
+					add(name, in);
+				} finally {
+					in.close();
+				}
+			}
+		}
+	}
+
+	private void add(final String name, final InputStream in)
+			throws IOException {
+		if (!name.endsWith(".class")) {
+			return;
+		}
+		for (final String p : PACKAGES) {
+			if (name.startsWith(p) && seen.add(name)) {
+				names.add(name);
+				contents.add(readFully(in));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the given stream to its end.
+	 *
+	 * @param in
+	 *            stream to read
+	 * @return content of the stream
+	 * @throws IOException
+	 *             if the stream can't be read
+	 */
+	static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[4096];
+		int len;
+		while ((len = in.read(buffer)) != -1) {
+			out.write(buffer, 0, len);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return number of class files
+	 */
+	int size() {
+		return names.size();
+	}
+
+	/**
+	 * @param index
+	 *            index of the class file
+	 * @return VM name of the class file resource, e.g.
+	 *         <code>org/jacoco/core/JaCoCo.class</code>
+	 */
+	String getName(final int index) {
+		return names.get(index);
+	}
+
+	/**
+	 * @param index
+	 *            index of the class file
+	 * @return content of the class file
+	 */
+	byte[] getContent(final int index) {
+		return contents.get(index);
+	}
+
+	/**
+	 * Packs all class files into a single in-memory JAR file.
+	 *
+	 * @return content of the JAR file
+	 * @throws IOException
+	 *             should not happen for in-memory streams
+	 */
+	byte[] toJar() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (int i = 0; i < names.size(); i++) {
+			zip.putNextEntry(new ZipEntry(names.get(i)));
+			zip.write(contents.get(i));
+			zip.closeEntry();
+		}
+		zip.close();
+		return buffer.toByteArray();
+	}
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of writing and reading exec files with a given number of classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionDataBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int classes;
+
+	@Param({ "50" })
+	public int probes;
+
+	private ExecutionDataStore store;
+
+	private byte[] exec;
+
+	@Setup
+	public void setup() throws IOException {
+		store = new ExecutionDataStore();
+		for (int i = 0; i < classes; i++) {
+			final boolean[] p = new boolean[probes];
+			for (int j = i % 3; j < probes; j += 3) {
+				p[j] = true;
+			}
+			store.put(new ExecutionData(i * 0x9E3779B97F4A7C15L,
+					"org/example/pkg" + (i % 500) + "/Class" + i, p));
+		}
+		exec = write().toByteArray();
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream write() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(
+				exec == null ? 1024 : exec.length);
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		writer.visitSessionInfo(new SessionInfo("benchmark", 1, 2));
+		store.accept(writer);
+		return out;
+	}
+
+	@Benchmark
+	public ExecutionDataStore read() throws IOException {
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(exec));
+		final ExecutionDataStore result = new ExecutionDataStore();
+		reader.setExecutionDataVisitor(result);
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		reader.read();
+		return result;
+	}
+
+}
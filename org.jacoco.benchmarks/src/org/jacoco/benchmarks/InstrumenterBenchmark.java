@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to instrument all class files of JaCoCo core, JaCoCo report and ASM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumenterBenchmark {
+
+	private ClassFiles classFiles;
+
+	private Instrumenter instrumenter;
+
+	@Setup
+	public void setup() throws Exception {
+		classFiles = ClassFiles.load();
+		instrumenter = new Instrumenter(
+				new OfflineInstrumentationAccessGenerator());
+	}
+
+	@Benchmark
+	public void instrument(final Blackhole blackhole) throws Exception {
+		for (int i = 0; i < classFiles.size(); i++) {
+			blackhole.consume(instrumenter.instrument(classFiles.getContent(i),
+					classFiles.getName(i)));
+		}
+	}
+
+}
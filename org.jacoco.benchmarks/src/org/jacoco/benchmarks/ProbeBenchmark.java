@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Execution time of instrumented code for the different probe array strategies.
+ * The strategy is selected through the type and class file version of the
+ * target:
+ * <ul>
+ * <li><code>none</code>: original class, not instrumented</li>
+ * <li><code>classfield</code>: class with version 8</li>
+ * <li><code>interfacefield</code>: interface with default method, version
+ * 8</li>
+ * <li><code>condyclass</code>: class with version 11 (requires Java 11)</li>
+ * <li><code>condyinterface</code>: interface with default method, version 11
+ * (requires Java 11)</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeBenchmark {
+
+	@Param({ "none", "classfield", "interfacefield", "condyclass",
+			"condyinterface" })
+	public String strategy;
+
+	@Param({ "100" })
+	public int iterations;
+
+	private IRuntime runtime;
+
+	private IntUnaryOperator target;
+
+	@Setup
+	public void setup() throws Exception {
+		runtime = new SystemPropertiesRuntime();
+		runtime.startup(new RuntimeData());
+		final Instrumenter instrumenter = new Instrumenter(runtime);
+		final TargetLoader loader = new TargetLoader();
+		final Class<?> targetClass;
+		if ("none".equals(strategy)) {
+			targetClass = loader.add(ProbeTarget.class,
+					read(ProbeTarget.class));
+		} else if ("classfield".equals(strategy)) {
+			targetClass = loader.add(ProbeTarget.class, instrumenter
+					.instrument(read(ProbeTarget.class), "ProbeTarget"));
+		} else if ("condyclass".equals(strategy)) {
+			targetClass = loader.add(ProbeTarget.class,
+					instrumenter.instrument(
+							withVersion(read(ProbeTarget.class), Opcodes.V11),
+							"ProbeTarget"));
+		} else {
+			final int version = "condyinterface".equals(strategy) ? Opcodes.V11
+					: Opcodes.V1_8;
+			loader.add(ProbeInterfaceTarget.class, instrumenter.instrument(
+					withVersion(read(ProbeInterfaceTarget.class), version),
+					"ProbeInterfaceTarget"));
+			targetClass = loader.add(ProbeInterfaceTarget.Impl.class,
+					read(ProbeInterfaceTarget.Impl.class));
+		}
+		target = (IntUnaryOperator) targetClass.getConstructor().newInstance();
+	}
+
+	@TearDown
+	public void teardown() {
+		runtime.shutdown();
+	}
+
+	@Benchmark
+	public int execute() {
+		return target.applyAsInt(iterations);
+	}
+
+	private static byte[] read(final Class<?> c) throws IOException {
+		final String resource = "/" + c.getName().replace('.', '/') + ".class";
+		final InputStream in = c.getResourceAsStream(resource);
+		try {
+			return ClassFiles.readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] withVersion(final byte[] source, final int version) {
+		final ClassReader reader = new ClassReader(source);
+		final ClassWriter writer = new ClassWriter(0);
+		reader.accept(new ClassVisitor(Opcodes.ASM8, writer) {
+			@Override
+			public void visit(final int v, final int access, final String name,
+					final String signature, final String superName,
+					final String[] interfaces) {
+				super.visit(version, access, name, signature, superName,
+						interfaces);
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Loads the given classes in a separate class loader, all other classes are
+	 * delegated to the parent.
+	 */
+	private static class TargetLoader extends ClassLoader {
+
+		private final Map<String, byte[]> definitions = new HashMap<String, byte[]>();
+
+		TargetLoader() {
+			super(ProbeBenchmark.class.getClassLoader());
+		}
+
+		Class<?> add(final Class<?> c, final byte[] definition)
+				throws ClassNotFoundException {
+			definitions.put(c.getName(), definition);
+			return loadClass(c.getName());
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(final String name,
+				final boolean resolve) throws ClassNotFoundException {
+			final byte[] bytes = definitions.get(name);
+			if (bytes == null) {
+				return super.loadClass(name, resolve);
+			}
+			Class<?> c = findLoadedClass(name);
+			if (c == null) {
+				c = defineClass(name, bytes, 0, bytes.length);
+			}
+			if (resolve) {
+				resolveClass(c);
+			}
+			return c;
+		}
+
+	}
+
+}
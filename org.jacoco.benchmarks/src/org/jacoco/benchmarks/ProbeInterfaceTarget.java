@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Same workload as {@link ProbeTarget} implemented as default method of an
+ * interface.
+ */
+public interface ProbeInterfaceTarget extends IntUnaryOperator {
+
+	default int applyAsInt(final int n) {
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i & 1) == 0) {
+				sum += i;
+			} else {
+				sum--;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Implementation which only inherits the default method.
+	 */
+	class Impl implements ProbeInterfaceTarget {
+	}
+
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Workload with a loop and a branch executed by {@link ProbeBenchmark}.
+ */
+public class ProbeTarget implements IntUnaryOperator {
+
+	public int applyAsInt(final int n) {
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i & 1) == 0) {
+				sum += i;
+			} else {
+				sum--;
+			}
+		}
+		return sum;
+	}
+
+}
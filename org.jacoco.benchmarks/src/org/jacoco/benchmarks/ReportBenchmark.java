@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.csv.CSVFormatter;
+import org.jacoco.report.html.HTMLFormatter;
+import org.jacoco.report.xml.XMLFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to write a report in the given format for a bundle with all classes of
+ * JaCoCo core, JaCoCo report and ASM. The report content is discarded, so only
+ * the formatters are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+	private static final OutputStream NUL = new OutputStream() {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	private static final IMultiReportOutput NUL_MULTI = new IMultiReportOutput() {
+		public OutputStream createFile(final String path) {
+			return NUL;
+		}
+
+		public void close() {
+		}
+	};
+
+	private static final ISourceFileLocator NO_SOURCES = new ISourceFileLocator() {
+		public Reader getSourceFile(final String packageName,
+				final String fileName) {
+			return null;
+		}
+
+		public int getTabWidth() {
+			return 4;
+		}
+	};
+
+	@Param({ "html", "xml", "csv" })
+	public String format;
+
+	private IBundleCoverage bundle;
+
+	@Setup
+	public void setup() throws IOException {
+		final ClassFiles classFiles = ClassFiles.load();
+		final CoverageBuilder builder = new CoverageBuilder();
+		final Analyzer analyzer = new Analyzer(new SyntheticExecutionData(),
+				builder);
+		for (int i = 0; i < classFiles.size(); i++) {
+			analyzer.analyzeClass(classFiles.getContent(i),
+					classFiles.getName(i));
+		}
+		bundle = builder.getBundle("Benchmark");
+	}
+
+	@Benchmark
+	public void write() throws IOException {
+		final IReportVisitor visitor = createVisitor();
+		visitor.visitInfo(
+				Collections.singletonList(new SessionInfo("benchmark", 1, 2)),
+				Collections.<ExecutionData> emptyList());
+		visitor.visitBundle(bundle, NO_SOURCES);
+		visitor.visitEnd();
+	}
+
+	private IReportVisitor createVisitor() throws IOException {
+		if ("html".equals(format)) {
+			return new HTMLFormatter().createVisitor(NUL_MULTI);
+		}
+		if ("xml".equals(format)) {
+			return new XMLFormatter().createVisitor(NUL);
+		}
+		if ("csv".equals(format)) {
+			return new CSVFormatter().createVisitor(NUL);
+		}
+		throw new IllegalArgumentException("Unknown format " + format);
+	}
+
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.benchmarks;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataSource;
+
+/**
+ * Execution data source which reports partial coverage for every class: two out
+ * of three probes are marked as executed.
+ */
+final class SyntheticExecutionData implements IExecutionDataSource {
+
+	private static final boolean[] PROBES = new boolean[1 << 16];
+
+	static {
+		for (int i = 0; i < PROBES.length; i++) {
+			PROBES[i] = i % 3 != 0;
+		}
+	}
+
+	public ExecutionData get(final long id) {
+		// probe arrays are only read during analysis, so they can be shared:
+		return new ExecutionData(id, "Synthetic", PROBES);
+	}
+
+	public boolean contains(final String name) {
+		return false;
+	}
+
+}
@@ -99,11 +99,11 @@ public class XmlDocumentationTest {
 				doc);
 
 		assertContains("-classfiles <path>",
-				"/documentation/command[@name='report']/option[2]/usage/text()",
+				"/documentation/command[@name='report']/option[4]/usage/text()",
 				doc);
 
 		assertContains("true",
-				"/documentation/command[@name='report']/option[2]/@multiple",
+				"/documentation/command[@name='report']/option[4]/@multiple",
 				doc);
 
 	}
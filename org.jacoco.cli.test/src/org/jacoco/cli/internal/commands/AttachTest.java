@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import org.jacoco.cli.internal.CommandTestBase;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Attach}.
+ */
+public class AttachTest extends CommandTestBase {
+
+	static final String OPTIONS = "output=none,includes="
+			+ TargetVM.class.getName();
+
+	private TargetVM target;
+
+	@After
+	public void after() throws Exception {
+		if (target != null) {
+			target.stop();
+		}
+	}
+
+	@Test
+	public void should_print_usage_when_no_argument_is_given()
+			throws Exception {
+		execute("attach");
+		assertFailure();
+		assertContains("Argument \"<pid>\" is required", err);
+		assertContains("java -jar jacococli.jar attach <pid> [--agent <file>]",
+				err);
+	}
+
+	@Test
+	public void should_attach_agent_and_instrument_loaded_classes()
+			throws Exception {
+		target = TargetVM.start(getClassPath());
+
+		execute("attach", target.getPid(), "--options", OPTIONS);
+
+		assertOk();
+		assertContains("[INFO] Attaching agent ", out);
+		assertContains("to VM " + target.getPid() + ".", out);
+		assertContains("[INFO] Retransformed 1 classes (0 failed) in 1 batches",
+				out);
+	}
+
+	@Test
+	public void should_instrument_loaded_classes_again_when_attached_twice()
+			throws Exception {
+		target = TargetVM.start(getClassPath());
+		execute("attach", target.getPid(), "--options", OPTIONS);
+
+		execute("attach", target.getPid());
+
+		assertOk();
+		assertContains("[INFO] Retransformed 0 classes (0 failed) in 0 batches",
+				out);
+	}
+
+}
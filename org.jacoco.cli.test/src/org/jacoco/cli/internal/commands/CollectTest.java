@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.jacoco.cli.internal.CommandTestBase;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link Collect}.
+ */
+public class CollectTest extends CommandTestBase {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private Socket agentSocket;
+
+	private volatile boolean deltaResetRequested;
+
+	@After
+	public void after() throws IOException {
+		if (agentSocket != null) {
+			agentSocket.close();
+		}
+	}
+
+	@Test
+	public void should_print_usage_when_no_argument_is_given()
+			throws Exception {
+		execute("collect");
+		assertFailure();
+		assertContains("\"--destfile\"", err);
+		assertContains("java -jar jacococli.jar collect [--address <address>]",
+				err);
+	}
+
+	@Test
+	public void should_collect_execution_data_from_agents() throws Exception {
+		File execfile = new File(tmp.getRoot(), "jacoco.exec");
+		int port = unusedPort();
+		startMockAgent(port);
+
+		execute("collect", "--destfile", execfile.getAbsolutePath(), "--port",
+				String.valueOf(port), "--dumpinterval", "1", "--delta",
+				"--reset", "--time", "3");
+
+		assertOk();
+		assertContains("[INFO] Listening on ", out);
+		assertContains("[INFO] Agent ", out);
+		assertContains("[INFO] Writing execution data to "
+				+ execfile.getAbsolutePath(), out);
+		assertTrue(deltaResetRequested);
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(execfile);
+		assertTrue(loader.getExecutionDataStore().contains("Foo"));
+	}
+
+	@Test
+	public void should_merge_existing_destfile() throws Exception {
+		File execfile = new File(tmp.getRoot(), "jacoco.exec");
+		final ExecFileLoader existing = new ExecFileLoader();
+		existing.getExecutionDataStore()
+				.put(new ExecutionData(1, "Bar", new boolean[] { true }));
+		existing.save(execfile, false);
+
+		execute("collect", "--destfile", execfile.getAbsolutePath(), "--port",
+				String.valueOf(unusedPort()), "--time", "1");
+
+		assertOk();
+		assertContains("[INFO] Loading execution data file "
+				+ execfile.getAbsolutePath(), out);
+		assertContains("[INFO] Received 0 dumps.", out);
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(execfile);
+		assertTrue(loader.getExecutionDataStore().contains("Bar"));
+	}
+
+	@Test
+	public void should_write_destfile_on_exit_only_when_checkpointinterval_is_0()
+			throws Exception {
+		File execfile = new File(tmp.getRoot(), "jacoco.exec");
+
+		execute("collect", "--destfile", execfile.getAbsolutePath(), "--port",
+				String.valueOf(unusedPort()), "--checkpointinterval", "0",
+				"--time", "1");
+
+		assertOk();
+		assertContains("[INFO] Writing execution data to "
+				+ execfile.getAbsolutePath(), out);
+		assertTrue(execfile.isFile());
+	}
+
+	private void startMockAgent(final int port) {
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					serveRequests(connect(port));
+				} catch (Exception e) {
+					// collector closed the connection
+				}
+			}
+		}.start();
+	}
+
+	private Socket connect(final int port) throws Exception {
+		while (true) {
+			try {
+				agentSocket = new Socket(InetAddress.getByName(null), port);
+				return agentSocket;
+			} catch (IOException e) {
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	private void serveRequests(Socket socket) throws IOException {
+		final RemoteControlWriter writer = new RemoteControlWriter(
+				socket.getOutputStream());
+		final RemoteControlReader reader = new RemoteControlReader(
+				socket.getInputStream());
+		reader.setRemoteCommandVisitor(new IRemoteCommandVisitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset)
+					throws IOException {
+				writer.sendCmdOk();
+			}
+
+			public void visitDeltaDumpCommand(String clientId, boolean reset)
+					throws IOException {
+				deltaResetRequested = reset;
+				writer.visitSessionInfo(new SessionInfo("agent", 1, 2));
+				writer.visitClassExecution(
+						new ExecutionData(1, "Foo", new boolean[] { true }));
+				writer.sendCmdOk();
+			}
+		});
+		while (reader.read()) {
+		}
+	}
+
+	private int unusedPort() throws IOException {
+		final ServerSocket serverSocket = new ServerSocket(0, 0,
+				InetAddress.getByName(null));
+		final int port = serverSocket.getLocalPort();
+		serverSocket.close();
+		return port;
+	}
+
+}
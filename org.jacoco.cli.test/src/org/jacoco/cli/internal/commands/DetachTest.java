@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.jacoco.cli.internal.CommandTestBase;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Detach}.
+ */
+public class DetachTest extends CommandTestBase {
+
+	private TargetVM target;
+
+	@After
+	public void after() throws Exception {
+		if (target != null) {
+			target.stop();
+		}
+	}
+
+	@Test
+	public void should_print_usage_when_no_argument_is_given()
+			throws Exception {
+		execute("detach");
+		assertFailure();
+		assertContains("Argument \"<pid>\" is required", err);
+		assertContains("java -jar jacococli.jar detach <pid> [--agent <file>]",
+				err);
+	}
+
+	@Test
+	public void should_restore_classes_of_attached_vm() throws Exception {
+		target = TargetVM.start(getClassPath());
+		execute("attach", target.getPid(), "--options", AttachTest.OPTIONS);
+
+		execute("detach", target.getPid());
+
+		assertOk();
+		assertContains("[INFO] Detaching agent from VM " + target.getPid(),
+				out);
+		assertContains("[INFO] Retransformed 1 classes (0 failed) in 1 batches",
+				out);
+	}
+
+	@Test
+	public void should_fail_when_agent_is_not_attached() throws Exception {
+		target = TargetVM.start(getClassPath());
+
+		try {
+			execute("detach", target.getPid());
+			fail("exception expected");
+		} catch (final Exception e) {
+			assertEquals("AgentInitializationException",
+					e.getClass().getSimpleName());
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jacoco.cli.internal.CommandTestBase;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link Diff}.
+ */
+public class DiffTest extends CommandTestBase {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void should_print_usage_when_no_options_are_given()
+			throws Exception {
+		execute("diff");
+
+		assertFailure();
+		assertContains("\"--base\"", err);
+		assertContains("java -jar jacococli.jar diff [<execfiles> ...]", err);
+	}
+
+	@Test
+	public void should_write_newly_covered_and_missed_probes()
+			throws Exception {
+		File base = createExecFile("base.exec",
+				new ExecutionData(1, "A", new boolean[] { true, true, false }),
+				new ExecutionData(2, "B", new boolean[] { true }),
+				new ExecutionData(3, "C", new boolean[] { true }));
+		File current = createExecFile("current.exec",
+				new ExecutionData(1, "A", new boolean[] { true, false, true }),
+				new ExecutionData(4, "B", new boolean[] { true }),
+				new ExecutionData(5, "D", new boolean[] { true }));
+		File dest = new File(tmp.getRoot(), "covered.exec");
+		File missed = new File(tmp.getRoot(), "missed.exec");
+
+		execute("diff", "--base", base.getAbsolutePath(), "--destfile",
+				dest.getAbsolutePath(), "--missedfile",
+				missed.getAbsolutePath(), current.getAbsolutePath());
+
+		assertOk();
+		assertContains(
+				"[INFO] 2 classes with newly covered probes, 2 classes with newly missed probes, 1 changed classes.",
+				out);
+
+		ExecutionDataStore covered = loadExecFile(dest).getExecutionDataStore();
+		assertArrayEquals(new boolean[] { false, false, true },
+				covered.get(1).getProbes());
+		assertArrayEquals(new boolean[] { true }, covered.get(4).getProbes());
+		assertArrayEquals(new boolean[] { true }, covered.get(5).getProbes());
+		assertEquals(3, covered.getContents().size());
+
+		ExecFileLoader missedLoader = loadExecFile(missed);
+		ExecutionDataStore missedStore = missedLoader.getExecutionDataStore();
+		assertArrayEquals(new boolean[] { false, true, false },
+				missedStore.get(1).getProbes());
+		assertArrayEquals(new boolean[] { true },
+				missedStore.get(3).getProbes());
+		assertEquals(2, missedStore.getContents().size());
+		assertEquals("current",
+				missedLoader.getSessionInfoStore().getInfos().get(0).getId());
+	}
+
+	@Test
+	public void should_use_indexed_base_file() throws Exception {
+		File exec = createExecFile("base.exec",
+				new ExecutionData(1, "A", new boolean[] { true, false }));
+		File base = new File(tmp.getRoot(), "base.iexec");
+		ExecFileLoader loader = new ExecFileLoader();
+		loader.load(exec);
+		loader.saveIndexed(base);
+		File current = createExecFile("current.exec",
+				new ExecutionData(1, "A", new boolean[] { false, true }));
+		File dest = new File(tmp.getRoot(), "covered.exec");
+
+		execute("diff", "--base", base.getAbsolutePath(), "--destfile",
+				dest.getAbsolutePath(), current.getAbsolutePath());
+
+		assertOk();
+		assertContains("[INFO] Opening indexed base execution data file", out);
+		assertArrayEquals(new boolean[] { false, true },
+				loadExecFile(dest).getExecutionDataStore().get(1).getProbes());
+	}
+
+	@Test
+	public void should_use_class_files_to_detect_added_classes()
+			throws Exception {
+		final String name = "org/jacoco/cli/internal/commands/DiffTest";
+		final long id = CRC64.classId(InputStreams.readFully(
+				getClass().getResourceAsStream("/" + name + ".class")));
+		File base = createExecFile("base.exec");
+		File current = createExecFile("current.exec",
+				new ExecutionData(id, name, new boolean[] { true }),
+				new ExecutionData(1, "A", new boolean[] { true }));
+		File dest = new File(tmp.getRoot(), "covered.exec");
+
+		execute("diff", "--base", base.getAbsolutePath(), "--baseclassfiles",
+				getClassPath(), "--destfile", dest.getAbsolutePath(),
+				current.getAbsolutePath());
+
+		assertOk();
+		assertContains(
+				"[INFO] 1 classes with newly covered probes, 0 classes with newly missed probes, 1 changed classes.",
+				out);
+		assertEquals(2, loadExecFile(dest).getExecutionDataStore().getContents()
+				.size());
+	}
+
+	private File createExecFile(String name, ExecutionData... data)
+			throws IOException {
+		File file = new File(tmp.getRoot(), name);
+		final FileOutputStream out = new FileOutputStream(file);
+		final ExecutionDataWriter writer = new ExecutionDataWriter(out);
+		writer.visitSessionInfo(
+				new SessionInfo(name.substring(0, name.indexOf('.')), 1, 2));
+		for (ExecutionData d : data) {
+			writer.visitClassExecution(d);
+		}
+		out.close();
+		return file;
+	}
+
+	private ExecFileLoader loadExecFile(File file) throws IOException {
+		ExecFileLoader loader = new ExecFileLoader();
+		loader.load(file);
+		return loader;
+	}
+
+}
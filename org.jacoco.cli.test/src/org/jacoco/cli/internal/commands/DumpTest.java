@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.jacoco.cli.internal.commands;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -40,6 +41,10 @@ public class DumpTest extends CommandTestBase {
 
 	private ServerSocket serverSocket;
 
+	private volatile boolean deltaRequested;
+
+	private volatile String clientId;
+
 	@After
 	public void after() throws IOException {
 		if (serverSocket != null) {
@@ -73,6 +78,36 @@ public class DumpTest extends CommandTestBase {
 		assertTrue(execfile.exists());
 	}
 
+	@Test
+	public void should_request_delta_dump_when_delta_is_specified()
+			throws Exception {
+
+		File execfile = new File(tmp.getRoot(), "jacoco.exec");
+		int port = startMockServer();
+
+		execute("dump", "--destfile", execfile.getAbsolutePath(), "--port",
+				String.valueOf(port), "--delta");
+
+		assertOk();
+		assertTrue(deltaRequested);
+		assertEquals("dump", clientId);
+		assertTrue(execfile.exists());
+	}
+
+	@Test
+	public void should_send_clientid_when_clientid_is_specified()
+			throws Exception {
+
+		File execfile = new File(tmp.getRoot(), "jacoco.exec");
+		int port = startMockServer();
+
+		execute("dump", "--destfile", execfile.getAbsolutePath(), "--port",
+				String.valueOf(port), "--delta", "--clientid", "nightly");
+
+		assertOk();
+		assertEquals("nightly", clientId);
+	}
+
 	@Test
 	public void should_log_connection_error_when_retry_is_specified()
 			throws Exception {
@@ -116,6 +151,13 @@ public class DumpTest extends CommandTestBase {
 					throws IOException {
 				writer.sendCmdOk();
 			}
+
+			public void visitDeltaDumpCommand(String id, boolean reset)
+					throws IOException {
+				deltaRequested = true;
+				clientId = id;
+				writer.sendCmdOk();
+			}
 		});
 		while (reader.read()) {
 		}
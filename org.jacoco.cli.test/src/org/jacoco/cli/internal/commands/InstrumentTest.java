@@ -13,6 +13,7 @@
 package org.jacoco.cli.internal.commands;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -23,8 +24,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.jacoco.cli.internal.CommandTestBase;
 import org.jacoco.core.internal.InputStreams;
@@ -64,7 +75,7 @@ public class InstrumentTest extends CommandTestBase {
 				getClassPath());
 
 		assertOk();
-		assertContains("[INFO] 14 classes instrumented to "
+		assertContains("[INFO] 23 classes instrumented to "
 				+ destdir.getAbsolutePath(), out);
 
 		// non class-file resources are copied:
@@ -76,6 +87,67 @@ public class InstrumentTest extends CommandTestBase {
 				"org/jacoco/cli/internal/commands/InstrumentTest.class"));
 	}
 
+	@Test
+	public void should_instrument_class_files_concurrently_when_threads_option_is_given()
+			throws Exception {
+		File destdir = tmp.getRoot();
+
+		execute("instrument", "--dest", destdir.getAbsolutePath(), "--threads",
+				"4", getClassPath());
+
+		assertOk();
+		assertContains("[INFO] 23 classes instrumented to "
+				+ destdir.getAbsolutePath(), out);
+		assertTrue(new File(destdir,
+				"org/jacoco/cli/internal/commands/test-resource.properties")
+						.isFile());
+		assertInstrumented(new File(destdir,
+				"org/jacoco/cli/internal/commands/InstrumentTest.class"));
+	}
+
+	@Test
+	public void should_instrument_archive_entries_concurrently_when_threads_option_is_given()
+			throws Exception {
+		File jar = new File(tmp.getRoot(), "test.jar");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar));
+		for (String name : new String[] { "InstrumentTest", "MergeTest",
+				"ReportTest" }) {
+			zip.putNextEntry(new ZipEntry(name + ".class"));
+			InputStream in = new FileInputStream(new File(getClassPath(),
+					"org/jacoco/cli/internal/commands/" + name + ".class"));
+			zip.write(InputStreams.readFully(in));
+			in.close();
+		}
+		zip.close();
+		final List<Runnable> tasks = Collections
+				.synchronizedList(new ArrayList<Runnable>());
+		Instrument command = new Instrument() {
+			@Override
+			ExecutorService createExecutor() {
+				return new ThreadPoolExecutor(threads, threads, 0,
+						TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<Runnable>()) {
+					@Override
+					public void execute(Runnable task) {
+						tasks.add(task);
+						super.execute(task);
+					}
+				};
+			}
+		};
+		command.dest = new File(tmp.getRoot(), "dest");
+		command.source.add(jar);
+		command.threads = 2;
+
+		result = command.execute(new PrintWriter(out), new PrintWriter(err));
+
+		assertOk();
+		assertContains("[INFO] 3 classes instrumented to ", out);
+		// one task for the archive and one for every class file contained:
+		assertEquals(4, tasks.size());
+		assertTrue(new File(command.dest, "test.jar").isFile());
+	}
+
 	@Test
 	public void should_instrument_class_files_to_dest_folder_when_class_files_are_given()
 			throws Exception {
@@ -136,6 +208,31 @@ public class InstrumentTest extends CommandTestBase {
 		assertFalse(new File(destdir, "Broken.class").exists());
 	}
 
+	@Test
+	public void should_throw_exception_when_source_class_is_broken_and_threads_option_is_given()
+			throws Exception {
+		File srcdir = new File(tmp.getRoot(), "src");
+		srcdir.mkdir();
+		File destdir = new File(tmp.getRoot(), "dest");
+		destdir.mkdir();
+
+		OutputStream out = new FileOutputStream(
+				new File(srcdir, "Broken.class"));
+		out.write(new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba,
+				(byte) 0xbe, 0, 0, 0, 50 });
+		out.close();
+
+		try {
+			execute("instrument", "--dest", destdir.getAbsolutePath(),
+					"--threads", "2", srcdir.getAbsolutePath());
+			fail("exception expected");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage().contains("Broken.class"));
+		}
+
+		assertFalse(new File(destdir, "Broken.class").exists());
+	}
+
 	private void assertInstrumented(File classfile) throws IOException {
 		InputStream in = new FileInputStream(classfile);
 		final ClassReader reader = InstrSupport
@@ -12,7 +12,10 @@
  *******************************************************************************/
 package org.jacoco.cli.internal.commands;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -25,6 +28,7 @@ import java.util.Set;
 import org.jacoco.cli.internal.CommandTestBase;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IndexedExecutionDataFile;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.junit.Rule;
 import org.junit.Test;
@@ -75,6 +79,62 @@ public class MergeTest extends CommandTestBase {
 		assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")), names);
 	}
 
+	@Test
+	public void should_write_indexed_exec_file_when_indexed_is_specified()
+			throws Exception {
+		File a = createExecFile("a");
+		File b = createExecFile("b");
+		File dest = new File(tmp.getRoot(), "merged.exec");
+
+		execute("merge", "--destfile", dest.getAbsolutePath(), "--indexed",
+				a.getAbsolutePath(), b.getAbsolutePath());
+
+		assertOk();
+		assertTrue(IndexedExecutionDataFile.isIndexed(dest));
+		Set<String> names = loadExecFile(dest);
+		assertEquals(new HashSet<String>(Arrays.asList("a", "b")), names);
+	}
+
+	@Test
+	public void should_convert_indexed_exec_file_to_sequential_format()
+			throws Exception {
+		File a = createExecFile("a");
+		File indexed = new File(tmp.getRoot(), "indexed.exec");
+		execute("merge", "--destfile", indexed.getAbsolutePath(), "--indexed",
+				a.getAbsolutePath());
+		File dest = new File(tmp.getRoot(), "merged.exec");
+
+		execute("merge", "--destfile", dest.getAbsolutePath(),
+				indexed.getAbsolutePath());
+
+		assertOk();
+		assertFalse(IndexedExecutionDataFile.isIndexed(dest));
+		Set<String> names = loadExecFile(dest);
+		assertEquals(new HashSet<String>(Arrays.asList("a")), names);
+	}
+
+	@Test
+	public void should_keep_hit_counts_in_indexed_exec_file() throws Exception {
+		File counts = new File(tmp.getRoot(), "counts.exec");
+		FileOutputStream execout = new FileOutputStream(counts);
+		new ExecutionDataWriter(execout).visitClassExecution(new ExecutionData(
+				1, "a", new boolean[] { true, false }, new int[] { 42, 0 }));
+		execout.close();
+		File indexed = new File(tmp.getRoot(), "indexed.exec");
+		execute("merge", "--destfile", indexed.getAbsolutePath(), "--indexed",
+				counts.getAbsolutePath(), counts.getAbsolutePath());
+		File dest = new File(tmp.getRoot(), "merged.exec");
+
+		execute("merge", "--destfile", dest.getAbsolutePath(),
+				indexed.getAbsolutePath());
+
+		assertOk();
+		ExecFileLoader loader = new ExecFileLoader();
+		loader.load(dest);
+		assertArrayEquals(new int[] { 84, 0 },
+				loader.getExecutionDataStore().get(1).getCounts());
+	}
+
 	private File createExecFile(String name) throws IOException {
 		File file = new File(tmp.getRoot(), name + ".exec");
 		final FileOutputStream execout = new FileOutputStream(file);
@@ -12,14 +12,29 @@
  *******************************************************************************/
 package org.jacoco.cli.internal.commands;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.jacoco.cli.internal.CommandTestBase;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IndexedExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -57,7 +72,7 @@ public class ReportTest extends CommandTestBase {
 		execute("report", "--classfiles", getClassPath());
 
 		assertOk();
-		assertContains("[INFO] Analyzing 14 classes.", out);
+		assertContains("[INFO] Analyzing 23 classes.", out);
 	}
 
 	@Test
@@ -86,6 +101,32 @@ public class ReportTest extends CommandTestBase {
 				out);
 	}
 
+	@Test
+	public void should_read_indexed_exec_file() throws Exception {
+		File exec = new File(tmp.getRoot(), "jacoco.exec");
+		final FileOutputStream execout = new FileOutputStream(exec);
+		new IndexedExecutionDataWriter(execout).write(
+				Collections.singletonList(new SessionInfo("session", 1, 2)),
+				Collections.singletonList(new ExecutionData(0x123,
+						getClass().getName().replace('.', '/'),
+						new boolean[] { true })));
+		execout.close();
+		File html = new File(tmp.getRoot(), "coverage");
+
+		execute("report", exec.getAbsolutePath(), "--classfiles",
+				getClassPath(), "--html", html.getAbsolutePath());
+
+		assertOk();
+		assertContains(
+				"[WARN] Execution data for class org/jacoco/cli/internal/commands/ReportTest does not match.",
+				out);
+		final String sessions = new String(
+				readBytes(new File(html, "jacoco-sessions.html")), "UTF-8");
+		assertTrue(sessions.contains("session"));
+		assertTrue(sessions
+				.contains("org.jacoco.cli.internal.commands.ReportTest"));
+	}
+
 	@Test
 	public void should_create_xml_report_when_xml_option_is_provided()
 			throws Exception {
@@ -127,6 +168,109 @@ public class ReportTest extends CommandTestBase {
 						.isFile());
 	}
 
+	@Test
+	public void should_create_same_report_when_threads_option_is_provided()
+			throws Exception {
+		File xml1 = new File(tmp.getRoot(), "coverage1.xml");
+		File xml4 = new File(tmp.getRoot(), "coverage4.xml");
+
+		execute("report", "--classfiles", getClassPath(), "--xml",
+				xml1.getAbsolutePath());
+		assertOk();
+		execute("report", "--classfiles", getClassPath(), "--threads", "4",
+				"--xml", xml4.getAbsolutePath());
+		assertOk();
+
+		assertArrayEquals(readBytes(xml1), readBytes(xml4));
+	}
+
+	@Test
+	public void should_create_html_report_when_threads_option_is_provided()
+			throws Exception {
+		File html = new File(tmp.getRoot(), "coverage");
+
+		execute("report", "--classfiles", getClassPath(), "--sourcefiles",
+				"./src", "--threads", "4", "--html", html.getAbsolutePath());
+
+		assertOk();
+		assertTrue(new File(html,
+				"org.jacoco.cli.internal.commands/ReportTest.html").isFile());
+		assertTrue(new File(html,
+				"org.jacoco.cli.internal.commands/ReportTest.java.html")
+						.isFile());
+		assertTrue(new File(html, "jacoco-sessions.html").isFile());
+	}
+
+	@Test
+	public void should_create_same_report_when_analysiscache_option_is_provided()
+			throws Exception {
+		File cache = new File(tmp.getRoot(), "cache");
+		File xml = new File(tmp.getRoot(), "coverage.xml");
+		File xmlCold = new File(tmp.getRoot(), "coverage-cold.xml");
+		File xmlWarm = new File(tmp.getRoot(), "coverage-warm.xml");
+
+		execute("report", "--classfiles", getClassPath(), "--xml",
+				xml.getAbsolutePath());
+		assertOk();
+		execute("report", "--classfiles", getClassPath(), "--analysiscache",
+				cache.getAbsolutePath(), "--xml", xmlCold.getAbsolutePath());
+		assertOk();
+		assertTrue(cache.list().length > 0);
+		execute("report", "--classfiles", getClassPath(), "--analysiscache",
+				cache.getAbsolutePath(), "--xml", xmlWarm.getAbsolutePath());
+		assertOk();
+
+		assertArrayEquals(readBytes(xml), readBytes(xmlCold));
+		assertArrayEquals(readBytes(xml), readBytes(xmlWarm));
+	}
+
+	@Test
+	public void should_create_same_report_when_streaming_option_is_provided()
+			throws Exception {
+		File csv = new File(tmp.getRoot(), "coverage.csv");
+		File csvStreaming = new File(tmp.getRoot(), "coverage-streaming.csv");
+		File html = new File(tmp.getRoot(), "coverage");
+
+		execute("report", "--classfiles", getClassPath(), "--csv",
+				csv.getAbsolutePath());
+		assertOk();
+		execute("report", "--classfiles", getClassPath(), "--streaming",
+				"--csv", csvStreaming.getAbsolutePath(), "--html",
+				html.getAbsolutePath());
+		assertOk();
+
+		assertContains("[INFO] Analyzed 23 classes.", out);
+		assertEquals(readSortedLines(csv), readSortedLines(csvStreaming));
+		assertTrue(new File(html,
+				"org.jacoco.cli.internal.commands/ReportTest.html").isFile());
+	}
+
+	@Test
+	public void should_only_report_changed_classes_when_changes_option_is_provided()
+			throws Exception {
+		File changes = new File(tmp.getRoot(), "changes.txt");
+		Writer writer = new FileWriter(changes);
+		writer.write(
+				"src/org/jacoco/cli/internal/commands/ReportTest.java:1-10000\n");
+		writer.close();
+		File csv = new File(tmp.getRoot(), "coverage.csv");
+		File csvStreaming = new File(tmp.getRoot(), "coverage-streaming.csv");
+
+		execute("report", "--classfiles", getClassPath(), "--changes",
+				changes.getAbsolutePath(), "--csv", csv.getAbsolutePath());
+		assertOk();
+		execute("report", "--classfiles", getClassPath(), "--changes",
+				changes.getAbsolutePath(), "--streaming", "--csv",
+				csvStreaming.getAbsolutePath());
+		assertOk();
+
+		assertContains("[INFO] Loading changed lines", out);
+		final List<String> lines = readSortedLines(csv);
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(1).contains(",ReportTest,"));
+		assertEquals(lines, readSortedLines(csvStreaming));
+	}
+
 	@Test
 	public void should_use_all_values_when_multiple_classfiles_options_are_provided()
 			throws Exception {
@@ -149,4 +293,35 @@ public class ReportTest extends CommandTestBase {
 						.isFile());
 	}
 
+	private static List<String> readSortedLines(File file) throws IOException {
+		final List<String> lines = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static byte[] readBytes(File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
 }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import static org.junit.Assume.assumeNoException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Separate VM for tests which attach to a running VM. The VM runs until it is
+ * stopped.
+ */
+public class TargetVM {
+
+	private final Process process;
+
+	private final String pid;
+
+	/**
+	 * Starts a new VM with the given class path. Skips the current test if the
+	 * Attach API is not available.
+	 */
+	public static TargetVM start(final String classpath) throws IOException {
+		try {
+			new AgentLoader();
+		} catch (final IOException e) {
+			assumeNoException(e);
+		}
+		return new TargetVM(classpath);
+	}
+
+	private TargetVM(final String classpath) throws IOException {
+		final File java = new File(System.getProperty("java.home"), "bin/java");
+		process = new ProcessBuilder(java.getAbsolutePath(), "-cp", classpath,
+				TargetVM.class.getName()).redirectErrorStream(true).start();
+		final String name = new BufferedReader(
+				new InputStreamReader(process.getInputStream())).readLine();
+		pid = name.substring(0, name.indexOf('@'));
+	}
+
+	public String getPid() {
+		return pid;
+	}
+
+	public void stop() throws Exception {
+		process.getOutputStream().close();
+		process.waitFor();
+	}
+
+	public static void main(final String[] args) throws IOException {
+		System.out.println(ManagementFactory.getRuntimeMXBean().getName());
+		System.out.flush();
+		// run until standard input is closed:
+		while (System.in.read() != -1) {
+		}
+	}
+
+}
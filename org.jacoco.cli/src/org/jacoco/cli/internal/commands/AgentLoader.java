@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+/**
+ * Loads the JaCoCo agent into a running VM. The Attach API is only available
+ * with JDKs, before Java 9 within <code>lib/tools.jar</code>, it is therefore
+ * accessed reflectively.
+ */
+class AgentLoader {
+
+	private static final String VIRTUAL_MACHINE = "com.sun.tools.attach.VirtualMachine";
+
+	/**
+	 * System property of the target VM which holds the summary of the last
+	 * attach or detach, as published by the agent.
+	 */
+	static final String STATUS_PROPERTY = "jacoco-agent.status";
+
+	private final Class<?> virtualMachine;
+
+	/**
+	 * Creates a new loader.
+	 *
+	 * @throws IOException
+	 *             if the Attach API is not available
+	 */
+	AgentLoader() throws IOException {
+		virtualMachine = loadVirtualMachineClass();
+	}
+
+	private static Class<?> loadVirtualMachineClass() throws IOException {
+		try {
+			return Class.forName(VIRTUAL_MACHINE);
+		} catch (final ClassNotFoundException e) {
+			// Java 8 and before
+		}
+		final File toolsJar = new File(System.getProperty("java.home"),
+				"../lib/tools.jar");
+		try {
+			return new URLClassLoader(new URL[] { toolsJar.toURI().toURL() })
+					.loadClass(VIRTUAL_MACHINE);
+		} catch (final ClassNotFoundException e) {
+			throw new IOException(
+					"Attach API not available, a JDK is required.");
+		}
+	}
+
+	/**
+	 * Loads the given agent into the VM with the given id.
+	 *
+	 * @param pid
+	 *            id of the target VM
+	 * @param agent
+	 *            agent JAR file
+	 * @param options
+	 *            parameters passed to the agent
+	 * @return status published by the agent or <code>null</code>
+	 * @throws Exception
+	 *             if the agent can't be loaded
+	 */
+	String load(final String pid, final File agent, final String options)
+			throws Exception {
+		final Object vm = invoke(
+				virtualMachine.getMethod("attach", String.class), null, pid);
+		try {
+			invoke(virtualMachine.getMethod("loadAgent", String.class,
+					String.class), vm, agent.getAbsolutePath(), options);
+			final Properties properties = (Properties) invoke(
+					virtualMachine.getMethod("getSystemProperties"), vm);
+			return properties.getProperty(STATUS_PROPERTY);
+		} finally {
+			invoke(virtualMachine.getMethod("detach"), vm);
+		}
+	}
+
+	private static Object invoke(final Method method, final Object target,
+			final Object... args) throws Exception {
+		try {
+			return method.invoke(target, args);
+		} catch (final InvocationTargetException e) {
+			final Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e;
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import org.jacoco.agent.AgentJar;
+import org.jacoco.cli.internal.Command;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+/**
+ * The <code>attach</code> command.
+ */
+public class Attach extends Command {
+
+	@Argument(usage = "id of the VM to attach to", metaVar = "<pid>", required = true)
+	String pid;
+
+	@Option(name = "--agent", usage = "JaCoCo agent JAR file (default: extracted to a temporary file which is kept for the VM)", metaVar = "<file>")
+	File agent;
+
+	@Option(name = "--options", usage = "agent options, subsequent attaches to the same VM must omit them or pass the same options", metaVar = "<options>")
+	String options = "";
+
+	@Override
+	public String description() {
+		return "Attach the JaCoCo agent to a running VM and instrument its loaded classes.";
+	}
+
+	@Override
+	public int execute(final PrintWriter out, final PrintWriter err)
+			throws Exception {
+		final AgentLoader loader = new AgentLoader();
+		final File jar = agent == null ? extractAgent() : agent;
+		out.printf("[INFO] Attaching agent %s to VM %s.%n",
+				jar.getAbsolutePath(), pid);
+		final String status = loader.load(pid, jar, options);
+		out.printf("[INFO] Retransformed %s.%n", status);
+		return 0;
+	}
+
+	private static File extractAgent() throws Exception {
+		// The VM loads agent classes from this file as long as it runs:
+		final File jar = File.createTempFile("jacocoagent", ".jar");
+		AgentJar.extractTo(jar);
+		return jar;
+	}
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jacoco.cli.internal.Command;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.tools.ExecCollector;
+import org.kohsuke.args4j.Option;
+
+/**
+ * The <code>collect</code> command.
+ */
+public class Collect extends Command {
+
+	@Option(name = "--address", usage = "host name or ip address to listen on, * for all interfaces (default localhost)", metaVar = "<address>")
+	String address = AgentOptions.DEFAULT_ADDRESS;
+
+	@Option(name = "--port", usage = "the port to listen on (default 6300)", metaVar = "<port>")
+	int port = AgentOptions.DEFAULT_PORT;
+
+	@Option(name = "--destfile", usage = "file to write merged execution data to, existing content is merged", metaVar = "<path>", required = true)
+	File destfile;
+
+	@Option(name = "--dumpinterval", usage = "seconds between dump requests to all connected agents (default 0, agents only report on exit)", metaVar = "<seconds>")
+	int dumpinterval = 0;
+
+	@Option(name = "--delta", usage = "only request execution data recorded since the previous delta dump")
+	boolean delta = false;
+
+	@Option(name = "--reset", usage = "reset execution data on the agents after every dump")
+	boolean reset = false;
+
+	@Option(name = "--checkpointinterval", usage = "seconds between writes of the destfile, 0 to write it on exit only (default 60)", metaVar = "<seconds>")
+	int checkpointinterval = 60;
+
+	@Option(name = "--time", usage = "seconds to run before the collector stops (default 0, runs until the VM is terminated)", metaVar = "<seconds>")
+	int time = 0;
+
+	@Override
+	public String description() {
+		return "Collect execution data from JaCoCo agents running in 'tcpclient' output mode.";
+	}
+
+	@Override
+	public int execute(final PrintWriter out, final PrintWriter err)
+			throws Exception {
+		final ExecCollector collector = new ExecCollector() {
+			@Override
+			protected void onConnected(final InetAddress address) {
+				out.printf("[INFO] Agent %s connected.%n", address);
+			}
+
+			@Override
+			protected void onDisconnected(final InetAddress address) {
+				out.printf("[INFO] Agent %s disconnected.%n", address);
+			}
+
+			@Override
+			protected void onConnectionFailure(final IOException exception) {
+				err.printf("[WARN] %s.%n", exception.getMessage());
+			}
+		};
+		if (destfile.exists()) {
+			out.printf("[INFO] Loading execution data file %s.%n",
+					destfile.getAbsolutePath());
+			collector.load(destfile);
+		}
+
+		final ServerSocket server = new ServerSocket(port, 0, getInetAddress());
+		out.printf("[INFO] Listening on %s:%s.%n", server.getInetAddress(),
+				Integer.valueOf(server.getLocalPort()));
+		collector.start(server);
+
+		final ScheduledExecutorService scheduler = Executors
+				.newSingleThreadScheduledExecutor();
+		if (dumpinterval > 0) {
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					collector.requestDump(delta, reset);
+				}
+			}, dumpinterval, dumpinterval, TimeUnit.SECONDS);
+		}
+		if (checkpointinterval > 0) {
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					checkpoint(collector, err);
+				}
+			}, checkpointinterval, checkpointinterval, TimeUnit.SECONDS);
+		}
+
+		// Write the final checkpoint also if the VM is terminated:
+		final Thread hook = new Thread() {
+			@Override
+			public void run() {
+				shutdown(collector, scheduler, out, err);
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(hook);
+
+		if (time > 0) {
+			Thread.sleep(TimeUnit.SECONDS.toMillis(time));
+		} else {
+			Thread.currentThread().join();
+		}
+
+		Runtime.getRuntime().removeShutdownHook(hook);
+		shutdown(collector, scheduler, out, err);
+		return 0;
+	}
+
+	private InetAddress getInetAddress() throws IOException {
+		if ("*".equals(address)) {
+			return null;
+		}
+		return InetAddress.getByName(address);
+	}
+
+	private void shutdown(final ExecCollector collector,
+			final ScheduledExecutorService scheduler, final PrintWriter out,
+			final PrintWriter err) {
+		scheduler.shutdownNow();
+		collector.shutdown();
+		out.printf("[INFO] Received %s dumps.%n",
+				Long.valueOf(collector.getDumpCount()));
+		out.printf("[INFO] Writing execution data to %s.%n",
+				destfile.getAbsolutePath());
+		checkpoint(collector, err);
+	}
+
+	private void checkpoint(final ExecCollector collector,
+			final PrintWriter err) {
+		try {
+			collector.save(destfile);
+		} catch (final IOException e) {
+			err.printf("[WARN] %s.%n", e.getMessage());
+		}
+	}
+
+}
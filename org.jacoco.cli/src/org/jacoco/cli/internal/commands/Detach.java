@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import org.jacoco.agent.AgentJar;
+import org.jacoco.cli.internal.Command;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+/**
+ * The <code>detach</code> command.
+ */
+public class Detach extends Command {
+
+	/**
+	 * Agent parameter which lets an attached agent restore the original
+	 * classes.
+	 */
+	static final String DETACH = "detach";
+
+	@Argument(usage = "id of the VM to detach from", metaVar = "<pid>", required = true)
+	String pid;
+
+	@Option(name = "--agent", usage = "JaCoCo agent JAR file (default: extracted to a temporary file)", metaVar = "<file>")
+	File agent;
+
+	@Override
+	public String description() {
+		return "Restore the original classes of a VM the JaCoCo agent has been attached to. Execution data is kept.";
+	}
+
+	@Override
+	public int execute(final PrintWriter out, final PrintWriter err)
+			throws Exception {
+		final AgentLoader loader = new AgentLoader();
+		final File jar = agent == null ? AgentJar.extractToTempLocation()
+				: agent;
+		out.printf("[INFO] Detaching agent from VM %s.%n", pid);
+		final String status = loader.load(pid, jar, DETACH);
+		out.printf("[INFO] Retransformed %s.%n", status);
+		return 0;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.cli.internal.Command;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataDiff;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataDiffVisitor;
+import org.jacoco.core.data.IExecutionDataSource;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.IndexedExecutionDataFile;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.tools.ClassFileIndex;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+/**
+ * The <code>diff</code> command.
+ */
+public class Diff extends Command {
+
+	@Argument(usage = "list of JaCoCo *.exec files with the current execution data", metaVar = "<execfiles>")
+	List<File> execfiles = new ArrayList<File>();
+
+	@Option(name = "--base", usage = "JaCoCo *.exec file with the execution data to compare with, can be specified multiple times", metaVar = "<file>", required = true)
+	List<File> basefiles = new ArrayList<File>();
+
+	@Option(name = "--baseclassfiles", usage = "location of Java class files used to record the base data", metaVar = "<path>")
+	List<File> baseclassfiles = new ArrayList<File>();
+
+	@Option(name = "--classfiles", usage = "location of Java class files used to record the current data", metaVar = "<path>")
+	List<File> classfiles = new ArrayList<File>();
+
+	@Option(name = "--destfile", usage = "file to write newly covered probes and the current data of changed classes to", metaVar = "<path>", required = true)
+	File destfile;
+
+	@Option(name = "--missedfile", usage = "file to write newly missed probes to", metaVar = "<path>")
+	File missedfile;
+
+	private final List<SessionInfo> sessionInfos = new ArrayList<SessionInfo>();
+
+	@Override
+	public String description() {
+		return "Compares execution data with a base and writes the differences as exec files.";
+	}
+
+	@Override
+	public int execute(final PrintWriter out, final PrintWriter err)
+			throws IOException {
+		final ExecFileLoader covered = new ExecFileLoader();
+		final ExecFileLoader missed = new ExecFileLoader();
+		final Output output = new Output(covered.getExecutionDataStore(),
+				missed.getExecutionDataStore());
+
+		if (basefiles.size() == 1
+				&& IndexedExecutionDataFile.isIndexed(basefiles.get(0))) {
+			final File file = basefiles.get(0);
+			out.printf("[INFO] Opening indexed base execution data file %s.%n",
+					file.getAbsolutePath());
+			final IndexedExecutionDataFile base = new IndexedExecutionDataFile(
+					file);
+			try {
+				final ExecutionDataDiff diff = createDiff(base, output, out);
+				base.accept(diff.getBaseVisitor());
+			} finally {
+				base.close();
+			}
+		} else {
+			final ExecutionDataStore base = loadBase(out);
+			final ExecutionDataDiff diff = createDiff(base, output, out);
+			base.accept(diff.getBaseVisitor());
+		}
+
+		out.printf(
+				"[INFO] %s classes with newly covered probes, %s classes with newly missed probes, %s changed classes.%n",
+				Integer.valueOf(output.coveredClasses.size()),
+				Integer.valueOf(output.missedClasses.size()),
+				Integer.valueOf(output.changedClasses.size()));
+
+		out.printf("[INFO] Writing execution data to %s.%n",
+				destfile.getAbsolutePath());
+		copySessionInfos(covered);
+		covered.save(destfile, false);
+		if (missedfile != null) {
+			out.printf("[INFO] Writing execution data to %s.%n",
+					missedfile.getAbsolutePath());
+			copySessionInfos(missed);
+			missed.save(missedfile, false);
+		}
+		return 0;
+	}
+
+	private void copySessionInfos(final ExecFileLoader loader) {
+		for (final SessionInfo info : sessionInfos) {
+			loader.getSessionInfoStore().visitSessionInfo(info);
+		}
+	}
+
+	private ExecutionDataStore loadBase(final PrintWriter out)
+			throws IOException {
+		final ExecFileLoader loader = new ExecFileLoader();
+		for (final File file : basefiles) {
+			out.printf("[INFO] Loading base execution data file %s.%n",
+					file.getAbsolutePath());
+			loader.load(file);
+		}
+		return loader.getExecutionDataStore();
+	}
+
+	private ExecutionDataDiff createDiff(final IExecutionDataSource base,
+			final Output output, final PrintWriter out) throws IOException {
+		final ExecutionDataDiff diff = new ExecutionDataDiff(base, output);
+		diff.setBaseClasses(loadClassIds(baseclassfiles));
+		diff.setCurrentClasses(loadClassIds(classfiles));
+		if (execfiles.isEmpty()) {
+			out.println("[WARN] No execution data files provided.");
+		}
+		for (final File file : execfiles) {
+			out.printf("[INFO] Comparing execution data file %s.%n",
+					file.getAbsolutePath());
+			final InputStream in = new BufferedInputStream(
+					new FileInputStream(file));
+			try {
+				final ExecutionDataReader reader = new ExecutionDataReader(in);
+				reader.setSessionInfoVisitor(new ISessionInfoVisitor() {
+					public void visitSessionInfo(final SessionInfo info) {
+						sessionInfos.add(info);
+					}
+				});
+				reader.setExecutionDataVisitor(diff);
+				reader.read();
+			} finally {
+				in.close();
+			}
+		}
+		return diff;
+	}
+
+	private static Map<String, Long> loadClassIds(final List<File> files)
+			throws IOException {
+		if (files.isEmpty()) {
+			return null;
+		}
+		final ClassFileIndex index = new ClassFileIndex();
+		for (final File file : files) {
+			index.loadAll(file);
+		}
+		return index.getClassIds();
+	}
+
+	private static class Output implements IExecutionDataDiffVisitor {
+
+		private final ExecutionDataStore covered;
+		private final ExecutionDataStore missed;
+
+		final Set<String> coveredClasses = new HashSet<String>();
+		final Set<String> missedClasses = new HashSet<String>();
+		final Set<String> changedClasses = new HashSet<String>();
+
+		Output(final ExecutionDataStore covered,
+				final ExecutionDataStore missed) {
+			this.covered = covered;
+			this.missed = missed;
+		}
+
+		public void visitNewlyCovered(final ExecutionData data) {
+			coveredClasses.add(data.getName());
+			covered.put(copy(data));
+		}
+
+		public void visitNewlyMissed(final ExecutionData data) {
+			missedClasses.add(data.getName());
+			missed.put(copy(data));
+		}
+
+		public void visitChangedClass(final String name,
+				final ExecutionData current) {
+			changedClasses.add(name);
+			// everything covered in a modified class is new:
+			if (current != null && current.hasHits()) {
+				covered.put(copy(current));
+			}
+		}
+
+		private static ExecutionData copy(final ExecutionData data) {
+			return new ExecutionData(data.getId(), data.getName(),
+					data.getProbes().clone());
+		}
+
+	}
+
+}
@@ -40,6 +40,12 @@ public class Dump extends Command {
 	@Option(name = "--reset", usage = "reset execution data on test target after dump")
 	boolean reset = false;
 
+	@Option(name = "--delta", usage = "only dump execution data recorded since the previous delta dump")
+	boolean delta = false;
+
+	@Option(name = "--clientid", usage = "identifier for delta dumps, clients with different ids receive independent deltas (default dump)", metaVar = "<id>")
+	String clientid = "dump";
+
 	@Option(name = "--retry", usage = "number of retries (default 10)", metaVar = "<count>")
 	int retrycount = 10;
 
@@ -65,6 +71,8 @@ public class Dump extends Command {
 			}
 		};
 		client.setReset(reset);
+		client.setDelta(delta);
+		client.setClientId(clientid);
 		client.setRetryCount(retrycount);
 
 		final ExecFileLoader loader = client.dump(address, port);
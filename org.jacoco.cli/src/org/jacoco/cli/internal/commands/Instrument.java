@@ -18,10 +18,18 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jacoco.cli.internal.Command;
 import org.jacoco.core.instr.Instrumenter;
@@ -40,6 +48,9 @@ public class Instrument extends Command {
 	@Argument(usage = "list of folder or files to instrument recusively", metaVar = "<sourcefiles>")
 	List<File> source = new ArrayList<File>();
 
+	@Option(name = "--threads", usage = "number of threads to instrument files and archive entries (default 1)", metaVar = "<n>")
+	int threads = 1;
+
 	private Instrumenter instrumenter;
 
 	@Override
@@ -53,33 +64,91 @@ public class Instrument extends Command {
 		final File absoluteDest = dest.getAbsoluteFile();
 		instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
-		int total = 0;
+		final Map<File, File> files = new LinkedHashMap<File, File>();
 		for (final File s : source) {
 			if (s.isFile()) {
-				total += instrument(s, new File(absoluteDest, s.getName()));
+				files.put(s, new File(absoluteDest, s.getName()));
 			} else {
-				total += instrumentRecursive(s, absoluteDest);
+				collectRecursive(s, absoluteDest, files);
 			}
 		}
+		final int total;
+		if (threads > 1) {
+			total = instrumentConcurrently(files);
+		} else {
+			total = instrument(files);
+		}
 		out.printf("[INFO] %s classes instrumented to %s.%n",
 				Integer.valueOf(total), absoluteDest);
 		return 0;
 	}
 
-	private int instrumentRecursive(final File src, final File dest)
-			throws IOException {
-		int total = 0;
+	private void collectRecursive(final File src, final File dest,
+			final Map<File, File> files) {
 		if (src.isDirectory()) {
 			for (final File child : src.listFiles()) {
-				total += instrumentRecursive(child,
-						new File(dest, child.getName()));
+				collectRecursive(child, new File(dest, child.getName()), files);
 			}
 		} else {
-			total += instrument(src, dest);
+			files.put(src, dest);
+		}
+	}
+
+	private int instrument(final Map<File, File> files) throws IOException {
+		int total = 0;
+		for (final Map.Entry<File, File> e : files.entrySet()) {
+			total += instrument(e.getKey(), e.getValue());
 		}
 		return total;
 	}
 
+	private int instrumentConcurrently(final Map<File, File> files)
+			throws IOException {
+		// Files and the class files contained in archives share the pool:
+		final ExecutorService executor = createExecutor();
+		instrumenter.setExecutor(executor);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (final Map.Entry<File, File> e : files.entrySet()) {
+				results.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws IOException {
+						return Integer
+								.valueOf(instrument(e.getKey(), e.getValue()));
+					}
+				}));
+			}
+			int total = 0;
+			for (final Future<Integer> result : results) {
+				total += get(result).intValue();
+			}
+			return total;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(threads);
+	}
+
+	private static <T> T get(final Future<T> result) throws IOException {
+		try {
+			return result.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+
 	private int instrument(final File src, final File dest) throws IOException {
 		dest.getParentFile().mkdirs();
 		final InputStream input = new FileInputStream(src);
@@ -34,6 +34,9 @@ public class Merge extends Command {
 	@Option(name = "--destfile", usage = "file to write merged execution data to", metaVar = "<path>", required = true)
 	File destfile;
 
+	@Option(name = "--indexed", usage = "write the indexed exec file format for random access, an existing destfile is overwritten")
+	boolean indexed = false;
+
 	@Override
 	public String description() {
 		return "Merges multiple exec files into a new one.";
@@ -45,7 +48,11 @@ public class Merge extends Command {
 		final ExecFileLoader loader = loadExecutionData(out);
 		out.printf("[INFO] Writing execution data to %s.%n",
 				destfile.getAbsolutePath());
-		loader.save(destfile, true);
+		if (indexed) {
+			loader.saveIndexed(destfile);
+		} else {
+			loader.save(destfile, true);
+		}
 		return 0;
 	}
 
@@ -14,26 +14,38 @@
 package org.jacoco.cli.internal.commands;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jacoco.cli.internal.Command;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ChangedLines;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
-import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.PackageAnalyzer;
+import org.jacoco.core.data.IExecutionDataSource;
 import org.jacoco.core.tools.ExecFileLoader;
-import org.jacoco.report.DirectorySourceFileLocator;
 import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IndexedSourceFileLocator;
 import org.jacoco.report.MultiReportVisitor;
-import org.jacoco.report.MultiSourceFileLocator;
 import org.jacoco.report.csv.CSVFormatter;
 import org.jacoco.report.html.HTMLFormatter;
 import org.jacoco.report.xml.XMLFormatter;
@@ -63,6 +75,18 @@ public class Report extends Command {
 	@Option(name = "--encoding", usage = "source file encoding (by default platform encoding is used)", metaVar = "<charset>")
 	String encoding;
 
+	@Option(name = "--threads", usage = "number of threads to analyze class files and render HTML pages (default 1)", metaVar = "<n>")
+	int threads = 1;
+
+	@Option(name = "--analysiscache", usage = "directory to cache the structure of analyzed class files", metaVar = "<dir>")
+	File analysiscache;
+
+	@Option(name = "--streaming", usage = "analyze and write the report package by package to reduce memory consumption")
+	boolean streaming;
+
+	@Option(name = "--changes", usage = "UTF-8 encoded unified diff or list of path:first-last lines to restrict the report to changed lines", metaVar = "<file>")
+	File changes;
+
 	@Option(name = "--xml", usage = "output file for the XML report", metaVar = "<file>")
 	File xml;
 
@@ -80,10 +104,26 @@ public class Report extends Command {
 	@Override
 	public int execute(final PrintWriter out, final PrintWriter err)
 			throws IOException {
+		final ChangedLines changedLines = loadChangedLines(out);
 		final ExecFileLoader loader = loadExecutionData(out);
-		final IBundleCoverage bundle = analyze(loader.getExecutionDataStore(),
-				out);
-		writeReports(bundle, loader, out);
+		final ExecutorService executor = threads > 1
+				? Executors.newFixedThreadPool(threads)
+				: null;
+		try {
+			if (streaming) {
+				writeStreamingReports(loader, changedLines, executor, out);
+			} else {
+				final IBundleCoverage bundle = analyze(
+						loader.getExecutionDataSource(), changedLines, executor,
+						out);
+				writeReports(bundle, loader, executor, out);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+			loader.close();
+		}
 		return 0;
 	}
 
@@ -96,19 +136,40 @@ public class Report extends Command {
 			for (final File file : execfiles) {
 				out.printf("[INFO] Loading execution data file %s.%n",
 						file.getAbsolutePath());
-				loader.load(file);
+				loader.open(file);
 			}
 		}
 		return loader;
 	}
 
-	private IBundleCoverage analyze(final ExecutionDataStore data,
+	private ChangedLines loadChangedLines(final PrintWriter out)
+			throws IOException {
+		if (changes == null) {
+			return null;
+		}
+		out.printf("[INFO] Loading changed lines %s.%n",
+				changes.getAbsolutePath());
+		final ChangedLines changedLines = new ChangedLines();
+		final Reader reader = new InputStreamReader(
+				new FileInputStream(changes), "UTF-8");
+		try {
+			changedLines.read(reader);
+		} finally {
+			reader.close();
+		}
+		return changedLines;
+	}
+
+	private IBundleCoverage analyze(final IExecutionDataSource data,
+			final ChangedLines changedLines, final Executor executor,
 			final PrintWriter out) throws IOException {
 		final CoverageBuilder builder = new CoverageBuilder();
-		final Analyzer analyzer = new Analyzer(data, builder);
-		for (final File f : classfiles) {
-			analyzer.analyzeAll(f);
+		final Analyzer analyzer = new Analyzer(data, builder, executor);
+		if (analysiscache != null) {
+			analyzer.setCache(new AnalysisCache(analysiscache));
 		}
+		analyzer.setChangedLines(changedLines);
+		analyzer.analyzeAll(classfiles);
 		printNoMatchWarning(builder.getNoMatchClasses(), out);
 		return builder.getBundle(name);
 	}
@@ -129,18 +190,60 @@ public class Report extends Command {
 	}
 
 	private void writeReports(final IBundleCoverage bundle,
-			final ExecFileLoader loader, final PrintWriter out)
-			throws IOException {
+			final ExecFileLoader loader, final Executor executor,
+			final PrintWriter out) throws IOException {
 		out.printf("[INFO] Analyzing %s classes.%n",
 				Integer.valueOf(bundle.getClassCounter().getTotalCount()));
-		final IReportVisitor visitor = createReportVisitor();
+		final IReportVisitor visitor = createReportVisitor(executor);
+		visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
+				loader.getExecutionDataContents());
+		visitor.visitBundle(bundle, getSourceLocator(executor));
+		visitor.visitEnd();
+	}
+
+	private void writeStreamingReports(final ExecFileLoader loader,
+			final ChangedLines changedLines, final Executor executor,
+			final PrintWriter out) throws IOException {
+		final IReportVisitor visitor = createReportVisitor(executor);
 		visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
-				loader.getExecutionDataStore().getContents());
-		visitor.visitBundle(bundle, getSourceLocator());
+				loader.getExecutionDataContents());
+		final CoverageNodeImpl total = new CoverageNodeImpl(ElementType.BUNDLE,
+				name);
+		final Collection<IClassCoverage> nomatch = new ArrayList<IClassCoverage>();
+		final PackageAnalyzer analyzer = new PackageAnalyzer(
+				loader.getExecutionDataSource(), executor);
+		try {
+			if (analysiscache != null) {
+				analyzer.setCache(new AnalysisCache(analysiscache));
+			}
+			analyzer.setChangedLines(changedLines);
+			for (final File f : classfiles) {
+				analyzer.analyzeAll(f);
+			}
+			final IReportBundleVisitor bundle = visitor.visitBundle(name,
+					getSourceLocator(executor));
+			for (final String packageName : analyzer.getPackageNames()) {
+				final IPackageCoverage p = analyzer.analyzePackage(packageName);
+				for (final IClassCoverage c : p.getClasses()) {
+					if (c.isNoMatch()) {
+						nomatch.add(c);
+					}
+				}
+				total.increment(p);
+				bundle.visitPackage(p);
+			}
+			bundle.visitEnd();
+		} finally {
+			analyzer.close();
+		}
+		printNoMatchWarning(nomatch, out);
+		out.printf("[INFO] Analyzed %s classes.%n",
+				Integer.valueOf(total.getClassCounter().getTotalCount()));
 		visitor.visitEnd();
 	}
 
-	private IReportVisitor createReportVisitor() throws IOException {
+	private IReportVisitor createReportVisitor(final Executor executor)
+			throws IOException {
 		final List<IReportVisitor> visitors = new ArrayList<IReportVisitor>();
 
 		if (xml != null) {
@@ -155,6 +258,7 @@ public class Report extends Command {
 
 		if (html != null) {
 			final HTMLFormatter formatter = new HTMLFormatter();
+			formatter.setExecutor(executor);
 			visitors.add(
 					formatter.createVisitor(new FileMultiReportOutput(html)));
 		}
@@ -162,13 +266,14 @@ public class Report extends Command {
 		return new MultiReportVisitor(visitors);
 	}
 
-	private ISourceFileLocator getSourceLocator() {
-		final MultiSourceFileLocator multi = new MultiSourceFileLocator(
-				tabwidth);
+	private ISourceFileLocator getSourceLocator(final Executor executor) {
+		final IndexedSourceFileLocator locator = new IndexedSourceFileLocator(
+				encoding, tabwidth);
+		locator.setExecutor(executor);
 		for (final File f : sourcefiles) {
-			multi.add(new DirectorySourceFileLocator(f, encoding, tabwidth));
+			locator.add(f);
 		}
-		return multi;
+		return locator;
 	}
 
 }
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jacoco.core.internal.analysis.ClassAnalyzer;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Unit tests for {@link AnalysisCache}.
+ */
+public class AnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private AnalysisCache cache;
+
+	@Before
+	public void setup() {
+		directory = new File(folder.getRoot(), "cache");
+		cache = new AnalysisCache(directory);
+	}
+
+	@Test
+	public void getDirectory_should_return_directory() {
+		assertEquals(directory, cache.getDirectory());
+	}
+
+	@Test
+	public void get_should_return_null_for_unknown_class() {
+		assertNull(cache.get(42, new StringPool()));
+	}
+
+	@Test
+	public void put_should_create_entry_in_new_directory() throws IOException {
+		cache.put(42, createStructure(AnalysisCacheTest.class));
+
+		assertTrue(cache.getFile(42).isFile());
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void getFile_should_contain_class_id_and_fingerprint()
+			throws IOException {
+		final File file = cache.getFile(42);
+
+		assertEquals(directory, file.getParentFile());
+		assertTrue(file.getName(), file.getName()
+				.matches("000000000000002a-[0-9a-f]{16}\\.structure"));
+		assertEquals(file, new AnalysisCache(directory).getFile(42));
+	}
+
+	@Test
+	public void get_should_return_null_for_entry_without_fingerprint()
+			throws IOException {
+		cache.put(42, createStructure(AnalysisCacheTest.class));
+		assertTrue(cache.getFile(42)
+				.renameTo(new File(directory, "000000000000002a.structure")));
+
+		assertNull(cache.get(42, new StringPool()));
+	}
+
+	@Test
+	public void get_should_return_stored_structure() throws IOException {
+		cache.put(42, createStructure(AnalysisCacheTest.class));
+
+		final ClassStructure structure = new AnalysisCache(directory).get(42,
+				new StringPool());
+
+		assertEquals("org/jacoco/core/analysis/AnalysisCacheTest",
+				structure.getName());
+	}
+
+	@Test
+	public void put_should_replace_existing_entry() throws IOException {
+		cache.put(42, createStructure(AnalysisCacheTest.class));
+		cache.put(42, createStructure(AnalyzerTest.class));
+
+		assertEquals("org/jacoco/core/analysis/AnalyzerTest",
+				cache.get(42, new StringPool()).getName());
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void get_should_return_null_for_corrupt_entry() throws IOException {
+		directory.mkdirs();
+		final FileOutputStream out = new FileOutputStream(cache.getFile(42));
+		out.write(new byte[] { 0x10, 0x01, 0x00 });
+		out.close();
+
+		assertNull(cache.get(42, new StringPool()));
+	}
+
+	@Test
+	public void get_should_return_null_for_entry_of_other_version()
+			throws IOException {
+		directory.mkdirs();
+		final DataOutputStream out = new DataOutputStream(
+				new FileOutputStream(cache.getFile(42)));
+		out.writeChar(0x1001);
+		out.writeUTF("0.0.0");
+		out.close();
+
+		assertNull(cache.get(42, new StringPool()));
+	}
+
+	@Test(expected = IOException.class)
+	public void put_should_throw_IOException_when_directory_is_a_file()
+			throws IOException {
+		new FileOutputStream(directory).close();
+
+		cache.put(42, createStructure(AnalysisCacheTest.class));
+	}
+
+	private static ClassStructure createStructure(final Class<?> c)
+			throws IOException {
+		final ClassReader reader = InstrSupport
+				.classReaderFor(TargetLoader.getClassDataAsBytes(c));
+		final ClassAnalyzer analyzer = new ClassAnalyzer(
+				new ClassCoverageImpl(reader.getClassName(), 0, false), null,
+				new StringPool(), true);
+		reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+		return analyzer.getStructure();
+	}
+
+}
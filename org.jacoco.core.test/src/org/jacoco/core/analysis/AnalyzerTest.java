@@ -26,24 +26,38 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataSource;
 import org.jacoco.core.internal.Pack200Streams;
+import org.jacoco.core.internal.analysis.ClassAnalyzer;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.analysis.StringPool;
 import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.test.TargetLoader;
 import org.junit.AssumptionViolatedException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 
@@ -163,16 +177,44 @@ public class AnalyzerTest {
 		final byte[] bytes = TargetLoader
 				.getClassDataAsBytes(AnalyzerTest.class);
 		executionData.get(Long.valueOf(CRC64.classId(bytes)),
-				"org/jacoco/core/analysis/AnalyzerTest", 200);
+				"org/jacoco/core/analysis/AnalyzerTest", 400);
 		analyzer.analyzeClass(bytes, "Test");
 		assertFalse(classes.get("org/jacoco/core/analysis/AnalyzerTest")
 				.isNoMatch());
 	}
 
+	@Test
+	public void testAnalyzeClassWithExecutionDataSource() throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		final long id = CRC64.classId(bytes);
+		final List<String> queried = new ArrayList<String>();
+		analyzer = new Analyzer(new IExecutionDataSource() {
+			public ExecutionData get(long classid) {
+				queried.add("get");
+				return classid == id
+						? new ExecutionData(id,
+								"org/jacoco/core/analysis/AnalyzerTest", 400)
+						: null;
+			}
+
+			public boolean contains(String name) {
+				queried.add("contains");
+				return true;
+			}
+		}, new EmptyStructureVisitor());
+
+		analyzer.analyzeClass(bytes, "Test");
+
+		assertEquals(Arrays.asList("get"), queried);
+		assertFalse(classes.get("org/jacoco/core/analysis/AnalyzerTest")
+				.isNoMatch());
+	}
+
 	@Test
 	public void testAnalyzeClassNoIdMatch() throws IOException {
 		executionData.get(Long.valueOf(0),
-				"org/jacoco/core/analysis/AnalyzerTest", 200);
+				"org/jacoco/core/analysis/AnalyzerTest", 400);
 		analyzer.analyzeClass(
 				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
 		assertTrue(classes.get("org/jacoco/core/analysis/AnalyzerTest")
@@ -436,6 +478,281 @@ public class AnalyzerTest {
 		}
 	}
 
+	@Test
+	public void analyzeAll_should_report_classes_before_returning_if_executor_is_given()
+			throws IOException {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+				new Executor() {
+					public void execute(Runnable task) {
+						// never runs the task
+						tasks.add(task);
+					}
+				});
+
+		final int count = analyzer.analyzeAll(createZip(AnalyzerTest.class,
+				Analyzer.class, CoverageBuilder.class), "test.zip");
+
+		assertEquals(3, count);
+		assertEquals(3, tasks.size());
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest",
+				"org/jacoco/core/analysis/Analyzer",
+				"org/jacoco/core/analysis/CoverageBuilder");
+	}
+
+	@Test
+	public void analyzeClass_should_report_classes_when_finished_if_executor_is_given()
+			throws IOException {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+				new Executor() {
+					public void execute(Runnable task) {
+						tasks.add(task);
+					}
+				});
+
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+
+		assertEquals(1, tasks.size());
+		assertTrue(classes.isEmpty());
+		tasks.get(0).run();
+		analyzer.finish();
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void analyzeAll_should_analyze_all_files_if_executor_is_given()
+			throws IOException {
+		createClassfile("bin1", AnalyzerTest.class);
+		createClassfile("bin2", Analyzer.class);
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+				new Executor() {
+					public void execute(Runnable task) {
+						tasks.add(task);
+					}
+				});
+
+		final int count = analyzer
+				.analyzeAll(Arrays.asList(new File(folder.getRoot(), "bin1"),
+						new File(folder.getRoot(), "bin2")));
+
+		assertEquals(2, count);
+		assertEquals(2, tasks.size());
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest",
+				"org/jacoco/core/analysis/Analyzer");
+	}
+
+	@Test
+	public void analyzeAll_should_report_classes_in_sequential_order_if_executor_is_given()
+			throws Exception {
+		final Class<?>[] sources = new Class<?>[] { AnalyzerTest.class,
+				Analyzer.class, CoverageBuilder.class, ICoverageVisitor.class,
+				IClassCoverage.class, ExecutionDataStore.class };
+		final List<String> sequential = new ArrayList<String>();
+		new Analyzer(executionData, new OrderVisitor(sequential))
+				.analyzeAll(createZip(sources), "test.zip");
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 20; i++) {
+				final List<String> parallel = new ArrayList<String>();
+				final Analyzer analyzer = new Analyzer(executionData,
+						new OrderVisitor(parallel), executor);
+
+				analyzer.analyzeAll(createZip(sources), "test.zip");
+
+				assertEquals(sequential, parallel);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void finish_should_throw_exception_for_broken_class_if_executor_is_given()
+			throws IOException {
+		final byte[] brokenclass = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		brokenclass[10] = 0x23;
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+					executor);
+			analyzer.analyzeClass(brokenclass, "Broken.class");
+			analyzer.finish();
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("Error while analyzing Broken.class.", e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void finish_should_do_nothing_without_executor() throws IOException {
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+
+		analyzer.finish();
+
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void analyzeClass_should_add_structure_to_cache_if_cache_is_set()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		final AnalysisCache cache = new AnalysisCache(folder.getRoot());
+		analyzer.setCache(cache);
+
+		analyzer.analyzeClass(bytes, "Test");
+
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+		assertEquals("org/jacoco/core/analysis/AnalyzerTest",
+				cache.get(CRC64.classId(bytes), new StringPool()).getName());
+	}
+
+	@Test
+	public void analyzeClass_should_ignore_cache_write_failures()
+			throws IOException {
+		final File file = folder.newFile();
+		final AnalysisCache cache = new AnalysisCache(new File(file, "cache"));
+		analyzer.setCache(cache);
+
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void analyzeClass_should_use_structure_from_cache_if_cache_is_set()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		final long id = CRC64.classId(bytes);
+		final AnalysisCache cache = new AnalysisCache(folder.getRoot());
+		analyzer.setCache(cache);
+		analyzer.analyzeClass(bytes, "Test");
+		final boolean[] probes = executionData.get(Long.valueOf(id),
+				"org/jacoco/core/analysis/AnalyzerTest", 400).getProbes();
+		Arrays.fill(probes, 0, 200, true);
+		final IClassCoverage expected = analyze(bytes, null);
+
+		final IClassCoverage actual = analyze(bytes, cache);
+
+		assertEquals(expected.getInstructionCounter(),
+				actual.getInstructionCounter());
+		assertEquals(expected.getBranchCounter(), actual.getBranchCounter());
+		assertEquals(expected.getLineCounter(), actual.getLineCounter());
+		assertEquals(expected.getMethodCounter(), actual.getMethodCounter());
+		assertEquals(id, actual.getId());
+		assertFalse(actual.isNoMatch());
+	}
+
+	@Test
+	public void analyzeClass_should_not_parse_class_if_structure_is_cached()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		final AnalysisCache cache = new AnalysisCache(folder.getRoot());
+		cache.put(CRC64.classId(bytes), createStructure(Analyzer.class));
+		analyzer.setCache(cache);
+
+		analyzer.analyzeClass(bytes, "Test");
+
+		assertClasses("org/jacoco/core/analysis/Analyzer");
+	}
+
+	@Test
+	public void analyzeClass_should_skip_class_if_source_file_is_not_changed()
+			throws IOException {
+		final ChangedLines changedLines = new ChangedLines();
+		changedLines.add("org/jacoco/core/analysis/Analyzer.java", 1, 1000);
+		analyzer.setChangedLines(changedLines);
+
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+
+		assertClasses();
+	}
+
+	@Test
+	public void analyzeClass_should_only_count_changed_lines()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		final IClassCoverage all = analyze(bytes, null);
+		final ChangedLines changedLines = new ChangedLines();
+		changedLines.add("src/org/jacoco/core/analysis/AnalyzerTest.java",
+				all.getFirstLine(), all.getFirstLine());
+		analyzer.setChangedLines(changedLines);
+
+		analyzer.analyzeClass(bytes, "Test");
+
+		final IClassCoverage coverage = classes
+				.get("org/jacoco/core/analysis/AnalyzerTest");
+		assertEquals(1, coverage.getLineCounter().getTotalCount());
+		assertEquals(all.getFirstLine(), coverage.getFirstLine());
+		assertEquals(all.getFirstLine(), coverage.getLastLine());
+		assertTrue(coverage.getMethodCounter().getTotalCount() > 0);
+		assertTrue(coverage.getMethodCounter().getTotalCount() < all
+				.getMethodCounter().getTotalCount());
+	}
+
+	private IClassCoverage analyze(final byte[] bytes,
+			final AnalysisCache cache) throws IOException {
+		final IClassCoverage[] result = new IClassCoverage[1];
+		final Analyzer a = new Analyzer(executionData, new ICoverageVisitor() {
+			public void visitCoverage(IClassCoverage coverage) {
+				result[0] = coverage;
+			}
+		});
+		a.setCache(cache);
+		a.analyzeClass(bytes, "Test");
+		return result[0];
+	}
+
+	private static ClassStructure createStructure(final Class<?> c)
+			throws IOException {
+		final ClassReader reader = InstrSupport
+				.classReaderFor(TargetLoader.getClassDataAsBytes(c));
+		final ClassAnalyzer analyzer = new ClassAnalyzer(
+				new ClassCoverageImpl(reader.getClassName(), 0, false), null,
+				new StringPool(), true);
+		reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+		return analyzer.getStructure();
+	}
+
+	private static class OrderVisitor implements ICoverageVisitor {
+
+		private final List<String> names;
+
+		OrderVisitor(final List<String> names) {
+			this.names = names;
+		}
+
+		public void visitCoverage(IClassCoverage coverage) {
+			names.add(coverage.getName());
+		}
+	}
+
+	private static InputStream createZip(final Class<?>... sources)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (final Class<?> source : sources) {
+			zip.putNextEntry(new ZipEntry(
+					source.getName().replace('.', '/') + ".class"));
+			zip.write(TargetLoader.getClassDataAsBytes(source));
+		}
+		zip.finish();
+		return new ByteArrayInputStream(buffer.toByteArray());
+	}
+
 	private void createClassfile(final String dir, final Class<?> source)
 			throws IOException {
 		File file = new File(folder.getRoot(), dir);
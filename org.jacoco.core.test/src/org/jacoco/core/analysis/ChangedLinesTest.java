@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link ChangedLines}.
+ */
+public class ChangedLinesTest {
+
+	private ChangedLines changedLines;
+
+	@Before
+	public void setup() {
+		changedLines = new ChangedLines();
+	}
+
+	@Test
+	public void should_be_empty_initially() {
+		assertTrue(changedLines.isEmpty());
+	}
+
+	@Test
+	public void add_should_mark_range_of_lines() {
+		changedLines.add("org/example/Foo.java", 3, 5);
+
+		assertFalse(changedLines.isEmpty());
+		assertLines("org/example", "Foo.java", 3, 4, 5);
+	}
+
+	@Test
+	public void isChanged_should_match_paths_by_suffix() {
+		changedLines.add("module\\src\\main\\java\\org\\example\\Foo.java", 7);
+
+		assertTrue(changedLines.isChanged("org/example", "Foo.java", 7));
+		assertFalse(changedLines.isChanged("org/example", "Foo.java", 8));
+		assertFalse(changedLines.isChanged("ample", "Foo.java", 7));
+		assertFalse(changedLines.isChanged("org/example", "oo.java", 7));
+		assertFalse(changedLines.isChanged("org/example", "Bar.java", 7));
+	}
+
+	@Test
+	public void isChanged_should_match_default_package() {
+		changedLines.add("src/Foo.java", 1);
+
+		assertTrue(changedLines.isChanged("", "Foo.java", 1));
+	}
+
+	@Test
+	public void read_should_parse_added_lines_of_unified_diff()
+			throws IOException {
+		changedLines.read(new StringReader(
+				"diff --git a/src/org/example/Foo.java b/src/org/example/Foo.java\n"
+						+ "index 1234567..89abcde 100644\n"
+						+ "--- a/src/org/example/Foo.java\n"
+						+ "+++ b/src/org/example/Foo.java\n"
+						+ "@@ -1,5 +1,6 @@ public class Foo {\n" //
+						+ " line1\n" //
+						+ "-line2\n" //
+						+ "+line2a\n" //
+						+ "+line2b\n" //
+						+ " line3\n" //
+						+ "\n" //
+						+ " line5\n" //
+						+ "@@ -20 +21 @@\n" //
+						+ "-old\n" //
+						+ "+new\n" //
+						+ "\\ No newline at end of file\n" + "--- /dev/null\n"
+						+ "+++ b/src/org/example/Bar.java\t2020-01-01\n"
+						+ "@@ -0,0 +1,2 @@\n" //
+						+ "+a\n" //
+						+ "+b\n"));
+
+		assertLines("org/example", "Foo.java", 2, 3, 21);
+		assertLines("org/example", "Bar.java", 1, 2);
+	}
+
+	@Test
+	public void read_should_ignore_deleted_files() throws IOException {
+		changedLines.read(new StringReader("--- a/Foo.java\n" //
+				+ "+++ /dev/null\n" //
+				+ "@@ -1,2 +0,0 @@\n" //
+				+ "-a\n" //
+				+ "-b\n"));
+
+		assertTrue(changedLines.isEmpty());
+	}
+
+	@Test
+	public void read_should_parse_line_ranges() throws IOException {
+		changedLines.read(new StringReader("# changed lines\n" //
+				+ "src/org/example/Foo.java:3-4\n" //
+				+ "\n" //
+				+ "  src/org/example/Foo.java:10  \n" //
+				+ "src/org/example/Bar.java:1\n"));
+
+		assertLines("org/example", "Foo.java", 3, 4, 10);
+		assertLines("org/example", "Bar.java", 1);
+	}
+
+	@Test
+	public void containsClass_should_check_source_file_of_class() {
+		changedLines.add("src/org/example/Foo.java", 1);
+
+		assertTrue(changedLines
+				.containsClass(createClass("org/example/Foo", "Foo.java")));
+		assertTrue(changedLines.containsClass(
+				createClass("org/example/Foo$Inner", "Foo.java")));
+		assertFalse(changedLines
+				.containsClass(createClass("org/example/Bar", "Bar.java")));
+		assertFalse(changedLines
+				.containsClass(createClass("org/other/Foo", "Foo.java")));
+		assertFalse(changedLines
+				.containsClass(createClass("org/example/Foo", null)));
+	}
+
+	@Test
+	public void restrict_should_only_keep_changed_lines() {
+		changedLines.add("org/example/Foo.java", 2, 3);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(
+				"org/example/Foo", 123, false);
+		coverage.setSourceFileName("Foo.java");
+		coverage.setSuperName("java/lang/Object");
+		coverage.addMethod(createMethod("a", 1, 2));
+		coverage.addMethod(createMethod("b", 3, 4));
+		coverage.addMethod(createMethod("c", 5, 6));
+
+		final ClassCoverageImpl result = changedLines.restrict(coverage);
+
+		assertEquals("org/example/Foo", result.getName());
+		assertEquals(123, result.getId());
+		assertEquals("java/lang/Object", result.getSuperName());
+		assertEquals("Foo.java", result.getSourceFileName());
+		assertEquals(CounterImpl.getInstance(1, 1),
+				result.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(1, 1), result.getLineCounter());
+		assertEquals(CounterImpl.getInstance(1, 1), result.getMethodCounter());
+		assertEquals(2, result.getFirstLine());
+		assertEquals(3, result.getLastLine());
+		final List<String> names = new ArrayList<String>();
+		for (final IMethodCoverage m : result.getMethods()) {
+			names.add(m.getName());
+		}
+		assertEquals(2, names.size());
+		assertTrue(names.contains("a"));
+		assertTrue(names.contains("b"));
+	}
+
+	@Test
+	public void restrict_should_return_null_if_no_changed_lines_remain() {
+		changedLines.add("org/example/Foo.java", 10);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(
+				"org/example/Foo", 123, false);
+		coverage.setSourceFileName("Foo.java");
+		coverage.addMethod(createMethod("a", 1, 2));
+
+		assertNull(changedLines.restrict(coverage));
+	}
+
+	@Test
+	public void restrict_should_return_null_for_other_source_files() {
+		changedLines.add("org/example/Foo.java", 1);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(
+				"org/example/Bar", 123, false);
+		coverage.setSourceFileName("Bar.java");
+		coverage.addMethod(createMethod("a", 1, 2));
+
+		assertNull(changedLines.restrict(coverage));
+	}
+
+	private static MethodCoverageImpl createMethod(final String name,
+			final int coveredLine, final int missedLine) {
+		final MethodCoverageImpl method = new MethodCoverageImpl(name, "()V",
+				null);
+		method.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0,
+				coveredLine);
+		method.increment(CounterImpl.COUNTER_1_0, CounterImpl.COUNTER_0_0,
+				missedLine);
+		method.incrementMethodCounter();
+		return method;
+	}
+
+	private static ClassReader createClass(final String name,
+			final String source) {
+		final ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, 0, name, null, "java/lang/Object", null);
+		cw.visitSource(source, null);
+		cw.visitEnd();
+		return InstrSupport.classReaderFor(cw.toByteArray());
+	}
+
+	private void assertLines(final String packageName,
+			final String sourceFileName, final int... lines) {
+		final BitSet expected = new BitSet();
+		for (final int line : lines) {
+			expected.set(line);
+		}
+		assertEquals(expected,
+				changedLines.getLines(packageName, sourceFileName));
+	}
+
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link PackageAnalyzer}.
+ */
+public class PackageAnalyzerTest {
+
+	private ExecutionDataStore executionData;
+
+	private PackageAnalyzer analyzer;
+
+	@Before
+	public void setup() {
+		executionData = new ExecutionDataStore();
+		analyzer = new PackageAnalyzer(executionData);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		analyzer.close();
+	}
+
+	@Test
+	public void should_collect_classes_by_package() throws IOException {
+		final int count = analyzer
+				.analyzeAll(new ByteArrayInputStream(createJar()), "test.jar");
+
+		assertEquals(4, count);
+		assertEquals(
+				Arrays.asList("", "org/jacoco/core/analysis",
+						"org/jacoco/core/test"),
+				new ArrayList<String>(analyzer.getPackageNames()));
+	}
+
+	@Test
+	public void should_only_collect_classes_of_changed_source_files()
+			throws IOException {
+		final ChangedLines changedLines = new ChangedLines();
+		changedLines.add("src/org/jacoco/core/analysis/AnalyzerTest.java", 1,
+				1000);
+		analyzer.setChangedLines(changedLines);
+
+		analyzer.analyzeAll(new ByteArrayInputStream(createJar()), "test.jar");
+
+		assertEquals(Arrays.asList("org/jacoco/core/analysis"),
+				new ArrayList<String>(analyzer.getPackageNames()));
+		assertEquals(Arrays.asList("org/jacoco/core/analysis/AnalyzerTest"),
+				getClassNames(
+						analyzer.analyzePackage("org/jacoco/core/analysis")));
+	}
+
+	@Test
+	public void should_analyze_classes_of_given_package_only()
+			throws IOException {
+		analyzer.analyzeAll(new ByteArrayInputStream(createJar()), "test.jar");
+
+		final IPackageCoverage coverage = analyzer
+				.analyzePackage("org/jacoco/core/analysis");
+
+		assertEquals("org/jacoco/core/analysis", coverage.getName());
+		assertEquals(
+				Arrays.asList("org/jacoco/core/analysis/AnalyzerTest",
+						"org/jacoco/core/analysis/PackageAnalyzerTest"),
+				getClassNames(coverage));
+		assertEquals(1, analyzer.analyzePackage("").getClasses().size());
+	}
+
+	@Test
+	public void should_calculate_coverage_from_execution_data()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(PackageAnalyzerTest.class);
+		executionData
+				.get(Long.valueOf(CRC64.classId(bytes)),
+						"org/jacoco/core/analysis/PackageAnalyzerTest", 200)
+				.getProbes()[0] = true;
+		analyzer.analyzeAll(new ByteArrayInputStream(bytes), "Test");
+
+		final IPackageCoverage coverage = analyzer
+				.analyzePackage("org/jacoco/core/analysis");
+
+		assertTrue(coverage.getInstructionCounter().getCoveredCount() > 0);
+	}
+
+	@Test
+	public void should_return_same_result_with_executor() throws IOException {
+		final byte[] jar = createJar();
+		analyzer.analyzeAll(new ByteArrayInputStream(jar), "test.jar");
+		final IPackageCoverage expected = analyzer
+				.analyzePackage("org/jacoco/core/analysis");
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		final PackageAnalyzer concurrent = new PackageAnalyzer(executionData,
+				executor);
+		try {
+			concurrent.analyzeAll(new ByteArrayInputStream(jar), "test.jar");
+			final IPackageCoverage actual = concurrent
+					.analyzePackage("org/jacoco/core/analysis");
+			assertEquals(getClassNames(expected), getClassNames(actual));
+			assertEquals(expected.getInstructionCounter(),
+					actual.getInstructionCounter());
+		} finally {
+			concurrent.close();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void should_return_empty_package_for_unknown_name()
+			throws IOException {
+		final IPackageCoverage coverage = analyzer.analyzePackage("unknown");
+
+		assertEquals("unknown", coverage.getName());
+		assertTrue(coverage.getClasses().isEmpty());
+		assertTrue(coverage.getSourceFiles().isEmpty());
+	}
+
+	@Test
+	public void should_allow_further_classes_after_analysis()
+			throws IOException {
+		analyzer.analyzeAll(new ByteArrayInputStream(createClass("Foo")),
+				"Foo.class");
+		assertEquals(1, analyzer.analyzePackage("").getClasses().size());
+
+		analyzer.analyzeAll(new ByteArrayInputStream(createClass("Bar")),
+				"Bar.class");
+		assertEquals(2, analyzer.analyzePackage("").getClasses().size());
+	}
+
+	@Test
+	public void should_throw_exception_with_location_for_broken_class()
+			throws IOException {
+		final byte[] bytes = createClass("Foo");
+		bytes[10] = (byte) 0xFF;
+		bytes[11] = (byte) 0xFF;
+		try {
+			analyzer.analyzeAll(new ByteArrayInputStream(bytes),
+					"Broken.class");
+			fail("expected exception");
+		} catch (final IOException e) {
+			assertEquals("Error while analyzing Broken.class.", e.getMessage());
+		}
+	}
+
+	private static List<String> getClassNames(final IPackageCoverage p) {
+		final List<String> names = new ArrayList<String>();
+		for (final IClassCoverage c : p.getClasses()) {
+			names.add(c.getName());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	private static byte[] createJar() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		addEntry(zip, "Foo.class", createClass("Foo"));
+		addEntry(zip, "AnalyzerTest.class",
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		addEntry(zip, "PackageAnalyzerTest.class",
+				TargetLoader.getClassDataAsBytes(PackageAnalyzerTest.class));
+		addEntry(zip, "TargetLoader.class",
+				TargetLoader.getClassDataAsBytes(TargetLoader.class));
+		zip.close();
+		return buffer.toByteArray();
+	}
+
+	private static void addEntry(final ZipOutputStream zip, final String name,
+			final byte[] content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+	}
+
+	private static byte[] createClass(final String name) {
+		final ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, 0, name, null, "java/lang/Object", null);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+}
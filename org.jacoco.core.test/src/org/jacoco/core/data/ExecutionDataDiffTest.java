@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExecutionDataDiff}.
+ */
+public class ExecutionDataDiffTest implements IExecutionDataDiffVisitor {
+
+	private ExecutionDataStore base;
+
+	private ExecutionDataDiff diff;
+
+	private List<String> result;
+
+	@Before
+	public void setup() {
+		base = new ExecutionDataStore();
+		diff = new ExecutionDataDiff(base, this);
+		result = new ArrayList<String>();
+	}
+
+	@Test
+	public void should_report_newly_covered_and_missed_probes() {
+		base.put(data(1, "A", true, true, false, false));
+
+		diff.visitClassExecution(data(1, "A", true, false, true, false));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("covered A [false, false, true, false]",
+				"missed A [false, true, false, false]");
+	}
+
+	@Test
+	public void should_report_nothing_when_probes_are_equal() {
+		base.put(data(1, "A", true, false));
+
+		diff.visitClassExecution(data(1, "A", true, false));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult();
+	}
+
+	@Test
+	public void should_merge_multiple_current_entries_of_same_class() {
+		base.put(data(1, "A", true, true, false));
+
+		diff.visitClassExecution(data(1, "A", true, false, false));
+		diff.visitClassExecution(data(1, "A", false, true, true));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("covered A [false, false, true]");
+	}
+
+	@Test
+	public void should_report_all_probes_when_class_was_not_executed_in_base() {
+		diff.visitClassExecution(data(1, "A", true, false));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("covered A [true, false]");
+	}
+
+	@Test
+	public void should_report_all_probes_when_class_is_not_executed_anymore() {
+		base.put(data(1, "A", false, true));
+
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("missed A [false, true]");
+	}
+
+	@Test
+	public void should_report_changed_class_when_ids_differ() {
+		base.put(data(1, "A", true));
+
+		diff.visitClassExecution(data(2, "A", true));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("changed A [true]");
+	}
+
+	@Test
+	public void should_use_base_classes_to_detect_added_classes() {
+		diff.setBaseClasses(classes(3, "B"));
+
+		diff.visitClassExecution(data(1, "A", true));
+		diff.visitClassExecution(data(3, "B", true));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("changed A [true]", "covered B [true]");
+	}
+
+	@Test
+	public void should_use_base_classes_to_detect_modified_classes() {
+		diff.setBaseClasses(classes(2, "A"));
+
+		diff.visitClassExecution(data(1, "A", true));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("changed A [true]");
+	}
+
+	@Test
+	public void should_use_current_classes_to_detect_modified_and_removed_classes() {
+		base.put(data(1, "A", true));
+		base.put(data(2, "B", true));
+		base.put(data(3, "C", true));
+		final Map<String, Long> current = classes(4, "A");
+		current.put("C", Long.valueOf(3));
+		diff.setCurrentClasses(current);
+
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("changed A null", "changed B null", "missed C [true]");
+	}
+
+	@Test
+	public void should_report_changed_class_only_once_from_base() {
+		base.put(data(1, "A", true));
+		diff.setCurrentClasses(classes(2, "A"));
+
+		diff.visitClassExecution(data(2, "A", false));
+		base.accept(diff.getBaseVisitor());
+
+		assertResult("changed A [false]");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void should_throw_exception_when_probe_counts_differ() {
+		base.put(data(1, "A", true));
+
+		diff.visitClassExecution(data(1, "A", true, false));
+	}
+
+	private static ExecutionData data(final long id, final String name,
+			final boolean... probes) {
+		return new ExecutionData(id, name, probes);
+	}
+
+	private static Map<String, Long> classes(final long id, final String name) {
+		final Map<String, Long> classes = new HashMap<String, Long>();
+		classes.put(name, Long.valueOf(id));
+		return classes;
+	}
+
+	private void assertResult(final String... expected) {
+		assertEquals(Arrays.asList(expected), result);
+	}
+
+	// === IExecutionDataDiffVisitor ===
+
+	public void visitNewlyCovered(final ExecutionData data) {
+		result.add("covered " + data.getName() + " "
+				+ Arrays.toString(data.getProbes()));
+	}
+
+	public void visitNewlyMissed(final ExecutionData data) {
+		result.add("missed " + data.getName() + " "
+				+ Arrays.toString(data.getProbes()));
+	}
+
+	public void visitChangedClass(final String name,
+			final ExecutionData current) {
+		result.add("changed " + name + " " + (current == null ? "null"
+				: Arrays.toString(current.getProbes())));
+	}
+
+}
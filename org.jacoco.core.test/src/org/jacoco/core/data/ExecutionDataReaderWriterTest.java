@@ -15,11 +15,13 @@ package org.jacoco.core.data;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -283,6 +285,121 @@ public class ExecutionDataReaderWriterTest {
 		assertArrayEquals(data, store.get(123).getProbes());
 	}
 
+	@Test
+	public void testDelta() throws IOException {
+		final boolean[] data = createData(3599);
+		data[0] = true;
+		data[3598] = true;
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample", data));
+		assertFalse(createReaderWithVisitors().read());
+		assertArrayEquals(data, store.get(123).getProbes());
+	}
+
+	@Test
+	public void testDeltaMerge() throws IOException {
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample",
+				new boolean[] { true, false, false }));
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample",
+				new boolean[] { false, false, true }));
+		assertFalse(createReaderWithVisitors().read());
+		assertArrayEquals(new boolean[] { true, false, true },
+				store.get(123).getProbes());
+	}
+
+	@Test
+	public void testDeltaNoHits() throws IOException {
+		writer.visitClassExecutionDelta(
+				new ExecutionData(123, "Sample", new boolean[5]));
+		assertFalse(createReaderWithVisitors().read());
+		assertNull(store.get(123));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDeltaInvalidIndex() throws IOException {
+		buffer.write(ExecutionDataWriter.BLOCK_EXECUTIONDATA_DELTA);
+		new DataOutputStream(buffer).writeLong(123);
+		new DataOutputStream(buffer).writeUTF("Sample");
+		buffer.write(2); // probe count
+		buffer.write(1); // number of set probes
+		buffer.write(2); // invalid index
+		createReaderWithVisitors().read();
+	}
+
+	@Test
+	public void testCounts() throws IOException {
+		final boolean[] data = createData(300);
+		final int[] counts = new int[300];
+		counts[0] = 1;
+		counts[1] = 1000;
+		counts[299] = Integer.MAX_VALUE;
+		writer.visitClassExecution(
+				new ExecutionData(123, "Sample", data, counts));
+		assertFalse(createReaderWithVisitors().read());
+		assertArrayEquals(data, store.get(123).getProbes());
+		assertTrue(Arrays.equals(counts, store.get(123).getCounts()));
+	}
+
+	@Test
+	public void testCountsDeltaMerge() throws IOException {
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample",
+				new boolean[] { true, false, true }, new int[] { 2, 0, 1 }));
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample",
+				new boolean[] { true, false, false }, new int[] { 3, 0, 0 }));
+		assertFalse(createReaderWithVisitors().read());
+		assertArrayEquals(new boolean[] { true, false, true },
+				store.get(123).getProbes());
+		assertTrue(Arrays.equals(new int[] { 5, 0, 1 },
+				store.get(123).getCounts()));
+	}
+
+	@Test
+	public void testDeltaWithDeltaVisitor() throws IOException {
+		writer.visitClassExecution(new ExecutionData(123, "Sample",
+				new boolean[] { true, false }, new int[] { 2, 0 }));
+		writer.visitClassExecutionDelta(new ExecutionData(123, "Sample",
+				new boolean[] { false, true }, new int[] { 0, 3 }));
+		writer.visitClassExecutionDelta(
+				new ExecutionData(456, "Other", new boolean[] { true }));
+		final ExecutionDataStore deltas = new ExecutionDataStore();
+		final ExecutionDataReader reader = createReaderWithVisitors();
+		reader.setExecutionDataDeltaVisitor(new IExecutionDataDeltaVisitor() {
+			public void visitClassExecutionDelta(final ExecutionData delta) {
+				deltas.put(delta);
+			}
+		});
+		assertFalse(reader.read());
+		assertTrue(
+				Arrays.equals(new int[] { 2, 0 }, store.get(123).getCounts()));
+		assertNull(store.get(456));
+		assertTrue(
+				Arrays.equals(new int[] { 0, 3 }, deltas.get(123).getCounts()));
+		assertArrayEquals(new boolean[] { true }, deltas.get(456).getProbes());
+	}
+
+	@Test
+	public void testCountsNoHits() throws IOException {
+		writer.visitClassExecution(
+				new ExecutionData(123, "Sample", new boolean[3], new int[3]));
+		assertFalse(createReaderWithVisitors().read());
+		assertNull(store.get(123));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testDeltaIOException() throws IOException {
+		final boolean[] broken = new boolean[1];
+		final ExecutionDataWriter writer = createWriter(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				if (broken[0]) {
+					throw new IOException();
+				}
+			}
+		});
+		broken[0] = true;
+		writer.visitClassExecutionDelta(
+				new ExecutionData(3, "Sample", new boolean[] { true }));
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testExecutionDataIOException() throws IOException {
 		final boolean[] broken = new boolean[1];
@@ -19,10 +19,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -218,6 +220,44 @@ public class ExecutionDataStoreTest implements IExecutionDataVisitor {
 		assertFalse(data2[2]);
 	}
 
+	@Test
+	public void testGetContentsInsertionOrder() {
+		final List<ExecutionData> expected = new ArrayList<ExecutionData>();
+		for (int i = 0; i < 100; i++) {
+			final ExecutionData data = new ExecutionData(100 - i, "C" + i,
+					new boolean[0]);
+			expected.add(data);
+			store.put(data);
+		}
+		assertEquals(expected, store.getContents());
+	}
+
+	@Test
+	public void testContainsSameNameDifferentIds() {
+		store.put(new ExecutionData(1000, "Sample", new boolean[0]));
+		store.put(new ExecutionData(1001, "Sample", new boolean[0]));
+		assertTrue(store.contains("Sample"));
+		assertFalse(store.contains("Other"));
+		assertEquals(2, store.getContents().size());
+	}
+
+	@Test
+	public void testManyEntries() {
+		final int count = 100000;
+		for (int i = 0; i < count; i++) {
+			store.get(Long.valueOf(i * 0x100000000L + i), "C" + i, 1);
+		}
+		for (int i = 0; i < count; i++) {
+			final ExecutionData data = store.get(i * 0x100000000L + i);
+			assertEquals("C" + i, data.getName());
+			assertTrue(store.contains("C" + i));
+		}
+		assertNull(store.get(-1));
+		assertFalse(store.contains("C" + count));
+		store.accept(this);
+		assertEquals(count, dataOutput.size());
+	}
+
 	// === IExecutionDataOutput ===
 
 	public void visitClassExecution(final ExecutionData data) {
@@ -12,8 +12,11 @@
  *******************************************************************************/
 package org.jacoco.core.data;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -42,6 +45,7 @@ public class ExecutionDataTest {
 		assertEquals(5, e.getId());
 		assertEquals("Example", e.getName());
 		assertSame(data, e.getProbes());
+		assertNull(e.getCounts());
 	}
 
 	@Test
@@ -112,6 +116,60 @@ public class ExecutionDataTest {
 		assertTrue(b.getProbes()[3]);
 	}
 
+	@Test
+	public void testMergeCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { true, true, false },
+				new int[] { 1, Integer.MAX_VALUE - 1, 0 });
+		final ExecutionData b = new ExecutionData(5, "Example",
+				new boolean[] { false, true, true }, new int[] { 0, 2, 3 });
+		a.merge(b);
+
+		assertArrayEquals(new int[] { 1, Integer.MAX_VALUE, 3 }, a.getCounts());
+		assertArrayEquals(new int[] { 0, 2, 3 }, b.getCounts());
+	}
+
+	@Test
+	public void testMergeCountsIntoProbes() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { true, false });
+		final int[] counts = new int[] { 0, 4 };
+		a.merge(new ExecutionData(5, "Example", new boolean[2], counts));
+
+		assertTrue(a.getProbes()[0]);
+		assertTrue(a.getProbes()[1]);
+		assertArrayEquals(new int[] { 0, 4 }, a.getCounts());
+		assertNotSame(counts, a.getCounts());
+	}
+
+	@Test
+	public void testMergeSubtractCounts() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { true, true }, new int[] { 2, 3 });
+		a.merge(new ExecutionData(5, "Example", new boolean[] { false, true },
+				new int[] { 0, 1 }), false);
+
+		assertTrue(a.getProbes()[0]);
+		assertFalse(a.getProbes()[1]);
+		assertArrayEquals(new int[] { 2, 0 }, a.getCounts());
+	}
+
+	@Test
+	public void testResetCounts() {
+		final ExecutionData e = new ExecutionData(5, "Example",
+				new boolean[] { true }, new int[] { 7 });
+		e.reset();
+		assertFalse(e.getProbes()[0]);
+		assertArrayEquals(new int[] { 0 }, e.getCounts());
+	}
+
+	@Test
+	public void testHasHits_counts() {
+		final ExecutionData e = new ExecutionData(5, "Example", new boolean[2],
+				new int[] { 0, 1 });
+		assertTrue(e.hasHits());
+	}
+
 	@Test
 	public void testAssertCompatibility() {
 		final ExecutionData a = new ExecutionData(5, "Example",
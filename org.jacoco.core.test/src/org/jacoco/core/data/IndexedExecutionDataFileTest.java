@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link IndexedExecutionDataWriter} and
+ * {@link IndexedExecutionDataFile}.
+ */
+public class IndexedExecutionDataFileTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private IndexedExecutionDataFile file;
+
+	@After
+	public void teardown() throws IOException {
+		if (file != null) {
+			file.close();
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		file = open(write(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList()));
+
+		assertEquals(0, file.getCount());
+		assertTrue(file.getSessionInfos().isEmpty());
+		assertNull(file.get(0));
+		assertFalse(file.contains("Foo"));
+	}
+
+	@Test
+	public void testSessionInfos() throws IOException {
+		file = open(write(
+				Arrays.asList(new SessionInfo("a", 1, 2),
+						new SessionInfo("b", 3, 4)),
+				Collections.<ExecutionData> emptyList()));
+
+		final List<SessionInfo> infos = file.getSessionInfos();
+		assertEquals(2, infos.size());
+		assertEquals("a", infos.get(0).getId());
+		assertEquals(1, infos.get(0).getStartTimeStamp());
+		assertEquals(2, infos.get(0).getDumpTimeStamp());
+		assertEquals("b", infos.get(1).getId());
+	}
+
+	@Test
+	public void testGet() throws IOException {
+		final List<ExecutionData> data = new ArrayList<ExecutionData>();
+		data.add(new ExecutionData(5, "Five", new boolean[] { true, false }));
+		data.add(new ExecutionData(Long.MIN_VALUE, "Min",
+				new boolean[] { true }));
+		data.add(new ExecutionData(Long.MAX_VALUE, "Max",
+				new boolean[] { false, false, true }));
+		file = open(write(Collections.<SessionInfo> emptyList(), data));
+
+		assertEquals(3, file.getCount());
+		assertEntry(data.get(0), file.get(5));
+		assertEntry(data.get(1), file.get(Long.MIN_VALUE));
+		assertEntry(data.get(2), file.get(Long.MAX_VALUE));
+		assertNull(file.get(4));
+		assertNull(file.get(6));
+	}
+
+	@Test
+	public void testCounts() throws IOException {
+		final List<ExecutionData> data = new ArrayList<ExecutionData>();
+		data.add(new ExecutionData(1, "Foo", new boolean[] { true, false },
+				new int[] { 3, 0 }));
+		data.add(new ExecutionData(2, "Bar", new boolean[] { true }));
+		data.add(new ExecutionData(3, "Baz", new boolean[] { true, true },
+				new int[] { Integer.MAX_VALUE, 1 }));
+		final File f = write(Collections.<SessionInfo> emptyList(), data);
+		file = open(f);
+
+		assertEntry(data.get(0), file.get(1));
+		assertEntry(data.get(1), file.get(2));
+		assertEntry(data.get(2), file.get(3));
+		assertTrue(file.contains("Baz"));
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		file.accept(store);
+		assertEntry(data.get(0), store.get(1));
+		assertEntry(data.get(2), store.get(3));
+
+		final ExecutionDataStore sequential = new ExecutionDataStore();
+		final InputStream in = new FileInputStream(f);
+		IndexedExecutionDataFile.read(in, new SessionInfoStore(), sequential);
+		in.close();
+		assertEntry(data.get(0), sequential.get(1));
+		assertEntry(data.get(1), sequential.get(2));
+		assertEntry(data.get(2), sequential.get(3));
+	}
+
+	@Test
+	public void testGetReturnsNewInstances() throws IOException {
+		file = open(write(Collections.<SessionInfo> emptyList(), Arrays
+				.asList(new ExecutionData(1, "Foo", new boolean[] { true }))));
+
+		assertNotSame(file.get(1), file.get(1));
+	}
+
+	@Test
+	public void testEntriesWithoutHitsAreOmitted() throws IOException {
+		file = open(write(Collections.<SessionInfo> emptyList(),
+				Arrays.asList(
+						new ExecutionData(1, "Foo", new boolean[] { true }),
+						new ExecutionData(2, "Bar", new boolean[] { false }))));
+
+		assertEquals(1, file.getCount());
+		assertNull(file.get(2));
+		assertFalse(file.contains("Bar"));
+	}
+
+	@Test
+	public void testContains() throws IOException {
+		// "Aa" and "BB" have the same hash code:
+		file = open(write(Collections.<SessionInfo> emptyList(),
+				Arrays.asList(
+						new ExecutionData(1, "Aa", new boolean[] { true }),
+						new ExecutionData(2, "Foo", new boolean[] { true }),
+						new ExecutionData(3, "Foo", new boolean[] { true }))));
+
+		assertTrue(file.contains("Aa"));
+		assertFalse(file.contains("BB"));
+		assertTrue(file.contains("Foo"));
+		assertFalse(file.contains("Bar"));
+	}
+
+	@Test
+	public void testManyEntries() throws IOException {
+		final List<ExecutionData> data = new ArrayList<ExecutionData>();
+		for (int i = 0; i < 10000; i++) {
+			final boolean[] probes = new boolean[i % 50 + 1];
+			probes[i % probes.length] = true;
+			data.add(new ExecutionData(i * 0x9E3779B97F4A7C15L, "Class" + i,
+					probes));
+		}
+		file = open(write(Collections.<SessionInfo> emptyList(), data));
+
+		for (final ExecutionData expected : data) {
+			assertEntry(expected, file.get(expected.getId()));
+			assertTrue(file.contains(expected.getName()));
+		}
+	}
+
+	@Test
+	public void testAccept() throws IOException {
+		file = open(write(Collections.<SessionInfo> emptyList(),
+				Arrays.asList(
+						new ExecutionData(2, "Bar", new boolean[] { true }),
+						new ExecutionData(1, "Foo", new boolean[] { true }))));
+		final ExecutionDataStore store = new ExecutionDataStore();
+
+		file.accept(store);
+
+		assertEquals(2, store.getContents().size());
+		assertEquals("Foo", store.get(1).getName());
+		assertEquals("Bar", store.get(2).getName());
+	}
+
+	@Test
+	public void testIsIndexed() throws IOException {
+		final File indexed = write(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList());
+		final File sequential = folder.newFile();
+		final OutputStream out = new FileOutputStream(sequential);
+		new ExecutionDataWriter(out);
+		out.close();
+
+		assertTrue(IndexedExecutionDataFile.isIndexed(indexed));
+		assertFalse(IndexedExecutionDataFile.isIndexed(sequential));
+		assertFalse(IndexedExecutionDataFile.isIndexed(folder.newFile()));
+	}
+
+	@Test
+	public void testSequentialReaderRejectsIndexedFormat() throws IOException {
+		final File indexed = write(Collections.<SessionInfo> emptyList(),
+				Collections.<ExecutionData> emptyList());
+		final RandomAccessFile raf = new RandomAccessFile(indexed, "r");
+		final byte[] bytes = new byte[(int) raf.length()];
+		raf.readFully(bytes);
+		raf.close();
+		try {
+			new ExecutionDataReader(new ByteArrayInputStream(bytes)).read();
+			fail("IncompatibleExecDataVersionException expected");
+		} catch (IncompatibleExecDataVersionException e) {
+			assertEquals(IndexedExecutionDataWriter.FORMAT_VERSION,
+					e.getActualVersion());
+		}
+	}
+
+	@Test
+	public void testInvalidHeader() throws IOException {
+		final File invalid = folder.newFile();
+		final OutputStream out = new FileOutputStream(invalid);
+		out.write(new byte[100]);
+		out.close();
+		try {
+			new IndexedExecutionDataFile(invalid);
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertEquals("Invalid execution data file.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongVersion() throws IOException {
+		final File sequential = folder.newFile();
+		final OutputStream out = new FileOutputStream(sequential);
+		new ExecutionDataWriter(out);
+		out.write(new byte[100]);
+		out.close();
+		try {
+			new IndexedExecutionDataFile(sequential);
+			fail("IncompatibleExecDataVersionException expected");
+		} catch (IncompatibleExecDataVersionException e) {
+			assertEquals(ExecutionDataWriter.FORMAT_VERSION,
+					e.getActualVersion());
+		}
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		final File indexed = write(Collections.<SessionInfo> emptyList(), Arrays
+				.asList(new ExecutionData(1, "Foo", new boolean[] { true })));
+		file = open(indexed);
+		file.close();
+		file.close();
+
+		try {
+			file.get(1);
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals("Execution data file is closed.", e.getMessage());
+		}
+		try {
+			file.contains("Foo");
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals("Execution data file is closed.", e.getMessage());
+		}
+		// The mapping must not keep the file locked:
+		assertTrue(indexed.delete());
+	}
+
+	@Test
+	public void testTruncatedFile() throws IOException {
+		final File indexed = write(Collections.<SessionInfo> emptyList(), Arrays
+				.asList(new ExecutionData(1, "Foo", new boolean[] { true })));
+		final RandomAccessFile raf = new RandomAccessFile(indexed, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		try {
+			new IndexedExecutionDataFile(indexed);
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertEquals("Invalid execution data file.", e.getMessage());
+		}
+	}
+
+	private File write(final Collection<SessionInfo> sessions,
+			final Collection<ExecutionData> data) throws IOException {
+		final File f = folder.newFile();
+		final OutputStream out = new FileOutputStream(f);
+		new IndexedExecutionDataWriter(out).write(sessions, data);
+		out.close();
+		return f;
+	}
+
+	private IndexedExecutionDataFile open(final File f) throws IOException {
+		return new IndexedExecutionDataFile(f);
+	}
+
+	private void assertEntry(final ExecutionData expected,
+			final ExecutionData actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getName(), actual.getName());
+		assertArrayEquals(expected.getProbes(), actual.getProbes());
+		assertArrayEquals(expected.getCounts(), actual.getCounts());
+	}
+
+}
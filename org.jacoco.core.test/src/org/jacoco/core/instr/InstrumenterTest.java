@@ -15,6 +15,7 @@ package org.jacoco.core.instr;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
@@ -26,6 +27,13 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -33,16 +41,30 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.AnalyzerTest;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.internal.InputStreams;
 import org.jacoco.core.internal.Pack200Streams;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
 import org.jacoco.core.test.TargetLoader;
 import org.junit.AssumptionViolatedException;
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -71,6 +93,30 @@ public class InstrumenterTest {
 
 	}
 
+	public static class HitCountTarget implements Runnable {
+
+		private int count;
+
+		public void run() {
+			count++;
+		}
+
+	}
+
+	public static class ProbeFreeTarget implements Runnable {
+
+		static final Object LOCK = new Object();
+
+		private int count;
+
+		public void run() {
+			if (count < 10) {
+				count++;
+			}
+		}
+
+	}
+
 	private static final class AccessorGenerator
 			implements IExecutionDataAccessorGenerator {
 
@@ -219,6 +265,163 @@ public class InstrumenterTest {
 		assertEquals("Hello42", obj2.toString());
 	}
 
+	@Test
+	public void instrument_should_record_hit_counts_when_enabled()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		final byte[] original = TargetLoader
+				.getClassDataAsBytes(HitCountTarget.class);
+		try {
+			final Instrumenter counting = new Instrumenter(runtime);
+			counting.setHitCounts(true);
+			final byte[] bytes = counting.instrument(original, "Test");
+			final Runnable target = (Runnable) new TargetLoader()
+					.add(HitCountTarget.class, bytes).newInstance();
+			for (int i = 0; i < 3; i++) {
+				target.run();
+			}
+		} finally {
+			runtime.shutdown();
+		}
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		final ExecutionData executionData = store.get(CRC64.classId(original));
+		assertArrayEquals(new int[] { 1, 3 }, executionData.getCounts());
+
+		final CoverageBuilder builder = new CoverageBuilder();
+		new Analyzer(store, builder).analyzeClass(original, "Test");
+		final IClassCoverage coverage = builder.getClasses().iterator().next();
+		for (final IMethodCoverage m : coverage.getMethods()) {
+			final int expected = "run".equals(m.getName()) ? 3 : 1;
+			assertEquals(expected, m.getExecutionCount(m.getFirstLine()));
+			assertEquals(expected,
+					coverage.getExecutionCount(m.getFirstLine()));
+		}
+	}
+
+	@Test
+	public void instrument_should_use_conditional_probes_when_enabled()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		// Java 7 class files require a stackmap frame in the probe method:
+		final byte[] original = TargetLoader
+				.getClassDataAsBytes(HitCountTarget.class);
+		InstrSupport.setMajorVersion(Opcodes.V1_7, original);
+		final Class<?> targetClass;
+		try {
+			final Instrumenter conditional = new Instrumenter(runtime);
+			conditional.setConditionalProbes(true);
+			final byte[] bytes = conditional.instrument(original, "Test");
+			targetClass = new TargetLoader().add(HitCountTarget.class, bytes);
+			final Runnable target = (Runnable) targetClass.newInstance();
+			for (int i = 0; i < 3; i++) {
+				target.run();
+			}
+		} finally {
+			runtime.shutdown();
+		}
+
+		assertTrue(targetClass.getDeclaredMethod(InstrSupport.PROBEMETHOD_NAME,
+				boolean[].class, Integer.TYPE).isSynthetic());
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		final ExecutionData executionData = store.get(CRC64.classId(original));
+		assertArrayEquals(new boolean[] { true, true },
+				executionData.getProbes());
+		assertNull(executionData.getCounts());
+	}
+
+	@Test
+	public void instrumentWithoutProbes_should_only_keep_probes_of_static_initializer()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		final byte[] original = TargetLoader
+				.getClassDataAsBytes(ProbeFreeTarget.class);
+		final byte[] instrumented;
+		try {
+			final Instrumenter instr = new Instrumenter(runtime);
+			instrumented = instr.instrument(original, "Test");
+			final byte[] bytes = instr.instrumentWithoutProbes(original,
+					"Test");
+			assertEquals(getMembers(instrumented), getMembers(bytes));
+			final Runnable target = (Runnable) new TargetLoader()
+					.add(ProbeFreeTarget.class, bytes).newInstance();
+			for (int i = 0; i < 3; i++) {
+				target.run();
+			}
+		} finally {
+			runtime.shutdown();
+		}
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		int executed = 0;
+		for (final boolean p : store.get(CRC64.classId(original)).getProbes()) {
+			executed += p ? 1 : 0;
+		}
+		assertEquals(1, executed);
+	}
+
+	@Test
+	public void instrument_should_not_add_members_when_preserving_members()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		final byte[] original = TargetLoader
+				.getClassDataAsBytes(ProbeFreeTarget.class);
+		try {
+			final Instrumenter instr = new Instrumenter(runtime);
+			instr.setPreserveMembers(true);
+			instr.setConditionalProbes(true);
+			final byte[] bytes = instr.instrument(original, "Test");
+			assertEquals(getMembers(original), getMembers(bytes));
+			final Runnable target = (Runnable) new TargetLoader()
+					.add(ProbeFreeTarget.class, bytes).newInstance();
+			target.run();
+		} finally {
+			runtime.shutdown();
+		}
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		int executed = 0;
+		for (final boolean p : store.get(CRC64.classId(original)).getProbes()) {
+			executed += p ? 1 : 0;
+		}
+		assertEquals(4, executed);
+	}
+
+	private static Set<String> getMembers(final byte[] bytes) {
+		final Set<String> members = new HashSet<String>();
+		new ClassReader(bytes)
+				.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public FieldVisitor visitField(final int access,
+							final String name, final String desc,
+							final String signature, final Object value) {
+						members.add(access + " " + name + desc);
+						return null;
+					}
+
+					@Override
+					public MethodVisitor visitMethod(final int access,
+							final String name, final String desc,
+							final String signature, final String[] exceptions) {
+						members.add(access + " " + name + desc);
+						return null;
+					}
+				}, 0);
+		return members;
+	}
+
 	/**
 	 * @see #instrument_should_throw_exception_for_unsupported_class_file_version()
 	 */
@@ -516,4 +719,136 @@ public class InstrumenterTest {
 		assertNull(zipin.getNextEntry());
 	}
 
+	@Test
+	public void instrumentAll_should_write_same_entries_when_executor_is_given()
+			throws IOException {
+		final ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		final ZipOutputStream nestedout = new ZipOutputStream(nested);
+		nestedout.putNextEntry(new ZipEntry("Nested.class"));
+		nestedout.write(TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		nestedout.finish();
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+		zipout.write("Manifest-Version: 1.0\r\n\r\n".getBytes());
+		zipout.putNextEntry(new ZipEntry("META-INF/ALIAS.SF"));
+		for (int i = 0; i < 20; i++) {
+			zipout.putNextEntry(new ZipEntry("Test" + i + ".class"));
+			zipout.write(TargetLoader.getClassDataAsBytes(getClass()));
+		}
+		final byte[] stored = TargetLoader
+				.getClassDataAsBytes(SerializationTarget.class);
+		final ZipEntry entry = new ZipEntry("Stored.class");
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(stored.length);
+		final CRC32 crc = new CRC32();
+		crc.update(stored);
+		entry.setCrc(crc.getValue());
+		zipout.putNextEntry(entry);
+		zipout.write(stored);
+		zipout.putNextEntry(new ZipEntry("nested.jar"));
+		zipout.write(nested.toByteArray());
+		zipout.putNextEntry(new ZipEntry("readme.txt"));
+		zipout.write("text".getBytes());
+		zipout.finish();
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		final int expectedCount = instrumenter.instrumentAll(
+				new ByteArrayInputStream(buffer.toByteArray()), expected,
+				"Test");
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		final int actualCount;
+		try {
+			instrumenter.setExecutor(executor);
+			actualCount = instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()), actual,
+					"Test");
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(22, expectedCount);
+		assertEquals(expectedCount, actualCount);
+		assertSameEntries(expected.toByteArray(), actual.toByteArray());
+	}
+
+	@Test
+	public void instrumentAll_should_not_wait_for_executor_when_called_from_executor_thread()
+			throws Exception {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zipout = new ZipOutputStream(buffer);
+		for (int i = 0; i < 3; i++) {
+			zipout.putNextEntry(new ZipEntry("Test" + i + ".class"));
+			zipout.write(TargetLoader.getClassDataAsBytes(getClass()));
+		}
+		zipout.finish();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		instrumenter.setExecutor(executor);
+
+		try {
+			final Future<Integer> count = executor
+					.submit(new Callable<Integer>() {
+						public Integer call() throws IOException {
+							return Integer.valueOf(instrumenter.instrumentAll(
+									new ByteArrayInputStream(
+											buffer.toByteArray()),
+									new ByteArrayOutputStream(), "Test"));
+						}
+					});
+			assertEquals(Integer.valueOf(3), count.get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void assertSameEntries(final byte[] expected,
+			final byte[] actual) throws IOException {
+		final ZipInputStream expectedIn = new ZipInputStream(
+				new ByteArrayInputStream(expected));
+		final ZipInputStream actualIn = new ZipInputStream(
+				new ByteArrayInputStream(actual));
+		ZipEntry expectedEntry;
+		while ((expectedEntry = expectedIn.getNextEntry()) != null) {
+			final ZipEntry actualEntry = actualIn.getNextEntry();
+			assertEquals(expectedEntry.getName(), actualEntry.getName());
+			assertEquals(expectedEntry.getMethod(), actualEntry.getMethod());
+			final byte[] expectedContent = InputStreams.readFully(expectedIn);
+			final byte[] actualContent = InputStreams.readFully(actualIn);
+			if (expectedEntry.getName().endsWith(".jar")) {
+				// nested archives contain time stamps of the rewritten entries
+				assertSameEntries(expectedContent, actualContent);
+			} else {
+				assertArrayEquals(expectedContent, actualContent);
+			}
+		}
+		assertNull(actualIn.getNextEntry());
+	}
+
+	@Test
+	public void instrumentAll_should_throw_exception_for_broken_class_in_zip_when_executor_is_given()
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("Test.class"));
+		final byte[] brokenclass = TargetLoader.getClassDataAsBytes(getClass());
+		brokenclass[10] = 0x23;
+		zipout.write(brokenclass);
+		zipout.finish();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		instrumenter.setExecutor(executor);
+
+		try {
+			instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()),
+					new ByteArrayOutputStream(), "test.zip");
+			fail();
+		} catch (IOException e) {
+			assertEquals("Error while instrumenting test.zip@Test.class.",
+					e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 }
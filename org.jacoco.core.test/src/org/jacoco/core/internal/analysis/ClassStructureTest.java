@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.ContentTypeDetector;
+import org.jacoco.core.internal.analysis.filter.FinallyFilter;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Unit tests for {@link ClassStructure}.
+ */
+public class ClassStructureTest {
+
+	private static final Class<?>[] CLASSES = { Analyzer.class,
+			Instrumenter.class, ContentTypeDetector.class, ClassAnalyzer.class,
+			MethodStructure.class, FinallyFilter.class,
+			ClassStructureTest.class };
+
+	private static final int PROBES = 1024;
+
+	@Test
+	public void createCoverage_should_calculate_same_coverage_as_analysis()
+			throws IOException {
+		final Random random = new Random(42);
+		for (final Class<?> c : CLASSES) {
+			final byte[] bytes = TargetLoader.getClassDataAsBytes(c);
+			final ClassStructure structure = record(bytes);
+			for (int i = 0; i < 10; i++) {
+				final boolean[] probes = new boolean[PROBES];
+				for (int p = 0; p < PROBES; p++) {
+					probes[p] = random.nextInt(i + 2) == 0;
+				}
+				assertCoverage(analyze(bytes, probes),
+						structure.createCoverage(42, false, probes));
+			}
+		}
+	}
+
+	@Test
+	public void createCoverage_should_calculate_coverage_without_probes()
+			throws IOException {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(Analyzer.class);
+
+		final ClassCoverageImpl coverage = record(bytes).createCoverage(42,
+				true, null);
+
+		assertCoverage(analyze(bytes, null), coverage);
+		assertEquals(42, coverage.getId());
+		assertEquals(true, coverage.isNoMatch());
+		assertEquals(0, coverage.getInstructionCounter().getCoveredCount());
+	}
+
+	@Test
+	public void getStructure_should_throw_IllegalStateException_when_not_recorded() {
+		final ClassAnalyzer analyzer = new ClassAnalyzer(
+				new ClassCoverageImpl("Foo", 0, false), null, new StringPool());
+		try {
+			analyzer.getStructure();
+			fail("IllegalStateException expected");
+		} catch (final IllegalStateException e) {
+			assertEquals("Structure not recorded.", e.getMessage());
+		}
+	}
+
+	private ClassStructure record(final byte[] bytes) throws IOException {
+		final ClassReader reader = InstrSupport.classReaderFor(bytes);
+		final ClassAnalyzer analyzer = new ClassAnalyzer(
+				new ClassCoverageImpl(reader.getClassName(), 42, false), null,
+				new StringPool(), true);
+		reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+
+		// Always test a serialized copy
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		analyzer.getStructure().write(new CompactDataOutput(buffer));
+		return ClassStructure.read(
+				new CompactDataInput(
+						new ByteArrayInputStream(buffer.toByteArray())),
+				new StringPool());
+	}
+
+	private ClassCoverageImpl analyze(final byte[] bytes,
+			final boolean[] probes) {
+		final ClassReader reader = InstrSupport.classReaderFor(bytes);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(
+				reader.getClassName(), 42, probes == null);
+		reader.accept(new ClassProbesAdapter(
+				new ClassAnalyzer(coverage, probes, new StringPool()), false),
+				0);
+		return coverage;
+	}
+
+	private void assertCoverage(final ClassCoverageImpl expected,
+			final ClassCoverageImpl actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getSignature(), actual.getSignature());
+		assertEquals(expected.getSuperName(), actual.getSuperName());
+		assertArrayEquals(expected.getInterfaceNames(),
+				actual.getInterfaceNames());
+		assertEquals(expected.getSourceFileName(), actual.getSourceFileName());
+		assertNode(expected, actual);
+		assertEquals(expected.getMethods().size(), actual.getMethods().size());
+		final Iterator<IMethodCoverage> e = expected.getMethods().iterator();
+		final Iterator<IMethodCoverage> a = actual.getMethods().iterator();
+		while (e.hasNext()) {
+			final IMethodCoverage em = e.next();
+			final IMethodCoverage am = a.next();
+			assertEquals(em.getName(), am.getName());
+			assertEquals(em.getDesc(), am.getDesc());
+			assertEquals(em.getSignature(), am.getSignature());
+			assertNode(em, am);
+		}
+	}
+
+	private void assertNode(final ISourceNode expected,
+			final ISourceNode actual) {
+		for (final CounterEntity entity : CounterEntity.values()) {
+			assertEquals(expected.getName() + " " + entity,
+					expected.getCounter(entity), actual.getCounter(entity));
+		}
+		assertEquals(expected.getFirstLine(), actual.getFirstLine());
+		assertEquals(expected.getLastLine(), actual.getLastLine());
+		for (int l = expected.getFirstLine(); l <= expected
+				.getLastLine(); l++) {
+			assertEquals(expected.getName() + " line " + l,
+					expected.getLine(l).getInstructionCounter(),
+					actual.getLine(l).getInstructionCounter());
+			assertEquals(expected.getName() + " line " + l,
+					expected.getLine(l).getBranchCounter(),
+					actual.getLine(l).getBranchCounter());
+		}
+	}
+
+}
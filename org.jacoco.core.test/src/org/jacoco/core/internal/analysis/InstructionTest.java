@@ -14,7 +14,9 @@ package org.jacoco.core.internal.analysis;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -140,6 +142,47 @@ public class InstructionTest {
 				instruction.getInstructionCounter());
 	}
 
+	@Test
+	public void propagateHits_should_sum_hits_of_successors() {
+		final Instruction i1 = new Instruction(124);
+		final Instruction i2 = new Instruction(125);
+		final Instruction i3 = new Instruction(126);
+		instruction.addBranch(i1, 0);
+		i1.addBranch(i2, 0);
+		i1.addBranch(i3, 1);
+		i2.addBranch(true, 0);
+		i2.addHits(2);
+		i3.addBranch(true, 0);
+		i3.addHits(Integer.MAX_VALUE);
+		instruction.addBranch(true, 1);
+		instruction.addHits(1);
+
+		Instruction.propagateHits(Arrays.asList(i3, instruction, i2, i1));
+
+		assertEquals(2, i2.getHits());
+		assertEquals(Integer.MAX_VALUE, i1.getHits());
+		assertEquals(Integer.MAX_VALUE, instruction.getHits());
+	}
+
+	@Test
+	public void propagateHits_should_handle_very_long_sequence() {
+		final List<Instruction> instructions = new ArrayList<Instruction>();
+		instructions.add(instruction);
+		Instruction next = instruction;
+		for (int i = 0; i < 0x10000; i++) {
+			final Instruction insn = new Instruction(i);
+			next.addBranch(insn, 0);
+			instructions.add(insn);
+			next = insn;
+		}
+		next.addBranch(true, 0);
+		next.addHits(5);
+
+		Instruction.propagateHits(instructions);
+
+		assertEquals(5, instruction.getHits());
+	}
+
 	@Test
 	public void merge_should_calculate_superset_of_covered_branches() {
 		final Instruction i1 = new Instruction(124);
@@ -159,6 +202,16 @@ public class InstructionTest {
 				instruction.getBranchCounter());
 	}
 
+	@Test
+	public void merge_should_add_hits() {
+		final Instruction i1 = new Instruction(124);
+		i1.addHits(2);
+		final Instruction i2 = new Instruction(124);
+		i2.addHits(3);
+
+		assertEquals(5, i1.merge(i2).getHits());
+	}
+
 	@Test
 	public void replaceBranches_should_calculate_coverage_on_new_branches() {
 		Instruction i1 = new Instruction(1);
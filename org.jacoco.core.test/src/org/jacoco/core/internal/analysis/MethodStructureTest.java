@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+
+/**
+ * Unit tests for {@link MethodStructure}.
+ */
+public class MethodStructureTest {
+
+	private static final int PROBES = 5;
+
+	// The purpose of this list is to link instruction nodes
+	private InsnList list;
+
+	private InsnNode[] nodes;
+
+	private Label label;
+
+	@Before
+	public void setup() {
+		list = new InsnList();
+		nodes = new InsnNode[8];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new InsnNode(Opcodes.NOP);
+			list.add(nodes[i]);
+		}
+		label = new Label();
+	}
+
+	@Test
+	public void createCoverage_should_calculate_same_coverage_for_all_probes()
+			throws IOException {
+		final MethodStructure.Recorder recorder = new MethodStructure.Recorder();
+		final MethodStructure structure = serialize(
+				analyze(new boolean[PROBES], recorder), recorder);
+
+		for (int mask = 0; mask < (1 << PROBES); mask++) {
+			final boolean[] probes = new boolean[PROBES];
+			for (int p = 0; p < PROBES; p++) {
+				probes[p] = (mask & (1 << p)) != 0;
+			}
+			assertCoverage(analyze(probes, null),
+					structure.createCoverage(probes));
+		}
+	}
+
+	@Test
+	public void createCoverage_should_calculate_coverage_without_probes()
+			throws IOException {
+		final MethodStructure.Recorder recorder = new MethodStructure.Recorder();
+		final MethodStructure structure = serialize(
+				analyze(new boolean[PROBES], recorder), recorder);
+
+		final MethodCoverageImpl coverage = structure.createCoverage(null);
+
+		assertCoverage(analyze(null, null), coverage);
+		assertEquals(CounterImpl.getInstance(4, 0),
+				coverage.getInstructionCounter());
+	}
+
+	/**
+	 * Builds a method with sequential instructions, a jump, probes, merged
+	 * instructions, replaced branches and an ignored instruction.
+	 */
+	private MethodCoverageImpl analyze(final boolean[] probes,
+			final MethodStructure.Recorder recorder) {
+		final InstructionsBuilder builder = new InstructionsBuilder(probes,
+				recorder);
+		builder.setCurrentLine(1);
+		builder.addInstruction(nodes[0]);
+		builder.addInstruction(nodes[1]);
+		builder.addJump(label, 1);
+
+		builder.setCurrentLine(2);
+		builder.addInstruction(nodes[2]);
+		builder.addProbe(0, 0);
+		builder.noSuccessor();
+
+		builder.addLabel(label);
+		builder.setCurrentLine(3);
+		builder.addInstruction(nodes[3]);
+		builder.addProbe(1, 0);
+		builder.noSuccessor();
+
+		builder.setCurrentLine(4);
+		builder.addInstruction(nodes[4]);
+		builder.addProbe(2, 0);
+		builder.addProbe(3, 1);
+		builder.noSuccessor();
+
+		builder.addInstruction(nodes[5]);
+		builder.addInstruction(nodes[6]);
+		builder.addInstruction(nodes[7]);
+		builder.addProbe(4, 0);
+
+		final MethodCoverageCalculator calculator = new MethodCoverageCalculator(
+				builder.getInstructions());
+		calculator.merge(nodes[3], nodes[2]);
+		calculator.merge(nodes[6], nodes[5]);
+		calculator.merge(nodes[5], nodes[3]);
+		calculator.replaceBranches(nodes[4], new HashSet<AbstractInsnNode>(
+				Arrays.asList(nodes[2], nodes[7])));
+		calculator.ignore(nodes[7], nodes[7]);
+		if (recorder != null) {
+			calculator.record(recorder);
+		}
+
+		final MethodCoverageImpl coverage = new MethodCoverageImpl("run", "()V",
+				null);
+		calculator.calculate(coverage);
+		return coverage;
+	}
+
+	private MethodStructure serialize(final MethodCoverageImpl coverage,
+			final MethodStructure.Recorder recorder) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		recorder.getStructure(coverage.getName(), coverage.getDesc(),
+				coverage.getSignature()).write(new CompactDataOutput(buffer));
+		return MethodStructure.read(
+				new CompactDataInput(
+						new ByteArrayInputStream(buffer.toByteArray())),
+				new StringPool());
+	}
+
+	private void assertCoverage(final MethodCoverageImpl expected,
+			final MethodCoverageImpl actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getDesc(), actual.getDesc());
+		assertEquals(expected.getSignature(), actual.getSignature());
+		for (final CounterEntity entity : CounterEntity.values()) {
+			assertEquals(entity.toString(), expected.getCounter(entity),
+					actual.getCounter(entity));
+		}
+		assertEquals(expected.getFirstLine(), actual.getFirstLine());
+		assertEquals(expected.getLastLine(), actual.getLastLine());
+		for (int l = expected.getFirstLine(); l <= expected
+				.getLastLine(); l++) {
+			assertEquals(expected.getLine(l).getInstructionCounter(),
+					actual.getLine(l).getInstructionCounter());
+			assertEquals(expected.getLine(l).getBranchCounter(),
+					actual.getLine(l).getBranchCounter());
+		}
+	}
+
+}
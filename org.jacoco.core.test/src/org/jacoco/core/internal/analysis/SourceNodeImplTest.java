@@ -72,6 +72,45 @@ public class SourceNodeImplTest {
 		assertEquals(CounterImpl.COUNTER_0_0, node.getLineCounter());
 	}
 
+	@Test
+	public void testIncrementExecutionCount() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		node.incrementExecutionCount(3, 10);
+		node.incrementExecutionCount(7, 10);
+		node.incrementExecutionCount(5, 10);
+		node.incrementExecutionCount(0, 12);
+		node.incrementExecutionCount(4, ISourceNode.UNKNOWN_LINE);
+		node.incrementExecutionCount(2, 5);
+
+		assertEquals(7, node.getExecutionCount(10));
+		assertEquals(2, node.getExecutionCount(5));
+		assertEquals(0, node.getExecutionCount(12));
+		assertEquals(0, node.getExecutionCount(100));
+	}
+
+	@Test
+	public void testIncrementExecutionCountChildren() {
+		final SourceNodeImpl child1 = new SourceNodeImpl(ElementType.METHOD,
+				"m1");
+		child1.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 3);
+		child1.incrementExecutionCount(6, 3);
+		final SourceNodeImpl child2 = new SourceNodeImpl(ElementType.METHOD,
+				"m2");
+		child2.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 3);
+		child2.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 4);
+		child2.incrementExecutionCount(2, 3);
+		child2.incrementExecutionCount(1, 4);
+
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		node.increment(child1);
+		node.increment(child2);
+
+		assertEquals(6, node.getExecutionCount(3));
+		assertEquals(1, node.getExecutionCount(4));
+	}
+
 	@Test
 	public void testIncrementLines() {
 		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS,
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Unit tests for {@link Filters}.
+ */
+public class FiltersTest extends FilterTestBase {
+
+	private final StringBuilder invocations = new StringBuilder();
+
+	private final IFilter filter = new Filters(new Recorder("a"),
+			Filters.onlyWith(new Recorder("b"), Opcodes.ATHROW),
+			Filters.onlyWith(new Recorder("c"), Opcodes.IFNULL,
+					Opcodes.IFNONNULL),
+			new Recorder("d"));
+
+	@Test
+	public void should_invoke_filters_without_trigger_in_order() {
+		final MethodNode m = createMethod();
+		m.visitInsn(Opcodes.RETURN);
+
+		filter.filter(m, context, output);
+
+		assertEquals("ad", invocations.toString());
+	}
+
+	@Test
+	public void should_invoke_filters_when_trigger_is_present() {
+		final MethodNode m = createMethod();
+		final Label label = new Label();
+		m.visitVarInsn(Opcodes.ALOAD, 0);
+		m.visitJumpInsn(Opcodes.IFNONNULL, label);
+		m.visitInsn(Opcodes.RETURN);
+		m.visitLabel(label);
+		m.visitInsn(Opcodes.RETURN);
+
+		filter.filter(m, context, output);
+
+		assertEquals("acd", invocations.toString());
+	}
+
+	@Test
+	public void should_invoke_all_filters_when_all_triggers_are_present() {
+		final MethodNode m = createMethod();
+		final Label label = new Label();
+		m.visitVarInsn(Opcodes.ALOAD, 0);
+		m.visitJumpInsn(Opcodes.IFNULL, label);
+		m.visitInsn(Opcodes.RETURN);
+		m.visitLabel(label);
+		m.visitInsn(Opcodes.ACONST_NULL);
+		m.visitInsn(Opcodes.ATHROW);
+
+		filter.filter(m, context, output);
+
+		assertEquals("abcd", invocations.toString());
+	}
+
+	@Test
+	public void should_invoke_triggered_filter_directly() {
+		final MethodNode m = createMethod();
+		m.visitInsn(Opcodes.RETURN);
+
+		Filters.onlyWith(new Recorder("e"), Opcodes.ATHROW).filter(m, context,
+				output);
+
+		assertEquals("e", invocations.toString());
+	}
+
+	@Test
+	public void none_should_not_filter() {
+		final MethodNode m = createMethod();
+		m.visitInsn(Opcodes.RETURN);
+
+		Filters.NONE.filter(m, context, output);
+
+		assertIgnored();
+	}
+
+	@Test
+	public void getFilterClasses_should_contain_all_filters() {
+		final List<Class<?>> classes = Filters.getFilterClasses();
+
+		assertTrue(classes.contains(Filters.class));
+		assertTrue(classes.contains(AbstractMatcher.class));
+		assertTrue(classes.contains(EnumFilter.class));
+		assertTrue(classes.contains(StringSwitchJavacFilter.class));
+		assertTrue(classes.contains(KotlinDefaultMethodsFilter.class));
+		assertFalse(classes.contains(
+				Filters.onlyWith(new EnumFilter(), Opcodes.ATHROW).getClass()));
+	}
+
+	private static MethodNode createMethod() {
+		return new MethodNode(InstrSupport.ASM_API_VERSION, 0, "m", "()V", null,
+				null);
+	}
+
+	private class Recorder implements IFilter {
+
+		private final String name;
+
+		Recorder(final String name) {
+			this.name = name;
+		}
+
+		public void filter(final MethodNode methodNode,
+				final IFilterContext context, final IFilterOutput output) {
+			invocations.append(name);
+		}
+
+	}
+
+}
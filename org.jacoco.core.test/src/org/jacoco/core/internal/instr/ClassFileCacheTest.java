@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ClassFileCache}.
+ */
+public class ClassFileCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private Instrumenter instrumenter;
+
+	private byte[] source;
+
+	private byte[] instrumented;
+
+	@Before
+	public void setup() throws IOException {
+		directory = new File(folder.getRoot(), "cache");
+		instrumenter = new Instrumenter(new SystemPropertiesRuntime());
+		source = TargetLoader.getClassDataAsBytes(ClassFileCacheTest.class);
+		instrumented = instrumenter.instrument(source, "Test");
+	}
+
+	@Test
+	public void get_should_return_null_for_unknown_class() throws IOException {
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+
+		assertNull(cache.get(source));
+	}
+
+	@Test
+	public void get_should_return_stored_class() throws IOException {
+		new ClassFileCache(directory, 0, instrumenter).put(source,
+				instrumented);
+
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+
+		assertArrayEquals(instrumented, cache.get(source));
+	}
+
+	@Test
+	public void put_should_create_entry_named_by_class_id() throws IOException {
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+
+		cache.put(source, instrumented);
+
+		final String[] names = directory.list();
+		assertEquals(1, names.length);
+		assertTrue(names[0], names[0].startsWith(
+				String.format("%016x-", Long.valueOf(CRC64.classId(source)))));
+		assertTrue(names[0], names[0].endsWith(".class"));
+	}
+
+	@Test
+	public void get_should_return_null_for_other_instrumentation()
+			throws IOException {
+		new ClassFileCache(directory, 0, instrumenter).put(source,
+				instrumented);
+
+		// A new runtime instance generates different data accessors:
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				new Instrumenter(new SystemPropertiesRuntime()));
+
+		assertNull(cache.get(source));
+	}
+
+	@Test
+	public void get_should_return_null_for_corrupt_entry() throws IOException {
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+		cache.put(source, instrumented);
+		final FileOutputStream out = new FileOutputStream(
+				directory.listFiles()[0]);
+		out.write(new byte[] { 1, 2, 3, 4, 5 });
+		out.close();
+
+		assertNull(cache.get(source));
+	}
+
+	@Test
+	public void put_should_evict_least_recently_used_entries()
+			throws IOException {
+		final byte[] other = TargetLoader.getClassDataAsBytes(Analyzer.class);
+		final byte[] otherInstrumented = instrumenter.instrument(other, "Test");
+		final ClassFileCache cache = new ClassFileCache(directory,
+				otherInstrumented.length + instrumented.length - 1,
+				instrumenter);
+		cache.put(other, otherInstrumented);
+		directory.listFiles()[0].setLastModified(0);
+
+		cache.put(source, instrumented);
+
+		assertNull(cache.get(other));
+		assertArrayEquals(instrumented, cache.get(source));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void put_should_not_evict_entries_without_limit()
+			throws IOException {
+		final byte[] other = TargetLoader.getClassDataAsBytes(Analyzer.class);
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+
+		cache.put(other, instrumenter.instrument(other, "Test"));
+		cache.put(source, instrumented);
+
+		assertEquals(2, directory.list().length);
+	}
+
+	@Test
+	public void put_should_count_existing_entries_for_limit()
+			throws IOException {
+		final byte[] other = TargetLoader.getClassDataAsBytes(Analyzer.class);
+		final byte[] otherInstrumented = instrumenter.instrument(other, "Test");
+		new ClassFileCache(directory, 0, instrumenter).put(other,
+				otherInstrumented);
+		directory.listFiles()[0].setLastModified(0);
+		final ClassFileCache cache = new ClassFileCache(directory,
+				otherInstrumented.length + instrumented.length - 1,
+				instrumenter);
+
+		cache.put(source, instrumented);
+
+		assertNull(cache.get(other));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void put_should_throw_IOException_when_directory_is_a_file()
+			throws IOException {
+		new FileOutputStream(directory).close();
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+
+		cache.put(source, instrumented);
+	}
+
+	@Test
+	public void get_should_update_last_access_time() throws IOException {
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+		cache.put(source, instrumented);
+		final File entry = directory.listFiles()[0];
+		entry.setLastModified(0);
+
+		cache.get(source);
+
+		assertFalse(entry.lastModified() == 0);
+	}
+
+}
@@ -12,12 +12,17 @@
  *******************************************************************************/
 package org.jacoco.core.internal.instr;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Unit tests for {@link ClassInstrumenter}.
@@ -61,6 +66,72 @@ public class ClassInstrumenterTest implements IProbeArrayStrategy {
 		assertNull(instrumenter.visitMethod(0, "foo", "()V", null, null));
 	}
 
+	@Test
+	public void testConditionalProbeMethod() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_5, 0, true,
+				false, 1);
+		assertEquals(1, methods.size());
+		assertEquals(
+				InstrSupport.PROBEMETHOD_NAME + InstrSupport.PROBEMETHOD_DESC,
+				methods.get(0));
+	}
+
+	@Test
+	public void testConditionalProbeMethodJava8Interface() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_8,
+				Opcodes.ACC_INTERFACE, true, false, 1);
+		assertEquals(1, methods.size());
+	}
+
+	@Test
+	public void testNoConditionalProbeMethodJava7Interface() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_7,
+				Opcodes.ACC_INTERFACE, true, false, 1);
+		assertEquals(0, methods.size());
+	}
+
+	@Test
+	public void testNoConditionalProbeMethodWithoutProbes() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_5, 0, true,
+				false, 0);
+		assertEquals(0, methods.size());
+	}
+
+	@Test
+	public void testNoConditionalProbeMethodWithHitCounts() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_5, 0, true,
+				true, 1);
+		assertEquals(0, methods.size());
+	}
+
+	@Test
+	public void testNoConditionalProbeMethodByDefault() {
+		final List<String> methods = visitTotalProbeCount(Opcodes.V1_5, 0,
+				false, false, 1);
+		assertEquals(0, methods.size());
+	}
+
+	private List<String> visitTotalProbeCount(final int version,
+			final int access, final boolean conditionalProbes,
+			final boolean hitCounts, final int count) {
+		final List<String> methods = new ArrayList<String>();
+		instrumenter = new ClassInstrumenter(this, hitCounts, conditionalProbes,
+				new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public MethodVisitor visitMethod(int access, String name,
+							String desc, String signature,
+							String[] exceptions) {
+						methods.add(name + desc);
+						return new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+						};
+					}
+				});
+		instrumenter.visit(version, access, "Foo", null, "java/lang/Object",
+				null);
+		instrumenter.visitTotalProbeCount(count);
+		return methods;
+	}
+
 	// === IProbeArrayStrategy ===
 
 	public int storeInstance(MethodVisitor mv, boolean clinit, int variable) {
@@ -40,6 +40,7 @@ public class ProbeArrayStrategyFactoryTest {
 
 	private IExecutionDataAccessorGenerator generator;
 	private ClassVisitorMock cv;
+	private boolean preserveMembers;
 
 	@Before
 	public void setup() {
@@ -264,6 +265,39 @@ public class ProbeArrayStrategyFactoryTest {
 		assertEquals(NoneProbeArrayStrategy.class, strategy.getClass());
 	}
 
+	@Test
+	public void test_preserve_members_class() {
+		preserveMembers = true;
+		final IProbeArrayStrategy strategy = test(Opcodes.V11, 0, true, true,
+				true);
+
+		assertEquals(LocalProbeArrayStrategy.class, strategy.getClass());
+		assertNoDataField();
+		assertNoInitMethod();
+	}
+
+	@Test
+	public void test_preserve_members_interface() {
+		preserveMembers = true;
+		final IProbeArrayStrategy strategy = test(Opcodes.V1_8,
+				Opcodes.ACC_INTERFACE, true, true, true);
+
+		assertEquals(LocalProbeArrayStrategy.class, strategy.getClass());
+		assertNoDataField();
+		assertNoInitMethod();
+	}
+
+	@Test
+	public void test_preserve_members_class_without_code() {
+		preserveMembers = true;
+		final IProbeArrayStrategy strategy = test(Opcodes.V1_8, 0, false, false,
+				true);
+
+		assertEquals(NoneProbeArrayStrategy.class, strategy.getClass());
+		assertNoDataField();
+		assertNoInitMethod();
+	}
+
 	private IProbeArrayStrategy createForModule(int version) {
 		final ClassWriter writer = new ClassWriter(0);
 		writer.visit(version, Opcodes.ACC_MODULE, "module-info", null, null,
@@ -304,7 +338,8 @@ public class ProbeArrayStrategyFactoryTest {
 		writer.visitEnd();
 
 		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(0, new ClassReader(writer.toByteArray()), generator);
+				.createFor(0, new ClassReader(writer.toByteArray()), generator,
+						false, preserveMembers);
 
 		strategy.addMembers(cv, 123);
 		return strategy;
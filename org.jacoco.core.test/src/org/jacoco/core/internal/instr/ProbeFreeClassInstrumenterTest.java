@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link ProbeFreeClassInstrumenter}.
+ */
+public class ProbeFreeClassInstrumenterTest implements IProbeArrayStrategy {
+
+	private List<String> members;
+
+	private List<String> instructions;
+
+	private ProbeFreeClassInstrumenter instrumenter;
+
+	@Before
+	public void setup() {
+		members = new ArrayList<String>();
+		instructions = new ArrayList<String>();
+		instrumenter = new ProbeFreeClassInstrumenter(this, false, false,
+				new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public MethodVisitor visitMethod(int access, String name,
+							String desc, String signature,
+							String[] exceptions) {
+						members.add(name + desc);
+						return new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+							@Override
+							public void visitInsn(int opcode) {
+								instructions.add("insn " + opcode);
+							}
+
+							@Override
+							public void visitJumpInsn(int opcode, Label label) {
+								instructions.add("jump " + opcode);
+							}
+
+							@Override
+							public void visitTableSwitchInsn(int min, int max,
+									Label dflt, Label... labels) {
+								instructions.add("tableswitch");
+							}
+
+							@Override
+							public void visitLookupSwitchInsn(Label dflt,
+									int[] keys, Label[] labels) {
+								instructions.add("lookupswitch");
+							}
+						};
+					}
+				});
+		instrumenter.visit(Opcodes.V1_5, 0, "Foo", null, "java/lang/Object",
+				null);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void should_reject_instrumented_class() {
+		instrumenter.visitMethod(InstrSupport.INITMETHOD_ACC,
+				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
+				null, null);
+	}
+
+	@Test
+	public void should_return_null_without_method_visitor() {
+		instrumenter = new ProbeFreeClassInstrumenter(this, false, false,
+				new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+				});
+		instrumenter.visit(Opcodes.V1_5, 0, "Foo", null, "java/lang/Object",
+				null);
+		assertNull(instrumenter.visitMethod(0, "foo", "()V", null, null));
+	}
+
+	@Test
+	public void should_insert_probes_into_static_initializer() {
+		final MethodProbesVisitor mv = instrumenter.visitMethod(
+				InstrSupport.CLINIT_ACC, InstrSupport.CLINIT_NAME,
+				InstrSupport.CLINIT_DESC, null, null);
+		assertTrue(mv instanceof MethodInstrumenter);
+	}
+
+	@Test
+	public void should_emit_original_instructions_without_probes() {
+		final MethodProbesVisitor mv = instrumenter.visitMethod(0, "foo", "()V",
+				null, null);
+		final Label label = new Label();
+
+		mv.visitProbe(0);
+		mv.visitJumpInsnWithProbe(Opcodes.IFEQ, label, 1, null);
+		mv.visitTableSwitchInsnWithProbes(0, 0, label, new Label[] { label },
+				null);
+		mv.visitLookupSwitchInsnWithProbes(label, new int[] { 0 },
+				new Label[] { label }, null);
+		mv.visitInsnWithProbe(Opcodes.RETURN, 2);
+
+		assertEquals(
+				"[jump " + Opcodes.IFEQ + ", tableswitch, lookupswitch, "
+						+ "insn " + Opcodes.RETURN + "]",
+				instructions.toString());
+	}
+
+	@Test
+	public void should_add_members_of_probe_array_strategy() {
+		instrumenter.visitTotalProbeCount(3);
+
+		assertEquals(
+				"[" + InstrSupport.INITMETHOD_NAME
+						+ InstrSupport.INITMETHOD_DESC + "]",
+				members.toString());
+	}
+
+	// === IProbeArrayStrategy ===
+
+	public int storeInstance(MethodVisitor mv, boolean clinit, int variable) {
+		return 0;
+	}
+
+	public void addMembers(ClassVisitor cv, int probeCount) {
+		cv.visitMethod(InstrSupport.INITMETHOD_ACC,
+				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
+				null, null);
+	}
+
+}
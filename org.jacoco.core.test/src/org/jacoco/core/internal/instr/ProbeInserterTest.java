@@ -106,6 +106,74 @@ public class ProbeInserterTest {
 		expectedVisitor.visitInsn(Opcodes.BASTORE);
 	}
 
+	@Test
+	public void testCountingProbe() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true);
+		pi.insertProbe(7);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitVarInsn(Opcodes.ILOAD, 1);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitInsn(Opcodes.IADD);
+		expectedVisitor.visitInsn(Opcodes.DUP2);
+		expectedVisitor.visitInsn(Opcodes.IALOAD);
+		expectedVisitor.visitInsn(Opcodes.ICONST_1);
+		expectedVisitor.visitInsn(Opcodes.IADD);
+		expectedVisitor.visitInsn(Opcodes.DUP);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 31);
+		expectedVisitor.visitInsn(Opcodes.IUSHR);
+		expectedVisitor.visitInsn(Opcodes.ISUB);
+		expectedVisitor.visitInsn(Opcodes.IASTORE);
+	}
+
+	@Test
+	public void testConditionalProbe() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, false, "Foo", false);
+		pi.insertProbe(7);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				InstrSupport.PROBEMETHOD_NAME, InstrSupport.PROBEMETHOD_DESC,
+				false);
+	}
+
+	@Test
+	public void testConditionalProbeInterface() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, false, "Foo", true);
+		pi.insertProbe(7);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				InstrSupport.PROBEMETHOD_NAME, InstrSupport.PROBEMETHOD_DESC,
+				true);
+	}
+
+	@Test
+	public void testConditionalProbeWithHitCounts() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true, "Foo", false);
+		pi.insertProbe(7);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitVarInsn(Opcodes.ILOAD, 1);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitInsn(Opcodes.IADD);
+		expectedVisitor.visitInsn(Opcodes.DUP2);
+		expectedVisitor.visitInsn(Opcodes.IALOAD);
+		expectedVisitor.visitInsn(Opcodes.ICONST_1);
+		expectedVisitor.visitInsn(Opcodes.IADD);
+		expectedVisitor.visitInsn(Opcodes.DUP);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 31);
+		expectedVisitor.visitInsn(Opcodes.IUSHR);
+		expectedVisitor.visitInsn(Opcodes.ISUB);
+		expectedVisitor.visitInsn(Opcodes.IASTORE);
+	}
+
 	@Test
 	public void testVisitCode() {
 		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
@@ -230,6 +298,57 @@ public class ProbeInserterTest {
 		expectedVisitor.visitMaxs(13, 9);
 	}
 
+	@Test
+	public void testVisitMaxsCountingProbes() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "(II)V", actualVisitor,
+				arrayStrategy, true);
+		pi.visitCode();
+		pi.visitMaxs(10, 8);
+
+		expectedVisitor.visitLdcInsn("init");
+		expectStripeOffset(3);
+		expectedVisitor.visitMaxs(15, 10);
+	}
+
+	@Test
+	public void testVisitCodeCountingProbes() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true);
+		pi.visitCode();
+
+		expectedVisitor.visitLdcInsn("init");
+		expectStripeOffset(0);
+		expectedVisitor.visitCode();
+	}
+
+	@Test
+	public void testVariableMappingCountingProbes() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "(I)V",
+				actualVisitor, arrayStrategy, true);
+		pi.visitVarInsn(Opcodes.ILOAD, 0);
+		pi.visitVarInsn(Opcodes.ILOAD, 1);
+
+		expectedVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+		expectedVisitor.visitVarInsn(Opcodes.ILOAD, 3);
+	}
+
+	private void expectStripeOffset(final int variable) {
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+				"java/lang/Thread", "currentThread", "()Ljava/lang/Thread;",
+				false);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+				"java/lang/System", "identityHashCode", "(Ljava/lang/Object;)I",
+				false);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 7);
+		expectedVisitor.visitInsn(Opcodes.IAND);
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, variable);
+		expectedVisitor.visitInsn(Opcodes.ARRAYLENGTH);
+		expectedVisitor.visitInsn(Opcodes.ICONST_3);
+		expectedVisitor.visitInsn(Opcodes.IUSHR);
+		expectedVisitor.visitInsn(Opcodes.IMUL);
+		expectedVisitor.visitVarInsn(Opcodes.ISTORE, variable + 1);
+	}
+
 	@Test
 	public void testVisitFrame() {
 		ProbeInserter pi = new ProbeInserter(0, "m", "(J)V", actualVisitor,
@@ -255,6 +374,17 @@ public class ProbeInserterTest {
 				new Object[0]);
 	}
 
+	@Test
+	public void testVisitFrameCountingProbes() {
+		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
+				actualVisitor, arrayStrategy, true);
+
+		pi.visitFrame(Opcodes.F_NEW, 0, new Object[] {}, 0, new Object[0]);
+
+		expectedVisitor.visitFrame(Opcodes.F_NEW, 2,
+				new Object[] { "[I", Opcodes.INTEGER }, 0, new Object[0]);
+	}
+
 	@Test
 	public void testVisitFrameProbeAt0() {
 		ProbeInserter pi = new ProbeInserter(Opcodes.ACC_STATIC, "m", "()V",
@@ -52,6 +52,15 @@ public class AgentOptionsTest {
 		assertEquals(AgentOptions.DEFAULT_ADDRESS, options.getAddress());
 		assertEquals(AgentOptions.DEFAULT_PORT, options.getPort());
 		assertNull(options.getClassDumpDir());
+		assertNull(options.getClassCacheDir());
+		assertEquals(AgentOptions.DEFAULT_CLASSCACHESIZE,
+				options.getClassCacheSize());
+		assertFalse(options.getHitCounts());
+		assertFalse(options.getConditionalProbes());
+		assertFalse(options.getInvokeDynamic());
+		assertEquals(0, options.getRemoveProbesInterval());
+		assertEquals(AgentOptions.DEFAULT_REMOVEPROBESTHRESHOLD,
+				options.getRemoveProbesThreshold());
 		assertFalse(options.getJmx());
 
 		assertEquals("", options.toString());
@@ -388,6 +397,127 @@ public class AgentOptionsTest {
 		assertEquals("classdumpdir=target/dump", options.toString());
 	}
 
+	@Test
+	public void testGetClassCacheDir() {
+		AgentOptions options = new AgentOptions("classcachedir=target/cache");
+		assertEquals("target/cache", options.getClassCacheDir());
+	}
+
+	@Test
+	public void testSetClassCacheDir() {
+		AgentOptions options = new AgentOptions();
+		options.setClassCacheDir("target/cache");
+		assertEquals("target/cache", options.getClassCacheDir());
+		assertEquals("classcachedir=target/cache", options.toString());
+	}
+
+	@Test
+	public void testGetClassCacheSize() {
+		AgentOptions options = new AgentOptions("classcachesize=20");
+		assertEquals(20, options.getClassCacheSize());
+	}
+
+	@Test
+	public void testSetClassCacheSize() {
+		AgentOptions options = new AgentOptions();
+		options.setClassCacheSize(20);
+		assertEquals(20, options.getClassCacheSize());
+		assertEquals("classcachesize=20", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidClassCacheSizeOptionValue() {
+		new AgentOptions("classcachesize=-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetNegativeClassCacheSize() {
+		AgentOptions options = new AgentOptions();
+		options.setClassCacheSize(-1);
+	}
+
+	@Test
+	public void testGetHitCounts() {
+		AgentOptions options = new AgentOptions("hitcounts=true");
+		assertTrue(options.getHitCounts());
+	}
+
+	@Test
+	public void testSetHitCounts() {
+		AgentOptions options = new AgentOptions();
+		options.setHitCounts(true);
+		assertTrue(options.getHitCounts());
+	}
+
+	@Test
+	public void testGetConditionalProbes() {
+		AgentOptions options = new AgentOptions("conditionalprobes=true");
+		assertTrue(options.getConditionalProbes());
+	}
+
+	@Test
+	public void testSetConditionalProbes() {
+		AgentOptions options = new AgentOptions();
+		options.setConditionalProbes(true);
+		assertTrue(options.getConditionalProbes());
+	}
+
+	@Test
+	public void testGetInvokeDynamic() {
+		AgentOptions options = new AgentOptions("invokedynamic=true");
+		assertTrue(options.getInvokeDynamic());
+	}
+
+	@Test
+	public void testSetInvokeDynamic() {
+		AgentOptions options = new AgentOptions();
+		options.setInvokeDynamic(true);
+		assertTrue(options.getInvokeDynamic());
+	}
+
+	@Test
+	public void testGetRemoveProbesInterval() {
+		AgentOptions options = new AgentOptions("removeprobesinterval=30");
+		assertEquals(30, options.getRemoveProbesInterval());
+	}
+
+	@Test
+	public void testSetRemoveProbesInterval() {
+		AgentOptions options = new AgentOptions();
+		options.setRemoveProbesInterval(30);
+		assertEquals(30, options.getRemoveProbesInterval());
+		assertEquals("removeprobesinterval=30", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRemoveProbesIntervalOptionValue() {
+		new AgentOptions("removeprobesinterval=-1");
+	}
+
+	@Test
+	public void testGetRemoveProbesThreshold() {
+		AgentOptions options = new AgentOptions("removeprobesthreshold=80");
+		assertEquals(80, options.getRemoveProbesThreshold());
+	}
+
+	@Test
+	public void testSetRemoveProbesThreshold() {
+		AgentOptions options = new AgentOptions();
+		options.setRemoveProbesThreshold(80);
+		assertEquals(80, options.getRemoveProbesThreshold());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRemoveProbesThresholdOptionValue() {
+		new AgentOptions("removeprobesthreshold=0");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetRemoveProbesThresholdAboveHundred() {
+		AgentOptions options = new AgentOptions();
+		options.setRemoveProbesThreshold(101);
+	}
+
 	@Test
 	public void testGetJmx() {
 		AgentOptions options = new AgentOptions("jmx=true");
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link InvokeDynamicAccessorGenerator}.
+ */
+public class InvokeDynamicAccessorGeneratorTest {
+
+	private static final String HOLDER = "org/jacoco/core/runtime/InvokeDynamicAccessorGeneratorTest$Holder";
+
+	private RuntimeData data;
+
+	private TargetLoader loader;
+
+	private ModifiedSystemClassRuntime runtime;
+
+	private IExecutionDataAccessorGenerator generator;
+
+	public static class Target implements Callable<Void> {
+
+		public Void call() {
+			return null;
+		}
+
+	}
+
+	@Before
+	public void setup() throws Exception {
+		data = new RuntimeData();
+		loader = new TargetLoader();
+		final Class<?> holder = loader.add(HOLDER.replace('/', '.'),
+				ModifiedSystemClassRuntime.instrument(createHolder(),
+						"$jacocoAccess", true));
+		runtime = new ModifiedSystemClassRuntime(holder, "$jacocoAccess");
+		runtime.startup(data);
+		generator = runtime.createInvokeDynamicAccessorGenerator();
+	}
+
+	@After
+	public void teardown() {
+		runtime.shutdown();
+	}
+
+	@Test
+	public void createInvokeDynamicAccessorGenerator_should_fall_back_to_runtime() {
+		assertTrue(generator instanceof InvokeDynamicAccessorGenerator);
+		assertSame(runtime,
+				((InvokeDynamicAccessorGenerator) generator).getFallback());
+	}
+
+	@Test
+	public void createInvokeDynamicAccessorGenerator_should_return_runtime_without_bootstrap_method() {
+		final IRuntime other = new ModifiedSystemClassRuntime(
+				ModifiedSystemClassRuntimeTest.class, "accessField");
+		assertSame(other, ((AbstractRuntime) other)
+				.createInvokeDynamicAccessorGenerator());
+		final LoggerRuntime logger = new LoggerRuntime();
+		assertSame(logger, logger.createInvokeDynamicAccessorGenerator());
+	}
+
+	@Test
+	public void instrument_should_not_add_bootstrap_method_by_default()
+			throws Exception {
+		final Class<?> holder = new TargetLoader().add(HOLDER.replace('/', '.'),
+				ModifiedSystemClassRuntime.instrument(createHolder(),
+						"$jacocoAccess"));
+		final IRuntime other = new ModifiedSystemClassRuntime(holder,
+				"$jacocoAccess");
+		assertSame(other, ((AbstractRuntime) other)
+				.createInvokeDynamicAccessorGenerator());
+	}
+
+	@Test
+	public void generateDataAccessor_should_emit_invokedynamic_with_constant_arguments() {
+		final Object[][] args = new Object[1][];
+		final int maxStack = generator.generateDataAccessor(1234L, "Foo", 42,
+				new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public void visitInvokeDynamicInsn(final String name,
+							final String desc, final Handle bsm,
+							final Object... bsmArgs) {
+						assertEquals(InstrSupport.DATAFIELD_NAME, name);
+						assertEquals("()[Z", desc);
+						assertEquals(HOLDER, bsm.getOwner());
+						assertEquals(
+								InvokeDynamicAccessorGenerator.BOOTSTRAP_NAME,
+								bsm.getName());
+						args[0] = bsmArgs;
+					}
+				});
+		assertEquals(1, maxStack);
+		assertArrayEquals(new Object[] { Long.valueOf(1234L), "Foo",
+				Integer.valueOf(42) }, args[0]);
+	}
+
+	@Test
+	public void instrumented_class_should_use_invokedynamic_for_java7()
+			throws Exception {
+		final byte[] original = getTarget(Opcodes.V1_7);
+		final byte[] instrumented = new Instrumenter(generator)
+				.instrument(original, "Target");
+		assertTrue(containsInvokeDynamic(instrumented));
+
+		run(instrumented);
+
+		assertArrayEquals(new boolean[] { true, true, true },
+				getData(original).getProbes());
+	}
+
+	@Test
+	public void instrumented_class_should_use_fallback_before_java7()
+			throws Exception {
+		final byte[] original = getTarget(Opcodes.V1_5);
+		final byte[] instrumented = new Instrumenter(generator)
+				.instrument(original, "Target");
+		assertFalse(containsInvokeDynamic(instrumented));
+
+		run(instrumented);
+
+		assertArrayEquals(new boolean[] { true, true, true },
+				getData(original).getProbes());
+	}
+
+	@Test
+	public void instrumented_class_should_use_invokedynamic_for_hit_counts()
+			throws Exception {
+		final byte[] original = getTarget(Opcodes.V1_7);
+		final Instrumenter instrumenter = new Instrumenter(generator);
+		instrumenter.setHitCounts(true);
+		final byte[] instrumented = instrumenter.instrument(original, "Target");
+		assertTrue(containsInvokeDynamic(instrumented));
+
+		final Callable<?> target = run(instrumented);
+		target.call();
+
+		assertArrayEquals(new int[] { 1, 2, 2 }, getData(original).getCounts());
+	}
+
+	private byte[] getTarget(final int version) throws Exception {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(Target.class);
+		InstrSupport.setMajorVersion(version, bytes);
+		return bytes;
+	}
+
+	private Callable<?> run(final byte[] instrumented) throws Exception {
+		final Callable<?> target = (Callable<?>) loader
+				.add(Target.class, instrumented).newInstance();
+		target.call();
+		return target;
+	}
+
+	private ExecutionData getData(final byte[] original) {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		return store.get(CRC64.classId(original));
+	}
+
+	private static byte[] createHolder() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, HOLDER, null,
+				"java/lang/Object", null);
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static boolean containsInvokeDynamic(final byte[] bytes) {
+		final boolean[] found = new boolean[1];
+		new ClassReader(bytes)
+				.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public MethodVisitor visitMethod(final int access,
+							final String name, final String desc,
+							final String signature, final String[] exceptions) {
+						return new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+							@Override
+							public void visitInvokeDynamicInsn(
+									final String name, final String desc,
+									final Handle bsm, final Object... bsmArgs) {
+								found[0] = true;
+							}
+						};
+					}
+				}, 0);
+		return found[0];
+	}
+
+}
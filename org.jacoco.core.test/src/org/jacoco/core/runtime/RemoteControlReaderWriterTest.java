@@ -80,11 +80,50 @@ public class RemoteControlReaderWriterTest
 			public void visitDumpCommand(boolean dump, boolean reset) {
 				calls.append("cmd(" + dump + "," + reset + ")");
 			}
+
+			public void visitDeltaDumpCommand(String clientId, boolean reset) {
+				calls.append("delta(" + clientId + "," + reset + ")");
+			}
 		});
 		assertFalse(reader.read());
 		assertEquals("cmd(" + doDump + "," + doReset + ")", calls.toString());
 	}
 
+	@Test
+	public void testVisitDeltaDump1() throws IOException {
+		testVisitDeltaDump(false);
+	}
+
+	@Test
+	public void testVisitDeltaDump2() throws IOException {
+		testVisitDeltaDump(true);
+	}
+
+	private void testVisitDeltaDump(boolean doReset) throws IOException {
+		writer.visitDeltaDumpCommand("client", doReset);
+		final RemoteControlReader reader = createReader();
+		final StringBuilder calls = new StringBuilder();
+		reader.setRemoteCommandVisitor(new IRemoteCommandVisitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset) {
+				calls.append("cmd(" + dump + "," + reset + ")");
+			}
+
+			public void visitDeltaDumpCommand(String clientId, boolean reset) {
+				calls.append("delta(" + clientId + "," + reset + ")");
+			}
+		});
+		assertFalse(reader.read());
+		assertEquals("delta(client," + doReset + ")", calls.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testVisitDeltaDumpWithoutRemoteCommandVisitor()
+			throws IOException {
+		writer.visitDeltaDumpCommand("client", false);
+		createReader().read();
+	}
+
 	@Test
 	public void testSendCmdOk() throws IOException {
 		writer.sendCmdOk();
@@ -12,14 +12,27 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataDeltaVisitor;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.test.TargetLoader;
 import org.junit.Before;
 import org.junit.Test;
@@ -64,10 +77,128 @@ public class RuntimeDataTest {
 		assertFalse(data[0]);
 		assertFalse(data[1]);
 		assertFalse(data[2]);
-		assertSame(storage.getData(123).getProbes(), data);
+		assertEquals(3, storage.getData(123).getProbes().length);
 		assertEquals("Foo", storage.getData(123).getName());
 	}
 
+	@Test
+	public void testGetProbesWithHitCounts() {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(123), "Foo", 3).getProbes();
+		probes[0] = true;
+		Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(-3) };
+		data.equals(args);
+		final int[] counts = (int[]) args[0];
+		counts[1] = 5;
+
+		args = new Object[] { Long.valueOf(123), "Foo", Integer.valueOf(-3) };
+		data.equals(args);
+		assertSame(counts, args[0]);
+		assertSame(probes,
+				data.getExecutionData(Long.valueOf(123), "Foo", 3).getProbes());
+
+		data.collect(storage, storage, false);
+		final ExecutionData collected = storage.getData(123);
+		assertTrue(collected.getProbes()[0]);
+		assertTrue(collected.getProbes()[1]);
+		assertFalse(collected.getProbes()[2]);
+		assertNotSame(counts, collected.getCounts());
+		assertEquals(5, collected.getCounts()[1]);
+	}
+
+	@Test
+	public void testGetProbesWithHitCountsSumsStripes() {
+		final Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(-2) };
+		data.equals(args);
+		final int[] counts = (int[]) args[0];
+		assertEquals(2 << InstrSupport.COUNTS_STRIPE_BITS, counts.length);
+		counts[1] = 2;
+		counts[3] = 3;
+		counts[counts.length - 1] = 4;
+		counts[0] = Integer.MAX_VALUE;
+		counts[2] = 1;
+
+		data.collect(storage, storage, false);
+
+		assertArrayEquals(new int[] { Integer.MAX_VALUE, 9 },
+				storage.getData(123).getCounts());
+	}
+
+	@Test
+	public void testCollectDeltaWithHitCounts() {
+		final Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(-2) };
+		data.equals(args);
+		final int[] counts = (int[]) args[0];
+		final List<ExecutionData> deltas = new ArrayList<ExecutionData>();
+		final IExecutionDataDeltaVisitor visitor = new IExecutionDataDeltaVisitor() {
+			public void visitClassExecutionDelta(final ExecutionData delta) {
+				deltas.add(delta);
+			}
+		};
+
+		counts[0] = 3;
+		collectDelta(visitor, false);
+		counts[0] = 4;
+		counts[1] = 1;
+		collectDelta(visitor, false);
+		collectDelta(visitor, false);
+
+		assertEquals(2, deltas.size());
+		assertEquals(3, deltas.get(0).getCounts()[0]);
+		assertEquals(0, deltas.get(0).getCounts()[1]);
+		assertFalse(deltas.get(0).getProbes()[1]);
+		assertEquals(1, deltas.get(1).getCounts()[0]);
+		assertEquals(1, deltas.get(1).getCounts()[1]);
+		assertTrue(deltas.get(1).getProbes()[1]);
+	}
+
+	@Test
+	public void testResetWithHitCounts() {
+		final Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(-1) };
+		data.equals(args);
+		final int[] counts = (int[]) args[0];
+		counts[0] = 3;
+
+		data.reset();
+
+		assertEquals(0, counts[0]);
+	}
+
+	@Test
+	public void testCollectProvidesCopies() {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(123), "Foo", 2).getProbes();
+		probes[0] = true;
+
+		data.collect(storage, storage, false);
+		probes[1] = true;
+
+		final boolean[] collected = storage.getData(123).getProbes();
+		assertNotSame(probes, collected);
+		assertTrue(collected[0]);
+		assertFalse(collected[1]);
+	}
+
+	@Test
+	public void testCollectMultipleClasses() {
+		data.getExecutionData(Long.valueOf(1), "Foo", 2).getProbes()[1] = true;
+		data.getExecutionData(Long.valueOf(2), "Bar", 3).getProbes()[2] = true;
+		data.getExecutionData(Long.valueOf(3), "Baz", 1);
+
+		data.collect(storage, storage, false);
+		// repeated collect reuses the buffer:
+		storage = new TestStorage();
+		data.collect(storage, storage, false);
+
+		storage.assertData(1, false, true);
+		storage.assertData(2, false, false, true);
+		storage.assertData(3, false);
+	}
+
 	@Test
 	public void testCollectEmpty() {
 		data.collect(storage, storage, false);
@@ -100,6 +231,222 @@ public class RuntimeDataTest {
 		assertEquals("testsession", storage.getSessionInfo().getId());
 	}
 
+	@Test
+	public void testCollectDelta() {
+		boolean[] probes = data.getExecutionData(Long.valueOf(123), "Foo", 3)
+				.getProbes();
+		data.getExecutionData(Long.valueOf(456), "Bar", 1);
+		final DeltaStorage deltas = new DeltaStorage();
+
+		probes[0] = true;
+		collectDelta(deltas, false);
+		assertEquals("Foo[100]", deltas.toString());
+
+		collectDelta(deltas, false);
+		assertEquals("Foo[100]", deltas.toString());
+
+		probes[1] = true;
+		probes[2] = true;
+		collectDelta(deltas, false);
+		assertEquals("Foo[100]Foo[011]", deltas.toString());
+		assertTrue(probes[0]);
+	}
+
+	@Test
+	public void testCollectDeltaNotAffectedByCollect() {
+		boolean[] probes = data.getExecutionData(Long.valueOf(123), "Foo", 2)
+				.getProbes();
+		final DeltaStorage deltas = new DeltaStorage();
+
+		probes[0] = true;
+		data.collect(storage, storage, false);
+		collectDelta(deltas, false);
+
+		assertEquals("Foo[10]", deltas.toString());
+	}
+
+	@Test
+	public void testCollectDeltaWithReset() {
+		data.setSessionId("testsession");
+		boolean[] probes = data.getExecutionData(Long.valueOf(123), "Foo", 2)
+				.getProbes();
+		final DeltaStorage deltas = new DeltaStorage();
+
+		probes[0] = true;
+		collectDelta(deltas, true);
+		assertFalse(probes[0]);
+		assertEquals("testsession", storage.getSessionInfo().getId());
+
+		probes[0] = true;
+		collectDelta(deltas, false);
+		assertEquals("Foo[10]Foo[10]", deltas.toString());
+	}
+
+	@Test
+	public void testGetExecutionDataSameInstance() {
+		ExecutionData first = data.getExecutionData(Long.valueOf(123), "Foo",
+				3);
+		ExecutionData second = data.getExecutionData(Long.valueOf(123), "Foo",
+				3);
+		assertSame(first, second);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetExecutionDataIncompatible() {
+		data.getExecutionData(Long.valueOf(123), "Foo", 3);
+		data.getExecutionData(Long.valueOf(123), "Foo", 4);
+	}
+
+	@Test
+	public void testGetExecutionDataConcurrent() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch start = new CountDownLatch(1);
+		final Callable<ExecutionData> task = new Callable<ExecutionData>() {
+			public ExecutionData call() throws Exception {
+				start.await();
+				return data.getExecutionData(Long.valueOf(42), "Foo", 2);
+			}
+		};
+		final Future<?>[] results = new Future<?>[8];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = executor.submit(task);
+		}
+		start.countDown();
+		for (final Future<?> f : results) {
+			assertSame(results[0].get(), f.get());
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testGetExecutionDataNotBlockedByCollect() throws Exception {
+		data.getExecutionData(Long.valueOf(1), "Foo", 1);
+		final CountDownLatch collecting = new CountDownLatch(1);
+		final CountDownLatch registered = new CountDownLatch(1);
+		final Thread dump = new Thread() {
+			@Override
+			public void run() {
+				data.collect(new IExecutionDataVisitor() {
+					public void visitClassExecution(final ExecutionData d) {
+						collecting.countDown();
+						try {
+							registered.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				}, storage, false);
+			}
+		};
+		dump.start();
+		collecting.await();
+
+		data.getExecutionData(Long.valueOf(2), "Bar", 1);
+		assertTrue(dump.isAlive());
+		registered.countDown();
+		dump.join();
+	}
+
+	@Test
+	public void testResetNotBlockedByCollect() throws Exception {
+		final boolean[] probes = data
+				.getExecutionData(Long.valueOf(1), "Foo", 1).getProbes();
+		probes[0] = true;
+		final CountDownLatch collecting = new CountDownLatch(1);
+		final CountDownLatch resetted = new CountDownLatch(1);
+		final boolean[] visited = new boolean[1];
+		final Thread dump = new Thread() {
+			@Override
+			public void run() {
+				data.collect(new IExecutionDataVisitor() {
+					public void visitClassExecution(final ExecutionData d) {
+						collecting.countDown();
+						try {
+							resetted.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+						visited[0] = d.getProbes()[0];
+					}
+				}, storage, false);
+			}
+		};
+		dump.start();
+		collecting.await();
+
+		data.reset();
+		assertFalse(probes[0]);
+		assertTrue(dump.isAlive());
+		resetted.countDown();
+		dump.join();
+		assertTrue(visited[0]);
+	}
+
+	@Test
+	public void testCollectDeltaForIndependentClients() {
+		boolean[] probes = data.getExecutionData(Long.valueOf(123), "Foo", 2)
+				.getProbes();
+		final DeltaStorage deltasA = new DeltaStorage();
+		final DeltaStorage deltasB = new DeltaStorage();
+
+		probes[0] = true;
+		data.collectDelta("a", deltasA, storage, false);
+		data.commitDelta("a");
+		probes[1] = true;
+		data.collectDelta("b", deltasB, storage, false);
+		data.commitDelta("b");
+		data.collectDelta("a", deltasA, storage, false);
+		data.commitDelta("a");
+
+		assertEquals("Foo[10]Foo[01]", deltasA.toString());
+		assertEquals("Foo[11]", deltasB.toString());
+	}
+
+	@Test
+	public void testCollectDeltaRepeatsUncommittedDelta() {
+		boolean[] probes = data.getExecutionData(Long.valueOf(123), "Foo", 2)
+				.getProbes();
+		final DeltaStorage deltas = new DeltaStorage();
+
+		probes[0] = true;
+		data.collectDelta("test", deltas, storage, false);
+		probes[1] = true;
+		data.collectDelta("test", deltas, storage, false);
+		data.commitDelta("test");
+		data.collectDelta("test", deltas, storage, false);
+
+		assertEquals("Foo[10]Foo[11]", deltas.toString());
+	}
+
+	@Test
+	public void testCommitDeltaForUnknownClient() {
+		data.commitDelta("unknown");
+	}
+
+	private void collectDelta(final IExecutionDataDeltaVisitor visitor,
+			final boolean reset) {
+		data.collectDelta("test", visitor, storage, reset);
+		data.commitDelta("test");
+	}
+
+	private static class DeltaStorage implements IExecutionDataDeltaVisitor {
+
+		private final StringBuilder deltas = new StringBuilder();
+
+		public void visitClassExecutionDelta(final ExecutionData delta) {
+			deltas.append(delta.getName()).append('[');
+			for (final boolean p : delta.getProbes()) {
+				deltas.append(p ? '1' : '0');
+			}
+			deltas.append(']');
+		}
+
+		@Override
+		public String toString() {
+			return deltas.toString();
+		}
+	}
+
 	@Test
 	public void testEquals() {
 		assertTrue(data.equals(data));
@@ -58,8 +58,9 @@ public abstract class RuntimeTestBase {
 	public void testDataAccessor()
 			throws InstantiationException, IllegalAccessException {
 		ITarget t = generateAndInstantiateClass(1234);
+		t.get()[1] = true;
 		data.collect(storage, storage, false);
-		storage.assertData(1234, t.get());
+		storage.assertData(1234, false, true);
 	}
 
 	@Test
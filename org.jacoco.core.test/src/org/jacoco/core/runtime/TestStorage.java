@@ -12,8 +12,8 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertSame;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -41,8 +41,8 @@ class TestStorage implements IExecutionDataVisitor, ISessionInfoVisitor {
 		return info;
 	}
 
-	public void assertData(long classId, boolean[] expected) {
-		assertSame(expected, getData(classId).getProbes());
+	public void assertData(long classId, boolean... expected) {
+		assertArrayEquals(expected, getData(classId).getProbes());
 	}
 
 	// === ICoverageDataVisitor ===
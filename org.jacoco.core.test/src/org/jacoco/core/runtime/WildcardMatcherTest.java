@@ -75,4 +75,41 @@ public class WildcardMatcherTest {
 				.matches("org/example/Enity$$$generated123"));
 	}
 
+	@Test
+	public void should_match_any_of_multiple_prefixes() {
+		final WildcardMatcher matcher = new WildcardMatcher(
+				"org/jacoco/*:org/jacoco/core/*:com/*:c*");
+		assertTrue(matcher.matches("org/jacoco/Foo"));
+		assertTrue(matcher.matches("org/jacoco/core/Foo"));
+		assertTrue(matcher.matches("com/example/Foo"));
+		assertTrue(matcher.matches("c"));
+		assertFalse(matcher.matches("org/jacoc"));
+		assertFalse(matcher.matches("org/example/Foo"));
+		assertFalse(matcher.matches(""));
+	}
+
+	@Test
+	public void should_match_any_of_multiple_suffixes() {
+		final WildcardMatcher matcher = new WildcardMatcher(
+				"*Test:*IT:*$Builder");
+		assertTrue(matcher.matches("org/jacoco/FooTest"));
+		assertTrue(matcher.matches("Test"));
+		assertTrue(matcher.matches("org/jacoco/FooIT"));
+		assertTrue(matcher.matches("org/jacoco/Foo$Builder"));
+		assertFalse(matcher.matches("org/jacoco/FooTests"));
+		assertFalse(matcher.matches("T"));
+	}
+
+	@Test
+	public void should_match_combined_wildcards() {
+		assertTrue(new WildcardMatcher("**").matches(""));
+		assertTrue(new WildcardMatcher("*a?c*").matches("xxabcxx"));
+		assertTrue(new WildcardMatcher("*a?c*").matches("aabc"));
+		assertFalse(new WildcardMatcher("*a?c*").matches("xxacxx"));
+		assertTrue(new WildcardMatcher("org/*/Foo").matches("org/a/b/Foo"));
+		assertFalse(new WildcardMatcher("org/*/Foo").matches("org/a/b/Foo2"));
+		assertTrue(new WildcardMatcher("a*aab").matches("aaaaab"));
+		assertFalse(new WildcardMatcher("a*aab").matches("aaaaba"));
+	}
+
 }
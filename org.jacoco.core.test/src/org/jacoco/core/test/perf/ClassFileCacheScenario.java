@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.instr.ClassFileCache;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.test.TargetLoader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+/**
+ * Simulates the startup of a JVM which loads the given number of distinct
+ * classes through the agent with a cold (empty) and a warm (filled)
+ * {@link ClassFileCache}. The reference is instrumentation without cache.
+ */
+public class ClassFileCacheScenario implements IPerfScenario {
+
+	private static final int RUNS = 5;
+
+	private final Class<?> target;
+
+	private final int count;
+
+	protected ClassFileCacheScenario(final Class<?> target, final int count) {
+		this.target = target;
+		this.count = count;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		final byte[][] classes = createClasses();
+		final Instrumenter instrumenter = new Instrumenter(new LoggerRuntime());
+		final File directory = File.createTempFile("jacoco", ".cache");
+		long reftime = Long.MAX_VALUE;
+		long cold = Long.MAX_VALUE;
+		long warm = Long.MAX_VALUE;
+		try {
+			for (int i = 0; i < RUNS; i++) {
+				long start = System.nanoTime();
+				for (final byte[] c : classes) {
+					instrumenter.instrument(c, "Target");
+				}
+				reftime = Math.min(reftime, System.nanoTime() - start);
+
+				delete(directory);
+				start = System.nanoTime();
+				startup(classes, instrumenter, directory);
+				cold = Math.min(cold, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				startup(classes, instrumenter, directory);
+				warm = Math.min(warm, System.nanoTime() - start);
+			}
+		} finally {
+			delete(directory);
+		}
+		output.writeTimeResult(
+				String.format("startup with cold class cache, %s classes",
+						Integer.valueOf(count)),
+				cold, reftime);
+		output.writeTimeResult(
+				String.format("startup with warm class cache, %s classes",
+						Integer.valueOf(count)),
+				warm, reftime);
+	}
+
+	private void startup(final byte[][] classes,
+			final Instrumenter instrumenter, final File directory)
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache(directory, 0,
+				instrumenter);
+		for (final byte[] c : classes) {
+			if (cache.get(c) == null) {
+				cache.put(c, instrumenter.instrument(c, "Target"));
+			}
+		}
+	}
+
+	/**
+	 * Creates copies of the target class with different names, so every copy
+	 * has its own class id.
+	 */
+	private byte[][] createClasses() throws IOException {
+		final ClassReader reader = new ClassReader(
+				TargetLoader.getClassDataAsBytes(target));
+		final byte[][] classes = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			final ClassWriter writer = new ClassWriter(0);
+			reader.accept(
+					new ClassRemapper(writer, new SimpleRemapper(
+							reader.getClassName(), reader.getClassName() + i)),
+					0);
+			classes[i] = writer.toByteArray();
+		}
+		return classes;
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				child.delete();
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.test.TargetLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Loads and initializes the given number of distinct instrumented Java 7
+ * classes, as happens during application startup. The probe arrays are obtained
+ * with <code>invokedynamic</code>, the reference uses the <code>Object[]</code>
+ * based accessor of {@link ModifiedSystemClassRuntime}. Also reports the size
+ * of a single instrumented class.
+ */
+public class ClassInitializationScenario implements IPerfScenario {
+
+	private static final int RUNS = 5;
+
+	private static final String HOLDER = "org/jacoco/perf/Holder";
+
+	private final int count;
+
+	protected ClassInitializationScenario(final int count) {
+		this.count = count;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		long time = Long.MAX_VALUE;
+		long reftime = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			time = Math.min(time, initialize(true));
+			reftime = Math.min(reftime, initialize(false));
+		}
+		output.writeTimeResult(String.format("initializing %s classes",
+				Integer.valueOf(count)), time, reftime);
+
+		final byte[] target = createTarget(0);
+		final ModifiedSystemClassRuntime runtime = createRuntime(
+				new TargetLoader());
+		output.writeByteResult("instrumented class with invokedynamic",
+				new Instrumenter(runtime.createInvokeDynamicAccessorGenerator())
+						.instrument(target, "Target").length,
+				new Instrumenter(runtime).instrument(target, "Target").length);
+	}
+
+	private long initialize(final boolean indy) throws Exception {
+		final TargetLoader loader = new TargetLoader();
+		final ModifiedSystemClassRuntime runtime = createRuntime(loader);
+		runtime.startup(new RuntimeData());
+		final IExecutionDataAccessorGenerator generator = indy
+				? runtime.createInvokeDynamicAccessorGenerator()
+				: runtime;
+		final Instrumenter instrumenter = new Instrumenter(generator);
+		final byte[][] classes = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			classes[i] = instrumenter.instrument(createTarget(i), "Target");
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			final Class<?> c = loader.add(getName(i).replace('/', '.'),
+					classes[i]);
+			((Runnable) c.newInstance()).run();
+		}
+		final long time = System.nanoTime() - start;
+		runtime.shutdown();
+		return time;
+	}
+
+	private static ModifiedSystemClassRuntime createRuntime(
+			final TargetLoader loader) throws Exception {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, HOLDER, null,
+				"java/lang/Object", null);
+		writer.visitEnd();
+		final Class<?> holder = loader.add(HOLDER.replace('/', '.'),
+				ModifiedSystemClassRuntime.instrument(writer.toByteArray(),
+						"$jacocoAccess", true));
+		return new ModifiedSystemClassRuntime(holder, "$jacocoAccess");
+	}
+
+	private static String getName(final int i) {
+		return "org/jacoco/perf/Target" + i;
+	}
+
+	/**
+	 * Creates a minimal <code>Runnable</code> implementation with the given
+	 * index. Every method is linear, so no stackmap frames are required.
+	 */
+	private static byte[] createTarget(final int i) {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, getName(i), null,
+				"java/lang/Object", new String[] { "java/lang/Runnable" });
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+				"()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>",
+				"()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+		mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+}
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.jacoco.core.tools.ExecCollector;
+
+/**
+ * Load generator for {@link ExecCollector}: A given number of simulated agents
+ * in <code>tcpclient</code> mode connect to the collector and answer every dump
+ * request with the execution data of a given number of classes. The scenario
+ * measures the time for repeated dump rounds requested from all agents. The
+ * reference serves every connection with unbuffered streams and merges under a
+ * single global lock like the <code>ExecutionDataServer</code> example.
+ */
+public class ExecCollectorScenario implements IPerfScenario {
+
+	private static final int RUNS = 3;
+
+	private static final int ROUNDS = 20;
+
+	private static final int PROBES = 20;
+
+	private final int agents;
+
+	private final ExecutionData[] classes;
+
+	protected ExecCollectorScenario(final int agents, final int classes) {
+		this.agents = agents;
+		this.classes = new ExecutionData[classes];
+		for (int i = 0; i < classes; i++) {
+			final boolean[] probes = new boolean[PROBES];
+			probes[i % PROBES] = true;
+			this.classes[i] = new ExecutionData(i * 0x9E3779B97F4A7C15L,
+					"org/example/Class" + i, probes);
+		}
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		long time = Long.MAX_VALUE;
+		long reftime = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			time = Math.min(time, measure(new StripedCollector()));
+			reftime = Math.min(reftime, measure(new ReferenceCollector()));
+		}
+		output.writeTimeResult(
+				String.format("%s dumps of %s classes from %s agents",
+						Integer.valueOf(ROUNDS * agents),
+						Integer.valueOf(classes.length),
+						Integer.valueOf(agents)),
+				time, reftime);
+	}
+
+	private long measure(final ICollector collector) throws Exception {
+		final ServerSocket server = new ServerSocket(0, agents,
+				InetAddress.getByName(null));
+		collector.start(server);
+		final List<SimulatedAgent> simulated = new ArrayList<SimulatedAgent>();
+		for (int i = 0; i < agents; i++) {
+			simulated.add(new SimulatedAgent(server.getLocalPort(), i));
+		}
+		while (collector.getConnectionCount() < agents) {
+			Thread.yield();
+		}
+		final long start = System.nanoTime();
+		for (int round = 1; round <= ROUNDS; round++) {
+			collector.requestDump();
+			while (collector.getDumpCount() < (long) round * agents) {
+				Thread.yield();
+			}
+		}
+		final long time = System.nanoTime() - start;
+		collector.shutdown();
+		for (final SimulatedAgent agent : simulated) {
+			agent.close();
+		}
+		return time;
+	}
+
+	private interface ICollector {
+
+		void start(ServerSocket server) throws IOException;
+
+		void requestDump() throws IOException;
+
+		int getConnectionCount();
+
+		long getDumpCount();
+
+		void shutdown() throws IOException;
+
+	}
+
+	private static class StripedCollector implements ICollector {
+
+		private final ExecCollector collector = new ExecCollector();
+
+		public void start(final ServerSocket server) {
+			collector.start(server);
+		}
+
+		public void requestDump() {
+			collector.requestDump(false, false);
+		}
+
+		public int getConnectionCount() {
+			return collector.getConnectionCount();
+		}
+
+		public long getDumpCount() {
+			return collector.getDumpCount();
+		}
+
+		public void shutdown() {
+			collector.shutdown();
+		}
+
+	}
+
+	private static class ReferenceCollector
+			implements ICollector, ISessionInfoVisitor, IExecutionDataVisitor {
+
+		private final SessionInfoStore sessionInfos = new SessionInfoStore();
+
+		private final ExecutionDataStore executionData = new ExecutionDataStore();
+
+		private final List<Socket> sockets = new ArrayList<Socket>();
+
+		private final List<RemoteControlWriter> writers = new ArrayList<RemoteControlWriter>();
+
+		private final AtomicLong dumps = new AtomicLong();
+
+		private ServerSocket server;
+
+		public void start(final ServerSocket server) {
+			this.server = server;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							handle(server.accept());
+						}
+					} catch (final IOException e) {
+						// server closed
+					}
+				}
+			}.start();
+		}
+
+		private void handle(final Socket socket) throws IOException {
+			final RemoteControlWriter writer = new RemoteControlWriter(
+					socket.getOutputStream());
+			final RemoteControlReader reader = new RemoteControlReader(
+					socket.getInputStream());
+			reader.setSessionInfoVisitor(this);
+			reader.setExecutionDataVisitor(this);
+			synchronized (writers) {
+				sockets.add(socket);
+				writers.add(writer);
+			}
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (reader.read()) {
+							dumps.incrementAndGet();
+						}
+					} catch (final IOException e) {
+						// socket closed
+					}
+				}
+			}.start();
+		}
+
+		public void requestDump() throws IOException {
+			synchronized (writers) {
+				for (final RemoteControlWriter writer : writers) {
+					writer.visitDumpCommand(true, false);
+				}
+			}
+		}
+
+		public int getConnectionCount() {
+			synchronized (writers) {
+				return writers.size();
+			}
+		}
+
+		public long getDumpCount() {
+			return dumps.get();
+		}
+
+		public void shutdown() throws IOException {
+			server.close();
+			synchronized (writers) {
+				for (final Socket socket : sockets) {
+					socket.close();
+				}
+			}
+		}
+
+		public synchronized void visitSessionInfo(final SessionInfo info) {
+			sessionInfos.visitSessionInfo(info);
+		}
+
+		public synchronized void visitClassExecution(final ExecutionData data) {
+			executionData.visitClassExecution(data);
+		}
+
+	}
+
+	/**
+	 * Agent which answers every dump command with the same set of classes.
+	 */
+	private class SimulatedAgent implements IRemoteCommandVisitor {
+
+		private final Socket socket;
+
+		private final RemoteControlWriter writer;
+
+		private final SessionInfo info;
+
+		SimulatedAgent(final int port, final int index) throws IOException {
+			socket = new Socket(InetAddress.getByName(null), port);
+			writer = new RemoteControlWriter(
+					new BufferedOutputStream(socket.getOutputStream()));
+			writer.flush();
+			info = new SessionInfo("agent" + index, 0, 0);
+			final RemoteControlReader reader = new RemoteControlReader(
+					new BufferedInputStream(socket.getInputStream()));
+			reader.setRemoteCommandVisitor(this);
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (reader.read()) {
+						}
+					} catch (final IOException e) {
+						// socket closed
+					}
+				}
+			}.start();
+		}
+
+		public void visitDumpCommand(final boolean dump, final boolean reset)
+				throws IOException {
+			writer.visitSessionInfo(info);
+			for (final ExecutionData data : classes) {
+				writer.visitClassExecution(data);
+			}
+			writer.sendCmdOk();
+			writer.flush();
+		}
+
+		public void visitDeltaDumpCommand(final String clientId,
+				final boolean reset) throws IOException {
+			visitDumpCommand(true, reset);
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+
+	}
+
+}
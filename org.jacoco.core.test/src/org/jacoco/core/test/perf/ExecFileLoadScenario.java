@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.tools.ExecFileLoader;
+
+/**
+ * Loads a synthetic exec file with the given number of classes and reports load
+ * time and retained heap of the loaded {@link ExecutionDataStore}. The
+ * reference is a store based on <code>HashMap&lt;Long, ExecutionData&gt;</code>
+ * plus a separate <code>HashSet&lt;String&gt;</code> name index.
+ */
+public class ExecFileLoadScenario implements IPerfScenario {
+
+	private static final int RUNS = 5;
+
+	private static final int PROBES = 20;
+
+	private final int count;
+
+	protected ExecFileLoadScenario(final int count) {
+		this.count = count;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		final byte[] exec = createExecFile();
+		long time = Long.MAX_VALUE;
+		long reftime = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			new ExecFileLoader().load(new ByteArrayInputStream(exec));
+			time = Math.min(time, System.nanoTime() - start);
+			start = System.nanoTime();
+			loadReference(exec);
+			reftime = Math.min(reftime, System.nanoTime() - start);
+		}
+		output.writeTimeResult(
+				String.format("loading %s classes", Integer.valueOf(count)),
+				time, reftime);
+
+		final long base = usedHeap();
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(new ByteArrayInputStream(exec));
+		final long size = usedHeap() - base;
+		final Object reference = loadReference(exec);
+		final long refsize = usedHeap() - base - size;
+		output.writeByteResult(
+				String.format("heap for %s classes", Integer.valueOf(count)),
+				size, refsize);
+		// keep both stores reachable until measured:
+		loader.getExecutionDataStore().contains("");
+		reference.hashCode();
+	}
+
+	private byte[] createExecFile() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+		for (int i = 0; i < count; i++) {
+			final boolean[] probes = new boolean[PROBES];
+			probes[i % PROBES] = true;
+			writer.visitClassExecution(new ExecutionData(
+					i * 0x9E3779B97F4A7C15L,
+					"org/example/pkg" + (i % 1000) + "/Class" + i, probes));
+		}
+		return buffer.toByteArray();
+	}
+
+	private Object loadReference(final byte[] exec) throws IOException {
+		final ReferenceStore store = new ReferenceStore();
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(exec));
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+		return store;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static class ReferenceStore implements IExecutionDataVisitor {
+
+		private final Map<Long, ExecutionData> entries = new HashMap<Long, ExecutionData>();
+
+		private final Set<String> names = new HashSet<String>();
+
+		public void visitClassExecution(final ExecutionData data) {
+			final Long id = Long.valueOf(data.getId());
+			final ExecutionData entry = entries.get(id);
+			if (entry == null) {
+				entries.put(id, data);
+				names.add(data.getName());
+			} else {
+				entry.merge(data);
+			}
+		}
+
+	}
+
+}
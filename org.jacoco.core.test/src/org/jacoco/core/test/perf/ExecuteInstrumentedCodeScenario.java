@@ -12,7 +12,13 @@
  *******************************************************************************/
 package org.jacoco.core.test.perf;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.jacoco.core.instr.Instrumenter;
 import org.jacoco.core.runtime.IRuntime;
@@ -22,16 +28,30 @@ import org.jacoco.core.test.TargetLoader;
 
 /**
  * This scenario runs a given scenario twice and reports the execution time:
- * Once on its original version, once in a instrumented version.
+ * Once on its original version, once in a instrumented version. Optionally the
+ * same target instance is executed concurrently on multiple threads, where all
+ * threads update the same probe array.
  */
 public class ExecuteInstrumentedCodeScenario extends TimedScenario {
 
 	private final Class<? extends Callable<Void>> target;
 
+	private final int threads;
+
+	private final boolean conditionalProbes;
+
 	protected ExecuteInstrumentedCodeScenario(String description,
 			Class<? extends Callable<Void>> target) {
+		this(description, target, 1, false);
+	}
+
+	protected ExecuteInstrumentedCodeScenario(String description,
+			Class<? extends Callable<Void>> target, int threads,
+			boolean conditionalProbes) {
 		super(description);
 		this.target = target;
+		this.threads = threads;
+		this.conditionalProbes = conditionalProbes;
 	}
 
 	@Override
@@ -40,17 +60,57 @@ public class ExecuteInstrumentedCodeScenario extends TimedScenario {
 		IRuntime runtime = new LoggerRuntime();
 		runtime.startup(new RuntimeData());
 		final Instrumenter instr = new Instrumenter(runtime);
+		instr.setConditionalProbes(conditionalProbes);
 		final byte[] original = TargetLoader.getClassDataAsBytes(target);
-		final byte[] instrumentedBuffer = instr.instrument(original, "");
+		final byte[] instrumentedBuffer = instrument(instr, original);
 		final TargetLoader loader = new TargetLoader();
 
-		return (Callable<Void>) loader.add(target, instrumentedBuffer)
-				.newInstance();
+		return concurrent((Callable<Void>) loader
+				.add(target, instrumentedBuffer).newInstance());
+	}
+
+	/**
+	 * Creates the version of the target which is compared to the original.
+	 *
+	 * @param instr
+	 *            configured instrumenter
+	 * @param original
+	 *            original class definition
+	 * @return class definition to execute
+	 * @throws IOException
+	 *             if the class can't be instrumented
+	 */
+	protected byte[] instrument(final Instrumenter instr, final byte[] original)
+			throws IOException {
+		return instr.instrument(original, "");
 	}
 
 	@Override
 	protected Callable<Void> getReferenceCallable() throws Exception {
-		return target.newInstance();
+		return concurrent(target.newInstance());
+	}
+
+	private Callable<Void> concurrent(final Callable<Void> callable) {
+		if (threads == 1) {
+			return callable;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					public Thread newThread(final Runnable r) {
+						final Thread thread = new Thread(r);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (final Future<Void> f : executor
+						.invokeAll(Collections.nCopies(threads, callable))) {
+					f.get();
+				}
+				return null;
+			}
+		};
 	}
 
 }
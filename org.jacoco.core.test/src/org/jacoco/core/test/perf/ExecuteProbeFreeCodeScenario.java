@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.instr.Instrumenter;
+
+/**
+ * Runs a given scenario on its original version and on the version without
+ * probes which replaces covered classes when the agent removes probes. This
+ * shows the throughput recovered by the removal.
+ */
+public class ExecuteProbeFreeCodeScenario
+		extends ExecuteInstrumentedCodeScenario {
+
+	protected ExecuteProbeFreeCodeScenario(String description,
+			Class<? extends Callable<Void>> target) {
+		super(description, target);
+	}
+
+	@Override
+	protected byte[] instrument(final Instrumenter instr, final byte[] original)
+			throws IOException {
+		return instr.instrumentWithoutProbes(original, "");
+	}
+
+}
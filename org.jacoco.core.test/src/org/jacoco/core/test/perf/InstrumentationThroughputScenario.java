@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.test.TargetLoader;
+
+/**
+ * Scenario to measure the throughput of instrumenting a JAR file with the given
+ * number of threads. The reference is sequential instrumentation in the calling
+ * thread.
+ */
+public class InstrumentationThroughputScenario extends TimedScenario {
+
+	private final Class<?> target;
+
+	private final int count;
+
+	private final int threads;
+
+	protected InstrumentationThroughputScenario(final Class<?> target,
+			final int count, final int threads) {
+		super(String.format("instrumenting JAR with %s classes on %s threads",
+				Integer.valueOf(count), Integer.valueOf(threads)));
+		this.target = target;
+		this.count = count;
+		this.threads = threads;
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final Instrumenter instrumenter = new Instrumenter(
+				new OfflineInstrumentationAccessGenerator());
+		instrumenter.setExecutor(createExecutor());
+		return createCallable(instrumenter, createJar());
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final Instrumenter instrumenter = new Instrumenter(
+				new OfflineInstrumentationAccessGenerator());
+		return createCallable(instrumenter, createJar());
+	}
+
+	private Callable<Void> createCallable(final Instrumenter instrumenter,
+			final byte[] jar) {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				instrumenter.instrumentAll(new ByteArrayInputStream(jar),
+						new ByteArrayOutputStream(), "test.jar");
+				return null;
+			}
+		};
+	}
+
+	private Executor createExecutor() {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private byte[] createJar() throws IOException {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(target);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (int i = 0; i < count; i++) {
+			zip.putNextEntry(new ZipEntry("Target" + i + ".class"));
+			zip.write(bytes);
+		}
+		zip.finish();
+		return buffer.toByteArray();
+	}
+
+}
@@ -30,9 +30,27 @@ public class PerformanceSuite implements IPerfScenario {
 				.run(output);
 		new ExecuteInstrumentedCodeScenario("game of life", Target03.class)
 				.run(output);
+		new ExecuteInstrumentedCodeScenario("loop only on 4 threads",
+				Target02.class, 4, false).run(output);
+		new ExecuteInstrumentedCodeScenario(
+				"loop only on 4 threads, conditional probes", Target02.class, 4,
+				true).run(output);
+		new ExecuteProbeFreeCodeScenario("loop only, probes removed",
+				Target02.class).run(output);
+		new ExecuteProbeFreeCodeScenario("game of life, probes removed",
+				Target03.class).run(output);
 		new InstrumentationSizeSzenario(Target03.class).run(output);
 		new InstrumentationTimeScenario(Target03.class, 1000).run(output);
+		new InstrumentationThroughputScenario(Target03.class, 1000, 4)
+				.run(output);
+		new ClassFileCacheScenario(Target03.class, 1000).run(output);
 		new AnalysisTimeScenario(Target03.class, 1000).run(output);
+		new RuntimeDataRegistrationScenario(8, 40000).run(output);
+		new RuntimeDataDumpScenario(40000).run(output);
+		new WildcardMatcherScenario(100000).run(output);
+		new ExecFileLoadScenario(500000).run(output);
+		new ExecCollectorScenario(20, 1000).run(output);
+		new ClassInitializationScenario(5000).run(output);
 	}
 
 	public static void main(String[] args) throws Exception {
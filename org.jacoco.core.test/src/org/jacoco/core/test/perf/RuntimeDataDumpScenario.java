@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * This scenario continuously dumps the execution data of a given number of
+ * classes to a slow output while another thread resets the runtime data. It
+ * reports the longest time a single reset had to wait. The reference holds the
+ * lock of the runtime data while the slow output is written, as
+ * {@link RuntimeData} did before dumps were based on snapshots.
+ */
+public class RuntimeDataDumpScenario implements IPerfScenario {
+
+	private static final int RUNS = 10;
+
+	private static final int RESETS = 200;
+
+	private static final int PROBES = 20;
+
+	private final int count;
+
+	protected RuntimeDataDumpScenario(final int count) {
+		this.count = count;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		long time = Long.MAX_VALUE;
+		long reftime = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			time = Math.min(time, getMaxLatency(new SnapshotDump()));
+			reftime = Math.min(reftime, getMaxLatency(new LockedDump()));
+		}
+		output.writeTimeResult(
+				String.format("max reset latency, %s classes during slow dumps",
+						Integer.valueOf(count)),
+				time, reftime);
+	}
+
+	private long getMaxLatency(final IDump dump) throws InterruptedException {
+		final RuntimeData data = new RuntimeData();
+		for (int i = 0; i < count; i++) {
+			final boolean[] probes = data
+					.getExecutionData(Long.valueOf(i), "Foo", PROBES)
+					.getProbes();
+			probes[i % PROBES] = true;
+		}
+		final SlowVisitor visitor = new SlowVisitor();
+		final Thread dumper = new Thread() {
+			@Override
+			public void run() {
+				while (!visitor.stopped) {
+					dump.dump(data, visitor);
+				}
+			}
+		};
+		dumper.start();
+		long max = 0;
+		for (int i = 0; i < RESETS; i++) {
+			final long start = System.nanoTime();
+			dump.reset(data);
+			max = Math.max(max, System.nanoTime() - start);
+			Thread.sleep(0, 100000);
+		}
+		visitor.stopped = true;
+		dumper.join();
+		return max;
+	}
+
+	private interface IDump {
+
+		void dump(RuntimeData data, IExecutionDataVisitor visitor);
+
+		void reset(RuntimeData data);
+
+	}
+
+	private static final ISessionInfoVisitor NOP = new ISessionInfoVisitor() {
+		public void visitSessionInfo(final SessionInfo info) {
+		}
+	};
+
+	private static class SnapshotDump implements IDump {
+
+		public void dump(final RuntimeData data,
+				final IExecutionDataVisitor visitor) {
+			data.collect(visitor, NOP, false);
+		}
+
+		public void reset(final RuntimeData data) {
+			data.reset();
+		}
+
+	}
+
+	private static class LockedDump implements IDump {
+
+		public void dump(final RuntimeData data,
+				final IExecutionDataVisitor visitor) {
+			synchronized (this) {
+				data.collect(visitor, NOP, false);
+			}
+		}
+
+		public void reset(final RuntimeData data) {
+			synchronized (this) {
+				data.reset();
+			}
+		}
+
+	}
+
+	/**
+	 * Simulates a slow output stream which blocks for a millisecond every
+	 * thousand entries until the scenario is stopped.
+	 */
+	private static class SlowVisitor implements IExecutionDataVisitor {
+
+		volatile boolean stopped;
+
+		private int entries;
+
+		public void visitClassExecution(final ExecutionData data) {
+			if (++entries % 1000 == 0 && !stopped) {
+				try {
+					Thread.sleep(1);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * This scenario registers probe arrays for a given number of classes from
+ * several threads while another thread continuously dumps the execution data to
+ * a slow output. It reports the longest time a single registration had to wait,
+ * i.e. the worst stall of a class initialization. The reference is a single
+ * {@link ExecutionDataStore} guarded by one monitor, as used by
+ * {@link RuntimeData} before registration became lock-free.
+ */
+public class RuntimeDataRegistrationScenario implements IPerfScenario {
+
+	private static final int RUNS = 10;
+
+	private static final int PROBES = 20;
+
+	private final int threads;
+
+	private final int count;
+
+	protected RuntimeDataRegistrationScenario(final int threads,
+			final int count) {
+		this.threads = threads;
+		this.count = count;
+	}
+
+	public void run(final IPerfOutput output) throws Exception {
+		long time = Long.MAX_VALUE;
+		long reftime = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			time = Math.min(time, getMaxLatency(new RuntimeDataRegistry()));
+			reftime = Math.min(reftime,
+					getMaxLatency(new SynchronizedRegistry()));
+		}
+		output.writeTimeResult(String.format(
+				"max registration latency, %s classes from %s threads during dumps",
+				Integer.valueOf(count), Integer.valueOf(threads)), time,
+				reftime);
+	}
+
+	private long getMaxLatency(final IRegistry registry)
+			throws InterruptedException {
+		final SlowVisitor visitor = new SlowVisitor();
+		final Thread dumper = new Thread() {
+			@Override
+			public void run() {
+				while (!visitor.stopped) {
+					registry.dump(visitor);
+				}
+			}
+		};
+		final Worker[] workers = new Worker[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Worker(registry, (long) t * count,
+					count / threads);
+		}
+		dumper.start();
+		for (final Worker w : workers) {
+			w.start();
+		}
+		long max = 0;
+		for (final Worker w : workers) {
+			w.join();
+			max = Math.max(max, w.maxLatency);
+		}
+		visitor.stopped = true;
+		dumper.join();
+		return max;
+	}
+
+	private static class Worker extends Thread {
+
+		private final IRegistry registry;
+
+		private final long offset;
+
+		private final int count;
+
+		long maxLatency;
+
+		Worker(final IRegistry registry, final long offset, final int count) {
+			this.registry = registry;
+			this.offset = offset;
+			this.count = count;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < count; i++) {
+				final long start = System.nanoTime();
+				registry.get(offset + i).getProbes()[i % PROBES] = true;
+				maxLatency = Math.max(maxLatency, System.nanoTime() - start);
+			}
+		}
+
+	}
+
+	private interface IRegistry {
+
+		ExecutionData get(long id);
+
+		void dump(IExecutionDataVisitor visitor);
+
+	}
+
+	private static class RuntimeDataRegistry implements IRegistry {
+
+		private final RuntimeData data = new RuntimeData();
+
+		public ExecutionData get(final long id) {
+			return data.getExecutionData(Long.valueOf(id), "Foo", PROBES);
+		}
+
+		public void dump(final IExecutionDataVisitor visitor) {
+			data.collect(visitor, new ISessionInfoVisitor() {
+				public void visitSessionInfo(final SessionInfo info) {
+				}
+			}, false);
+		}
+
+	}
+
+	private static class SynchronizedRegistry implements IRegistry {
+
+		private final ExecutionDataStore store = new ExecutionDataStore();
+
+		public ExecutionData get(final long id) {
+			synchronized (store) {
+				return store.get(Long.valueOf(id), "Foo", PROBES);
+			}
+		}
+
+		public void dump(final IExecutionDataVisitor visitor) {
+			synchronized (store) {
+				store.accept(visitor);
+			}
+		}
+
+	}
+
+	/**
+	 * Simulates a slow output stream which blocks for a millisecond every
+	 * thousand entries until the scenario is stopped.
+	 */
+	private static class SlowVisitor implements IExecutionDataVisitor {
+
+		volatile boolean stopped;
+
+		private int entries;
+
+		public void visitClassExecution(final ExecutionData data) {
+			if (++entries % 1000 == 0 && !stopped) {
+				try {
+					Thread.sleep(1);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+	}
+
+}
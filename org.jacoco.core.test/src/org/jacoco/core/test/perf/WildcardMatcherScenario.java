@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import org.jacoco.core.runtime.WildcardMatcher;
+
+/**
+ * Matches a given number of class names against an exclude list of 60
+ * expressions as typically configured for larger projects. The reference
+ * translates the expressions into a single regular expression.
+ */
+public class WildcardMatcherScenario extends TimedScenario {
+
+	private static final String[] PACKAGES = { "com/example/app/service",
+			"com/example/app/web", "com/example/app/generated/dto",
+			"org/springframework/beans", "org/hibernate/internal",
+			"com/fasterxml/jackson/databind", "org/example/legacy/util",
+			"net/example/proxy" };
+
+	private static final String[] CLASSES = { "OrderService", "OrderController",
+			"OrderDto", "OrderMapperImpl", "Order$Builder", "OrderTest",
+			"Order$$EnhancerBySpringCGLIB$$1a2b", "OrderRepository$Proxy",
+			"Configuration", "Application" };
+
+	private final String excludes;
+
+	private final String[] names;
+
+	protected WildcardMatcherScenario(final int count) {
+		super(String.format("matching %s class names", Integer.valueOf(count)));
+		excludes = createExcludes();
+		names = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = PACKAGES[i % PACKAGES.length] + "/sub" + (i % 97) + "/"
+					+ CLASSES[i % CLASSES.length] + i;
+		}
+	}
+
+	private static String createExcludes() {
+		final StringBuilder expr = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			expr.append("com/example/module").append(i).append("/generated/*:");
+		}
+		for (int i = 0; i < 15; i++) {
+			expr.append("org/thirdparty").append(i).append("/*:");
+		}
+		for (int i = 0; i < 10; i++) {
+			expr.append("*Generated").append(i).append(':');
+		}
+		for (int i = 0; i < 10; i++) {
+			expr.append("com/example/*/dto/Dto").append(i).append("*:");
+		}
+		expr.append("*$$EnhancerBy*:*$Proxy*:*Test:*IT:*MapperImpl");
+		return expr.toString();
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final WildcardMatcher matcher = new WildcardMatcher(excludes);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (final String name : names) {
+					matcher.matches(name);
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final Pattern pattern = toRegex(excludes);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (final String name : names) {
+					pattern.matcher(name).matches();
+				}
+				return null;
+			}
+		};
+	}
+
+	private static Pattern toRegex(final String expression) {
+		final StringBuilder regex = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			regex.append('(');
+			for (final char c : part.toCharArray()) {
+				switch (c) {
+				case '?':
+					regex.append(".");
+					break;
+				case '*':
+					regex.append(".*");
+					break;
+				default:
+					regex.append(Pattern.quote(String.valueOf(c)));
+					break;
+				}
+			}
+			regex.append(')');
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+}
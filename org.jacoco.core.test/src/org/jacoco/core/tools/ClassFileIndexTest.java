@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassFileIndex}.
+ */
+public class ClassFileIndexTest {
+
+	private ClassFileIndex index;
+
+	@Before
+	public void setup() {
+		index = new ClassFileIndex();
+	}
+
+	@Test
+	public void loadAll_should_collect_id_of_class_file() throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(ClassFileIndexTest.class);
+
+		final int count = index.loadAll(new ByteArrayInputStream(bytes),
+				"Test");
+
+		assertEquals(1, count);
+		assertEquals(Long.valueOf(CRC64.classId(bytes)), index.getClassIds()
+				.get("org/jacoco/core/tools/ClassFileIndexTest"));
+	}
+
+	@Test
+	public void loadAll_should_collect_ids_from_folder() throws IOException {
+		final File folder = new File(ClassFileIndexTest.class
+				.getProtectionDomain().getCodeSource().getLocation().getPath(),
+				"org/jacoco/core/tools");
+
+		index.loadAll(folder);
+
+		final Map<String, Long> ids = index.getClassIds();
+		assertTrue(ids.containsKey("org/jacoco/core/tools/ClassFileIndexTest"));
+		assertTrue(ids.containsKey("org/jacoco/core/tools/ExecFileLoaderTest"));
+	}
+
+	@Test
+	public void loadAll_should_throw_exception_for_broken_class()
+			throws IOException {
+		final byte[] bytes = TargetLoader
+				.getClassDataAsBytes(ClassFileIndexTest.class);
+		bytes[10] = 0x23;
+		try {
+			index.loadAll(new ByteArrayInputStream(bytes), "Broken");
+			fail("exception expected");
+		} catch (final IOException e) {
+			assertEquals("Error while analyzing Broken.", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ExecCollector}.
+ */
+public class ExecCollectorTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecCollector collector;
+
+	private List<String> callbacks;
+
+	private List<MockAgent> agents;
+
+	@Before
+	public void setup() {
+		callbacks = Collections.synchronizedList(new ArrayList<String>());
+		agents = new ArrayList<MockAgent>();
+		collector = new ExecCollector() {
+			@Override
+			protected void onConnected(InetAddress address) {
+				callbacks.add("onConnected");
+			}
+
+			@Override
+			protected void onDisconnected(InetAddress address) {
+				callbacks.add("onDisconnected");
+			}
+
+			@Override
+			protected void onConnectionFailure(IOException exception) {
+				callbacks.add("onConnectionFailure");
+			}
+		};
+	}
+
+	@After
+	public void teardown() throws IOException {
+		collector.shutdown();
+		for (MockAgent agent : agents) {
+			agent.socket.close();
+		}
+	}
+
+	@Test
+	public void testLoadMergesSessionsWithSameId() throws IOException {
+		collector.load(createExecFile(new SessionInfo("a", 10, 20),
+				new ExecutionData(1, "Foo", new boolean[] { true, false })));
+		collector.load(createExecFile(new SessionInfo("a", 5, 15),
+				new ExecutionData(1, "Foo", new boolean[] { false, true })));
+		collector.load(createExecFile(new SessionInfo("b", 30, 40)));
+
+		final ExecFileLoader actual = accept();
+
+		final List<SessionInfo> infos = actual.getSessionInfoStore().getInfos();
+		assertEquals(2, infos.size());
+		assertSessionInfo("a", 5, 20, infos.get(0));
+		assertSessionInfo("b", 30, 40, infos.get(1));
+		assertArrayEquals(new boolean[] { true, true },
+				actual.getExecutionDataStore().get(1).getProbes());
+	}
+
+	@Test
+	public void testSaveReplacesExistingFile() throws IOException {
+		final File file = new File(folder.getRoot(), "jacoco.exec");
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write("garbage".getBytes());
+		out.close();
+		collector.load(createExecFile(new SessionInfo("a", 1, 2),
+				new ExecutionData(1, "Foo", new boolean[] { true })));
+
+		collector.save(file);
+
+		final ExecFileLoader actual = new ExecFileLoader();
+		actual.load(file);
+		assertEquals("a",
+				actual.getSessionInfoStore().getInfos().get(0).getId());
+		assertTrue(actual.getExecutionDataStore().contains("Foo"));
+		assertEquals(Arrays.asList("jacoco.exec"),
+				Arrays.asList(folder.getRoot().list()));
+	}
+
+	@Test
+	public void testSaveCreatesParentDirectories() throws IOException {
+		final File file = new File(folder.getRoot(), "a/b/jacoco.exec");
+
+		collector.save(file);
+
+		assertTrue(file.isFile());
+	}
+
+	@Test
+	public void testRequestDump() throws Exception {
+		start(3);
+
+		assertEquals(3, collector.requestDump(false, true));
+		waitForDumps(3);
+
+		for (MockAgent agent : agents) {
+			assertEquals(Arrays.asList("dump reset=true"), agent.commands);
+		}
+		final ExecFileLoader actual = accept();
+		assertEquals(1, actual.getSessionInfoStore().getInfos().size());
+		assertArrayEquals(new boolean[] { true, true, true },
+				actual.getExecutionDataStore().get(1).getProbes());
+	}
+
+	@Test
+	public void testRequestDeltaDump() throws Exception {
+		start(1);
+
+		collector.requestDump(true, false);
+		collector.requestDump(true, false);
+		waitForDumps(2);
+
+		assertEquals(Arrays.asList("delta reset=false", "delta reset=false"),
+				agents.get(0).commands);
+	}
+
+	@Test
+	public void testRepeatedFullDumpsDoNotAddHitCountsTwice() throws Exception {
+		start(1);
+
+		collector.requestDump(false, false);
+		collector.requestDump(false, false);
+		collector.requestDump(false, false);
+		waitForDumps(3);
+
+		assertArrayEquals(new int[] { 3, 0, 0 },
+				accept().getExecutionDataStore().get(1).getCounts());
+	}
+
+	@Test
+	public void testFullDumpAfterDeltaDumpsDoesNotAddHitCountsTwice()
+			throws Exception {
+		start(1);
+
+		collector.requestDump(true, false);
+		collector.requestDump(true, false);
+		collector.requestDump(false, false);
+		waitForDumps(3);
+
+		assertArrayEquals(new int[] { 3, 0, 0 },
+				accept().getExecutionDataStore().get(1).getCounts());
+	}
+
+	@Test
+	public void testFullDumpsWithResetAddHitCounts() throws Exception {
+		start(1);
+
+		collector.requestDump(false, true);
+		collector.requestDump(false, false);
+		collector.requestDump(false, true);
+		collector.requestDump(false, false);
+		waitForDumps(4);
+
+		assertArrayEquals(new int[] { 4, 0, 0 },
+				accept().getExecutionDataStore().get(1).getCounts());
+	}
+
+	@Test
+	public void testUnrequestedFullDumpAfterDeltaDumps() throws Exception {
+		start(1);
+
+		collector.requestDump(true, false);
+		collector.requestDump(true, false);
+		waitForDumps(2);
+		agents.get(0).dump(false);
+		waitForDumps(3);
+
+		assertArrayEquals(new int[] { 3, 0, 0 },
+				accept().getExecutionDataStore().get(1).getCounts());
+	}
+
+	@Test
+	public void testFullDumpsAfterResetByOtherClient() throws Exception {
+		start(1);
+
+		collector.requestDump(false, false);
+		waitForDumps(1);
+		agents.get(0).reset(true);
+		collector.requestDump(false, false);
+		collector.requestDump(false, false);
+		waitForDumps(3);
+
+		assertArrayEquals(new int[] { 3, 0, 0 },
+				accept().getExecutionDataStore().get(1).getCounts());
+	}
+
+	@Test
+	public void testDisconnect() throws Exception {
+		start(2);
+
+		agents.get(0).socket.close();
+		waitForCallbacks(3);
+
+		assertEquals(1, collector.getConnectionCount());
+		assertEquals(1, collector.requestDump(false, false));
+		assertEquals(
+				Arrays.asList("onConnected", "onConnected", "onDisconnected"),
+				callbacks);
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		start(1);
+
+		collector.shutdown();
+		waitForCallbacks(2);
+
+		assertEquals(0, collector.getConnectionCount());
+		assertEquals(-1, agents.get(0).socket.getInputStream().read());
+		assertEquals(Arrays.asList("onConnected", "onDisconnected"), callbacks);
+	}
+
+	private void start(final int count) throws Exception {
+		final ServerSocket server = new ServerSocket(0, 0,
+				InetAddress.getByName(null));
+		collector.start(server);
+		for (int i = 0; i < count; i++) {
+			agents.add(new MockAgent(server.getLocalPort(), i));
+		}
+		waitForCallbacks(count);
+	}
+
+	private void waitForCallbacks(final int count) throws Exception {
+		for (int i = 0; callbacks.size() != count; i++) {
+			if (i == 500) {
+				fail("Timeout waiting for callbacks");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private void waitForDumps(final long count) throws Exception {
+		for (int i = 0; collector.getDumpCount() != count; i++) {
+			if (i == 500) {
+				fail("Timeout waiting for dumps");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private ExecFileLoader accept() {
+		final ExecFileLoader loader = new ExecFileLoader();
+		collector.accept(loader.getSessionInfoStore(),
+				loader.getExecutionDataStore());
+		return loader;
+	}
+
+	private InputStream createExecFile(final SessionInfo info,
+			final ExecutionData... data) throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		final SessionInfoStore infos = new SessionInfoStore();
+		infos.visitSessionInfo(info);
+		for (final ExecutionData d : data) {
+			store.put(d);
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+		infos.accept(writer);
+		store.accept(writer);
+		return new ByteArrayInputStream(buffer.toByteArray());
+	}
+
+	private static void assertSessionInfo(final String id, final long start,
+			final long dump, final SessionInfo info) {
+		assertEquals(id, info.getId());
+		assertEquals(start, info.getStartTimeStamp());
+		assertEquals(dump, info.getDumpTimeStamp());
+	}
+
+	/**
+	 * Agent in <code>tcpclient</code> mode which reports a single class where
+	 * only the probe with the index of the agent is executed. The probe is hit
+	 * once before every dump. Every reset starts a new session.
+	 */
+	private static class MockAgent implements IRemoteCommandVisitor {
+
+		final Socket socket;
+
+		final List<String> commands;
+
+		private final RemoteControlWriter writer;
+
+		private final int index;
+
+		private long start;
+
+		private int hits;
+
+		private int dumpedHits;
+
+		MockAgent(final int port, final int index) throws IOException {
+			this.socket = new Socket(InetAddress.getByName(null), port);
+			this.commands = Collections
+					.synchronizedList(new ArrayList<String>());
+			this.writer = new RemoteControlWriter(socket.getOutputStream());
+			this.index = index;
+			final RemoteControlReader reader = new RemoteControlReader(
+					socket.getInputStream());
+			reader.setRemoteCommandVisitor(this);
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (reader.read()) {
+						}
+					} catch (IOException e) {
+						// socket closed
+					}
+				}
+			}.start();
+		}
+
+		public synchronized void visitDumpCommand(final boolean dump,
+				final boolean reset) throws IOException {
+			commands.add("dump reset=" + reset);
+			dump(reset);
+		}
+
+		public synchronized void visitDeltaDumpCommand(final String clientId,
+				final boolean reset) throws IOException {
+			commands.add("delta reset=" + reset);
+			hits++;
+			final boolean[] probes = new boolean[3];
+			final int[] counts = new int[3];
+			probes[index] = true;
+			counts[index] = hits - dumpedHits;
+			writer.visitSessionInfo(new SessionInfo("agent", start, index));
+			writer.visitClassExecutionDelta(
+					new ExecutionData(1, "Foo", probes, counts));
+			writer.sendCmdOk();
+			dumpedHits = hits;
+			reset(reset);
+		}
+
+		/**
+		 * Sends a full dump which has not been requested, like the agent does
+		 * on shutdown.
+		 */
+		synchronized void dump(final boolean reset) throws IOException {
+			hits++;
+			final boolean[] probes = new boolean[3];
+			final int[] counts = new int[3];
+			probes[index] = true;
+			counts[index] = hits;
+			writer.visitSessionInfo(new SessionInfo("agent", start, index));
+			writer.visitClassExecution(
+					new ExecutionData(1, "Foo", probes, counts));
+			writer.sendCmdOk();
+			reset(reset);
+		}
+
+		/**
+		 * Resets the agent like a request of another client does.
+		 */
+		synchronized void reset(final boolean reset) {
+			if (reset) {
+				start++;
+				hits = 0;
+				dumpedHits = 0;
+			}
+		}
+
+	}
+
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.runtime.IRemoteCommandVisitor;
 import org.jacoco.core.runtime.RemoteControlReader;
@@ -45,6 +46,9 @@ public class ExecDumpClientTest {
 
 	private boolean dumpRequested;
 	private boolean resetRequested;
+	private boolean deltaRequested;
+
+	private String clientId;
 
 	private ServerSocket server;
 
@@ -128,6 +132,41 @@ public class ExecDumpClientTest {
 		assertTrue(resetRequested);
 	}
 
+	@Test
+	public void testDelta() throws IOException {
+		int port = createExecServer();
+		client.setDelta(true);
+		client.setReset(true);
+		ExecFileLoader loader = client.dump((String) null, port);
+		assertTrue(deltaRequested);
+		assertFalse(dumpRequested);
+		assertTrue(resetRequested);
+		assertEquals("dump", clientId);
+		assertTrue(loader.getExecutionDataStore().contains("Foo"));
+	}
+
+	@Test
+	public void testDeltaWithClientId() throws IOException {
+		int port = createExecServer();
+		client.setDelta(true);
+		client.setClientId("other");
+		client.dump((String) null, port);
+		assertTrue(deltaRequested);
+		assertEquals("other", clientId);
+	}
+
+	@Test
+	public void testDeltaWithoutDump() throws IOException {
+		int port = createExecServer();
+		client.setDelta(true);
+		client.setDump(false);
+		client.setReset(true);
+		client.dump((String) null, port);
+		assertFalse(deltaRequested);
+		assertFalse(dumpRequested);
+		assertTrue(resetRequested);
+	}
+
 	@Test
 	public void should_throw_IOException_when_server_closes_connection_without_response()
 			throws IOException {
@@ -178,6 +217,17 @@ public class ExecDumpClientTest {
 				}
 				writer.sendCmdOk();
 			}
+
+			public void visitDeltaDumpCommand(String id, boolean reset)
+					throws IOException {
+				deltaRequested = true;
+				clientId = id;
+				resetRequested = reset;
+				writer.visitSessionInfo(new SessionInfo("TestId", 100, 200));
+				writer.visitClassExecutionDelta(
+						new ExecutionData(1, "Foo", new boolean[] { true }));
+				writer.sendCmdOk();
+			}
 		});
 		reader.read();
 	}
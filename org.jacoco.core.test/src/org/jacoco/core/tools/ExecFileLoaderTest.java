@@ -13,6 +13,10 @@
 package org.jacoco.core.tools;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -21,12 +25,15 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataSource;
+import org.jacoco.core.data.IndexedExecutionDataFile;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.data.SessionInfoStore;
 import org.junit.Before;
@@ -104,6 +111,121 @@ public class ExecFileLoaderTest {
 		assertFileContents(file, "a", "bb");
 	}
 
+	@Test
+	public void testSaveIndexedFile() throws IOException {
+		loader.load(createFile("a"));
+		loader.load(createFile("bb"));
+
+		final File file = new File(sourceFolder.getRoot(), "target.exec");
+		loader.saveIndexed(file);
+
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				file);
+		assertEquals(2, indexed.getCount());
+		assertEquals("bb", indexed.get(2).getName());
+		assertEquals(2, indexed.getSessionInfos().size());
+		indexed.close();
+	}
+
+	@Test
+	public void testLoadIndexedFile() throws IOException {
+		loader.load(createFile("a"));
+		final File file = new File(sourceFolder.getRoot(), "indexed.exec");
+		loader.saveIndexed(file);
+
+		loader = new ExecFileLoader();
+		loader.load(file);
+		loader.load(createFile("bb"));
+
+		assertLoaderContents("a", "bb");
+	}
+
+	@Test
+	public void testLoadIndexedInputStream() throws IOException {
+		loader.load(createFile("a"));
+		final File file = new File(sourceFolder.getRoot(), "indexed.exec");
+		loader.saveIndexed(file);
+
+		loader = new ExecFileLoader();
+		final InputStream in = new FileInputStream(file);
+		loader.load(in);
+		in.close();
+		loader.load(createFile("bb"));
+
+		assertLoaderContents("a", "bb");
+	}
+
+	@Test
+	public void testOpenIndexedFileDoesNotLoadExecutionData()
+			throws IOException {
+		loader.load(createFile("a"));
+		loader.load(createFile("bb"));
+		final File file = new File(sourceFolder.getRoot(), "indexed.exec");
+		loader.saveIndexed(file);
+
+		loader = new ExecFileLoader();
+		loader.open(file);
+
+		assertTrue(loader.getExecutionDataStore().getContents().isEmpty());
+		assertEquals(2, loader.getSessionInfoStore().getInfos().size());
+		final IExecutionDataSource source = loader.getExecutionDataSource();
+		assertEquals("bb", source.get(2).getName());
+		assertTrue(source.contains("a"));
+		assertFalse(source.contains("c"));
+		assertNull(source.get(3));
+		loader.close();
+	}
+
+	@Test
+	public void testOpenMergesIndexedAndSequentialFiles() throws IOException {
+		final File file = new File(sourceFolder.getRoot(), "indexed.exec");
+		loader.getExecutionDataStore()
+				.put(new ExecutionData(1, "a", new boolean[] { true, false }));
+		loader.saveIndexed(file);
+
+		final File sequential = new File(sourceFolder.getRoot(), "seq.exec");
+		loader = new ExecFileLoader();
+		loader.getExecutionDataStore()
+				.put(new ExecutionData(1, "a", new boolean[] { false, true }));
+		loader.save(sequential, false);
+
+		loader = new ExecFileLoader();
+		loader.open(sequential);
+		loader.open(file);
+
+		final ExecutionData data = loader.getExecutionDataSource().get(1);
+		assertTrue(data.getProbes()[0]);
+		assertTrue(data.getProbes()[1]);
+		// the loaded entry is not modified:
+		assertFalse(loader.getExecutionDataStore().get(1).getProbes()[0]);
+		final Collection<ExecutionData> contents = loader
+				.getExecutionDataContents();
+		assertEquals(1, contents.size());
+		assertTrue(contents.iterator().next().getProbes()[0]);
+		loader.close();
+	}
+
+	@Test
+	public void testOpenSequentialFile() throws IOException {
+		loader.open(createFile("a"));
+
+		assertLoaderContents("a");
+		assertSame(loader.getExecutionDataStore(),
+				loader.getExecutionDataSource());
+		loader.close();
+	}
+
+	@Test
+	public void testSaveIndexedCreatesSubfolders() throws IOException {
+		loader.load(createFile("a"));
+
+		final File file = new File(sourceFolder.getRoot(),
+				"sub1/sub2/target.exec");
+		loader.saveIndexed(file);
+
+		assertTrue(IndexedExecutionDataFile.isIndexed(file));
+	}
+
 	@Test
 	public void testCreateSubfolders() throws IOException {
 		final File file = new File(sourceFolder.getRoot(), "a/b/c/target.exec");
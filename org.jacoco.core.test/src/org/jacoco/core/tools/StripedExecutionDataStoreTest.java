@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StripedExecutionDataStore}.
+ */
+public class StripedExecutionDataStoreTest {
+
+	private StripedExecutionDataStore store;
+
+	@Before
+	public void setup() {
+		store = new StripedExecutionDataStore(4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidStripeCount() {
+		new StripedExecutionDataStore(3);
+	}
+
+	@Test
+	public void testAccept() {
+		for (long id = 0; id < 100; id++) {
+			store.visitClassExecution(
+					new ExecutionData(id, "Foo" + id, new boolean[] { true }));
+		}
+
+		final ExecutionDataStore actual = accept();
+
+		assertEquals(100, actual.getContents().size());
+		for (long id = 0; id < 100; id++) {
+			assertEquals("Foo" + id, actual.get(id).getName());
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		store.visitClassExecution(new ExecutionData(42, "Foo",
+				new boolean[] { true, false }, new int[] { 2, 0 }));
+		store.visitClassExecution(new ExecutionData(42, "Foo",
+				new boolean[] { false, true }, new int[] { 3, 1 }));
+
+		final ExecutionData actual = accept().get(42);
+
+		assertArrayEquals(new boolean[] { true, true }, actual.getProbes());
+		assertArrayEquals(new int[] { 5, 1 }, actual.getCounts());
+	}
+
+	@Test
+	public void testIncompatibleClasses() {
+		store.visitClassExecution(new ExecutionData(42, "Foo", 2));
+		try {
+			store.visitClassExecution(new ExecutionData(42, "Bar", 2));
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAcceptEmitsCopies() {
+		store.visitClassExecution(
+				new ExecutionData(42, "Foo", new boolean[] { true, false }));
+
+		final ExecutionData copy = accept().get(42);
+		copy.getProbes()[1] = true;
+
+		final ExecutionData actual = accept().get(42);
+		assertTrue(actual.getProbes()[0]);
+		assertFalse(actual.getProbes()[1]);
+		assertNull(actual.getCounts());
+	}
+
+	@Test
+	public void testConcurrentMerge() throws Exception {
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int probe = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						final boolean[] probes = new boolean[4];
+						probes[probe] = true;
+						final int[] counts = new int[4];
+						counts[probe] = 1;
+						store.visitClassExecution(new ExecutionData(j % 50,
+								"Foo" + j % 50, probes, counts));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		final ExecutionDataStore actual = accept();
+
+		assertEquals(50, actual.getContents().size());
+		for (final ExecutionData data : actual.getContents()) {
+			assertArrayEquals(new int[] { 20, 20, 20, 20 }, data.getCounts());
+		}
+	}
+
+	private ExecutionDataStore accept() {
+		final ExecutionDataStore actual = new ExecutionDataStore();
+		store.accept(actual);
+		return actual;
+	}
+
+}
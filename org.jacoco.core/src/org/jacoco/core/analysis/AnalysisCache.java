@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.analysis.ClassAnalyzer;
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.analysis.Instruction;
+import org.jacoco.core.internal.analysis.MethodAnalyzer;
+import org.jacoco.core.internal.analysis.MethodStructure;
+import org.jacoco.core.internal.analysis.StringPool;
+import org.jacoco.core.internal.analysis.filter.Filters;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.LabelFlowAnalyzer;
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.jacoco.core.internal.flow.MethodProbesAdapter;
+
+/**
+ * Persistent cache for the static structure of analyzed classes. The structure
+ * of a class (instructions, lines, branches and probes of all methods after
+ * filtering) only depends on the class file, therefore it is stored per class
+ * id in a directory. When a class with the same id is analyzed again the
+ * {@link Analyzer} only needs to combine the cached structure with the current
+ * probes instead of parsing the class file.
+ *
+ * Entries are addressed by the class id and a fingerprint of the analysis code,
+ * which covers the JaCoCo version and the class files of the analyzer and all
+ * filters. Entries created by a different build, including a rebuilt snapshot
+ * version with modified filters, are therefore never used. Entries are written
+ * to temporary files first and then renamed, so a cache directory can be shared
+ * by multiple processes. Instances of this class are thread safe.
+ */
+public class AnalysisCache {
+
+	/** Format version of the cache entries. */
+	private static final char FORMAT_VERSION = 0x1001;
+
+	private static final String SUFFIX = ".structure";
+
+	/** Suffix of all entries, calculated on first access */
+	private static String entrySuffix;
+
+	private final File directory;
+
+	/**
+	 * Creates a cache which stores its entries in the given directory. The
+	 * directory is created when the first entry is written.
+	 *
+	 * @param directory
+	 *            directory for the cache entries
+	 */
+	public AnalysisCache(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory of this cache.
+	 *
+	 * @return directory for the cache entries
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the file of the entry for the class with the given id.
+	 *
+	 * @param classId
+	 *            id of the class
+	 * @return file of the entry
+	 * @throws IOException
+	 *             if the analysis code can't be fingerprinted
+	 */
+	File getFile(final long classId) throws IOException {
+		return new File(directory, String.format("%016x%s",
+				Long.valueOf(classId), getEntrySuffix()));
+	}
+
+	private static synchronized String getEntrySuffix() throws IOException {
+		if (entrySuffix == null) {
+			entrySuffix = String.format("-%016x%s", Long.valueOf(fingerprint()),
+					SUFFIX);
+		}
+		return entrySuffix;
+	}
+
+	/**
+	 * Calculates a fingerprint for the JaCoCo version and the class files of
+	 * the analysis code including their nested and synthetic classes. Unlike
+	 * the version this also changes for every modified snapshot build.
+	 */
+	private static long fingerprint() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		buffer.write(JaCoCo.VERSION.getBytes("UTF-8"));
+		for (final Class<?> c : getAnalysisClasses()) {
+			writeClassFiles(c, buffer);
+		}
+		return CRC64.classId(buffer.toByteArray());
+	}
+
+	/**
+	 * Returns the classes which determine the structure of analyzed classes.
+	 * Package private classes are loaded by the name of a public neighbour.
+	 */
+	private static List<Class<?>> getAnalysisClasses() throws IOException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Analyzer.class);
+		classes.add(ClassAnalyzer.class);
+		classes.add(MethodAnalyzer.class);
+		classes.add(neighbour(ClassAnalyzer.class, "InstructionsBuilder"));
+		classes.add(Instruction.class);
+		classes.add(neighbour(ClassAnalyzer.class, "MethodCoverageCalculator"));
+		classes.add(ClassStructure.class);
+		classes.add(MethodStructure.class);
+		classes.add(ClassProbesAdapter.class);
+		classes.add(MethodProbesAdapter.class);
+		classes.add(LabelFlowAnalyzer.class);
+		classes.add(LabelInfo.class);
+		classes.add(neighbour(ClassProbesAdapter.class, "MethodSanitizer"));
+		classes.addAll(Filters.getFilterClasses());
+		return classes;
+	}
+
+	private static Class<?> neighbour(final Class<?> c, final String simpleName)
+			throws IOException {
+		final String name = c.getName();
+		try {
+			return Class.forName(
+					name.substring(0, name.lastIndexOf('.') + 1) + simpleName,
+					false, c.getClassLoader());
+		} catch (final ClassNotFoundException e) {
+			final IOException ex = new IOException(
+					String.format("Class %s not found.", simpleName));
+			ex.initCause(e);
+			throw ex;
+		}
+	}
+
+	private static void writeClassFiles(final Class<?> c,
+			final ByteArrayOutputStream buffer) throws IOException {
+		final String resource = "/" + c.getName().replace('.', '/');
+		final InputStream in = c.getResourceAsStream(resource + ".class");
+		if (in == null) {
+			throw new IOException(
+					String.format("Class file of %s not found.", c.getName()));
+		}
+		buffer.write(readFully(in));
+		final Class<?>[] nested = c.getDeclaredClasses();
+		Arrays.sort(nested, new Comparator<Class<?>>() {
+			public int compare(final Class<?> c1, final Class<?> c2) {
+				return c1.getName().compareTo(c2.getName());
+			}
+		});
+		for (final Class<?> n : nested) {
+			writeClassFiles(n, buffer);
+		}
+		// Anonymous and synthetic classes can't be listed by reflection:
+		for (int i = 1;; i++) {
+			final InputStream anonymous = c
+					.getResourceAsStream(resource + "$" + i + ".class");
+			if (anonymous == null) {
+				break;
+			}
+			buffer.write(readFully(anonymous));
+		}
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		try {
+			return InputStreams.readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the structure of the class with the given id. Missing, unreadable
+	 * or outdated entries are reported as cache miss.
+	 *
+	 * @param classId
+	 *            id of the class
+	 * @param stringPool
+	 *            pool to share identical strings
+	 * @return structure or <code>null</code> if no valid entry exists
+	 */
+	ClassStructure get(final long classId, final StringPool stringPool) {
+		try {
+			final File file = getFile(classId);
+			if (!file.isFile()) {
+				return null;
+			}
+			final CompactDataInput in = new CompactDataInput(
+					new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readChar() != FORMAT_VERSION
+						|| !JaCoCo.VERSION.equals(in.readUTF())) {
+					return null;
+				}
+				return ClassStructure.read(in, stringPool);
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			// Entry is removed concurrently or corrupt or the analysis code
+			// can't be fingerprinted, analyze again
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the structure of the class with the given id.
+	 *
+	 * @param classId
+	 *            id of the class
+	 * @param structure
+	 *            structure of the class
+	 * @throws IOException
+	 *             if the entry can't be written
+	 */
+	void put(final long classId, final ClassStructure structure)
+			throws IOException {
+		final File file = getFile(classId);
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException(String
+					.format("Unable to create cache directory %s.", directory));
+		}
+		final File tmp = File.createTempFile("entry", ".tmp", directory);
+		try {
+			final CompactDataOutput out = new CompactDataOutput(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeChar(FORMAT_VERSION);
+				out.writeUTF(JaCoCo.VERSION);
+				structure.write(out);
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				// Some platforms do not replace existing files
+				file.delete();
+				if (!tmp.renameTo(file) && !file.isFile()) {
+					throw new IOException(String
+							.format("Unable to write cache entry %s.", file));
+				}
+			}
+		} finally {
+			tmp.delete();
+		}
+	}
+
+}
@@ -16,41 +16,65 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedList;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataSource;
 import org.jacoco.core.internal.ContentTypeDetector;
 import org.jacoco.core.internal.InputStreams;
 import org.jacoco.core.internal.Pack200Streams;
 import org.jacoco.core.internal.analysis.ClassAnalyzer;
 import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
 import org.jacoco.core.internal.analysis.StringPool;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 
 /**
  * An {@link Analyzer} instance processes a set of Java class files and
  * calculates coverage data for them. For each class file the result is reported
  * to a given {@link ICoverageVisitor} instance. In addition the
- * {@link Analyzer} requires a {@link ExecutionDataStore} instance that holds
- * the execution data for the classes to analyze. The {@link Analyzer} offers
- * several methods to analyze classes from a variety of sources.
+ * {@link Analyzer} requires a {@link IExecutionDataSource} like a
+ * {@link ExecutionDataStore} instance that holds the execution data for the
+ * classes to analyze. The {@link Analyzer} offers several methods to analyze
+ * classes from a variety of sources. Optionally classes can be analyzed
+ * concurrently with an {@link Executor}.
  */
 public class Analyzer {
 
-	private final ExecutionDataStore executionData;
+	/**
+	 * Maximum number of classes which are scheduled for analysis but not
+	 * reported yet. Limits the memory for class definitions waiting for
+	 * analysis.
+	 */
+	private static final int MAX_PENDING = 256;
+
+	private final IExecutionDataSource executionData;
 
 	private final ICoverageVisitor coverageVisitor;
 
-	private final StringPool stringPool;
+	private final Executor executor;
+
+	private final ThreadLocal<StringPool> stringPool;
+
+	private final LinkedList<PendingAnalysis> pending;
+
+	private AnalysisCache cache;
+
+	private ChangedLines changedLines;
 
 	/**
 	 * Creates a new analyzer reporting to the given output.
@@ -63,61 +87,145 @@ public class Analyzer {
 	 */
 	public Analyzer(final ExecutionDataStore executionData,
 			final ICoverageVisitor coverageVisitor) {
-		this.executionData = executionData;
-		this.coverageVisitor = coverageVisitor;
-		this.stringPool = new StringPool();
+		this((IExecutionDataSource) executionData, coverageVisitor);
 	}
 
 	/**
-	 * Creates an ASM class visitor for analysis.
+	 * Creates a new analyzer reporting to the given output. The execution data
+	 * is queried for every analyzed class only, so large sources like a
+	 * {@link org.jacoco.core.data.IndexedExecutionDataFile} do not need to be
+	 * loaded upfront.
 	 *
-	 * @param classid
-	 *            id of the class calculated with {@link CRC64}
-	 * @param className
-	 *            VM name of the class
-	 * @return ASM visitor to write class definition to
+	 * @param executionData
+	 *            source of execution data
+	 * @param coverageVisitor
+	 *            the output instance that will coverage data for every analyzed
+	 *            class
 	 */
-	private ClassVisitor createAnalyzingVisitor(final long classid,
-			final String className) {
-		final ExecutionData data = executionData.get(classid);
-		final boolean[] probes;
-		final boolean noMatch;
-		if (data == null) {
-			probes = null;
-			noMatch = executionData.contains(className);
-		} else {
-			probes = data.getProbes();
-			noMatch = false;
-		}
-		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
-				classid, noMatch);
-		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
-				stringPool) {
+	public Analyzer(final IExecutionDataSource executionData,
+			final ICoverageVisitor coverageVisitor) {
+		this(executionData, coverageVisitor, null);
+	}
+
+	/**
+	 * Creates a new analyzer which analyzes classes concurrently with the given
+	 * executor. Class files are still read and decompressed by the calling
+	 * thread, but their analysis is executed by the executor. Coverage data is
+	 * reported by the calling thread in the order in which the classes have
+	 * been found, so the result is the same as with sequential analysis. The
+	 * <code>analyzeAll()</code> methods return after the coverage data of all
+	 * classes found has been reported. Classes passed to
+	 * <code>analyzeClass()</code> are reported asynchronously, so
+	 * {@link #finish()} has to be called after the last such class. The
+	 * execution data must not be modified while classes are analyzed.
+	 *
+	 * @param executionData
+	 *            source of execution data
+	 * @param coverageVisitor
+	 *            the output instance that will coverage data for every analyzed
+	 *            class
+	 * @param executor
+	 *            executor for the analysis of single classes or
+	 *            <code>null</code> for sequential analysis in the calling
+	 *            thread
+	 */
+	public Analyzer(final IExecutionDataSource executionData,
+			final ICoverageVisitor coverageVisitor, final Executor executor) {
+		this.executionData = executionData;
+		this.coverageVisitor = coverageVisitor;
+		this.executor = executor;
+		this.stringPool = new ThreadLocal<StringPool>() {
 			@Override
-			public void visitEnd() {
-				super.visitEnd();
-				coverageVisitor.visitCoverage(coverage);
+			protected StringPool initialValue() {
+				return new StringPool();
 			}
 		};
-		return new ClassProbesAdapter(analyzer, false);
+		this.pending = new LinkedList<PendingAnalysis>();
+	}
+
+	/**
+	 * Sets a cache for the structure of analyzed classes. Classes found in the
+	 * cache are not parsed again, classes not found are analyzed and added to
+	 * the cache.
+	 *
+	 * @param cache
+	 *            cache to use or <code>null</code> to analyze all classes
+	 */
+	public void setCache(final AnalysisCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Restricts the analysis to the given changed lines. Classes which are not
+	 * compiled from changed source files are skipped and the coverage data of
+	 * all other classes only contains the changed lines.
+	 *
+	 * @param changedLines
+	 *            changed lines or <code>null</code> to analyze all lines
+	 */
+	public void setChangedLines(final ChangedLines changedLines) {
+		this.changedLines = changedLines;
+	}
+
+	private ClassCoverageImpl analyzeClass(final byte[] source)
+			throws IOException {
+		if (changedLines == null) {
+			return analyzeAllLines(source);
+		}
+		if (!changedLines.containsClass(InstrSupport.classReaderFor(source))) {
+			return null;
+		}
+		final ClassCoverageImpl coverage = analyzeAllLines(source);
+		return coverage == null ? null : changedLines.restrict(coverage);
 	}
 
-	private void analyzeClass(final byte[] source) {
+	private ClassCoverageImpl analyzeAllLines(final byte[] source)
+			throws IOException {
 		final long classId = CRC64.classId(source);
+		final ExecutionData data = executionData.get(classId);
+		final boolean[] probes = data == null ? null : data.getProbes();
+		final int[] counts = data == null ? null : data.getCounts();
+		if (cache != null) {
+			final ClassStructure structure = cache.get(classId,
+					stringPool.get());
+			if (structure != null) {
+				return structure.createCoverage(classId,
+						isNoMatch(data, structure.getName()), probes, counts);
+			}
+		}
 		final ClassReader reader = InstrSupport.classReaderFor(source);
 		if ((reader.getAccess() & Opcodes.ACC_MODULE) != 0) {
-			return;
+			return null;
 		}
 		if ((reader.getAccess() & Opcodes.ACC_SYNTHETIC) != 0) {
-			return;
+			return null;
+		}
+		final String className = reader.getClassName();
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
+				classId, isNoMatch(data, className));
+		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
+				stringPool.get(), cache != null);
+		analyzer.setHitCounts(counts);
+		reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+		if (cache != null) {
+			try {
+				cache.put(classId, analyzer.getStructure());
+			} catch (final IOException e) {
+				// Cache not writable, class is analyzed again next time
+			}
 		}
-		final ClassVisitor visitor = createAnalyzingVisitor(classId,
-				reader.getClassName());
-		reader.accept(visitor, 0);
+		return coverage;
+	}
+
+	private boolean isNoMatch(final ExecutionData data,
+			final String className) {
+		return data == null && executionData.contains(className);
 	}
 
 	/**
-	 * Analyzes the class definition from a given in-memory buffer.
+	 * Analyzes the class definition from a given in-memory buffer. If this
+	 * analyzer has an executor the analysis is only scheduled and the result is
+	 * reported with a subsequent call or with {@link #finish()}.
 	 *
 	 * @param buffer
 	 *            class definitions
@@ -128,13 +236,86 @@ public class Analyzer {
 	 */
 	public void analyzeClass(final byte[] buffer, final String location)
 			throws IOException {
+		if (executor != null) {
+			schedule(buffer, location);
+			return;
+		}
 		try {
-			analyzeClass(buffer);
+			final ClassCoverageImpl coverage = analyzeClass(buffer);
+			if (coverage != null) {
+				coverageVisitor.visitCoverage(coverage);
+			}
+		} catch (final IOException cause) {
+			throw analyzerError(location, cause);
 		} catch (final RuntimeException cause) {
 			throw analyzerError(location, cause);
 		}
 	}
 
+	private void schedule(final byte[] buffer, final String location)
+			throws IOException {
+		final FutureTask<ClassCoverageImpl> task = new FutureTask<ClassCoverageImpl>(
+				new Callable<ClassCoverageImpl>() {
+					public ClassCoverageImpl call() throws IOException {
+						return analyzeClass(buffer);
+					}
+				});
+		executor.execute(task);
+		pending.add(new PendingAnalysis(task, location));
+		while (!pending.isEmpty() && (pending.size() > MAX_PENDING
+				|| pending.getFirst().task.isDone())) {
+			report(pending.removeFirst());
+		}
+	}
+
+	private void report(final PendingAnalysis analysis) throws IOException {
+		try {
+			// Analyze the class in this thread if the executor has not started
+			// it yet, so the executor may also be busy with the caller itself:
+			analysis.task.run();
+			final ClassCoverageImpl coverage = analysis.task.get();
+			if (coverage != null) {
+				coverageVisitor.visitCoverage(coverage);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw cancel(analyzerError(analysis.location, e));
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				cancel(null);
+				throw (Error) cause;
+			}
+			throw cancel(analyzerError(analysis.location, (Exception) cause));
+		} catch (final RuntimeException cause) {
+			throw cancel(analyzerError(analysis.location, cause));
+		}
+	}
+
+	private IOException cancel(final IOException cause) {
+		for (final PendingAnalysis analysis : pending) {
+			analysis.task.cancel(false);
+		}
+		pending.clear();
+		return cause;
+	}
+
+	/**
+	 * Waits for all classes scheduled on the executor of this analyzer and
+	 * reports their coverage data in the order in which the classes have been
+	 * passed to this analyzer. This method has to be called after the last call
+	 * to <code>analyzeClass()</code> before the coverage data is used if an
+	 * executor has been specified, otherwise it returns immediately.
+	 *
+	 * @throws IOException
+	 *             if a class can't be analyzed
+	 */
+	public void finish() throws IOException {
+		while (!pending.isEmpty()) {
+			report(pending.removeFirst());
+		}
+	}
+
 	/**
 	 * Analyzes the class definition from a given input stream. The provided
 	 * {@link InputStream} is not closed by this method.
@@ -182,6 +363,13 @@ public class Analyzer {
 	 */
 	public int analyzeAll(final InputStream input, final String location)
 			throws IOException {
+		final int count = scheduleAll(input, location);
+		finish();
+		return count;
+	}
+
+	private int scheduleAll(final InputStream input, final String location)
+			throws IOException {
 		final ContentTypeDetector detector;
 		try {
 			detector = new ContentTypeDetector(input);
@@ -215,15 +403,42 @@ public class Analyzer {
 	 *             if the file can't be read or a class can't be analyzed
 	 */
 	public int analyzeAll(final File file) throws IOException {
+		final int count = scheduleAll(file);
+		finish();
+		return count;
+	}
+
+	/**
+	 * Analyzes all class files contained in the given files or folders. Class
+	 * files as well as ZIP files are considered. Folders are searched
+	 * recursively. With an executor the classes of all files are analyzed
+	 * concurrently.
+	 *
+	 * @param files
+	 *            files or folders to look for class files
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if a file can't be read or a class can't be analyzed
+	 */
+	public int analyzeAll(final Collection<File> files) throws IOException {
+		int count = 0;
+		for (final File file : files) {
+			count += scheduleAll(file);
+		}
+		finish();
+		return count;
+	}
+
+	private int scheduleAll(final File file) throws IOException {
 		int count = 0;
 		if (file.isDirectory()) {
 			for (final File f : file.listFiles()) {
-				count += analyzeAll(f);
+				count += scheduleAll(f);
 			}
 		} else {
 			final InputStream in = new FileInputStream(file);
 			try {
-				count += analyzeAll(in, file.getPath());
+				count += scheduleAll(in, file.getPath());
 			} finally {
 				in.close();
 			}
@@ -251,8 +466,9 @@ public class Analyzer {
 		final StringTokenizer st = new StringTokenizer(path,
 				File.pathSeparator);
 		while (st.hasMoreTokens()) {
-			count += analyzeAll(new File(basedir, st.nextToken()));
+			count += scheduleAll(new File(basedir, st.nextToken()));
 		}
+		finish();
 		return count;
 	}
 
@@ -262,7 +478,7 @@ public class Analyzer {
 		ZipEntry entry;
 		int count = 0;
 		while ((entry = nextEntry(zip, location)) != null) {
-			count += analyzeAll(zip, location + "@" + entry.getName());
+			count += scheduleAll(zip, location + "@" + entry.getName());
 		}
 		return count;
 	}
@@ -284,7 +500,7 @@ public class Analyzer {
 		} catch (final IOException e) {
 			throw analyzerError(location, e);
 		}
-		return analyzeAll(gzipInputStream, location);
+		return scheduleAll(gzipInputStream, location);
 	}
 
 	private int analyzePack200(final InputStream input, final String location)
@@ -295,7 +511,21 @@ public class Analyzer {
 		} catch (final IOException e) {
 			throw analyzerError(location, e);
 		}
-		return analyzeAll(unpackedInput, location);
+		return scheduleAll(unpackedInput, location);
+	}
+
+	private static class PendingAnalysis {
+
+		final FutureTask<ClassCoverageImpl> task;
+
+		final String location;
+
+		PendingAnalysis(final FutureTask<ClassCoverageImpl> task,
+				final String location) {
+			this.task = task;
+			this.location = location;
+		}
+
 	}
 
 }
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * Set of changed lines per source file, e.g. the lines touched by a pull
+ * request. If set for an {@link Analyzer} only classes compiled from changed
+ * source files are analyzed and their coverage data is restricted to the
+ * changed lines. Source files are matched by the end of their path, so paths
+ * may contain arbitrary prefixes like source folders. Instances must not be
+ * modified while they are used by an analyzer.
+ */
+public class ChangedLines {
+
+	private static final Pattern HUNK = Pattern
+			.compile("@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+
+	private static final Pattern RANGE = Pattern
+			.compile("(.+):(\\d+)(?:-(\\d+))?");
+
+	private final Map<String, BitSet> files = new HashMap<String, BitSet>();
+
+	private final Set<String> folders = new HashSet<String>();
+
+	/**
+	 * Marks a single line of the given source file as changed.
+	 *
+	 * @param path
+	 *            path of the source file
+	 * @param line
+	 *            line number, starting with 1
+	 */
+	public void add(final String path, final int line) {
+		add(path, line, line);
+	}
+
+	/**
+	 * Marks a range of lines of the given source file as changed.
+	 *
+	 * @param path
+	 *            path of the source file
+	 * @param first
+	 *            first line number, starting with 1
+	 * @param last
+	 *            last line number (inclusive)
+	 */
+	public void add(final String path, final int first, final int last) {
+		final String normalized = path.replace('\\', '/');
+		BitSet lines = files.get(normalized);
+		if (lines == null) {
+			lines = new BitSet();
+			files.put(normalized, lines);
+			final int pos = normalized.lastIndexOf('/');
+			folders.add(pos == -1 ? "" : normalized.substring(0, pos));
+		}
+		lines.set(first, last + 1);
+	}
+
+	/**
+	 * Checks whether lines have been added.
+	 *
+	 * @return <code>true</code> if no lines have been added
+	 */
+	public boolean isEmpty() {
+		return files.isEmpty();
+	}
+
+	/**
+	 * Checks whether the given line of a source file has been changed.
+	 *
+	 * @param packageName
+	 *            VM name of the package
+	 * @param sourceFileName
+	 *            name of the source file
+	 * @param line
+	 *            line number
+	 * @return <code>true</code> if the line has been changed
+	 */
+	public boolean isChanged(final String packageName,
+			final String sourceFileName, final int line) {
+		final BitSet lines = getLines(packageName, sourceFileName);
+		return lines != null && line >= 0 && lines.get(line);
+	}
+
+	/**
+	 * Adds all changed lines from the given reader. The content may either be a
+	 * unified diff, where the added and modified lines of the new version of
+	 * every file are considered as changed, or a list of lines in the form
+	 * <code>path:first-last</code> or <code>path:line</code>. Other lines are
+	 * ignored. The reader is not closed by this method.
+	 *
+	 * @param reader
+	 *            reader for a unified diff or a list of line ranges
+	 * @throws IOException
+	 *             if the reader can't be read
+	 */
+	public void read(final Reader reader) throws IOException {
+		final BufferedReader lines = new BufferedReader(reader);
+		String file = null;
+		int lineNr = 0;
+		int oldRemaining = 0;
+		int newRemaining = 0;
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (oldRemaining > 0 || newRemaining > 0) {
+				final char type = line.length() == 0 ? ' ' : line.charAt(0);
+				switch (type) {
+				case '+':
+					if (file != null) {
+						add(file, lineNr);
+					}
+					lineNr++;
+					newRemaining--;
+					break;
+				case '-':
+					oldRemaining--;
+					break;
+				case ' ':
+					lineNr++;
+					oldRemaining--;
+					newRemaining--;
+					break;
+				default:
+					// e.g. "\ No newline at end of file"
+					break;
+				}
+				continue;
+			}
+			if (line.startsWith("+++ ")) {
+				file = getDiffPath(line.substring(4));
+				continue;
+			}
+			Matcher m = HUNK.matcher(line);
+			if (m.matches()) {
+				oldRemaining = count(m.group(1));
+				lineNr = Integer.parseInt(m.group(2));
+				newRemaining = count(m.group(3));
+				continue;
+			}
+			m = RANGE.matcher(line.trim());
+			if (m.matches()) {
+				final int first = Integer.parseInt(m.group(2));
+				final int last = m.group(3) == null ? first
+						: Integer.parseInt(m.group(3));
+				add(m.group(1), first, last);
+			}
+		}
+	}
+
+	private static int count(final String group) {
+		return group == null ? 1 : Integer.parseInt(group);
+	}
+
+	private static String getDiffPath(final String header) {
+		final int tab = header.indexOf('\t');
+		final String path = tab == -1 ? header : header.substring(0, tab);
+		return "/dev/null".equals(path) ? null : path;
+	}
+
+	BitSet getLines(final String packageName, final String sourceFileName) {
+		final String path = packageName.length() == 0 ? sourceFileName
+				: packageName + "/" + sourceFileName;
+		for (final Map.Entry<String, BitSet> e : files.entrySet()) {
+			if (matches(e.getKey(), path)) {
+				return e.getValue();
+			}
+		}
+		return null;
+	}
+
+	private boolean containsPackage(final String packageName) {
+		for (final String folder : folders) {
+			if (matches(folder, packageName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matches(final String path, final String suffix) {
+		if (suffix.length() == 0) {
+			return true;
+		}
+		return path.endsWith(suffix) && (path.length() == suffix.length()
+				|| path.charAt(path.length() - suffix.length() - 1) == '/');
+	}
+
+	/**
+	 * Checks whether the given class has been compiled from a changed source
+	 * file. Only the header and the source file attribute of the class are
+	 * read.
+	 */
+	boolean containsClass(final ClassReader reader) {
+		final String className = reader.getClassName();
+		final int pos = className.lastIndexOf('/');
+		final String packageName = pos == -1 ? "" : className.substring(0, pos);
+		if (!containsPackage(packageName)) {
+			return false;
+		}
+		final String[] sourceFileName = new String[1];
+		reader.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+			@Override
+			public void visitSource(final String source, final String debug) {
+				sourceFileName[0] = source;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+		return sourceFileName[0] != null
+				&& getLines(packageName, sourceFileName[0]) != null;
+	}
+
+	/**
+	 * Creates a copy of the given class coverage which only contains the
+	 * changed lines. Methods without changed lines are removed.
+	 *
+	 * @return restricted coverage or <code>null</code> if the class does not
+	 *         contain code in changed lines
+	 */
+	ClassCoverageImpl restrict(final ClassCoverageImpl coverage) {
+		final String sourceFileName = coverage.getSourceFileName();
+		final BitSet lines = sourceFileName == null ? null
+				: getLines(coverage.getPackageName(), sourceFileName);
+		if (lines == null) {
+			return null;
+		}
+		final ClassCoverageImpl result = new ClassCoverageImpl(
+				coverage.getName(), coverage.getId(), coverage.isNoMatch());
+		result.setSignature(coverage.getSignature());
+		result.setSuperName(coverage.getSuperName());
+		result.setInterfaces(coverage.getInterfaceNames());
+		result.setSourceFileName(sourceFileName);
+		for (final IMethodCoverage m : coverage.getMethods()) {
+			final MethodCoverageImpl method = new MethodCoverageImpl(
+					m.getName(), m.getDesc(), m.getSignature());
+			final int last = m.getLastLine();
+			for (int nr = lines
+					.nextSetBit(Math.max(0, m.getFirstLine())); nr != -1
+							&& nr <= last; nr = lines.nextSetBit(nr + 1)) {
+				final ILine line = m.getLine(nr);
+				if (line.getStatus() != ICounter.EMPTY) {
+					method.increment(line.getInstructionCounter(),
+							line.getBranchCounter(), nr);
+					method.incrementExecutionCount(m.getExecutionCount(nr), nr);
+				}
+			}
+			if (method.getInstructionCounter().getTotalCount() > 0) {
+				method.incrementMethodCounter();
+				result.addMethod(method);
+			}
+		}
+		return result.getMethods().isEmpty() ? null : result;
+	}
+
+}
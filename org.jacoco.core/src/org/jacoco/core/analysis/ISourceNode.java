@@ -46,4 +46,15 @@ public interface ISourceNode extends ICoverageNode {
 	 */
 	ILine getLine(int nr);
 
+	/**
+	 * Returns how often the given line has been executed. Execution counts are
+	 * only available for execution data recorded with hit counts, otherwise the
+	 * method returns 0 for all lines.
+	 *
+	 * @param nr
+	 *            line number of interest
+	 * @return number of executions or 0 if unknown
+	 */
+	int getExecutionCount(int nr);
+
 }
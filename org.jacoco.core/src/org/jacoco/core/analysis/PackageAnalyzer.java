@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import org.jacoco.core.data.IExecutionDataSource;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Analyzes class files package by package. Class files are first collected in a
+ * temporary spool file and indexed by the package of the contained class.
+ * Afterwards the coverage of every package can be calculated separately with
+ * {@link #analyzePackage(String)}, so only the coverage data of a single
+ * package has to be kept in memory at a time. This allows reports for large
+ * sets of class files which are written package by package.
+ *
+ * The temporary file is deleted with {@link #close()}.
+ */
+public class PackageAnalyzer implements Closeable {
+
+	private final IExecutionDataSource executionData;
+
+	private final Executor executor;
+
+	private final Collector collector;
+
+	private final Map<String, List<Entry>> packages;
+
+	private AnalysisCache cache;
+
+	private ChangedLines changedLines;
+
+	private File file;
+
+	private OutputStream out;
+
+	private long length;
+
+	private RandomAccessFile in;
+
+	/**
+	 * Creates a new analyzer which analyzes the classes of a package
+	 * sequentially.
+	 *
+	 * @param executionData
+	 *            source of execution data
+	 */
+	public PackageAnalyzer(final IExecutionDataSource executionData) {
+		this(executionData, null);
+	}
+
+	/**
+	 * Creates a new analyzer which analyzes the classes of a package
+	 * concurrently with the given executor.
+	 *
+	 * @param executionData
+	 *            source of execution data
+	 * @param executor
+	 *            executor for the analysis of single classes or
+	 *            <code>null</code> for sequential analysis in the calling
+	 *            thread
+	 * @see Analyzer#Analyzer(IExecutionDataSource, ICoverageVisitor, Executor)
+	 */
+	public PackageAnalyzer(final IExecutionDataSource executionData,
+			final Executor executor) {
+		this.executionData = executionData;
+		this.executor = executor;
+		this.collector = new Collector();
+		this.packages = new TreeMap<String, List<Entry>>();
+	}
+
+	/**
+	 * Sets the cache for the structure of analyzed classes.
+	 *
+	 * @param cache
+	 *            cache to use or <code>null</code> to disable caching
+	 * @see Analyzer#setCache(AnalysisCache)
+	 */
+	public void setCache(final AnalysisCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Restricts the analysis to the given changed lines. Classes which are not
+	 * compiled from changed source files are not even collected.
+	 *
+	 * @param changedLines
+	 *            changed lines or <code>null</code> to analyze all lines
+	 * @see Analyzer#setChangedLines(ChangedLines)
+	 */
+	public void setChangedLines(final ChangedLines changedLines) {
+		this.changedLines = changedLines;
+	}
+
+	/**
+	 * Collects all class files contained in the given stream for later
+	 * analysis. The stream can contain the same content types as supported by
+	 * {@link Analyzer#analyzeAll(InputStream, String)}.
+	 *
+	 * @param input
+	 *            stream to read class files from
+	 * @param location
+	 *            a location description used for exception messages
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the stream can't be read or the spool file can't be
+	 *             written
+	 */
+	public int analyzeAll(final InputStream input, final String location)
+			throws IOException {
+		return collector.analyzeAll(input, location);
+	}
+
+	/**
+	 * Collects all class files in the given directory or file for later
+	 * analysis.
+	 *
+	 * @param file
+	 *            directory or file to collect class files from
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the files can't be read or the spool file can't be written
+	 * @see Analyzer#analyzeAll(File)
+	 */
+	public int analyzeAll(final File file) throws IOException {
+		return collector.analyzeAll(file);
+	}
+
+	/**
+	 * Collects all class files in the given path list for later analysis.
+	 *
+	 * @param path
+	 *            path list with files and directories separated by
+	 *            {@link File#pathSeparator}
+	 * @param basedir
+	 *            optional base directory, if <code>null</code> the current
+	 *            working directory is used as the base for relative path
+	 *            entries
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the files can't be read or the spool file can't be written
+	 * @see Analyzer#analyzeAll(String, File)
+	 */
+	public int analyzeAll(final String path, final File basedir)
+			throws IOException {
+		return collector.analyzeAll(path, basedir);
+	}
+
+	/**
+	 * Returns the names of all packages with collected class files in
+	 * alphabetical order. The VM notation is used for package names, the
+	 * default package has an empty name.
+	 *
+	 * @return names of all packages
+	 */
+	public Collection<String> getPackageNames() {
+		return Collections.unmodifiableCollection(packages.keySet());
+	}
+
+	/**
+	 * Analyzes all collected class files of the given package. The coverage
+	 * data is not retained by this analyzer, so calling this method again
+	 * analyzes the package again.
+	 *
+	 * @param name
+	 *            package name in VM notation
+	 * @return coverage data for the package, empty if no class files have been
+	 *         collected for the package
+	 * @throws IOException
+	 *             if a class can't be analyzed or the spool file can't be read
+	 */
+	public IPackageCoverage analyzePackage(final String name)
+			throws IOException {
+		final CoverageBuilder builder = new CoverageBuilder();
+		final List<Entry> entries = packages.get(name);
+		if (entries != null) {
+			final Analyzer analyzer = new Analyzer(executionData, builder,
+					executor);
+			analyzer.setCache(cache);
+			analyzer.setChangedLines(changedLines);
+			for (final Entry e : entries) {
+				analyzer.analyzeClass(read(e), e.location);
+			}
+			analyzer.finish();
+		}
+		final Collection<IPackageCoverage> result = builder.getBundle(name)
+				.getPackages();
+		if (result.isEmpty()) {
+			return new PackageCoverageImpl(name,
+					Collections.<IClassCoverage> emptyList(),
+					Collections.<ISourceFileCoverage> emptyList());
+		}
+		return result.iterator().next();
+	}
+
+	/**
+	 * Deletes the spool file. Afterwards no further class files can be analyzed
+	 * with this instance.
+	 *
+	 * @throws IOException
+	 *             if the spool file can't be closed
+	 */
+	public void close() throws IOException {
+		try {
+			if (out != null) {
+				out.close();
+			}
+			if (in != null) {
+				in.close();
+			}
+		} finally {
+			if (file != null) {
+				file.delete();
+			}
+			packages.clear();
+		}
+	}
+
+	private void write(final byte[] buffer, final String location)
+			throws IOException {
+		final String className;
+		try {
+			final ClassReader reader = InstrSupport.classReaderFor(buffer);
+			if (changedLines != null && !changedLines.containsClass(reader)) {
+				return;
+			}
+			className = reader.getClassName();
+		} catch (final RuntimeException cause) {
+			final IOException ex = new IOException(
+					String.format("Error while analyzing %s.", location));
+			ex.initCause(cause);
+			throw ex;
+		}
+		final int pos = className.lastIndexOf('/');
+		final String packageName = pos == -1 ? "" : className.substring(0, pos);
+		List<Entry> entries = packages.get(packageName);
+		if (entries == null) {
+			entries = new ArrayList<Entry>();
+			packages.put(packageName, entries);
+		}
+		if (out == null) {
+			file = File.createTempFile("jacoco-", ".classes");
+			file.deleteOnExit();
+			out = new BufferedOutputStream(new FileOutputStream(file));
+		}
+		out.write(buffer);
+		entries.add(new Entry(length, buffer.length, location));
+		length += buffer.length;
+	}
+
+	private byte[] read(final Entry entry) throws IOException {
+		out.flush();
+		if (in == null) {
+			in = new RandomAccessFile(file, "r");
+		}
+		final byte[] buffer = new byte[entry.length];
+		in.seek(entry.position);
+		in.readFully(buffer);
+		return buffer;
+	}
+
+	/**
+	 * Reuses the content type detection of {@link Analyzer} but writes every
+	 * class file to the spool file instead of analyzing it.
+	 */
+	private class Collector extends Analyzer {
+
+		Collector() {
+			super(executionData, null);
+		}
+
+		@Override
+		public void analyzeClass(final byte[] buffer, final String location)
+				throws IOException {
+			write(buffer, location);
+		}
+
+	}
+
+	private static class Entry {
+
+		final long position;
+
+		final int length;
+
+		final String location;
+
+		Entry(final long position, final int length, final String location) {
+			this.position = position;
+			this.length = length;
+			this.location = location;
+		}
+
+	}
+
+}
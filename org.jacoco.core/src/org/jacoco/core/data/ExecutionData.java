@@ -19,7 +19,8 @@ import java.util.Arrays;
 /**
  * Execution data for a single Java class. While instances are immutable care
  * has to be taken about the probe data array of type <code>boolean[]</code>
- * which can be modified.
+ * which can be modified. Optionally execution data also contains hit counts for
+ * every probe in an array of type <code>int[]</code>.
  */
 public final class ExecutionData {
 
@@ -29,6 +30,8 @@ public final class ExecutionData {
 
 	private final boolean[] probes;
 
+	private int[] counts;
+
 	/**
 	 * Creates a new {@link ExecutionData} object with the given probe data.
 	 *
@@ -46,6 +49,28 @@ public final class ExecutionData {
 		this.probes = probes;
 	}
 
+	/**
+	 * Creates a new {@link ExecutionData} object with the given probe data and
+	 * hit counts.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name
+	 * @param probes
+	 *            probe data
+	 * @param counts
+	 *            hit counts of the same length as the probe data or
+	 *            <code>null</code>
+	 */
+	public ExecutionData(final long id, final String name,
+			final boolean[] probes, final int[] counts) {
+		this.id = id;
+		this.name = name;
+		this.probes = probes;
+		this.counts = counts;
+	}
+
 	/**
 	 * Creates a new {@link ExecutionData} object with the given probe data
 	 * length. All probes are set to <code>false</code>.
@@ -94,10 +119,23 @@ public final class ExecutionData {
 	}
 
 	/**
-	 * Sets all probes to <code>false</code>.
+	 * Returns the hit counts of the probes if available. Hit counts saturate at
+	 * {@link Integer#MAX_VALUE}.
+	 *
+	 * @return hit counts or <code>null</code>
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Sets all probes to <code>false</code> and all hit counts to zero.
 	 */
 	public void reset() {
 		Arrays.fill(probes, false);
+		if (counts != null) {
+			Arrays.fill(counts, 0);
+		}
 	}
 
 	/**
@@ -111,6 +149,13 @@ public final class ExecutionData {
 				return true;
 			}
 		}
+		if (counts != null) {
+			for (final int c : counts) {
+				if (c != 0) {
+					return true;
+				}
+			}
+		}
 		return false;
 	}
 
@@ -124,7 +169,8 @@ public final class ExecutionData {
 	 * A or B
 	 * </pre>
 	 *
-	 * The probe array of the other object is not modified.
+	 * The probe array of the other object is not modified. Hit counts of both
+	 * objects are added.
 	 *
 	 * @param other
 	 *            execution data to merge
@@ -149,7 +195,11 @@ public final class ExecutionData {
 	 * A and not B
 	 * </pre>
 	 *
-	 * The probe array of the other object is not modified.
+	 * The probe array of the other object is not modified. For
+	 * <code>flag==true</code> hit counts of the other object are added to the
+	 * hit counts of this object, saturating at {@link Integer#MAX_VALUE}. For
+	 * <code>flag==false</code> the hit counts of probes executed in the other
+	 * object are set to zero.
 	 *
 	 * @param other
 	 *            execution data to merge
@@ -165,6 +215,33 @@ public final class ExecutionData {
 				probes[i] = flag;
 			}
 		}
+		final int[] otherCounts = other.getCounts();
+		if (flag) {
+			if (otherCounts != null) {
+				addCounts(otherCounts);
+			}
+		} else if (counts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				if (otherData[i]
+						|| (otherCounts != null && otherCounts[i] != 0)) {
+					counts[i] = 0;
+				}
+			}
+		}
+	}
+
+	private void addCounts(final int[] otherCounts) {
+		if (counts == null) {
+			counts = new int[probes.length];
+		}
+		for (int i = 0; i < counts.length; i++) {
+			final int sum = counts[i] + otherCounts[i];
+			// saturate on overflow, counts are never negative:
+			counts[i] = sum < 0 ? Integer.MAX_VALUE : sum;
+			if (otherCounts[i] != 0) {
+				probes[i] = true;
+			}
+		}
 	}
 
 	/**
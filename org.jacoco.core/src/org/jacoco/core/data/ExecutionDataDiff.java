@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the differences between a base and a current set of execution data
+ * on probe level. The base data is only accessed by class id and name, so it
+ * can be a random access exec file like {@link IndexedExecutionDataFile}. The
+ * current data is streamed to this instance as a {@link IExecutionDataVisitor},
+ * entries of the same class may occur multiple times. Afterwards all entries of
+ * the base data have to be passed to the visitor returned by
+ * {@link #getBaseVisitor()} once to report the probes which are not covered any
+ * more.
+ *
+ * <p>
+ * Classes have different ids in both data sets if they have been modified in
+ * between. Such classes are matched by name and reported as changed. If the
+ * class files of the builds are known, they allow to tell classes which have
+ * not been executed in one of the data sets from classes which have been added
+ * or removed.
+ * </p>
+ */
+public class ExecutionDataDiff implements IExecutionDataVisitor {
+
+	private final IExecutionDataSource base;
+
+	private final IExecutionDataDiffVisitor output;
+
+	/** Remaining missed probes of all base entries matched so far */
+	private final ExecutionDataStore missed;
+
+	/** Names of all classes reported as changed so far */
+	private final Set<String> changed;
+
+	private Map<String, Long> baseClasses;
+
+	private Map<String, Long> currentClasses;
+
+	/**
+	 * Creates a new diff against the given base data.
+	 *
+	 * @param base
+	 *            execution data to compare with
+	 * @param output
+	 *            visitor to report the differences to
+	 */
+	public ExecutionDataDiff(final IExecutionDataSource base,
+			final IExecutionDataDiffVisitor output) {
+		this.base = base;
+		this.output = output;
+		this.missed = new ExecutionDataStore();
+		this.changed = new HashSet<String>();
+	}
+
+	/**
+	 * Sets the ids of the class files which have been used to record the base
+	 * data. Without them classes are assumed to be unchanged if no other
+	 * version has been executed in the base.
+	 *
+	 * @param classes
+	 *            class ids by VM name or <code>null</code>
+	 */
+	public void setBaseClasses(final Map<String, Long> classes) {
+		this.baseClasses = classes;
+	}
+
+	/**
+	 * Sets the ids of the class files which have been used to record the
+	 * current data. Without them classes are assumed to be unchanged if no
+	 * other version has been executed in the current data set.
+	 *
+	 * @param classes
+	 *            class ids by VM name or <code>null</code>
+	 */
+	public void setCurrentClasses(final Map<String, Long> classes) {
+		this.currentClasses = classes;
+	}
+
+	/**
+	 * Compares an entry of the current data set with the base.
+	 *
+	 * @param current
+	 *            execution data of the current data set
+	 */
+	public void visitClassExecution(final ExecutionData current) {
+		final long id = current.getId();
+		final String name = current.getName();
+		final ExecutionData entry = base.get(id);
+		if (entry == null) {
+			if (isModified(baseClasses, id, name)) {
+				changed.add(name);
+				output.visitChangedClass(name, current);
+			} else if (current.hasHits()) {
+				output.visitNewlyCovered(current);
+			}
+			return;
+		}
+		final boolean[] probes = current.getProbes();
+		entry.assertCompatibility(id, name, probes.length);
+
+		final ExecutionData covered = new ExecutionData(id, name,
+				probes.clone());
+		covered.merge(entry, false);
+		if (covered.hasHits()) {
+			output.visitNewlyCovered(covered);
+		}
+
+		final ExecutionData remaining = missed.get(id);
+		if (remaining == null) {
+			final ExecutionData copy = new ExecutionData(id, name,
+					entry.getProbes().clone());
+			copy.merge(current, false);
+			missed.put(copy);
+		} else {
+			remaining.merge(current, false);
+		}
+	}
+
+	private boolean isModified(final Map<String, Long> classes, final long id,
+			final String name) {
+		if (classes == null) {
+			return base.contains(name);
+		}
+		final Long classId = classes.get(name);
+		return classId == null || classId.longValue() != id;
+	}
+
+	/**
+	 * Returns the visitor which expects all entries of the base data after the
+	 * current data set has been processed. Every class must be passed only
+	 * once.
+	 *
+	 * @return visitor for the entries of the base data
+	 */
+	public IExecutionDataVisitor getBaseVisitor() {
+		return new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData entry) {
+				visitBaseExecution(entry);
+			}
+		};
+	}
+
+	private void visitBaseExecution(final ExecutionData entry) {
+		final long id = entry.getId();
+		final ExecutionData remaining = missed.get(id);
+		if (remaining != null) {
+			if (remaining.hasHits()) {
+				output.visitNewlyMissed(remaining);
+			}
+			return;
+		}
+		final String name = entry.getName();
+		if (changed.contains(name)) {
+			// already reported with the current version of the class
+			return;
+		}
+		if (currentClasses != null) {
+			final Long classId = currentClasses.get(name);
+			if (classId == null || classId.longValue() != id) {
+				changed.add(name);
+				output.visitChangedClass(name, null);
+				return;
+			}
+		}
+		if (entry.hasHits()) {
+			output.visitNewlyMissed(entry);
+		}
+	}
+
+}
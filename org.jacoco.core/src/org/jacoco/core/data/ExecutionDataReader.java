@@ -31,6 +31,8 @@ public class ExecutionDataReader {
 
 	private IExecutionDataVisitor executionDataVisitor = null;
 
+	private IExecutionDataDeltaVisitor executionDataDeltaVisitor = null;
+
 	private boolean firstBlock = true;
 
 	/**
@@ -56,7 +58,11 @@ public class ExecutionDataReader {
 	}
 
 	/**
-	 * Sets an listener for execution data.
+	 * Sets an listener for execution data. Unless a separate listener is set
+	 * with {@link #setExecutionDataDeltaVisitor(IExecutionDataDeltaVisitor)}
+	 * incremental execution data blocks are reported to the same listener with
+	 * only the newly executed probes set, so merging all reported data results
+	 * in the complete execution data.
 	 *
 	 * @param visitor
 	 *            visitor to retrieve execution data events
@@ -65,6 +71,19 @@ public class ExecutionDataReader {
 		this.executionDataVisitor = visitor;
 	}
 
+	/**
+	 * Sets a separate listener for incremental execution data. If no such
+	 * listener is set incremental execution data is reported to the listener
+	 * for execution data.
+	 *
+	 * @param visitor
+	 *            visitor to retrieve incremental execution data events
+	 */
+	public void setExecutionDataDeltaVisitor(
+			final IExecutionDataDeltaVisitor visitor) {
+		this.executionDataDeltaVisitor = visitor;
+	}
+
 	/**
 	 * Reads all data and reports it to the corresponding visitors. The stream
 	 * is read until its end or a command confirmation has been sent.
@@ -115,6 +134,15 @@ public class ExecutionDataReader {
 		case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
 			readExecutionData();
 			return true;
+		case ExecutionDataWriter.BLOCK_EXECUTIONDATA_DELTA:
+			readExecutionDataDelta();
+			return true;
+		case ExecutionDataWriter.BLOCK_EXECUTIONDATA_COUNTS:
+			readExecutionDataCounts(false);
+			return true;
+		case ExecutionDataWriter.BLOCK_EXECUTIONDATA_DELTA_COUNTS:
+			readExecutionDataCounts(true);
+			return true;
 		default:
 			throw new IOException(
 					format("Unknown block type %x.", Byte.valueOf(blocktype)));
@@ -152,4 +180,52 @@ public class ExecutionDataReader {
 				.visitClassExecution(new ExecutionData(id, name, probes));
 	}
 
+	private void readExecutionDataDelta() throws IOException {
+		if (executionDataVisitor == null) {
+			throw new IOException("No execution data visitor.");
+		}
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		final boolean[] probes = new boolean[in.readVarInt()];
+		int index = 0;
+		for (int count = in.readVarInt(); count > 0; count--) {
+			index += in.readVarInt();
+			if (index >= probes.length) {
+				throw new IOException(
+						format("Invalid probe index %s for class %s.",
+								Integer.valueOf(index), name));
+			}
+			probes[index] = true;
+		}
+		visitDelta(new ExecutionData(id, name, probes));
+	}
+
+	private void visitDelta(final ExecutionData delta) {
+		if (executionDataDeltaVisitor == null) {
+			executionDataVisitor.visitClassExecution(delta);
+		} else {
+			executionDataDeltaVisitor.visitClassExecutionDelta(delta);
+		}
+	}
+
+	private void readExecutionDataCounts(final boolean delta)
+			throws IOException {
+		if (executionDataVisitor == null) {
+			throw new IOException("No execution data visitor.");
+		}
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		final boolean[] probes = in.readBooleanArray();
+		final int[] counts = new int[probes.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = in.readVarInt();
+		}
+		final ExecutionData data = new ExecutionData(id, name, probes, counts);
+		if (delta) {
+			visitDelta(data);
+		} else {
+			executionDataVisitor.visitClassExecution(data);
+		}
+	}
+
 }
@@ -13,11 +13,9 @@
 package org.jacoco.core.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
 /**
  * In-memory data store for execution data. The data can be added through its
@@ -26,12 +24,35 @@ import java.util.Set;
  * as executed if it is reported as executed at least once. This allows to merge
  * coverage date from multiple runs. A instance of this class is not thread
  * safe.
+ * <p>
+ * Entries are kept in insertion order in a dense array. Lookups by class id and
+ * by class name go through two open-addressing hash tables of primitive indices
+ * into this array, so no boxing or per-entry map nodes are required.
  */
-public final class ExecutionDataStore implements IExecutionDataVisitor {
+public final class ExecutionDataStore
+		implements IExecutionDataVisitor, IExecutionDataSource {
 
-	private final Map<Long, ExecutionData> entries = new HashMap<Long, ExecutionData>();
+	private static final int INITIAL_CAPACITY = 16;
 
-	private final Set<String> names = new HashSet<String>();
+	/** empty slot marker in the hash tables */
+	private static final int FREE = -1;
+
+	/** dense array of all entries in insertion order */
+	private ExecutionData[] entries = new ExecutionData[INITIAL_CAPACITY];
+
+	/** class ids of all entries, parallel to {@link #entries} */
+	private long[] ids = new long[INITIAL_CAPACITY];
+
+	private int size = 0;
+
+	/** open-addressing table of indices into {@link #entries} by class id */
+	private int[] idTable = newTable(INITIAL_CAPACITY * 2);
+
+	/**
+	 * open-addressing table of indices into {@link #entries} for the first
+	 * entry with a given class name
+	 */
+	private int[] nameTable = newTable(INITIAL_CAPACITY * 2);
 
 	/**
 	 * Adds the given {@link ExecutionData} object into the store. If there is
@@ -46,11 +67,9 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 * @see ExecutionData#assertCompatibility(long, String, int)
 	 */
 	public void put(final ExecutionData data) throws IllegalStateException {
-		final Long id = Long.valueOf(data.getId());
-		final ExecutionData entry = entries.get(id);
+		final ExecutionData entry = get(data.getId());
 		if (entry == null) {
-			entries.put(id, data);
-			names.add(data.getName());
+			add(data);
 		} else {
 			entry.merge(data);
 		}
@@ -71,8 +90,7 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 */
 	public void subtract(final ExecutionData data)
 			throws IllegalStateException {
-		final Long id = Long.valueOf(data.getId());
-		final ExecutionData entry = entries.get(id);
+		final ExecutionData entry = get(data.getId());
 		if (entry != null) {
 			entry.merge(data, false);
 		}
@@ -100,7 +118,17 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 * @return execution data or <code>null</code>
 	 */
 	public ExecutionData get(final long id) {
-		return entries.get(Long.valueOf(id));
+		final int[] table = idTable;
+		final int mask = table.length - 1;
+		for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+			final int index = table[slot];
+			if (index == FREE) {
+				return null;
+			}
+			if (ids[index] == id) {
+				return entries[index];
+			}
+		}
 	}
 
 	/**
@@ -113,7 +141,18 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 *         contained.
 	 */
 	public boolean contains(final String name) {
-		return names.contains(name);
+		final int[] table = nameTable;
+		final int mask = table.length - 1;
+		for (int slot = hash(name.hashCode()) & mask;; slot = (slot + 1)
+				& mask) {
+			final int index = table[slot];
+			if (index == FREE) {
+				return false;
+			}
+			if (entries[index].getName().equals(name)) {
+				return true;
+			}
+		}
 	}
 
 	/**
@@ -130,11 +169,10 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 */
 	public ExecutionData get(final Long id, final String name,
 			final int probecount) {
-		ExecutionData entry = entries.get(id);
+		ExecutionData entry = get(id.longValue());
 		if (entry == null) {
 			entry = new ExecutionData(id.longValue(), name, probecount);
-			entries.put(id, entry);
-			names.add(name);
+			add(entry);
 		} else {
 			entry.assertCompatibility(id.longValue(), name, probecount);
 		}
@@ -146,8 +184,8 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 * execution data objects itself are not removed.
 	 */
 	public void reset() {
-		for (final ExecutionData executionData : this.entries.values()) {
-			executionData.reset();
+		for (int i = 0; i < size; i++) {
+			entries[i].reset();
 		}
 	}
 
@@ -157,7 +195,11 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 * @return current contents
 	 */
 	public Collection<ExecutionData> getContents() {
-		return new ArrayList<ExecutionData>(entries.values());
+		final List<ExecutionData> contents = new ArrayList<ExecutionData>(size);
+		for (int i = 0; i < size; i++) {
+			contents.add(entries[i]);
+		}
+		return contents;
 	}
 
 	/**
@@ -167,9 +209,66 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 	 *            interface to write content to
 	 */
 	public void accept(final IExecutionDataVisitor visitor) {
-		for (final ExecutionData data : getContents()) {
-			visitor.visitClassExecution(data);
+		// Entries are only appended, therefore a visitor which adds new data
+		// to this store does not affect the snapshot taken here:
+		final ExecutionData[] snapshot = entries;
+		final int count = size;
+		for (int i = 0; i < count; i++) {
+			visitor.visitClassExecution(snapshot[i]);
+		}
+	}
+
+	private void add(final ExecutionData data) {
+		if (size == entries.length) {
+			grow();
+		}
+		final int index = size++;
+		entries[index] = data;
+		ids[index] = data.getId();
+		insert(idTable, hash(data.getId()), index);
+		if (!contains(data.getName())) {
+			insert(nameTable, hash(data.getName().hashCode()), index);
+		}
+	}
+
+	private void grow() {
+		final int capacity = entries.length * 2;
+		final ExecutionData[] newEntries = new ExecutionData[capacity];
+		System.arraycopy(entries, 0, newEntries, 0, size);
+		entries = newEntries;
+		final long[] newIds = new long[capacity];
+		System.arraycopy(ids, 0, newIds, 0, size);
+		ids = newIds;
+		idTable = newTable(capacity * 2);
+		nameTable = newTable(capacity * 2);
+		for (int i = 0; i < size; i++) {
+			insert(idTable, hash(ids[i]), i);
+			if (!contains(entries[i].getName())) {
+				insert(nameTable, hash(entries[i].getName().hashCode()), i);
+			}
+		}
+	}
+
+	private static void insert(final int[] table, final int hash,
+			final int index) {
+		final int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != FREE) {
+			slot = (slot + 1) & mask;
 		}
+		table[slot] = index;
+	}
+
+	private static int[] newTable(final int capacity) {
+		final int[] table = new int[capacity];
+		Arrays.fill(table, FREE);
+		return table;
+	}
+
+	private static int hash(final long value) {
+		long h = value * 0xff51afd7ed558ccdL;
+		h ^= h >>> 32;
+		return (int) h;
 	}
 
 	// === IExecutionDataVisitor ===
@@ -21,8 +21,8 @@ import org.jacoco.core.internal.data.CompactDataOutput;
 /**
  * Serialization of execution data into binary streams.
  */
-public class ExecutionDataWriter
-		implements ISessionInfoVisitor, IExecutionDataVisitor {
+public class ExecutionDataWriter implements ISessionInfoVisitor,
+		IExecutionDataVisitor, IExecutionDataDeltaVisitor {
 
 	/**
 	 * File format version, will be incremented for each incompatible change.
@@ -46,6 +46,24 @@ public class ExecutionDataWriter
 	/** Block identifier for execution data of a single class. */
 	public static final byte BLOCK_EXECUTIONDATA = 0x11;
 
+	/**
+	 * Block identifier for incremental execution data of a single class. Only
+	 * the indices of newly executed probes are stored.
+	 */
+	public static final byte BLOCK_EXECUTIONDATA_DELTA = 0x12;
+
+	/**
+	 * Block identifier for execution data of a single class including the hit
+	 * counts of every probe.
+	 */
+	public static final byte BLOCK_EXECUTIONDATA_COUNTS = 0x13;
+
+	/**
+	 * Block identifier for incremental execution data of a single class
+	 * including the hit counts of every probe since the previous increment.
+	 */
+	public static final byte BLOCK_EXECUTIONDATA_DELTA_COUNTS = 0x14;
+
 	/** Underlying data output */
 	protected final CompactDataOutput out;
 
@@ -98,6 +116,10 @@ public class ExecutionDataWriter
 	}
 
 	public void visitClassExecution(final ExecutionData data) {
+		if (data.getCounts() != null) {
+			writeExecutionDataCounts(BLOCK_EXECUTIONDATA_COUNTS, data);
+			return;
+		}
 		if (data.hasHits()) {
 			try {
 				out.writeByte(BLOCK_EXECUTIONDATA);
@@ -110,6 +132,55 @@ public class ExecutionDataWriter
 		}
 	}
 
+	private void writeExecutionDataCounts(final byte blocktype,
+			final ExecutionData data) {
+		if (data.hasHits()) {
+			try {
+				out.writeByte(blocktype);
+				out.writeLong(data.getId());
+				out.writeUTF(data.getName());
+				out.writeBooleanArray(data.getProbes());
+				for (final int count : data.getCounts()) {
+					out.writeVarInt(count);
+				}
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	public void visitClassExecutionDelta(final ExecutionData delta) {
+		if (delta.getCounts() != null) {
+			writeExecutionDataCounts(BLOCK_EXECUTIONDATA_DELTA_COUNTS, delta);
+			return;
+		}
+		final boolean[] probes = delta.getProbes();
+		int count = 0;
+		for (final boolean p : probes) {
+			if (p) {
+				count++;
+			}
+		}
+		if (count > 0) {
+			try {
+				out.writeByte(BLOCK_EXECUTIONDATA_DELTA);
+				out.writeLong(delta.getId());
+				out.writeUTF(delta.getName());
+				out.writeVarInt(probes.length);
+				out.writeVarInt(count);
+				int last = 0;
+				for (int i = 0; i < probes.length; i++) {
+					if (probes[i]) {
+						out.writeVarInt(i - last);
+						last = i;
+					}
+				}
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 	/**
 	 * Returns the first bytes of a file that represents a valid execution data
 	 * file. In any case every execution data file starts with the three bytes
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+/**
+ * Interface for data output of incremental execution data. A delta only
+ * contains the probes which have been executed since the previous delta for the
+ * same class. Merging all deltas of a runtime in order results in the complete
+ * execution data.
+ */
+public interface IExecutionDataDeltaVisitor {
+
+	/**
+	 * Provides the probes of a class which have been executed since the
+	 * previous delta.
+	 *
+	 * @param delta
+	 *            execution data for a class where only newly executed probes
+	 *            are set
+	 */
+	void visitClassExecutionDelta(ExecutionData delta);
+
+}
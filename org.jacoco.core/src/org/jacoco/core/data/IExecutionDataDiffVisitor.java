@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+/**
+ * Interface for the output of {@link ExecutionDataDiff}. For classes which are
+ * the same in both data sets the differences are reported on probe level,
+ * classes which have been modified between the two data sets are reported as a
+ * whole.
+ */
+public interface IExecutionDataDiffVisitor {
+
+	/**
+	 * Provides the probes of an unchanged class which are covered in the
+	 * current data set but not in the base. This includes classes which have
+	 * not been executed at all in the base.
+	 *
+	 * @param data
+	 *            execution data where only newly covered probes are set
+	 */
+	void visitNewlyCovered(ExecutionData data);
+
+	/**
+	 * Provides the probes of an unchanged class which are covered in the base
+	 * but not in the current data set. This includes classes which have not
+	 * been executed at all in the current data set.
+	 *
+	 * @param data
+	 *            execution data where only newly missed probes are set
+	 */
+	void visitNewlyMissed(ExecutionData data);
+
+	/**
+	 * Reports a class which has been added, modified or removed between the
+	 * base and the current data set. If the current data set contains multiple
+	 * entries for the class this method is called for every entry.
+	 *
+	 * @param name
+	 *            VM name of the class
+	 * @param current
+	 *            execution data of the class in the current data set or
+	 *            <code>null</code> if it has not been executed
+	 */
+	void visitChangedClass(String name, ExecutionData current);
+
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+/**
+ * Source of execution data which can be queried for single classes. This allows
+ * consumers like the {@link org.jacoco.core.analysis.Analyzer} to only retrieve
+ * the execution data of the classes they actually process.
+ */
+public interface IExecutionDataSource {
+
+	/**
+	 * Returns the {@link ExecutionData} entry with the given id if it exists.
+	 *
+	 * @param id
+	 *            class id
+	 * @return execution data or <code>null</code>
+	 */
+	ExecutionData get(long id);
+
+	/**
+	 * Checks whether execution data for classes with the given name are
+	 * contained.
+	 *
+	 * @param name
+	 *            VM name
+	 * @return <code>true</code> if at least one class with the name is
+	 *         contained.
+	 */
+	boolean contains(String name);
+
+}
@@ -0,0 +1,467 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+
+/**
+ * Random access to exec files written with {@link IndexedExecutionDataWriter}.
+ * Only header and index of the file are read when it is opened, the execution
+ * data of a single class is read from the file on demand. The index is memory
+ * mapped, so the file is accessed by the operating system's page cache rather
+ * than copied to the Java heap.
+ *
+ * <p>
+ * Instances are thread safe. Every call to {@link #get(long)} reads the entry
+ * from the file and returns a new {@link ExecutionData} instance. The file has
+ * to be closed with {@link #close()} after usage. Closing also releases the
+ * memory mapping of the index, where the JRE supports this, otherwise the
+ * mapping is released by garbage collection. Until then the file can't be
+ * deleted or replaced on Windows.
+ * </p>
+ */
+public class IndexedExecutionDataFile
+		implements IExecutionDataSource, Closeable {
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final List<SessionInfo> sessionInfos;
+
+	private final int count;
+
+	private final long idIndexOffset;
+
+	private final MappedByteBuffer index;
+
+	private final int nameIndexStart;
+
+	/** guards the mapped index against access after {@link #close()} */
+	private final ReadWriteLock lock;
+
+	private boolean closed;
+
+	/**
+	 * Opens the given indexed exec file.
+	 *
+	 * @param file
+	 *            indexed exec file
+	 * @throws IOException
+	 *             if the file can't be read or is not a valid indexed exec file
+	 * @throws IncompatibleExecDataVersionException
+	 *             if the file has been written by a different JaCoCo release
+	 */
+	public IndexedExecutionDataFile(final File file) throws IOException {
+		this.lock = new ReentrantReadWriteLock();
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			this.channel = this.file.getChannel();
+			final long length = channel.size();
+			if (length < IndexedExecutionDataWriter.TRAILER_SIZE) {
+				throw new IOException("Invalid execution data file.");
+			}
+			final DataInputStream in = new DataInputStream(
+					new FileInputStream(file));
+			try {
+				readHeader(in);
+				final int sessionCount = in.readInt();
+				final List<SessionInfo> sessions = new ArrayList<SessionInfo>(
+						sessionCount);
+				for (int i = 0; i < sessionCount; i++) {
+					final String id = in.readUTF();
+					final long start = in.readLong();
+					final long dump = in.readLong();
+					sessions.add(new SessionInfo(id, start, dump));
+				}
+				this.sessionInfos = Collections.unmodifiableList(sessions);
+			} finally {
+				in.close();
+			}
+
+			final ByteBuffer trailer = ByteBuffer
+					.allocate(IndexedExecutionDataWriter.TRAILER_SIZE);
+			readFully(trailer,
+					length - IndexedExecutionDataWriter.TRAILER_SIZE);
+			this.idIndexOffset = trailer.getLong(0);
+			final long nameIndexOffset = trailer.getLong(8);
+			this.count = trailer.getInt(16);
+			if (trailer.getInt(
+					20) != IndexedExecutionDataWriter.TRAILER_MAGIC_NUMBER
+					|| count < 0
+					|| nameIndexOffset != idIndexOffset + (long) count
+							* IndexedExecutionDataWriter.ID_INDEX_ENTRY_SIZE
+					|| length - IndexedExecutionDataWriter.TRAILER_SIZE
+							- nameIndexOffset != (long) count
+									* IndexedExecutionDataWriter.NAME_INDEX_ENTRY_SIZE) {
+				throw new IOException("Invalid execution data file.");
+			}
+			this.nameIndexStart = (int) (nameIndexOffset - idIndexOffset);
+			this.index = channel.map(MapMode.READ_ONLY, idIndexOffset, length
+					- IndexedExecutionDataWriter.TRAILER_SIZE - idIndexOffset);
+		} catch (final IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks whether the given file starts with the header of the indexed exec
+	 * file format.
+	 *
+	 * @param file
+	 *            file to check
+	 * @return <code>true</code> if the file is an indexed exec file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static boolean isIndexed(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return isIndexed(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Checks whether the given stream starts with the header of the indexed
+	 * exec file format. The header bytes are consumed from the stream.
+	 *
+	 * @param in
+	 *            stream to check
+	 * @return <code>true</code> if the stream contains an indexed exec file
+	 * @throws IOException
+	 *             if the stream can't be read
+	 */
+	public static boolean isIndexed(final InputStream in) throws IOException {
+		try {
+			return isIndexed(new DataInputStream(in));
+		} catch (final EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the session infos and execution data of an indexed exec file
+	 * sequentially from the given stream. This allows to read indexed exec
+	 * files from sources without random access. The index at the end of the
+	 * file is not read.
+	 *
+	 * @param input
+	 *            stream positioned at the beginning of an indexed exec file
+	 * @param sessionInfoVisitor
+	 *            visitor for the session infos
+	 * @param executionDataVisitor
+	 *            visitor for the execution data
+	 * @throws IOException
+	 *             if the stream can't be read or is not a valid indexed exec
+	 *             file
+	 * @throws IncompatibleExecDataVersionException
+	 *             if the file has been written by a different JaCoCo release
+	 */
+	public static void read(final InputStream input,
+			final ISessionInfoVisitor sessionInfoVisitor,
+			final IExecutionDataVisitor executionDataVisitor)
+			throws IOException {
+		final CompactDataInput in = new CompactDataInput(input);
+		readHeader(in);
+		for (int i = in.readInt(); i > 0; i--) {
+			final String id = in.readUTF();
+			final long start = in.readLong();
+			final long dump = in.readLong();
+			sessionInfoVisitor
+					.visitSessionInfo(new SessionInfo(id, start, dump));
+		}
+		for (int i = in.readInt(); i > 0; i--) {
+			executionDataVisitor.visitClassExecution(readExecutionData(in));
+		}
+	}
+
+	private static ExecutionData readExecutionData(final CompactDataInput in)
+			throws IOException {
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		final boolean[] probes = in.readBooleanArray();
+		if (!in.readBoolean()) {
+			return new ExecutionData(id, name, probes);
+		}
+		final int[] counts = new int[probes.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = in.readVarInt();
+		}
+		return new ExecutionData(id, name, probes, counts);
+	}
+
+	private static boolean isIndexed(final DataInputStream in)
+			throws IOException {
+		return in.readByte() == ExecutionDataWriter.BLOCK_HEADER
+				&& in.readChar() == ExecutionDataWriter.MAGIC_NUMBER
+				&& in.readChar() == IndexedExecutionDataWriter.FORMAT_VERSION;
+	}
+
+	private static void readHeader(final DataInputStream in)
+			throws IOException {
+		if (in.readByte() != ExecutionDataWriter.BLOCK_HEADER
+				|| in.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+			throw new IOException("Invalid execution data file.");
+		}
+		final char version = in.readChar();
+		if (version != IndexedExecutionDataWriter.FORMAT_VERSION) {
+			throw new IncompatibleExecDataVersionException(version);
+		}
+	}
+
+	/**
+	 * Returns the session infos stored in the file.
+	 *
+	 * @return unmodifiable list of session infos
+	 */
+	public List<SessionInfo> getSessionInfos() {
+		return sessionInfos;
+	}
+
+	/**
+	 * Returns the number of classes contained in the file.
+	 *
+	 * @return number of classes
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Reads the execution data of the class with the given id from the file.
+	 *
+	 * @param id
+	 *            class id
+	 * @return new execution data instance or <code>null</code>
+	 * @throws IllegalStateException
+	 *             if the file can't be read
+	 */
+	public ExecutionData get(final long id) {
+		final Lock readLock = lockOpen();
+		try {
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final long midId = getId(mid);
+				if (midId < id) {
+					low = mid + 1;
+				} else if (midId > id) {
+					high = mid - 1;
+				} else {
+					return readEntry(mid);
+				}
+			}
+			return null;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether execution data for classes with the given name are
+	 * contained. The check is answered from the name index, only entries with
+	 * the same name hash code are read from the file.
+	 *
+	 * @param name
+	 *            VM name
+	 * @return <code>true</code> if at least one class with the name is
+	 *         contained.
+	 * @throws IllegalStateException
+	 *             if the file can't be read
+	 */
+	public boolean contains(final String name) {
+		final Lock readLock = lockOpen();
+		try {
+			final int hash = name.hashCode();
+			int low = 0;
+			int high = count;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (getNameHash(mid) < hash) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			for (int i = low; i < count && getNameHash(i) == hash; i++) {
+				final int pos = nameIndexStart
+						+ i * IndexedExecutionDataWriter.NAME_INDEX_ENTRY_SIZE
+						+ 4;
+				if (name.equals(readEntry(index.getInt(pos)).getName())) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Reads all execution data entries in the order of their ids and passes
+	 * them to the given visitor.
+	 *
+	 * @param visitor
+	 *            visitor to emit execution data to
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public void accept(final IExecutionDataVisitor visitor) throws IOException {
+		final Lock readLock = lockOpen();
+		try {
+			for (int i = 0; i < count; i++) {
+				visitor.visitClassExecution(read(i));
+			}
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the underlying file and releases the memory mapping of the index.
+	 * Subsequent calls to {@link #get(long)}, {@link #contains(String)} and
+	 * {@link #accept(IExecutionDataVisitor)} fail with an
+	 * {@link IllegalStateException}. Closing an already closed file has no
+	 * effect.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed
+	 */
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			unmap(index);
+			file.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private Lock lockOpen() {
+		final Lock readLock = lock.readLock();
+		readLock.lock();
+		if (closed) {
+			readLock.unlock();
+			throw new IllegalStateException("Execution data file is closed.");
+		}
+		return readLock;
+	}
+
+	/**
+	 * Releases the given mapping immediately instead of waiting for garbage
+	 * collection. There is no public API for this, so the internal cleaner is
+	 * called reflectively: through <code>sun.misc.Unsafe</code> since Java 9,
+	 * through the buffer's cleaner before.
+	 */
+	private static void unmap(final MappedByteBuffer buffer) {
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+						ByteBuffer.class);
+			} catch (final NoSuchMethodException e) {
+				// Java 8 and before
+				final Method cleanerMethod = buffer.getClass()
+						.getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				final Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+				return;
+			}
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+		} catch (final Exception e) {
+			// The mapping is released by garbage collection
+		}
+	}
+
+	private long getId(final int entry) {
+		return index.getLong(
+				entry * IndexedExecutionDataWriter.ID_INDEX_ENTRY_SIZE);
+	}
+
+	private long getOffset(final int entry) {
+		return index.getLong(
+				entry * IndexedExecutionDataWriter.ID_INDEX_ENTRY_SIZE + 8);
+	}
+
+	private int getNameHash(final int entry) {
+		return index.getInt(nameIndexStart
+				+ entry * IndexedExecutionDataWriter.NAME_INDEX_ENTRY_SIZE);
+	}
+
+	private ExecutionData readEntry(final int entry) {
+		try {
+			return read(entry);
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private ExecutionData read(final int entry) throws IOException {
+		final long offset = getOffset(entry);
+		final long end = entry + 1 < count ? getOffset(entry + 1)
+				: idIndexOffset;
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (end - offset));
+		readFully(buffer, offset);
+		return readExecutionData(
+				new CompactDataInput(new ByteArrayInputStream(buffer.array())));
+	}
+
+	private void readFully(final ByteBuffer buffer, final long position)
+			throws IOException {
+		long pos = position;
+		while (buffer.hasRemaining()) {
+			final int n = channel.read(buffer, pos);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			pos += n;
+		}
+	}
+
+}
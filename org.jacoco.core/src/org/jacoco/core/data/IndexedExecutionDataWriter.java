@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Serialization of execution data into the indexed exec file format. In
+ * contrast to {@link ExecutionDataWriter} all data has to be available upfront
+ * as the file ends with an index which allows random access to the execution
+ * data of single classes with {@link IndexedExecutionDataFile}.
+ *
+ * <p>
+ * File layout:
+ * </p>
+ * <ul>
+ * <li>Header: {@link ExecutionDataWriter#BLOCK_HEADER},
+ * {@link ExecutionDataWriter#MAGIC_NUMBER}, {@link #FORMAT_VERSION}</li>
+ * <li>Number of sessions followed by id, start and dump time stamp of every
+ * session</li>
+ * <li>Number of classes followed by id, name, probes and optional hit counts of
+ * every class, sorted by class id</li>
+ * <li>Id index: class id and file offset of every class, sorted by class
+ * id</li>
+ * <li>Name index: name hash code and position in the id index of every class,
+ * sorted by hash code</li>
+ * <li>Trailer: offset of id index, offset of name index, number of classes and
+ * {@link #TRAILER_MAGIC_NUMBER}</li>
+ * </ul>
+ */
+public class IndexedExecutionDataWriter {
+
+	/**
+	 * File format version of indexed exec files. It is derived from
+	 * {@link ExecutionDataWriter#FORMAT_VERSION} so both formats always change
+	 * together. Readers of the sequential format reject indexed files with a
+	 * {@link IncompatibleExecDataVersionException}.
+	 */
+	public static final char FORMAT_VERSION;
+
+	static {
+		// Runtime initialize to ensure javac does not inline the value.
+		FORMAT_VERSION = (char) (ExecutionDataWriter.FORMAT_VERSION | 0x8000);
+	}
+
+	/** Magic number at the very end of indexed exec files. */
+	public static final int TRAILER_MAGIC_NUMBER = 0x4A434958;
+
+	/** Size of the trailer in bytes. */
+	static final int TRAILER_SIZE = 24;
+
+	/** Size of a id index entry in bytes. */
+	static final int ID_INDEX_ENTRY_SIZE = 16;
+
+	/** Size of a name index entry in bytes. */
+	static final int NAME_INDEX_ENTRY_SIZE = 8;
+
+	private final OutputStream output;
+
+	/**
+	 * Creates a new writer based on the given output stream. Depending on the
+	 * nature of the underlying stream output should be buffered.
+	 *
+	 * @param output
+	 *            binary stream to write execution data to
+	 */
+	public IndexedExecutionDataWriter(final OutputStream output) {
+		this.output = output;
+	}
+
+	/**
+	 * Writes a complete indexed exec file with the given content. Classes
+	 * without any executed probes are omitted like in the sequential format.
+	 *
+	 * @param sessions
+	 *            session infos to write
+	 * @param contents
+	 *            execution data to write, class ids must be unique
+	 * @throws IOException
+	 *             if the underlying stream can't be written
+	 */
+	public void write(final Collection<SessionInfo> sessions,
+			final Collection<ExecutionData> contents) throws IOException {
+		final List<ExecutionData> entries = sortedEntriesWithHits(contents);
+		final CompactDataOutput out = new CompactDataOutput(output);
+		out.writeByte(ExecutionDataWriter.BLOCK_HEADER);
+		out.writeChar(ExecutionDataWriter.MAGIC_NUMBER);
+		out.writeChar(FORMAT_VERSION);
+		out.writeInt(sessions.size());
+		for (final SessionInfo info : sessions) {
+			out.writeUTF(info.getId());
+			out.writeLong(info.getStartTimeStamp());
+			out.writeLong(info.getDumpTimeStamp());
+		}
+		out.writeInt(entries.size());
+		out.flush();
+		long offset = out.size();
+
+		final long[] offsets = new long[entries.size()];
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final CompactDataOutput entryOut = new CompactDataOutput(buffer);
+		for (int i = 0; i < offsets.length; i++) {
+			final ExecutionData data = entries.get(i);
+			buffer.reset();
+			entryOut.writeLong(data.getId());
+			entryOut.writeUTF(data.getName());
+			entryOut.writeBooleanArray(data.getProbes());
+			final int[] counts = data.getCounts();
+			entryOut.writeBoolean(counts != null);
+			if (counts != null) {
+				for (final int c : counts) {
+					entryOut.writeVarInt(c);
+				}
+			}
+			entryOut.flush();
+			buffer.writeTo(output);
+			offsets[i] = offset;
+			offset += buffer.size();
+		}
+
+		final DataOutputStream indexOut = new DataOutputStream(output);
+		final long idIndexOffset = offset;
+		for (int i = 0; i < offsets.length; i++) {
+			indexOut.writeLong(entries.get(i).getId());
+			indexOut.writeLong(offsets[i]);
+		}
+		final long nameIndexOffset = idIndexOffset
+				+ (long) offsets.length * ID_INDEX_ENTRY_SIZE;
+		for (final long nameEntry : nameIndex(entries)) {
+			indexOut.writeInt((int) (nameEntry >> 32));
+			indexOut.writeInt((int) nameEntry);
+		}
+		indexOut.writeLong(idIndexOffset);
+		indexOut.writeLong(nameIndexOffset);
+		indexOut.writeInt(offsets.length);
+		indexOut.writeInt(TRAILER_MAGIC_NUMBER);
+		indexOut.flush();
+	}
+
+	private static List<ExecutionData> sortedEntriesWithHits(
+			final Collection<ExecutionData> contents) {
+		final List<ExecutionData> entries = new ArrayList<ExecutionData>(
+				contents.size());
+		for (final ExecutionData data : contents) {
+			if (data.hasHits()) {
+				entries.add(data);
+			}
+		}
+		Collections.sort(entries, new Comparator<ExecutionData>() {
+			public int compare(final ExecutionData d1, final ExecutionData d2) {
+				final long id1 = d1.getId();
+				final long id2 = d2.getId();
+				return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+			}
+		});
+		return entries;
+	}
+
+	/**
+	 * Creates the name index entries, each encoded as a long with the name hash
+	 * code in the upper and the position in the id index in the lower 32 bits.
+	 * Sorting these values sorts by hash code.
+	 */
+	private static long[] nameIndex(final List<ExecutionData> entries) {
+		final long[] index = new long[entries.size()];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = ((long) entries.get(i).getName().hashCode() << 32)
+					| (i & 0xFFFFFFFFL);
+		}
+		Arrays.sort(index);
+		return index;
+	}
+
+}
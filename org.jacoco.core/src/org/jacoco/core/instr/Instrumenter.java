@@ -16,6 +16,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -32,6 +37,7 @@ import org.jacoco.core.internal.instr.ClassInstrumenter;
 import org.jacoco.core.internal.instr.IProbeArrayStrategy;
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
+import org.jacoco.core.internal.instr.ProbeFreeClassInstrumenter;
 import org.jacoco.core.internal.instr.SignatureRemover;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.objectweb.asm.ClassReader;
@@ -39,14 +45,29 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 /**
- * Several APIs to instrument Java class definitions for coverage tracing.
+ * Several APIs to instrument Java class definitions for coverage tracing. Once
+ * configured an instance can be used by multiple threads concurrently.
  */
 public class Instrumenter {
 
+	/**
+	 * Maximum number of archive entries which are read but not written yet.
+	 * Limits the memory for entries waiting for instrumentation.
+	 */
+	private static final int MAX_PENDING = 256;
+
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	private final SignatureRemover signatureRemover;
 
+	private Executor executor;
+
+	private boolean hitCounts;
+
+	private boolean conditionalProbes;
+
+	private boolean preserveMembers;
+
 	/**
 	 * Creates a new instance based on the given runtime.
 	 *
@@ -71,7 +92,69 @@ public class Instrumenter {
 		signatureRemover.setActive(flag);
 	}
 
-	private byte[] instrument(final byte[] source) {
+	/**
+	 * Sets an executor to instrument the class files contained in archives
+	 * concurrently. Entries are still read and written by the calling thread in
+	 * their original order, so the resulting archives are the same as with
+	 * sequential instrumentation. Default is <code>null</code>, i.e. all
+	 * classes are instrumented in the calling thread. This instrumenter may
+	 * also be called from the threads of the given executor, e.g. to process
+	 * multiple archives with a bounded pool: a thread waiting for a class which
+	 * has not been started yet instruments it itself.
+	 *
+	 * @param executor
+	 *            executor to instrument classes or <code>null</code>
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Determines whether probes record hit counts instead of a single flag. Hit
+	 * counts saturate at {@link Integer#MAX_VALUE}. Every thread increments the
+	 * counters of one of several stripes, only concurrent executions of the
+	 * same probe by threads sharing a stripe may get lost. Hit counts are only
+	 * supported by runtimes within the same VM, not by offline instrumentation.
+	 * Default is <code>false</code>.
+	 *
+	 * @param flag
+	 *            <code>true</code> if probes should record hit counts
+	 */
+	public void setHitCounts(final boolean flag) {
+		this.hitCounts = flag;
+	}
+
+	/**
+	 * Determines whether probes only write to the probe array if they have not
+	 * been set before. This avoids that threads executing the same code on
+	 * different cores invalidate each others cache lines, at the cost of an
+	 * additional read and method call, which is typically inlined. Conditional
+	 * probes are not used in hit count mode. Default is <code>false</code>.
+	 *
+	 * @param flag
+	 *            <code>true</code> if probes should only write once
+	 */
+	public void setConditionalProbes(final boolean flag) {
+		this.conditionalProbes = flag;
+	}
+
+	/**
+	 * Determines whether instrumented classes declare the same members as the
+	 * original classes. This allows agents to instrument classes which have
+	 * already been loaded and to restore them later by retransformation. The
+	 * probe array is then obtained at every method invocation, which is only
+	 * efficient with an accessor generator based on <code>invokedynamic</code>
+	 * and class files of Java 7 or later. Conditional probes are not used in
+	 * this mode. Default is <code>false</code>.
+	 *
+	 * @param flag
+	 *            <code>true</code> if no members should be added
+	 */
+	public void setPreserveMembers(final boolean flag) {
+		this.preserveMembers = flag;
+	}
+
+	private byte[] instrument(final byte[] source, final boolean probes) {
 		final long classId = CRC64.classId(source);
 		final ClassReader reader = InstrSupport.classReaderFor(source);
 		final ClassWriter writer = new ClassWriter(reader, 0) {
@@ -82,10 +165,16 @@ public class Instrumenter {
 			}
 		};
 		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(classId, reader, accessorGenerator);
+				.createFor(classId, reader, accessorGenerator, hitCounts,
+						preserveMembers);
 		final int version = InstrSupport.getMajorVersion(reader);
-		final ClassVisitor visitor = new ClassProbesAdapter(
-				new ClassInstrumenter(strategy, writer),
+		final boolean conditional = conditionalProbes && !preserveMembers;
+		final ClassInstrumenter instrumenter = probes
+				? new ClassInstrumenter(strategy, hitCounts, conditional,
+						writer)
+				: new ProbeFreeClassInstrumenter(strategy, hitCounts,
+						conditional, writer);
+		final ClassVisitor visitor = new ClassProbesAdapter(instrumenter,
 				InstrSupport.needsFrames(version));
 		reader.accept(visitor, ClassReader.EXPAND_FRAMES);
 		return writer.toByteArray();
@@ -105,7 +194,32 @@ public class Instrumenter {
 	public byte[] instrument(final byte[] buffer, final String name)
 			throws IOException {
 		try {
-			return instrument(buffer);
+			return instrument(buffer, true);
+		} catch (final RuntimeException e) {
+			throw instrumentError(name, e);
+		}
+	}
+
+	/**
+	 * Creates a version of the given class which has the same members as its
+	 * instrumented version but probes in the static initializer only. An agent
+	 * can replace an instrumented class with this version through
+	 * retransformation, which does not allow to add or remove members, once it
+	 * does not need to record further executions. The instrumenter must be
+	 * configured the same way as for the instrumented version.
+	 *
+	 * @param buffer
+	 *            original definition of the class
+	 * @param name
+	 *            a name used for exception messages
+	 * @return definition without probes
+	 * @throws IOException
+	 *             if the class can't be instrumented
+	 */
+	public byte[] instrumentWithoutProbes(final byte[] buffer,
+			final String name) throws IOException {
+		try {
+			return instrument(buffer, false);
 		} catch (final RuntimeException e) {
 			throw instrumentError(name, e);
 		}
@@ -207,6 +321,9 @@ public class Instrumenter {
 
 	private int instrumentZip(final InputStream input,
 			final OutputStream output, final String name) throws IOException {
+		if (executor != null) {
+			return instrumentZipConcurrently(input, output, name);
+		}
 		final ZipInputStream zipin = new ZipInputStream(input);
 		final ZipOutputStream zipout = new ZipOutputStream(output);
 		ZipEntry entry;
@@ -229,12 +346,7 @@ public class Instrumenter {
 				// mandatory entry size and CRC
 				final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 				count += filterOrInstrument(zipin, buffer, name, entryName);
-				final byte[] bytes = buffer.toByteArray();
-				newEntry.setSize(bytes.length);
-				newEntry.setCompressedSize(bytes.length);
-				newEntry.setCrc(crc(bytes));
-				zipout.putNextEntry(newEntry);
-				zipout.write(bytes);
+				putStoredEntry(zipout, newEntry, buffer.toByteArray());
 				break;
 			default:
 				throw new AssertionError(entry.getMethod());
@@ -245,6 +357,151 @@ public class Instrumenter {
 		return count;
 	}
 
+	private static void putStoredEntry(final ZipOutputStream zipout,
+			final ZipEntry entry, final byte[] bytes) throws IOException {
+		entry.setSize(bytes.length);
+		entry.setCompressedSize(bytes.length);
+		entry.setCrc(crc(bytes));
+		zipout.putNextEntry(entry);
+		zipout.write(bytes);
+	}
+
+	private int instrumentZipConcurrently(final InputStream input,
+			final OutputStream output, final String name) throws IOException {
+		final ZipInputStream zipin = new ZipInputStream(input);
+		final ZipOutputStream zipout = new ZipOutputStream(output);
+		final LinkedList<PendingEntry> pending = new LinkedList<PendingEntry>();
+		try {
+			ZipEntry entry;
+			int count = 0;
+			while ((entry = nextEntry(zipin, name)) != null) {
+				final String entryName = entry.getName();
+				if (signatureRemover.removeEntry(entryName)) {
+					continue;
+				}
+				final ZipEntry newEntry = new ZipEntry(entryName);
+				newEntry.setMethod(entry.getMethod());
+				final PendingEntry p = new PendingEntry(newEntry,
+						name + "@" + entryName);
+				count += schedule(zipin, p);
+				pending.add(p);
+				while (!pending.isEmpty() && (pending.size() > MAX_PENDING
+						|| pending.getFirst().isDone())) {
+					pending.removeFirst().write(zipout);
+				}
+			}
+			while (!pending.isEmpty()) {
+				pending.removeFirst().write(zipout);
+			}
+			zipout.finish();
+			return count;
+		} finally {
+			for (final PendingEntry p : pending) {
+				p.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Reads the content of the current archive entry. Class files are scheduled
+	 * for instrumentation on the executor, all other content is processed
+	 * immediately.
+	 */
+	private int schedule(final InputStream in, final PendingEntry entry)
+			throws IOException {
+		final String entryName = entry.entry.getName();
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		if (signatureRemover.filterEntry(entryName, in, buffer)) {
+			entry.content = buffer.toByteArray();
+			return 0;
+		}
+		final ContentTypeDetector detector;
+		try {
+			detector = new ContentTypeDetector(in);
+		} catch (final IOException e) {
+			throw instrumentError(entry.location, e);
+		}
+		if (detector.getType() != ContentTypeDetector.CLASSFILE) {
+			final int count = instrumentAll(detector.getInputStream(), buffer,
+					entry.location);
+			entry.content = buffer.toByteArray();
+			return count;
+		}
+		final byte[] source;
+		try {
+			source = InputStreams.readFully(detector.getInputStream());
+		} catch (final IOException e) {
+			throw instrumentError(entry.location, e);
+		}
+		final FutureTask<byte[]> task = new FutureTask<byte[]>(
+				new Callable<byte[]>() {
+					public byte[] call() {
+						return instrument(source, true);
+					}
+				});
+		executor.execute(task);
+		entry.task = task;
+		return 1;
+	}
+
+	private class PendingEntry {
+
+		final ZipEntry entry;
+
+		final String location;
+
+		byte[] content;
+
+		FutureTask<byte[]> task;
+
+		PendingEntry(final ZipEntry entry, final String location) {
+			this.entry = entry;
+			this.location = location;
+		}
+
+		boolean isDone() {
+			return task == null || task.isDone();
+		}
+
+		void cancel() {
+			if (task != null) {
+				task.cancel(false);
+			}
+		}
+
+		void write(final ZipOutputStream zipout) throws IOException {
+			if (task != null) {
+				content = getInstrumented();
+			}
+			if (entry.getMethod() == ZipEntry.STORED) {
+				putStoredEntry(zipout, entry, content);
+			} else {
+				zipout.putNextEntry(entry);
+				zipout.write(content);
+			}
+			zipout.closeEntry();
+		}
+
+		private byte[] getInstrumented() throws IOException {
+			// Does nothing if the task has already been started by the
+			// executor, otherwise avoids waiting for a busy executor:
+			task.run();
+			try {
+				return task.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw instrumentError(location, e);
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw instrumentError(location, (Exception) cause);
+			}
+		}
+
+	}
+
 	private int filterOrInstrument(final InputStream in, final OutputStream out,
 			final String name, final String entryName) throws IOException {
 		if (signatureRemover.filterEntry(entryName, in, out)) {
@@ -12,7 +12,9 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.jacoco.core.internal.analysis.filter.Filters;
@@ -37,6 +39,8 @@ public class ClassAnalyzer extends ClassProbesVisitor
 	private final boolean[] probes;
 	private final StringPool stringPool;
 
+	private int[] counts;
+
 	private final Set<String> classAnnotations = new HashSet<String>();
 
 	private final Set<String> classAttributes = new HashSet<String>();
@@ -45,6 +49,8 @@ public class ClassAnalyzer extends ClassProbesVisitor
 
 	private final IFilter filter;
 
+	private final List<MethodStructure> methodStructures;
+
 	/**
 	 * Creates a new analyzer that builds coverage data for a class.
 	 *
@@ -57,10 +63,60 @@ public class ClassAnalyzer extends ClassProbesVisitor
 	 */
 	public ClassAnalyzer(final ClassCoverageImpl coverage,
 			final boolean[] probes, final StringPool stringPool) {
+		this(coverage, probes, stringPool, false);
+	}
+
+	/**
+	 * Creates a new analyzer that builds coverage data for a class and
+	 * optionally records the static structure of the class. The structure is
+	 * available with {@link #getStructure()} after the class has been analyzed.
+	 *
+	 * @param coverage
+	 *            coverage node for the analyzed class data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 * @param recordStructure
+	 *            whether the structure of the class should be recorded
+	 */
+	public ClassAnalyzer(final ClassCoverageImpl coverage,
+			final boolean[] probes, final StringPool stringPool,
+			final boolean recordStructure) {
 		this.coverage = coverage;
 		this.probes = probes;
 		this.stringPool = stringPool;
 		this.filter = Filters.all();
+		this.methodStructures = recordStructure
+				? new ArrayList<MethodStructure>()
+				: null;
+	}
+
+	/**
+	 * Sets the hit counts for this class. If hit counts are available the
+	 * execution count of every line is calculated.
+	 *
+	 * @param counts
+	 *            hit counts for this class or <code>null</code>
+	 */
+	public void setHitCounts(final int[] counts) {
+		this.counts = counts;
+	}
+
+	/**
+	 * Returns the static structure of the analyzed class, which can be used to
+	 * calculate the coverage for other probes without analyzing the class
+	 * again.
+	 *
+	 * @return structure of the analyzed class
+	 * @throws IllegalStateException
+	 *             if the structure has not been recorded
+	 */
+	public ClassStructure getStructure() {
+		if (methodStructures == null) {
+			throw new IllegalStateException("Structure not recorded.");
+		}
+		return new ClassStructure(coverage, methodStructures);
 	}
 
 	@Override
@@ -97,7 +153,11 @@ public class ClassAnalyzer extends ClassProbesVisitor
 
 		InstrSupport.assertNotInstrumented(name, coverage.getName());
 
-		final InstructionsBuilder builder = new InstructionsBuilder(probes);
+		final MethodStructure.Recorder recorder = methodStructures == null
+				? null
+				: new MethodStructure.Recorder();
+		final InstructionsBuilder builder = new InstructionsBuilder(probes,
+				counts, recorder);
 
 		return new MethodAnalyzer(builder) {
 
@@ -106,17 +166,22 @@ public class ClassAnalyzer extends ClassProbesVisitor
 					final MethodVisitor methodVisitor) {
 				super.accept(methodNode, methodVisitor);
 				addMethodCoverage(stringPool.get(name), stringPool.get(desc),
-						stringPool.get(signature), builder, methodNode);
+						stringPool.get(signature), builder, recorder,
+						methodNode);
 			}
 		};
 	}
 
 	private void addMethodCoverage(final String name, final String desc,
 			final String signature, final InstructionsBuilder icc,
+			final MethodStructure.Recorder recorder,
 			final MethodNode methodNode) {
 		final MethodCoverageCalculator mcc = new MethodCoverageCalculator(
 				icc.getInstructions());
 		filter.filter(methodNode, this, mcc);
+		if (recorder != null) {
+			mcc.record(recorder);
+		}
 
 		final MethodCoverageImpl mc = new MethodCoverageImpl(name, desc,
 				signature);
@@ -125,6 +190,10 @@ public class ClassAnalyzer extends ClassProbesVisitor
 		if (mc.containsCode()) {
 			// Only consider methods that actually contain code
 			coverage.addMethod(mc);
+			if (recorder != null) {
+				methodStructures
+						.add(recorder.getStructure(name, desc, signature));
+			}
 		}
 
 	}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Static structure of a class as derived by {@link ClassAnalyzer}. Together
+ * with a probe array the structure is sufficient to calculate the coverage of
+ * the class without parsing the class file again.
+ */
+public class ClassStructure {
+
+	private final String name;
+
+	private final String signature;
+
+	private final String superName;
+
+	private final String[] interfaces;
+
+	private final String sourceFileName;
+
+	private final List<MethodStructure> methods;
+
+	ClassStructure(final ClassCoverageImpl coverage,
+			final List<MethodStructure> methods) {
+		this(coverage.getName(), coverage.getSignature(),
+				coverage.getSuperName(), coverage.getInterfaceNames(),
+				coverage.getSourceFileName(), methods);
+	}
+
+	private ClassStructure(final String name, final String signature,
+			final String superName, final String[] interfaces,
+			final String sourceFileName, final List<MethodStructure> methods) {
+		this.name = name;
+		this.signature = signature;
+		this.superName = superName;
+		this.interfaces = interfaces;
+		this.sourceFileName = sourceFileName;
+		this.methods = methods;
+	}
+
+	/**
+	 * Returns the VM name of the class.
+	 *
+	 * @return VM name of the class
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Calculates the coverage of this class for the given probes.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param noMatch
+	 *            <code>true</code>, if class id does not match with execution
+	 *            data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @return coverage data of the class
+	 */
+	public ClassCoverageImpl createCoverage(final long id,
+			final boolean noMatch, final boolean[] probes) {
+		return createCoverage(id, noMatch, probes, null);
+	}
+
+	/**
+	 * Calculates the coverage of this class for the given probes and hit
+	 * counts.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param noMatch
+	 *            <code>true</code>, if class id does not match with execution
+	 *            data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param counts
+	 *            hit counts for this class or <code>null</code>
+	 * @return coverage data of the class
+	 */
+	public ClassCoverageImpl createCoverage(final long id,
+			final boolean noMatch, final boolean[] probes, final int[] counts) {
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(name, id,
+				noMatch);
+		coverage.setSignature(signature);
+		coverage.setSuperName(superName);
+		coverage.setInterfaces(interfaces);
+		coverage.setSourceFileName(sourceFileName);
+		for (final MethodStructure method : methods) {
+			coverage.addMethod(method.createCoverage(probes, counts));
+		}
+		return coverage;
+	}
+
+	/**
+	 * Writes this structure to the given output.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		MethodStructure.writeOptionalUTF(out, signature);
+		MethodStructure.writeOptionalUTF(out, superName);
+		out.writeBoolean(interfaces != null);
+		if (interfaces != null) {
+			out.writeVarInt(interfaces.length);
+			for (final String i : interfaces) {
+				out.writeUTF(i);
+			}
+		}
+		MethodStructure.writeOptionalUTF(out, sourceFileName);
+		out.writeVarInt(methods.size());
+		for (final MethodStructure method : methods) {
+			method.write(out);
+		}
+	}
+
+	/**
+	 * Reads a structure previously written with
+	 * {@link #write(CompactDataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @param stringPool
+	 *            pool to share identical strings
+	 * @return structure read from the input
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public static ClassStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final String name = stringPool.get(in.readUTF());
+		final String signature = stringPool
+				.get(MethodStructure.readOptionalUTF(in));
+		final String superName = stringPool
+				.get(MethodStructure.readOptionalUTF(in));
+		String[] interfaces = null;
+		if (in.readBoolean()) {
+			interfaces = new String[in.readVarInt()];
+			for (int i = 0; i < interfaces.length; i++) {
+				interfaces[i] = in.readUTF();
+			}
+			interfaces = stringPool.get(interfaces);
+		}
+		final String sourceFileName = stringPool
+				.get(MethodStructure.readOptionalUTF(in));
+		final int count = in.readVarInt();
+		final List<MethodStructure> methods = new ArrayList<MethodStructure>(
+				count);
+		for (int i = 0; i < count; i++) {
+			methods.add(MethodStructure.read(in, stringPool));
+		}
+		return new ClassStructure(name, signature, superName, interfaces,
+				sourceFileName, methods);
+	}
+
+}
@@ -12,8 +12,12 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.jacoco.core.analysis.ICounter;
 
@@ -42,8 +46,14 @@ import org.jacoco.core.analysis.ICounter;
  * <li>{@link #getLine()}</li>
  * <li>{@link #getInstructionCounter()}</li>
  * <li>{@link #getBranchCounter()}</li>
+ * <li>{@link #getHits()}</li>
  * </ul>
  *
+ * Hit counts are not propagated while building the CFG. If hit counts are
+ * available they have to be added to the instructions with probes with
+ * {@link #addHits(int)} and propagated once with
+ * {@link #propagateHits(Collection)} after all instructions have been linked.
+ *
  * For the purpose of filtering instructions can be combined to new
  * instructions. Note that these methods create new {@link Instruction}
  * instances and do not modify the existing ones.
@@ -65,6 +75,8 @@ public class Instruction {
 
 	private int predecessorBranch;
 
+	private int hits;
+
 	/**
 	 * New instruction at the given line.
 	 *
@@ -133,6 +145,75 @@ public class Instruction {
 		}
 	}
 
+	/**
+	 * Adds the hit count of a probe on an outgoing branch of this instruction.
+	 *
+	 * @param count
+	 *            number of executions of the probe
+	 */
+	public void addHits(final int count) {
+		hits = add(hits, count);
+	}
+
+	/**
+	 * Propagates the hit counts added with {@link #addHits(int)} along the CFG
+	 * edges: the hit count of an instruction is the sum of the hit counts of
+	 * its outgoing branches. Every instruction of the given collection must be
+	 * linked with its successors before.
+	 *
+	 * @param instructions
+	 *            all instructions of a method
+	 */
+	public static void propagateHits(
+			final Collection<Instruction> instructions) {
+		// Every instruction has at most one predecessor, so the predecessor
+		// links form a forest. Instructions are processed after all their
+		// successors, starting from the leafs:
+		final Map<Instruction, int[]> pending = new HashMap<Instruction, int[]>();
+		for (final Instruction insn : instructions) {
+			if (insn.predecessor != null) {
+				int[] count = pending.get(insn.predecessor);
+				if (count == null) {
+					count = new int[1];
+					pending.put(insn.predecessor, count);
+				}
+				count[0]++;
+			}
+		}
+		final List<Instruction> ready = new ArrayList<Instruction>();
+		for (final Instruction insn : instructions) {
+			if (!pending.containsKey(insn)) {
+				ready.add(insn);
+			}
+		}
+		while (!ready.isEmpty()) {
+			final Instruction insn = ready.remove(ready.size() - 1);
+			final Instruction p = insn.predecessor;
+			if (p != null) {
+				p.hits = add(p.hits, insn.hits);
+				if (--pending.get(p)[0] == 0) {
+					ready.add(p);
+				}
+			}
+		}
+	}
+
+	private static int add(final int a, final int b) {
+		final int sum = a + b;
+		// saturate on overflow, hit counts are never negative:
+		return sum < 0 ? Integer.MAX_VALUE : sum;
+	}
+
+	/**
+	 * Returns the number of executions of this instruction. This is only
+	 * available if hit counts have been added and propagated.
+	 *
+	 * @return number of executions or 0 if unknown
+	 */
+	public int getHits() {
+		return hits;
+	}
+
 	/**
 	 * Returns the source line this instruction belongs to.
 	 *
@@ -148,13 +229,14 @@ public class Instruction {
 	 *
 	 * @param other
 	 *            instruction to merge with
-	 * @return new instance with merged branches
+	 * @return new instance with merged branches and the sum of both hit counts
 	 */
 	public Instruction merge(final Instruction other) {
 		final Instruction result = new Instruction(this.line);
 		result.branches = this.branches;
 		result.coveredBranches.or(this.coveredBranches);
 		result.coveredBranches.or(other.coveredBranches);
+		result.hits = add(this.hits, other.hits);
 		return result;
 	}
 
@@ -177,6 +259,7 @@ public class Instruction {
 				result.coveredBranches.set(idx++);
 			}
 		}
+		result.hits = this.hits;
 		return result;
 	}
 
@@ -33,6 +33,9 @@ class InstructionsBuilder {
 	/** Probe array of the class the analyzed method belongs to. */
 	private final boolean[] probes;
 
+	/** Hit counts of the class the analyzed method belongs to. */
+	private final int[] counts;
+
 	/** The line which belong to subsequently added instructions. */
 	private int currentLine;
 
@@ -58,6 +61,9 @@ class InstructionsBuilder {
 	 */
 	private final List<Jump> jumps;
 
+	/** Optional recorder for the static structure of the method. */
+	private final MethodStructure.Recorder recorder;
+
 	/**
 	 * Creates a new builder instance which can be used to analyze a single
 	 * method.
@@ -67,7 +73,42 @@ class InstructionsBuilder {
 	 *            coverage status of every instruction.
 	 */
 	InstructionsBuilder(final boolean[] probes) {
+		this(probes, null);
+	}
+
+	/**
+	 * Creates a new builder instance which can be used to analyze a single
+	 * method and additionally records the structure of the method.
+	 *
+	 * @param probes
+	 *            probe array of the corresponding class used to determine the
+	 *            coverage status of every instruction.
+	 * @param recorder
+	 *            recorder for the method structure or <code>null</code>
+	 */
+	InstructionsBuilder(final boolean[] probes,
+			final MethodStructure.Recorder recorder) {
+		this(probes, null, recorder);
+	}
+
+	/**
+	 * Creates a new builder instance which can be used to analyze a single
+	 * method with hit counts and additionally records the structure of the
+	 * method.
+	 *
+	 * @param probes
+	 *            probe array of the corresponding class used to determine the
+	 *            coverage status of every instruction.
+	 * @param counts
+	 *            hit counts of the corresponding class or <code>null</code>
+	 * @param recorder
+	 *            recorder for the method structure or <code>null</code>
+	 */
+	InstructionsBuilder(final boolean[] probes, final int[] counts,
+			final MethodStructure.Recorder recorder) {
 		this.probes = probes;
+		this.counts = counts;
+		this.recorder = recorder;
 		this.currentLine = ISourceNode.UNKNOWN_LINE;
 		this.currentInsn = null;
 		this.instructions = new HashMap<AbstractInsnNode, Instruction>();
@@ -109,8 +150,14 @@ class InstructionsBuilder {
 			}
 			currentLabel.clear();
 		}
+		if (recorder != null) {
+			recorder.addInstruction(node, insn);
+		}
 		if (currentInsn != null) {
 			currentInsn.addBranch(insn, 0);
+			if (recorder != null) {
+				recorder.addBranch(currentInsn, insn, 0);
+			}
 		}
 		currentInsn = insn;
 		instructions.put(node, insn);
@@ -148,6 +195,12 @@ class InstructionsBuilder {
 	void addProbe(final int probeId, final int branch) {
 		final boolean executed = probes != null && probes[probeId];
 		currentInsn.addBranch(executed, branch);
+		if (counts != null) {
+			currentInsn.addHits(counts[probeId]);
+		}
+		if (recorder != null) {
+			recorder.addProbe(currentInsn, probeId, branch);
+		}
 	}
 
 	/**
@@ -160,7 +213,11 @@ class InstructionsBuilder {
 	Map<AbstractInsnNode, Instruction> getInstructions() {
 		// Wire jumps:
 		for (final Jump j : jumps) {
-			j.wire();
+			j.wire(recorder);
+		}
+
+		if (counts != null) {
+			Instruction.propagateHits(instructions.values());
 		}
 
 		return instructions;
@@ -178,8 +235,12 @@ class InstructionsBuilder {
 			this.branch = branch;
 		}
 
-		void wire() {
-			source.addBranch(LabelInfo.getInstruction(target), branch);
+		void wire(final MethodStructure.Recorder recorder) {
+			final Instruction targetInsn = LabelInfo.getInstruction(target);
+			source.addBranch(targetInsn, branch);
+			if (recorder != null) {
+				recorder.addBranch(source, targetInsn, branch);
+			}
 		}
 
 	}
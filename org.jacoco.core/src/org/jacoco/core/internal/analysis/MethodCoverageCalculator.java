@@ -76,12 +76,25 @@ class MethodCoverageCalculator implements IFilterOutput {
 				final Instruction instruction = entry.getValue();
 				coverage.increment(instruction.getInstructionCounter(),
 						instruction.getBranchCounter(), instruction.getLine());
+				coverage.incrementExecutionCount(instruction.getHits(),
+						instruction.getLine());
 			}
 		}
 
 		coverage.incrementMethodCounter();
 	}
 
+	/**
+	 * Passes the output of the filters to the given recorder. Must be called
+	 * before {@link #calculate(MethodCoverageImpl)}.
+	 *
+	 * @param recorder
+	 *            recorder for the method structure
+	 */
+	void record(final MethodStructure.Recorder recorder) {
+		recorder.setFilterOutput(ignored, merged, replacements);
+	}
+
 	private void applyMerges() {
 		// Merge to the representative:
 		for (final Entry<AbstractInsnNode, AbstractInsnNode> entry : merged
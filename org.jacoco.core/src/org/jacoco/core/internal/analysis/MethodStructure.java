@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+/**
+ * Static structure of a method as derived from the class file: the instructions
+ * with their source lines, the control flow edges and probes between them and
+ * the instructions modified by filters. The coverage of the method can be
+ * calculated from this structure and a probe array without parsing the class
+ * file again. The calculation replays the same steps as
+ * {@link InstructionsBuilder} and {@link MethodCoverageCalculator}, therefore
+ * the result is identical to a full analysis.
+ */
+public class MethodStructure {
+
+	private final String name;
+
+	private final String desc;
+
+	private final String signature;
+
+	/** Source line of every instruction. */
+	private final int[] lines;
+
+	/**
+	 * Branches in the order they have been added. Every branch is encoded as
+	 * three values: the source instruction, the target instruction or the
+	 * complement of the probe id and the branch number.
+	 */
+	private final int[] branches;
+
+	/** Instructions ignored by filters. */
+	private final int[] ignored;
+
+	/** Pairs of merged instructions and their representative. */
+	private final int[] merged;
+
+	/** Instructions with replaced branches followed by the new targets. */
+	private final int[][] replacements;
+
+	private MethodStructure(final String name, final String desc,
+			final String signature, final int[] lines, final int[] branches,
+			final int[] ignored, final int[] merged,
+			final int[][] replacements) {
+		this.name = name;
+		this.desc = desc;
+		this.signature = signature;
+		this.lines = lines;
+		this.branches = branches;
+		this.ignored = ignored;
+		this.merged = merged;
+		this.replacements = replacements;
+	}
+
+	/**
+	 * Calculates the coverage of this method for the given probes.
+	 *
+	 * @param probes
+	 *            probe array of the class or <code>null</code> if no execution
+	 *            data is available
+	 * @return coverage data of the method
+	 */
+	public MethodCoverageImpl createCoverage(final boolean[] probes) {
+		return createCoverage(probes, null);
+	}
+
+	/**
+	 * Calculates the coverage of this method for the given probes and hit
+	 * counts.
+	 *
+	 * @param probes
+	 *            probe array of the class or <code>null</code> if no execution
+	 *            data is available
+	 * @param counts
+	 *            hit counts of the class or <code>null</code> if not available
+	 * @return coverage data of the method
+	 */
+	public MethodCoverageImpl createCoverage(final boolean[] probes,
+			final int[] counts) {
+		Instruction[] instructions = new Instruction[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			instructions[i] = new Instruction(lines[i]);
+		}
+		for (int i = 0; i < branches.length; i += 3) {
+			final Instruction source = instructions[branches[i]];
+			final int target = branches[i + 1];
+			if (target >= 0) {
+				source.addBranch(instructions[target], branches[i + 2]);
+			} else {
+				source.addBranch(probes != null && probes[~target],
+						branches[i + 2]);
+				if (counts != null) {
+					source.addHits(counts[~target]);
+				}
+			}
+		}
+		if (counts != null) {
+			Instruction.propagateHits(Arrays.asList(instructions));
+		}
+
+		final boolean[] skip = new boolean[lines.length];
+		for (final int i : ignored) {
+			skip[i] = true;
+		}
+		instructions = applyMerges(instructions, skip);
+		applyReplacements(instructions);
+
+		final MethodCoverageImpl coverage = new MethodCoverageImpl(name, desc,
+				signature);
+		ensureCapacity(coverage, skip);
+		for (int i = 0; i < instructions.length; i++) {
+			if (!skip[i]) {
+				final Instruction instruction = instructions[i];
+				coverage.increment(instruction.getInstructionCounter(),
+						instruction.getBranchCounter(), instruction.getLine());
+				coverage.incrementExecutionCount(instruction.getHits(),
+						instruction.getLine());
+			}
+		}
+		coverage.incrementMethodCounter();
+		return coverage;
+	}
+
+	private Instruction[] applyMerges(final Instruction[] instructions,
+			final boolean[] skip) {
+		if (merged.length == 0) {
+			return instructions;
+		}
+		final Instruction[] result = instructions.clone();
+		for (int i = 0; i < merged.length; i += 2) {
+			final int node = merged[i];
+			final int representative = merged[i + 1];
+			skip[node] = true;
+			result[representative] = result[representative]
+					.merge(instructions[node]);
+		}
+		for (int i = 0; i < merged.length; i += 2) {
+			result[merged[i]] = result[merged[i + 1]];
+		}
+		return result;
+	}
+
+	private void applyReplacements(final Instruction[] instructions) {
+		for (final int[] replacement : replacements) {
+			final Instruction[] newBranches = new Instruction[replacement.length
+					- 1];
+			for (int i = 1; i < replacement.length; i++) {
+				newBranches[i - 1] = instructions[replacement[i]];
+			}
+			final int node = replacement[0];
+			instructions[node] = instructions[node]
+					.replaceBranches(Arrays.asList(newBranches));
+		}
+	}
+
+	private void ensureCapacity(final MethodCoverageImpl coverage,
+			final boolean[] skip) {
+		int firstLine = ISourceNode.UNKNOWN_LINE;
+		int lastLine = ISourceNode.UNKNOWN_LINE;
+		for (int i = 0; i < lines.length; i++) {
+			final int line = lines[i];
+			if (!skip[i] && line != ISourceNode.UNKNOWN_LINE) {
+				if (firstLine > line || lastLine == ISourceNode.UNKNOWN_LINE) {
+					firstLine = line;
+				}
+				if (lastLine < line) {
+					lastLine = line;
+				}
+			}
+		}
+		coverage.ensureCapacity(firstLine, lastLine);
+	}
+
+	/**
+	 * Writes this structure to the given output.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		out.writeUTF(desc);
+		writeOptionalUTF(out, signature);
+		writeInts(out, lines);
+		writeInts(out, branches);
+		writeInts(out, ignored);
+		writeInts(out, merged);
+		out.writeVarInt(replacements.length);
+		for (final int[] replacement : replacements) {
+			writeInts(out, replacement);
+		}
+	}
+
+	/**
+	 * Reads a structure previously written with
+	 * {@link #write(CompactDataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @param stringPool
+	 *            pool to share identical strings
+	 * @return structure read from the input
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public static MethodStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final String name = stringPool.get(in.readUTF());
+		final String desc = stringPool.get(in.readUTF());
+		final String signature = stringPool.get(readOptionalUTF(in));
+		final int[] lines = readInts(in);
+		final int[] branches = readInts(in);
+		final int[] ignored = readInts(in);
+		final int[] merged = readInts(in);
+		final int[][] replacements = new int[in.readVarInt()][];
+		for (int i = 0; i < replacements.length; i++) {
+			replacements[i] = readInts(in);
+		}
+		return new MethodStructure(name, desc, signature, lines, branches,
+				ignored, merged, replacements);
+	}
+
+	static void writeOptionalUTF(final CompactDataOutput out,
+			final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	static String readOptionalUTF(final CompactDataInput in)
+			throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeInts(final CompactDataOutput out,
+			final int[] values) throws IOException {
+		out.writeVarInt(values.length);
+		for (final int v : values) {
+			out.writeVarInt(v);
+		}
+	}
+
+	private static int[] readInts(final CompactDataInput in)
+			throws IOException {
+		final int[] values = new int[in.readVarInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readVarInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Records the structure of a single method while it is analyzed by
+	 * {@link InstructionsBuilder} and filtered by
+	 * {@link MethodCoverageCalculator}.
+	 */
+	static class Recorder {
+
+		private final Map<AbstractInsnNode, Integer> nodes = new HashMap<AbstractInsnNode, Integer>();
+
+		private final Map<Instruction, Integer> instructions = new HashMap<Instruction, Integer>();
+
+		private final IntBuffer lines = new IntBuffer();
+
+		private final IntBuffer branches = new IntBuffer();
+
+		private final IntBuffer ignored = new IntBuffer();
+
+		private final IntBuffer merged = new IntBuffer();
+
+		private int[][] replacements = new int[0][];
+
+		void addInstruction(final AbstractInsnNode node,
+				final Instruction instruction) {
+			final Integer index = Integer.valueOf(lines.size);
+			nodes.put(node, index);
+			instructions.put(instruction, index);
+			lines.add(instruction.getLine());
+		}
+
+		void addBranch(final Instruction source, final Instruction target,
+				final int branch) {
+			branches.add(instructions.get(source).intValue());
+			branches.add(instructions.get(target).intValue());
+			branches.add(branch);
+		}
+
+		void addProbe(final Instruction source, final int probeId,
+				final int branch) {
+			branches.add(instructions.get(source).intValue());
+			branches.add(~probeId);
+			branches.add(branch);
+		}
+
+		void setFilterOutput(final Set<AbstractInsnNode> ignored,
+				final Map<AbstractInsnNode, AbstractInsnNode> merged,
+				final Map<AbstractInsnNode, Set<AbstractInsnNode>> replacements) {
+			for (final AbstractInsnNode node : ignored) {
+				final Integer index = nodes.get(node);
+				if (index != null) {
+					this.ignored.add(index.intValue());
+				}
+			}
+			for (final Entry<AbstractInsnNode, AbstractInsnNode> entry : merged
+					.entrySet()) {
+				AbstractInsnNode representative = entry.getValue();
+				while (merged.containsKey(representative)) {
+					representative = merged.get(representative);
+				}
+				this.merged.add(nodes.get(entry.getKey()).intValue());
+				this.merged.add(nodes.get(representative).intValue());
+			}
+			this.replacements = new int[replacements.size()][];
+			int i = 0;
+			for (final Entry<AbstractInsnNode, Set<AbstractInsnNode>> entry : replacements
+					.entrySet()) {
+				final IntBuffer replacement = new IntBuffer();
+				replacement.add(nodes.get(entry.getKey()).intValue());
+				for (final AbstractInsnNode target : entry.getValue()) {
+					replacement.add(nodes.get(target).intValue());
+				}
+				this.replacements[i++] = replacement.toArray();
+			}
+		}
+
+		MethodStructure getStructure(final String name, final String desc,
+				final String signature) {
+			return new MethodStructure(name, desc, signature, lines.toArray(),
+					branches.toArray(), ignored.toArray(), merged.toArray(),
+					replacements);
+		}
+
+	}
+
+	private static class IntBuffer {
+
+		private int[] values = new int[16];
+
+		private int size;
+
+		void add(final int value) {
+			if (size == values.length) {
+				final int[] newValues = new int[size * 2];
+				System.arraycopy(values, 0, newValues, 0, size);
+				values = newValues;
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			final int[] result = new int[size];
+			System.arraycopy(values, 0, result, 0, size);
+			return result;
+		}
+
+	}
+
+}
@@ -24,6 +24,12 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 
 	private LineImpl[] lines;
 
+	/**
+	 * execution counts of the lines aligned with {@link #lines}, only created
+	 * if hit counts are available
+	 */
+	private int[] executionCounts;
+
 	/** first line number in {@link #lines} */
 	private int offset;
 
@@ -66,6 +72,12 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 				final LineImpl[] newLines = new LineImpl[newLength];
 				System.arraycopy(lines, 0, newLines, offset - newFirst,
 						lines.length);
+				if (executionCounts != null) {
+					final int[] newCounts = new int[newLength];
+					System.arraycopy(executionCounts, 0, newCounts,
+							offset - newFirst, executionCounts.length);
+					executionCounts = newCounts;
+				}
 				offset = newFirst;
 				lines = newLines;
 			}
@@ -96,10 +108,35 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 				final ILine line = child.getLine(i);
 				incrementLine(line.getInstructionCounter(),
 						line.getBranchCounter(), i);
+				incrementExecutionCount(child.getExecutionCount(i), i);
 			}
 		}
 	}
 
+	/**
+	 * Records the execution count of an instruction in the given line. As the
+	 * instructions of a line are executed the same number of times in most
+	 * cases the line keeps the highest count recorded for it.
+	 *
+	 * @param count
+	 *            number of executions, zero is ignored
+	 * @param line
+	 *            optional line number or {@link ISourceNode#UNKNOWN_LINE}
+	 */
+	public void incrementExecutionCount(final int count, final int line) {
+		if (count == 0 || line == UNKNOWN_LINE) {
+			return;
+		}
+		ensureCapacity(line, line);
+		if (executionCounts == null) {
+			executionCounts = new int[lines.length];
+		}
+		final int idx = line - offset;
+		if (executionCounts[idx] < count) {
+			executionCounts[idx] = count;
+		}
+	}
+
 	/**
 	 * Increments instructions and branches by the given counter values. If a
 	 * optional line number is specified the instructions and branches are added
@@ -167,4 +204,12 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		return line == null ? LineImpl.EMPTY : line;
 	}
 
+	public int getExecutionCount(final int nr) {
+		if (executionCounts == null || nr < getFirstLine()
+				|| nr > getLastLine()) {
+			return 0;
+		}
+		return executionCounts[nr - offset];
+	}
+
 }
@@ -12,10 +12,18 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis.filter;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
 /**
- * Filter that combines other filters.
+ * Filter that combines other filters. Filters which only match patterns
+ * containing specific opcodes are only invoked for methods containing at least
+ * one of these opcodes. The opcodes of a method are collected in a single pass
+ * before any filter is invoked.
  */
 public final class Filters implements IFilter {
 
@@ -26,6 +34,12 @@ public final class Filters implements IFilter {
 
 	private final IFilter[] filters;
 
+	/** opcodes required by the respective filter as bit mask, 0 for any */
+	private final int[] triggers;
+
+	/** bit of every opcode used as trigger */
+	private final int[] opcodeBits;
+
 	/**
 	 * Creates filter that combines all other filters.
 	 *
@@ -38,26 +52,126 @@ public final class Filters implements IFilter {
 				new TryWithResourcesJavacFilter(),
 				new TryWithResourcesEcjFilter(), new FinallyFilter(),
 				new PrivateEmptyNoArgConstructorFilter(),
-				new StringSwitchJavacFilter(), new StringSwitchEcjFilter(),
+				onlyWith(new StringSwitchJavacFilter(), Opcodes.TABLESWITCH,
+						Opcodes.LOOKUPSWITCH),
+				onlyWith(new StringSwitchEcjFilter(), Opcodes.TABLESWITCH,
+						Opcodes.LOOKUPSWITCH),
 				new EnumEmptyConstructorFilter(), new RecordsFilter(),
 				new AnnotationGeneratedFilter(), new KotlinGeneratedFilter(),
-				new KotlinLateinitFilter(), new KotlinWhenFilter(),
-				new KotlinWhenStringFilter(),
-				new KotlinUnsafeCastOperatorFilter(),
-				new KotlinNotNullOperatorFilter(),
+				onlyWith(new KotlinLateinitFilter(), Opcodes.IFNONNULL),
+				onlyWith(new KotlinWhenFilter(), Opcodes.ATHROW),
+				onlyWith(new KotlinWhenStringFilter(), Opcodes.TABLESWITCH,
+						Opcodes.LOOKUPSWITCH),
+				onlyWith(new KotlinUnsafeCastOperatorFilter(),
+						Opcodes.IFNONNULL),
+				onlyWith(new KotlinNotNullOperatorFilter(), Opcodes.IFNONNULL),
 				new KotlinDefaultArgumentsFilter(), new KotlinInlineFilter(),
 				new KotlinCoroutineFilter(), new KotlinDefaultMethodsFilter());
 	}
 
-	private Filters(final IFilter... filters) {
-		this.filters = filters;
+	/**
+	 * Returns the classes which implement the filters combined by
+	 * {@link #all()} including their common base classes. Used to detect
+	 * modified filters.
+	 *
+	 * @return classes of all filters
+	 */
+	public static List<Class<?>> getFilterClasses() {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Filters.class);
+		classes.add(AbstractMatcher.class);
+		for (final IFilter filter : ((Filters) all()).filters) {
+			classes.add(filter.getClass());
+		}
+		return classes;
+	}
+
+	/**
+	 * Declares that the given filter only matches methods which contain at
+	 * least one of the given opcodes.
+	 *
+	 * @param filter
+	 *            filter to invoke
+	 * @param opcodes
+	 *            opcodes one of which must be present
+	 * @return filter which is only invoked if the condition holds
+	 */
+	static IFilter onlyWith(final IFilter filter, final int... opcodes) {
+		return new Triggered(filter, opcodes);
+	}
+
+	Filters(final IFilter... filters) {
+		this.filters = new IFilter[filters.length];
+		this.triggers = new int[filters.length];
+		this.opcodeBits = new int[256];
+		int nextBit = 1;
+		for (int i = 0; i < filters.length; i++) {
+			if (filters[i] instanceof Triggered) {
+				final Triggered triggered = (Triggered) filters[i];
+				this.filters[i] = triggered.filter;
+				for (final int opcode : triggered.opcodes) {
+					if (opcodeBits[opcode] == 0) {
+						if (nextBit == 0) {
+							throw new IllegalArgumentException(
+									"Too many trigger opcodes.");
+						}
+						opcodeBits[opcode] = nextBit;
+						nextBit <<= 1;
+					}
+					triggers[i] |= opcodeBits[opcode];
+				}
+			} else {
+				this.filters[i] = filters[i];
+			}
+		}
 	}
 
 	public void filter(final MethodNode methodNode,
 			final IFilterContext context, final IFilterOutput output) {
-		for (final IFilter filter : filters) {
+		boolean scanned = false;
+		int present = 0;
+		for (int i = 0; i < filters.length; i++) {
+			final int trigger = triggers[i];
+			if (trigger != 0) {
+				if (!scanned) {
+					present = getOpcodes(methodNode);
+					scanned = true;
+				}
+				if ((trigger & present) == 0) {
+					continue;
+				}
+			}
+			filters[i].filter(methodNode, context, output);
+		}
+	}
+
+	private int getOpcodes(final MethodNode methodNode) {
+		int present = 0;
+		for (final AbstractInsnNode i : methodNode.instructions) {
+			final int opcode = i.getOpcode();
+			if (opcode != -1) {
+				present |= opcodeBits[opcode];
+			}
+		}
+		return present;
+	}
+
+	private static final class Triggered implements IFilter {
+
+		private final IFilter filter;
+
+		private final int[] opcodes;
+
+		Triggered(final IFilter filter, final int[] opcodes) {
+			this.filter = filter;
+			this.opcodes = opcodes;
+		}
+
+		public void filter(final MethodNode methodNode,
+				final IFilterContext context, final IFilterOutput output) {
 			filter.filter(methodNode, context, output);
 		}
+
 	}
 
 }
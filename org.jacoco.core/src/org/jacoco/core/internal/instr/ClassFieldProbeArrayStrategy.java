@@ -25,12 +25,6 @@ import org.objectweb.asm.Opcodes;
  */
 class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
-	/**
-	 * Frame stack with a single boolean array.
-	 */
-	private static final Object[] FRAME_STACK_ARRZ = new Object[] {
-			InstrSupport.DATAFIELD_DESC };
-
 	/**
 	 * Empty frame locals.
 	 */
@@ -39,22 +33,27 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	private final String className;
 	private final long classId;
 	private final boolean withFrames;
+	private final String dataDesc;
+	private final String initDesc;
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	ClassFieldProbeArrayStrategy(final String className, final long classId,
-			final boolean withFrames,
+			final boolean withFrames, final boolean hitCounts,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
 		this.className = className;
 		this.classId = classId;
 		this.withFrames = withFrames;
+		this.dataDesc = hitCounts ? InstrSupport.DATAFIELD_COUNTS_DESC
+				: InstrSupport.DATAFIELD_DESC;
+		this.initDesc = hitCounts ? InstrSupport.INITMETHOD_COUNTS_DESC
+				: InstrSupport.INITMETHOD_DESC;
 		this.accessorGenerator = accessorGenerator;
 	}
 
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
 			final int variable) {
 		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				false);
+				InstrSupport.INITMETHOD_NAME, initDesc, false);
 		mv.visitVarInsn(Opcodes.ASTORE, variable);
 		return 1;
 	}
@@ -66,18 +65,17 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	private void createDataField(final ClassVisitor cv) {
 		cv.visitField(InstrSupport.DATAFIELD_ACC, InstrSupport.DATAFIELD_NAME,
-				InstrSupport.DATAFIELD_DESC, null, null);
+				dataDesc, null, null);
 	}
 
 	private void createInitMethod(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				null, null);
+				InstrSupport.INITMETHOD_NAME, initDesc, null, null);
 		mv.visitCode();
 
 		// Load the value of the static data field:
 		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataDesc);
 		mv.visitInsn(Opcodes.DUP);
 
 		// Stack[1]: [Z
@@ -97,7 +95,7 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Return the class' probe array:
 		if (withFrames) {
 			mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
-					FRAME_STACK_ARRZ);
+					new Object[] { dataDesc });
 		}
 		mv.visitLabel(alreadyInitialized);
 		mv.visitInsn(Opcodes.ARETURN);
@@ -110,7 +108,8 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	 * Generates the byte code to initialize the static coverage data field
 	 * within this class.
 	 *
-	 * The code will push the [Z data array on the operand stack.
+	 * The code will push the [Z data array (or [I in hit count mode) on the
+	 * operand stack.
 	 *
 	 * @param mv
 	 *            generator to emit code to
@@ -128,7 +127,7 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Stack[0]: [Z
 
 		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataDesc);
 
 		// Stack[0]: [Z
 
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Persistent cache for instrumented class files. Entries are addressed by the
+ * id of the original class and a fingerprint of the instrumentation, which
+ * covers the JaCoCo version and the code generated for the runtime. Therefore a
+ * cache directory can be shared by different JVMs and JaCoCo versions.
+ *
+ * New entries are written to temporary files which are renamed afterwards, so
+ * concurrent processes never read partial entries. If the total size of all
+ * entries exceeds the given limit the least recently used entries are deleted.
+ * Instances of this class are thread safe.
+ */
+public class ClassFileCache {
+
+	private static final String SUFFIX = ".class";
+
+	/** Minimum interval to update the last access time of an entry. */
+	private static final long TOUCH_INTERVAL = 60 * 60 * 1000;
+
+	private final File directory;
+
+	private final long maxSize;
+
+	private final String entrySuffix;
+
+	/** Total size of all entries, -1 if not determined yet. */
+	private long size;
+
+	/**
+	 * Creates a cache for class files instrumented by the given instrumenter.
+	 *
+	 * @param directory
+	 *            directory for the cache entries which is created if it does
+	 *            not exist yet
+	 * @param maxSize
+	 *            maximum total size of all entries in bytes, 0 for no limit
+	 * @param instrumenter
+	 *            instrumenter which creates the cached class files
+	 * @throws IOException
+	 *             if the fingerprint of the instrumenter can't be calculated
+	 */
+	public ClassFileCache(final File directory, final long maxSize,
+			final Instrumenter instrumenter) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.entrySuffix = String.format("-%016x%s",
+				Long.valueOf(fingerprint(instrumenter)), SUFFIX);
+		this.size = -1;
+	}
+
+	/**
+	 * Calculates a fingerprint for the JaCoCo version and the code generated by
+	 * the given instrumenter by instrumenting a small class. The class is
+	 * instrumented for Java 5 and Java 7 as the generated code may depend on
+	 * the class file version.
+	 */
+	private static long fingerprint(final Instrumenter instrumenter)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		buffer.write(JaCoCo.VERSION.getBytes("UTF-8"));
+		buffer.write(instrumenter.instrument(
+				createFingerprintClass(Opcodes.V1_5), "Fingerprint"));
+		buffer.write(instrumenter.instrument(
+				createFingerprintClass(Opcodes.V1_7), "Fingerprint"));
+		return CRC64.classId(buffer.toByteArray());
+	}
+
+	private static byte[] createFingerprintClass(final int version) {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(version, Opcodes.ACC_PUBLIC, "Fingerprint", null,
+				"java/lang/Object", null);
+		final MethodVisitor mv = writer.visitMethod(Opcodes.ACC_STATIC, "m",
+				"(I)I", null, null);
+		mv.visitCode();
+		final Label label = new Label();
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		mv.visitJumpInsn(Opcodes.IFEQ, label);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(label);
+		if (InstrSupport.needsFrames(version)) {
+			mv.visitFrame(Opcodes.F_NEW, 1, new Object[] { Opcodes.INTEGER }, 0,
+					new Object[0]);
+		}
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private File getFile(final byte[] source) {
+		return new File(directory, String.format("%016x%s",
+				Long.valueOf(CRC64.classId(source)), entrySuffix));
+	}
+
+	/**
+	 * Returns the cached instrumented version of the given class file.
+	 *
+	 * @param source
+	 *            original class file
+	 * @return instrumented class file or <code>null</code> if not cached
+	 */
+	public byte[] get(final byte[] source) {
+		final File file = getFile(source);
+		final long length = file.length();
+		if (length == 0) {
+			return null;
+		}
+		final byte[] content;
+		try {
+			final InputStream in = new FileInputStream(file);
+			try {
+				content = InputStreams.readFully(in);
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			// Entry has been evicted concurrently
+			return null;
+		}
+		if (content.length != length || !isClassFile(content)) {
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - file.lastModified() > TOUCH_INTERVAL) {
+			file.setLastModified(now);
+		}
+		return content;
+	}
+
+	private static boolean isClassFile(final byte[] content) {
+		return content.length > 4 && content[0] == (byte) 0xCA
+				&& content[1] == (byte) 0xFE && content[2] == (byte) 0xBA
+				&& content[3] == (byte) 0xBE;
+	}
+
+	/**
+	 * Adds the instrumented version of the given class file to the cache.
+	 *
+	 * @param source
+	 *            original class file
+	 * @param instrumented
+	 *            instrumented class file
+	 * @throws IOException
+	 *             if the entry can't be written
+	 */
+	public void put(final byte[] source, final byte[] instrumented)
+			throws IOException {
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException(String
+					.format("Unable to create cache directory %s.", directory));
+		}
+		final File tmp = File.createTempFile("entry", ".tmp", directory);
+		try {
+			final OutputStream out = new FileOutputStream(tmp);
+			try {
+				out.write(instrumented);
+			} finally {
+				out.close();
+			}
+			// Concurrent processes write identical content, so we do not care
+			// if the entry already exists:
+			tmp.renameTo(getFile(source));
+		} finally {
+			tmp.delete();
+		}
+		added(instrumented.length);
+	}
+
+	private synchronized void added(final long length) {
+		if (maxSize <= 0) {
+			return;
+		}
+		if (size < 0) {
+			size = 0;
+			for (final File f : listEntries()) {
+				size += f.length();
+			}
+		} else {
+			size += length;
+		}
+		if (size > maxSize) {
+			evict();
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the total size has been
+	 * reduced to 3/4 of the maximum size.
+	 */
+	private void evict() {
+		final File[] entries = listEntries();
+		final long[] modified = new long[entries.length];
+		size = 0;
+		for (int i = 0; i < entries.length; i++) {
+			modified[i] = entries[i].lastModified();
+			size += entries[i].length();
+		}
+		final Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer i1, final Integer i2) {
+				final long m1 = modified[i1.intValue()];
+				final long m2 = modified[i2.intValue()];
+				return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+			}
+		});
+		final long target = maxSize / 4 * 3;
+		for (int i = 0; i < order.length && size > target; i++) {
+			final File entry = entries[order[i].intValue()];
+			final long length = entry.length();
+			if (entry.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	private File[] listEntries() {
+		final File[] entries = directory.listFiles(new FileFilter() {
+			public boolean accept(final File file) {
+				return file.getName().endsWith(SUFFIX);
+			}
+		});
+		return entries == null ? new File[0] : entries;
+	}
+
+}
@@ -16,17 +16,34 @@ import org.jacoco.core.internal.flow.ClassProbesVisitor;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Adapter that instruments a class for coverage tracing.
  */
 public class ClassInstrumenter extends ClassProbesVisitor {
 
+	private static final Object[] PROBEMETHOD_FRAME_LOCALS = {
+			InstrSupport.DATAFIELD_DESC, Opcodes.INTEGER };
+
+	private static final Object[] FRAME_STACK_EMPTY = new Object[0];
+
 	private final IProbeArrayStrategy probeArrayStrategy;
 
+	private final boolean hitCounts;
+
+	private final boolean conditionalProbes;
+
 	private String className;
 
+	private boolean isInterface;
+
+	private boolean withFrames;
+
+	private boolean probeMethod;
+
 	/**
 	 * Emits a instrumented version of this class to the given class visitor.
 	 *
@@ -38,8 +55,54 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 	 */
 	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
 			final ClassVisitor cv) {
+		this(probeArrayStrategy, false, cv);
+	}
+
+	/**
+	 * Emits a instrumented version of this class to the given class visitor
+	 * which optionally records hit counts. The given strategy must provide a
+	 * probe array of the corresponding type.
+	 *
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param hitCounts
+	 *            if <code>true</code> probes increment slots of an
+	 *            <code>int[]</code> array
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
+			final boolean hitCounts, final ClassVisitor cv) {
+		this(probeArrayStrategy, hitCounts, false, cv);
+	}
+
+	/**
+	 * Emits a instrumented version of this class to the given class visitor
+	 * which optionally records hit counts or uses conditional probes.
+	 * Conditional probes call a synthetic method which sets the probe only if
+	 * it is not set yet. They are not used for interfaces before Java 8 which
+	 * can't declare static methods, and are ignored in hit count mode.
+	 *
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param hitCounts
+	 *            if <code>true</code> probes increment slots of an
+	 *            <code>int[]</code> array
+	 * @param conditionalProbes
+	 *            if <code>true</code> probes only write to the probe array if
+	 *            the probe is not set yet
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
+			final boolean hitCounts, final boolean conditionalProbes,
+			final ClassVisitor cv) {
 		super(cv);
 		this.probeArrayStrategy = probeArrayStrategy;
+		this.hitCounts = hitCounts;
+		this.conditionalProbes = conditionalProbes;
 	}
 
 	@Override
@@ -47,6 +110,11 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 			final String signature, final String superName,
 			final String[] interfaces) {
 		this.className = name;
+		this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+		this.withFrames = InstrSupport.needsFrames(version);
+		final int major = version & 0xFFFF;
+		this.probeMethod = conditionalProbes && !hitCounts
+				&& (!isInterface || major >= Opcodes.V1_8);
 		super.visit(version, access, name, signature, superName, interfaces);
 	}
 
@@ -72,7 +140,8 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 		}
 		final MethodVisitor frameEliminator = new DuplicateFrameEliminator(mv);
 		final ProbeInserter probeVariableInserter = new ProbeInserter(access,
-				name, desc, frameEliminator, probeArrayStrategy);
+				name, desc, frameEliminator, probeArrayStrategy, hitCounts,
+				probeMethod ? className : null, isInterface);
 		return new MethodInstrumenter(probeVariableInserter,
 				probeVariableInserter);
 	}
@@ -80,6 +149,42 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 	@Override
 	public void visitTotalProbeCount(final int count) {
 		probeArrayStrategy.addMembers(cv, count);
+		if (probeMethod && count > 0) {
+			createProbeMethod();
+		}
+	}
+
+	/**
+	 * Generates the method called by conditional probes:
+	 *
+	 * <pre>
+	 * if (!probes[id]) {
+	 * 	probes[id] = true;
+	 * }
+	 * </pre>
+	 */
+	private void createProbeMethod() {
+		final MethodVisitor mv = cv.visitMethod(InstrSupport.PROBEMETHOD_ACC,
+				InstrSupport.PROBEMETHOD_NAME, InstrSupport.PROBEMETHOD_DESC,
+				null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		mv.visitInsn(Opcodes.BALOAD);
+		final Label alreadySet = new Label();
+		mv.visitJumpInsn(Opcodes.IFNE, alreadySet);
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.BASTORE);
+		mv.visitLabel(alreadySet);
+		if (withFrames) {
+			mv.visitFrame(Opcodes.F_NEW, 2, PROBEMETHOD_FRAME_LOCALS, 0,
+					FRAME_STACK_EMPTY);
+		}
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(3, 2);
+		mv.visitEnd();
 	}
 
 }
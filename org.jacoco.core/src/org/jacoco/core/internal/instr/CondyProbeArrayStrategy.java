@@ -31,39 +31,60 @@ public class CondyProbeArrayStrategy implements IProbeArrayStrategy {
 	 */
 	public static final String B_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[Z";
 
+	/**
+	 * Descriptor of the bootstrap method for hit counts.
+	 */
+	public static final String B_COUNTS_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[I";
+
 	private final String className;
 
 	private final boolean isInterface;
 
 	private final long classId;
 
+	private final boolean hitCounts;
+
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	CondyProbeArrayStrategy(final String className, final boolean isInterface,
 			final long classId,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		this(className, isInterface, classId, false, accessorGenerator);
+	}
+
+	CondyProbeArrayStrategy(final String className, final boolean isInterface,
+			final long classId, final boolean hitCounts,
+			final IExecutionDataAccessorGenerator accessorGenerator) {
 		this.className = className;
 		this.isInterface = isInterface;
 		this.classId = classId;
+		this.hitCounts = hitCounts;
 		this.accessorGenerator = accessorGenerator;
 	}
 
+	private String getBootstrapDesc() {
+		return hitCounts ? B_COUNTS_DESC : B_DESC;
+	}
+
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
 			final int variable) {
 		final Handle bootstrapMethod = new Handle(Opcodes.H_INVOKESTATIC,
-				className, InstrSupport.INITMETHOD_NAME, B_DESC, isInterface);
+				className, InstrSupport.INITMETHOD_NAME, getBootstrapDesc(),
+				isInterface);
 		// As a workaround for https://bugs.openjdk.java.net/browse/JDK-8216970
 		// constant should have type Object
 		mv.visitLdcInsn(new ConstantDynamic(InstrSupport.DATAFIELD_NAME,
 				"Ljava/lang/Object;", bootstrapMethod));
-		mv.visitTypeInsn(Opcodes.CHECKCAST, "[Z");
+		mv.visitTypeInsn(Opcodes.CHECKCAST,
+				hitCounts ? InstrSupport.DATAFIELD_COUNTS_DESC
+						: InstrSupport.DATAFIELD_DESC);
 		mv.visitVarInsn(Opcodes.ASTORE, variable);
 		return 1;
 	}
 
 	public void addMembers(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
-				InstrSupport.INITMETHOD_NAME, B_DESC, null, null);
+				InstrSupport.INITMETHOD_NAME, getBootstrapDesc(), null, null);
 		final int maxStack = accessorGenerator.generateDataAccessor(classId,
 				className, probeCount, mv);
 		mv.visitInsn(Opcodes.ARETURN);
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.RuntimeData;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Accessor generator which requests an <code>int[]</code> array of hit counts
+ * instead of the boolean probe array. By convention of {@link RuntimeData} hit
+ * counts are requested with a negative probe count.
+ */
+class HitCountsAccessorGenerator implements IExecutionDataAccessorGenerator {
+
+	private final IExecutionDataAccessorGenerator delegate;
+
+	HitCountsAccessorGenerator(final IExecutionDataAccessorGenerator delegate) {
+		this.delegate = delegate;
+	}
+
+	public int generateDataAccessor(final long classid, final String classname,
+			final int probecount, final MethodVisitor mv) {
+		return delegate.generateDataAccessor(classid, classname, -probecount,
+				mv);
+	}
+
+}
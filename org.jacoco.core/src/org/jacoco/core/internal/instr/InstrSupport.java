@@ -80,6 +80,20 @@ public final class InstrSupport {
 	 */
 	public static final String DATAFIELD_DESC = "[Z";
 
+	/**
+	 * Data type of the field that stores hit counts for a class (
+	 * <code>int[]</code>).
+	 */
+	public static final String DATAFIELD_COUNTS_DESC = "[I";
+
+	/**
+	 * The hit counts array of a class consists of <code>2^n</code> stripes of
+	 * the probe count each, where <code>n</code> is the value of this constant.
+	 * Each thread increments the counters of the stripe selected by its
+	 * identity hash code, so concurrent threads rarely update the same counter.
+	 */
+	public static final int COUNTS_STRIPE_BITS = 3;
+
 	// === Init Method ===
 
 	/**
@@ -92,12 +106,35 @@ public final class InstrSupport {
 	 */
 	public static final String INITMETHOD_DESC = "()[Z";
 
+	/**
+	 * Descriptor of the initialization method for hit counts.
+	 */
+	public static final String INITMETHOD_COUNTS_DESC = "()[I";
+
 	/**
 	 * Access modifiers of the initialization method.
 	 */
 	public static final int INITMETHOD_ACC = Opcodes.ACC_SYNTHETIC
 			| Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
 
+	// === Probe Method ===
+
+	/**
+	 * Name of the method which sets a probe only if it is not set yet.
+	 */
+	public static final String PROBEMETHOD_NAME = "$jacocoProbe";
+
+	/**
+	 * Descriptor of the probe method.
+	 */
+	public static final String PROBEMETHOD_DESC = "([ZI)V";
+
+	/**
+	 * Access modifiers of the probe method.
+	 */
+	public static final int PROBEMETHOD_ACC = Opcodes.ACC_SYNTHETIC
+			| Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
+
 	/**
 	 * Name of the interface initialization method.
 	 *
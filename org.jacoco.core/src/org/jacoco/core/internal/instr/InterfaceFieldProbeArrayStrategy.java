@@ -25,12 +25,6 @@ import org.objectweb.asm.Opcodes;
  */
 class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
-	/**
-	 * Frame stack with a single boolean array.
-	 */
-	private static final Object[] FRAME_STACK_ARRZ = new Object[] {
-			InstrSupport.DATAFIELD_DESC };
-
 	/**
 	 * Empty frame locals.
 	 */
@@ -39,16 +33,22 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	private final String className;
 	private final long classId;
 	private final int probeCount;
+	private final String dataDesc;
+	private final String initDesc;
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	private boolean seenClinit = false;
 
 	InterfaceFieldProbeArrayStrategy(final String className, final long classId,
-			final int probeCount,
+			final int probeCount, final boolean hitCounts,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
 		this.className = className;
 		this.classId = classId;
 		this.probeCount = probeCount;
+		this.dataDesc = hitCounts ? InstrSupport.DATAFIELD_COUNTS_DESC
+				: InstrSupport.DATAFIELD_DESC;
+		this.initDesc = hitCounts ? InstrSupport.INITMETHOD_COUNTS_DESC
+				: InstrSupport.INITMETHOD_DESC;
 		this.accessorGenerator = accessorGenerator;
 	}
 
@@ -66,7 +66,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 			// Stack[0]: [Z
 
 			mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-					InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+					InstrSupport.DATAFIELD_NAME, dataDesc);
 
 			// Stack[0]: [Z
 
@@ -76,8 +76,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 			return Math.max(maxStack, 2);
 		} else {
 			mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
-					InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-					true);
+					InstrSupport.INITMETHOD_NAME, initDesc, true);
 			mv.visitVarInsn(Opcodes.ASTORE, variable);
 			return 1;
 		}
@@ -93,19 +92,17 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	private void createDataField(final ClassVisitor cv) {
 		cv.visitField(InstrSupport.DATAFIELD_INTF_ACC,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC, null,
-				null);
+				InstrSupport.DATAFIELD_NAME, dataDesc, null, null);
 	}
 
 	private void createInitMethod(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
-				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
-				null, null);
+				InstrSupport.INITMETHOD_NAME, initDesc, null, null);
 		mv.visitCode();
 
 		// Load the value of the static data field:
 		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataDesc);
 		mv.visitInsn(Opcodes.DUP);
 
 		// Stack[1]: [Z
@@ -125,7 +122,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 		// Return the class' probe array:
 		mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
-				FRAME_STACK_ARRZ);
+				new Object[] { dataDesc });
 		mv.visitLabel(alreadyInitialized);
 		mv.visitInsn(Opcodes.ARETURN);
 
@@ -145,7 +142,7 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Stack[0]: [Z
 
 		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
-				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
+				InstrSupport.DATAFIELD_NAME, dataDesc);
 
 		mv.visitInsn(Opcodes.RETURN);
 
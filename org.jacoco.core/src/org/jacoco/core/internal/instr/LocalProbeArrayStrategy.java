@@ -22,6 +22,16 @@ import org.objectweb.asm.Opcodes;
  * methods as this is the only method without keeping reference within this
  * class. This is very inefficient as the runtime is contacted for every method
  * invocation and therefore only used for static initializers in interfaces.
+ * {@link ProbeArrayStrategyFactory} selects this strategy only for interfaces
+ * without non-abstract methods other than the static initializer, i.e. for all
+ * interfaces before Java 8. As the static initializer is executed at most once
+ * the runtime is also contacted at most once per interface and there is no
+ * steady-state cost which would justify caching the probe array.
+ * <p>
+ * The strategy is also used for all types if no members must be added, e.g. for
+ * classes which are instrumented by retransformation after they have been
+ * loaded. In this case the accessor is expected to be based on
+ * <code>invokedynamic</code> whose call site is linked to the probe array once.
  */
 class LocalProbeArrayStrategy implements IProbeArrayStrategy {
 
@@ -14,6 +14,7 @@ package org.jacoco.core.internal.instr;
 
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.InvokeDynamicAccessorGenerator;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 
@@ -42,10 +43,75 @@ public final class ProbeArrayStrategyFactory {
 	public static IProbeArrayStrategy createFor(final long classId,
 			final ClassReader reader,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		return createFor(classId, reader, accessorGenerator, false);
+	}
+
+	/**
+	 * Creates a suitable strategy instance for the class described by the given
+	 * reader which optionally provides an <code>int[]</code> array for hit
+	 * counts. Created instance must be used only to process a class or
+	 * interface for which it has been created and must be used only once.
+	 *
+	 * @param classId
+	 *            class identifier
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param runtime
+	 *            accessor to the coverage runtime
+	 * @param hitCounts
+	 *            if <code>true</code> the strategy provides hit counts
+	 * @return strategy instance
+	 */
+	public static IProbeArrayStrategy createFor(final long classId,
+			final ClassReader reader,
+			final IExecutionDataAccessorGenerator runtime,
+			final boolean hitCounts) {
+		return createFor(classId, reader, runtime, hitCounts, false);
+	}
+
+	/**
+	 * Creates a suitable strategy instance for the class described by the given
+	 * reader which optionally doesn't add any members to the class. Such
+	 * strategies obtain the probe array at every method invocation, which is
+	 * only efficient with an accessor generator based on
+	 * <code>invokedynamic</code>. Created instance must be used only to process
+	 * a class or interface for which it has been created and must be used only
+	 * once.
+	 *
+	 * @param classId
+	 *            class identifier
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param runtime
+	 *            accessor to the coverage runtime
+	 * @param hitCounts
+	 *            if <code>true</code> the strategy provides hit counts
+	 * @param preserveMembers
+	 *            if <code>true</code> the strategy doesn't add members
+	 * @return strategy instance
+	 */
+	public static IProbeArrayStrategy createFor(final long classId,
+			final ClassReader reader,
+			final IExecutionDataAccessorGenerator runtime,
+			final boolean hitCounts, final boolean preserveMembers) {
 
 		final String className = reader.getClassName();
 		final int version = InstrSupport.getMajorVersion(reader);
 
+		final IExecutionDataAccessorGenerator generator = getGenerator(runtime,
+				version);
+		final IExecutionDataAccessorGenerator accessorGenerator = hitCounts
+				? new HitCountsAccessorGenerator(generator)
+				: generator;
+
+		if (preserveMembers) {
+			final ProbeCounter counter = getProbeCounter(reader);
+			if (counter.getCount() == 0) {
+				return new NoneProbeArrayStrategy();
+			}
+			return new LocalProbeArrayStrategy(className, classId,
+					counter.getCount(), accessorGenerator);
+		}
 		if (isInterfaceOrModule(reader)) {
 			final ProbeCounter counter = getProbeCounter(reader);
 			if (counter.getCount() == 0) {
@@ -53,11 +119,11 @@ public final class ProbeArrayStrategyFactory {
 			}
 			if (version >= Opcodes.V11 && counter.hasMethods()) {
 				return new CondyProbeArrayStrategy(className, true, classId,
-						accessorGenerator);
+						hitCounts, accessorGenerator);
 			}
 			if (version >= Opcodes.V1_8 && counter.hasMethods()) {
 				return new InterfaceFieldProbeArrayStrategy(className, classId,
-						counter.getCount(), accessorGenerator);
+						counter.getCount(), hitCounts, accessorGenerator);
 			} else {
 				return new LocalProbeArrayStrategy(className, classId,
 						counter.getCount(), accessorGenerator);
@@ -65,11 +131,25 @@ public final class ProbeArrayStrategyFactory {
 		} else {
 			if (version >= Opcodes.V11) {
 				return new CondyProbeArrayStrategy(className, false, classId,
-						accessorGenerator);
+						hitCounts, accessorGenerator);
 			}
 			return new ClassFieldProbeArrayStrategy(className, classId,
-					InstrSupport.needsFrames(version), accessorGenerator);
+					InstrSupport.needsFrames(version), hitCounts,
+					accessorGenerator);
+		}
+	}
+
+	/**
+	 * Class files before Java 7 can't contain <code>invokedynamic</code>
+	 * instructions.
+	 */
+	private static IExecutionDataAccessorGenerator getGenerator(
+			final IExecutionDataAccessorGenerator runtime, final int version) {
+		if (version < Opcodes.V1_7
+				&& runtime instanceof InvokeDynamicAccessorGenerator) {
+			return ((InvokeDynamicAccessorGenerator) runtime).getFallback();
 		}
+		return runtime;
 	}
 
 	private static boolean isInterfaceOrModule(final ClassReader reader) {
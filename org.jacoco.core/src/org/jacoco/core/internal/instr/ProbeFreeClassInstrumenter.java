@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.internal.flow.IFrame;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Variant of {@link ClassInstrumenter} which adds the same members to a class
+ * but inserts probes into the static initializer only. All other methods keep
+ * their original code. As retransformation must not add or remove members the
+ * result can replace an instrumented class once its probes are not needed any
+ * more. The static initializer has already been executed at that point, so
+ * keeping its probes has no runtime cost.
+ */
+public class ProbeFreeClassInstrumenter extends ClassInstrumenter {
+
+	private String className;
+
+	/**
+	 * Emits a version of this class without probes which has the same members
+	 * as the output of a {@link ClassInstrumenter} with the same parameters.
+	 *
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param hitCounts
+	 *            if <code>true</code> the probe array is an <code>int[]</code>
+	 *            array
+	 * @param conditionalProbes
+	 *            if <code>true</code> the method for conditional probes is
+	 *            added
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the class
+	 */
+	public ProbeFreeClassInstrumenter(
+			final IProbeArrayStrategy probeArrayStrategy,
+			final boolean hitCounts, final boolean conditionalProbes,
+			final ClassVisitor cv) {
+		super(probeArrayStrategy, hitCounts, conditionalProbes, cv);
+	}
+
+	@Override
+	public void visit(final int version, final int access, final String name,
+			final String signature, final String superName,
+			final String[] interfaces) {
+		this.className = name;
+		super.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public MethodProbesVisitor visitMethod(final int access, final String name,
+			final String desc, final String signature,
+			final String[] exceptions) {
+		if (InstrSupport.CLINIT_NAME.equals(name)) {
+			return super.visitMethod(access, name, desc, signature, exceptions);
+		}
+
+		InstrSupport.assertNotInstrumented(name, className);
+
+		final MethodVisitor mv = cv.visitMethod(access, name, desc, signature,
+				exceptions);
+
+		if (mv == null) {
+			return null;
+		}
+		return new OriginalCode(mv);
+	}
+
+	/**
+	 * Emits all instructions unchanged and ignores the probes.
+	 */
+	private static class OriginalCode extends MethodProbesVisitor {
+
+		OriginalCode(final MethodVisitor mv) {
+			super(mv);
+		}
+
+		@Override
+		public void visitInsnWithProbe(final int opcode, final int probeId) {
+			mv.visitInsn(opcode);
+		}
+
+		@Override
+		public void visitJumpInsnWithProbe(final int opcode, final Label label,
+				final int probeId, final IFrame frame) {
+			mv.visitJumpInsn(opcode, label);
+		}
+
+		@Override
+		public void visitTableSwitchInsnWithProbes(final int min, final int max,
+				final Label dflt, final Label[] labels, final IFrame frame) {
+			mv.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsnWithProbes(final Label dflt,
+				final int[] keys, final Label[] labels, final IFrame frame) {
+			mv.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+
+	}
+
+}
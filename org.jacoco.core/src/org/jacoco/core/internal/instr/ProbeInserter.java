@@ -21,9 +21,12 @@ import org.objectweb.asm.TypePath;
 
 /**
  * Internal utility to add probes into the control flow of a method. The code
- * for a probe simply sets a certain slot of a boolean array to true. In
- * addition the probe array has to be retrieved at the beginning of the method
- * and stored in a local variable.
+ * for a probe simply sets a certain slot of a boolean array to true. In hit
+ * count mode the probe increments a certain slot of the current thread's stripe
+ * of an int array instead. Conditional probes call a static method of the
+ * instrumented class which writes to the boolean array only if the slot is not
+ * set yet. In addition the probe array has to be retrieved at the beginning of
+ * the method and stored in a local variable.
  */
 class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
@@ -35,9 +38,27 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	 */
 	private final boolean clinit;
 
-	/** Position of the inserted variable. */
+	/** <code>true</code> if probes increment hit counts. */
+	private final boolean hitCounts;
+
+	/**
+	 * Owner of the conditional probe method or <code>null</code> if probes
+	 * write unconditionally.
+	 */
+	private final String probeMethodOwner;
+
+	/** <code>true</code> if the owner of the probe method is an interface. */
+	private final boolean probeMethodOwnerInterface;
+
+	/**
+	 * Position of the inserted variable. In hit count mode it is followed by a
+	 * second variable holding the offset of the current thread's stripe.
+	 */
 	private final int variable;
 
+	/** Number of inserted variable slots. */
+	private final int slots;
+
 	/** Maximum stack usage of the code to access the probe array. */
 	private int accessorStackSize;
 
@@ -58,17 +79,87 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	 */
 	ProbeInserter(final int access, final String name, final String desc,
 			final MethodVisitor mv, final IProbeArrayStrategy arrayStrategy) {
+		this(access, name, desc, mv, arrayStrategy, false);
+	}
+
+	/**
+	 * Creates a new {@link ProbeInserter} which optionally records hit counts.
+	 *
+	 * @param access
+	 *            access flags of the adapted method
+	 * @param name
+	 *            the method's name
+	 * @param desc
+	 *            the method's descriptor
+	 * @param mv
+	 *            the method visitor to which this adapter delegates calls
+	 * @param arrayStrategy
+	 *            callback to create the code that retrieves the reference to
+	 *            the probe array
+	 * @param hitCounts
+	 *            if <code>true</code> probes increment slots of an
+	 *            <code>int[]</code> array
+	 */
+	ProbeInserter(final int access, final String name, final String desc,
+			final MethodVisitor mv, final IProbeArrayStrategy arrayStrategy,
+			final boolean hitCounts) {
+		this(access, name, desc, mv, arrayStrategy, hitCounts, null, false);
+	}
+
+	/**
+	 * Creates a new {@link ProbeInserter} which optionally records hit counts
+	 * or calls a conditional probe method.
+	 *
+	 * @param access
+	 *            access flags of the adapted method
+	 * @param name
+	 *            the method's name
+	 * @param desc
+	 *            the method's descriptor
+	 * @param mv
+	 *            the method visitor to which this adapter delegates calls
+	 * @param arrayStrategy
+	 *            callback to create the code that retrieves the reference to
+	 *            the probe array
+	 * @param hitCounts
+	 *            if <code>true</code> probes increment slots of an
+	 *            <code>int[]</code> array
+	 * @param probeMethodOwner
+	 *            class declaring the method
+	 *            {@link InstrSupport#PROBEMETHOD_NAME} which is called by
+	 *            probes or <code>null</code> if probes write to the array
+	 *            directly, ignored in hit count mode
+	 * @param probeMethodOwnerInterface
+	 *            <code>true</code> if the owner of the probe method is an
+	 *            interface
+	 */
+	ProbeInserter(final int access, final String name, final String desc,
+			final MethodVisitor mv, final IProbeArrayStrategy arrayStrategy,
+			final boolean hitCounts, final String probeMethodOwner,
+			final boolean probeMethodOwnerInterface) {
 		super(InstrSupport.ASM_API_VERSION, mv);
 		this.clinit = InstrSupport.CLINIT_NAME.equals(name);
+		this.hitCounts = hitCounts;
+		this.probeMethodOwner = hitCounts ? null : probeMethodOwner;
+		this.probeMethodOwnerInterface = probeMethodOwnerInterface;
 		this.arrayStrategy = arrayStrategy;
 		int pos = (Opcodes.ACC_STATIC & access) == 0 ? 1 : 0;
 		for (final Type t : Type.getArgumentTypes(desc)) {
 			pos += t.getSize();
 		}
 		variable = pos;
+		slots = hitCounts ? 2 : 1;
 	}
 
 	public void insertProbe(final int id) {
+		if (hitCounts) {
+			insertCountingProbe(id);
+			return;
+		}
+		if (probeMethodOwner != null) {
+			insertConditionalProbe(id);
+			return;
+		}
 
 		// For a probe we set the corresponding position in the boolean[] array
 		// to true.
@@ -91,12 +182,101 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		mv.visitInsn(Opcodes.BASTORE);
 	}
 
+	private void insertConditionalProbe(final int id) {
+
+		// A conditional probe passes the boolean[] array and its id to the
+		// probe method. The method is inlined by the JIT and avoids writes to
+		// the array once the probe has been set. Such writes would invalidate
+		// the cache line of the array on other cores.
+
+		mv.visitVarInsn(Opcodes.ALOAD, variable);
+		InstrSupport.push(mv, id);
+
+		// Stack[1]: I
+		// Stack[0]: [Z
+
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, probeMethodOwner,
+				InstrSupport.PROBEMETHOD_NAME, InstrSupport.PROBEMETHOD_DESC,
+				probeMethodOwnerInterface);
+	}
+
+	private void insertCountingProbe(final int id) {
+
+		// For a counting probe we increment the corresponding position in the
+		// stripe of the current thread in the int[] array. The counter
+		// saturates at Integer.MAX_VALUE: an overflow sets the sign bit which
+		// is shifted down and subtracted again. The update is not atomic, only
+		// concurrent increments of threads sharing a stripe may get lost.
+
+		mv.visitVarInsn(Opcodes.ALOAD, variable);
+		mv.visitVarInsn(Opcodes.ILOAD, variable + 1);
+		InstrSupport.push(mv, id);
+		mv.visitInsn(Opcodes.IADD);
+		mv.visitInsn(Opcodes.DUP2);
+
+		// Stack[3]: I
+		// Stack[2]: [I
+		// Stack[1]: I
+		// Stack[0]: [I
+
+		mv.visitInsn(Opcodes.IALOAD);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IADD);
+		mv.visitInsn(Opcodes.DUP);
+
+		// Stack[3]: I
+		// Stack[2]: I
+		// Stack[1]: I
+		// Stack[0]: [I
+
+		mv.visitIntInsn(Opcodes.BIPUSH, 31);
+		mv.visitInsn(Opcodes.IUSHR);
+		mv.visitInsn(Opcodes.ISUB);
+
+		// Stack[2]: I
+		// Stack[1]: I
+		// Stack[0]: [I
+
+		mv.visitInsn(Opcodes.IASTORE);
+	}
+
 	@Override
 	public void visitCode() {
 		accessorStackSize = arrayStrategy.storeInstance(mv, clinit, variable);
+		if (hitCounts) {
+			storeStripeOffset();
+		}
 		mv.visitCode();
 	}
 
+	private void storeStripeOffset() {
+
+		// The stripe is selected once per method invocation from the identity
+		// hash code of the current thread. The stripe length is derived from
+		// the array length as the probe count is not known yet.
+
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Thread",
+				"currentThread", "()Ljava/lang/Thread;", false);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System",
+				"identityHashCode", "(Ljava/lang/Object;)I", false);
+		InstrSupport.push(mv, (1 << InstrSupport.COUNTS_STRIPE_BITS) - 1);
+		mv.visitInsn(Opcodes.IAND);
+
+		// Stack[0]: I
+
+		mv.visitVarInsn(Opcodes.ALOAD, variable);
+		mv.visitInsn(Opcodes.ARRAYLENGTH);
+		InstrSupport.push(mv, InstrSupport.COUNTS_STRIPE_BITS);
+		mv.visitInsn(Opcodes.IUSHR);
+
+		// Stack[1]: I
+		// Stack[0]: I
+
+		mv.visitInsn(Opcodes.IMUL);
+		mv.visitVarInsn(Opcodes.ISTORE, variable + 1);
+		accessorStackSize = Math.max(accessorStackSize, 3);
+	}
+
 	@Override
 	public final void visitVarInsn(final int opcode, final int var) {
 		mv.visitVarInsn(opcode, map(var));
@@ -128,19 +308,22 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
 	@Override
 	public void visitMaxs(final int maxStack, final int maxLocals) {
-		// Max stack size of the probe code is 3 which can add to the
-		// original stack size depending on the probe locations. The accessor
-		// stack size is an absolute maximum, as the accessor code is inserted
-		// at the very beginning of each method when the stack size is empty.
-		final int increasedStack = Math.max(maxStack + 3, accessorStackSize);
-		mv.visitMaxs(increasedStack, maxLocals + 1);
+		// Max stack size of the probe code is 3 (5 for counting probes) which
+		// can add to the original stack size depending on the probe locations.
+		// The accessor stack size is an absolute maximum, as the accessor code
+		// is inserted at the very beginning of each method when the stack size
+		// is empty.
+		final int probeStack = hitCounts ? 5 : 3;
+		final int increasedStack = Math.max(maxStack + probeStack,
+				accessorStackSize);
+		mv.visitMaxs(increasedStack, maxLocals + slots);
 	}
 
 	private int map(final int var) {
 		if (var < variable) {
 			return var;
 		} else {
-			return var + 1;
+			return var + slots;
 		}
 	}
 
@@ -153,14 +336,20 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 					"ClassReader.accept() should be called with EXPAND_FRAMES flag");
 		}
 
-		final Object[] newLocal = new Object[Math.max(nLocal, variable) + 1];
+		final Object[] newLocal = new Object[Math.max(nLocal, variable)
+				+ slots];
 		int idx = 0; // Arrays index for existing locals
 		int newIdx = 0; // Array index for new locals
 		int pos = 0; // Current variable position
 		while (idx < nLocal || pos <= variable) {
 			if (pos == variable) {
-				newLocal[newIdx++] = InstrSupport.DATAFIELD_DESC;
-				pos++;
+				if (hitCounts) {
+					newLocal[newIdx++] = InstrSupport.DATAFIELD_COUNTS_DESC;
+					newLocal[newIdx++] = Opcodes.INTEGER;
+				} else {
+					newLocal[newIdx++] = InstrSupport.DATAFIELD_DESC;
+				}
+				pos += slots;
 			} else {
 				if (idx < nLocal) {
 					final Object t = local[idx++];
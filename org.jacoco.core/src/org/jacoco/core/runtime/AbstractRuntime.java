@@ -29,6 +29,19 @@ public abstract class AbstractRuntime implements IRuntime {
 		this.data = data;
 	}
 
+	/**
+	 * Returns an accessor generator which obtains the probe arrays of Java 7
+	 * and later class files with <code>invokedynamic</code> and uses this
+	 * runtime for older class files. Runtimes which do not provide a bootstrap
+	 * method return this runtime itself.
+	 *
+	 * @return accessor generator for instrumented classes
+	 * @see InvokeDynamicAccessorGenerator
+	 */
+	public IExecutionDataAccessorGenerator createInvokeDynamicAccessorGenerator() {
+		return this;
+	}
+
 	private static final Random RANDOM = new Random();
 
 	/**
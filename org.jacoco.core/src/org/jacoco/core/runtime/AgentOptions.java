@@ -183,6 +183,70 @@ public final class AgentOptions {
 	 */
 	public static final String CLASSDUMPDIR = "classdumpdir";
 
+	/**
+	 * Specifies a directory where the agent caches instrumented class files
+	 * across JVM runs. The location is specified as a relative path to the
+	 * working directory and may be shared by multiple JVMs. Default is
+	 * <code>null</code> (no cache).
+	 */
+	public static final String CLASSCACHEDIR = "classcachedir";
+
+	/**
+	 * Specifies the maximum total size of the class cache in megabytes. When
+	 * the cache exceeds this size the least recently used entries are deleted.
+	 * A value of 0 disables the limit. Default is defined by
+	 * {@link #DEFAULT_CLASSCACHESIZE}.
+	 */
+	public static final String CLASSCACHESIZE = "classcachesize";
+
+	/**
+	 * Default value for the "classcachesize" agent option.
+	 */
+	public static final int DEFAULT_CLASSCACHESIZE = 100;
+
+	/**
+	 * Specifies whether probes record hit counts instead of a single flag. Hit
+	 * counts saturate at {@link Integer#MAX_VALUE} and concurrent executions of
+	 * the same probe may get lost. Default is <code>false</code>.
+	 */
+	public static final String HITCOUNTS = "hitcounts";
+
+	/**
+	 * Specifies whether probes only write to the probe array if they have not
+	 * been set before. This reduces cache contention between threads executing
+	 * the same code. Ignored if {@link #HITCOUNTS} is set. Default is
+	 * <code>false</code>.
+	 */
+	public static final String CONDITIONALPROBES = "conditionalprobes";
+
+	/**
+	 * Specifies whether classes compiled for Java 7 or later obtain their probe
+	 * array with an <code>invokedynamic</code> instruction instead of the
+	 * generic runtime access. Default is <code>false</code>.
+	 */
+	public static final String INVOKEDYNAMIC = "invokedynamic";
+
+	/**
+	 * Specifies the interval in seconds in which the agent removes the probes
+	 * of sufficiently covered classes by retransforming them. Afterwards these
+	 * classes execute without overhead but do not record further executions. A
+	 * value of 0 disables the removal. Default is 0.
+	 */
+	public static final String REMOVEPROBESINTERVAL = "removeprobesinterval";
+
+	/**
+	 * Specifies the minimum percentage of executed probes at which the probes
+	 * of a class are removed, see {@link #REMOVEPROBESINTERVAL}. Default is
+	 * defined by {@link #DEFAULT_REMOVEPROBESTHRESHOLD}.
+	 */
+	public static final String REMOVEPROBESTHRESHOLD = "removeprobesthreshold";
+
+	/**
+	 * Default value for the "removeprobesthreshold" agent option: only fully
+	 * covered classes.
+	 */
+	public static final int DEFAULT_REMOVEPROBESTHRESHOLD = 100;
+
 	/**
 	 * Specifies whether the agent should expose functionality via JMX under the
 	 * name "org.jacoco:type=Runtime". Default is <code>false</code>.
@@ -192,7 +256,9 @@ public final class AgentOptions {
 	private static final Collection<String> VALID_OPTIONS = Arrays.asList(
 			DESTFILE, APPEND, INCLUDES, EXCLUDES, EXCLCLASSLOADER,
 			INCLBOOTSTRAPCLASSES, INCLNOLOCATIONCLASSES, SESSIONID, DUMPONEXIT,
-			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX);
+			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, CLASSCACHEDIR, CLASSCACHESIZE,
+			HITCOUNTS, CONDITIONALPROBES, INVOKEDYNAMIC, REMOVEPROBESINTERVAL,
+			REMOVEPROBESTHRESHOLD, JMX);
 
 	private final Map<String, String> options;
 
@@ -250,6 +316,9 @@ public final class AgentOptions {
 
 	private void validateAll() {
 		validatePort(getPort());
+		validateClassCacheSize(getClassCacheSize());
+		validateRemoveProbesInterval(getRemoveProbesInterval());
+		validateRemoveProbesThreshold(getRemoveProbesThreshold());
 		getOutput();
 	}
 
@@ -259,6 +328,27 @@ public final class AgentOptions {
 		}
 	}
 
+	private void validateClassCacheSize(final int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException(
+					"classcachesize must be positive");
+		}
+	}
+
+	private void validateRemoveProbesInterval(final int interval) {
+		if (interval < 0) {
+			throw new IllegalArgumentException(
+					"removeprobesinterval must be positive");
+		}
+	}
+
+	private void validateRemoveProbesThreshold(final int threshold) {
+		if (threshold < 1 || threshold > 100) {
+			throw new IllegalArgumentException(
+					"removeprobesthreshold must be between 1 and 100");
+		}
+	}
+
 	/**
 	 * Returns the output file location.
 	 *
@@ -538,6 +628,148 @@ public final class AgentOptions {
 		setOption(CLASSDUMPDIR, location);
 	}
 
+	/**
+	 * Returns the location of the directory where instrumented class files are
+	 * cached.
+	 *
+	 * @return cache location or <code>null</code> (no cache)
+	 */
+	public String getClassCacheDir() {
+		return getOption(CLASSCACHEDIR, null);
+	}
+
+	/**
+	 * Sets the directory where instrumented class files are cached.
+	 *
+	 * @param location
+	 *            cache location or <code>null</code> (no cache)
+	 */
+	public void setClassCacheDir(final String location) {
+		setOption(CLASSCACHEDIR, location);
+	}
+
+	/**
+	 * Returns the maximum size of the class cache in megabytes.
+	 *
+	 * @return maximum cache size in megabytes, 0 for no limit
+	 */
+	public int getClassCacheSize() {
+		return getOption(CLASSCACHESIZE, DEFAULT_CLASSCACHESIZE);
+	}
+
+	/**
+	 * Sets the maximum size of the class cache in megabytes.
+	 *
+	 * @param size
+	 *            maximum cache size in megabytes, 0 for no limit
+	 */
+	public void setClassCacheSize(final int size) {
+		validateClassCacheSize(size);
+		setOption(CLASSCACHESIZE, size);
+	}
+
+	/**
+	 * Returns whether probes record hit counts.
+	 *
+	 * @return <code>true</code>, when hit counts are recorded
+	 */
+	public boolean getHitCounts() {
+		return getOption(HITCOUNTS, false);
+	}
+
+	/**
+	 * Sets whether probes record hit counts instead of a single flag.
+	 *
+	 * @param hitCounts
+	 *            <code>true</code> if hit counts should be recorded
+	 */
+	public void setHitCounts(final boolean hitCounts) {
+		setOption(HITCOUNTS, hitCounts);
+	}
+
+	/**
+	 * Returns whether probes only write to the probe array once.
+	 *
+	 * @return <code>true</code>, when conditional probes are used
+	 */
+	public boolean getConditionalProbes() {
+		return getOption(CONDITIONALPROBES, false);
+	}
+
+	/**
+	 * Sets whether probes only write to the probe array if they have not been
+	 * set before.
+	 *
+	 * @param conditionalProbes
+	 *            <code>true</code> if conditional probes should be used
+	 */
+	public void setConditionalProbes(final boolean conditionalProbes) {
+		setOption(CONDITIONALPROBES, conditionalProbes);
+	}
+
+	/**
+	 * Returns whether probe arrays are obtained with
+	 * <code>invokedynamic</code>.
+	 *
+	 * @return <code>true</code>, when <code>invokedynamic</code> is used
+	 */
+	public boolean getInvokeDynamic() {
+		return getOption(INVOKEDYNAMIC, false);
+	}
+
+	/**
+	 * Sets whether classes compiled for Java 7 or later obtain their probe
+	 * array with an <code>invokedynamic</code> instruction.
+	 *
+	 * @param invokeDynamic
+	 *            <code>true</code> if <code>invokedynamic</code> should be used
+	 */
+	public void setInvokeDynamic(final boolean invokeDynamic) {
+		setOption(INVOKEDYNAMIC, invokeDynamic);
+	}
+
+	/**
+	 * Returns the interval in which the probes of covered classes are removed.
+	 *
+	 * @return interval in seconds, 0 if probes are never removed
+	 */
+	public int getRemoveProbesInterval() {
+		return getOption(REMOVEPROBESINTERVAL, 0);
+	}
+
+	/**
+	 * Sets the interval in which the probes of covered classes are removed.
+	 *
+	 * @param interval
+	 *            interval in seconds, 0 if probes should never be removed
+	 */
+	public void setRemoveProbesInterval(final int interval) {
+		validateRemoveProbesInterval(interval);
+		setOption(REMOVEPROBESINTERVAL, interval);
+	}
+
+	/**
+	 * Returns the minimum percentage of executed probes at which the probes of
+	 * a class are removed.
+	 *
+	 * @return percentage of executed probes
+	 */
+	public int getRemoveProbesThreshold() {
+		return getOption(REMOVEPROBESTHRESHOLD, DEFAULT_REMOVEPROBESTHRESHOLD);
+	}
+
+	/**
+	 * Sets the minimum percentage of executed probes at which the probes of a
+	 * class are removed.
+	 *
+	 * @param threshold
+	 *            percentage of executed probes between 1 and 100
+	 */
+	public void setRemoveProbesThreshold(final int threshold) {
+		validateRemoveProbesThreshold(threshold);
+		setOption(REMOVEPROBESTHRESHOLD, threshold);
+	}
+
 	/**
 	 * Returns whether the agent exposes functionality via JMX.
 	 *
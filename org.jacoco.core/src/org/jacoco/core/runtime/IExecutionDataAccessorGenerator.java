@@ -31,16 +31,20 @@ public interface IExecutionDataAccessorGenerator {
 	 * target VM.
 	 *
 	 * The generated code must push a <code>boolean[]</code> instance to the
-	 * operand stack. Except this result object the generated code must not make
-	 * any assumptions about the structure of the embedding method or class. The
-	 * generated code must not use or allocate local variables.
+	 * operand stack. A negative probe count requests an <code>int[]</code>
+	 * array of hit counts with the absolute value as length instead.
+	 * Implementations which do not support hit counts must throw an
+	 * {@link IllegalArgumentException} in this case. Except this result object
+	 * the generated code must not make any assumptions about the structure of
+	 * the embedding method or class. The generated code must not use or
+	 * allocate local variables.
 	 *
 	 * @param classid
 	 *            identifier of the class
 	 * @param classname
 	 *            VM class name
 	 * @param probecount
-	 *            probe count for this class
+	 *            probe count for this class, negative for hit counts
 	 * @param mv
 	 *            code output
 	 * @return additional stack size required by the implementation, including
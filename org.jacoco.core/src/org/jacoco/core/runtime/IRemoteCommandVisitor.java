@@ -31,4 +31,20 @@ public interface IRemoteCommandVisitor {
 	 */
 	void visitDumpCommand(boolean dump, boolean reset) throws IOException;
 
+	/**
+	 * Requests an incremental execution data dump with an optional reset. Only
+	 * probes executed since the previous incremental dump for the same client
+	 * are reported, so clients with different identifiers do not affect each
+	 * other.
+	 *
+	 * @param clientId
+	 *            identifier of the requesting client
+	 * @param reset
+	 *            <code>true</code> if the reset should be executed
+	 * @throws IOException
+	 *             in case of problems with the remote connection
+	 */
+	void visitDeltaDumpCommand(String clientId, boolean reset)
+			throws IOException;
+
 }
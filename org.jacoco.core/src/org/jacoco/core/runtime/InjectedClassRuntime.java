@@ -20,7 +20,8 @@ import org.objectweb.asm.Opcodes;
  * {@link IRuntime} which defines a new class using
  * {@code java.lang.invoke.MethodHandles.Lookup.defineClass} introduced in Java
  * 9. Module where class will be defined must be opened to at least module of
- * this class.
+ * this class. The defined class also provides the bootstrap method for
+ * {@link InvokeDynamicAccessorGenerator}.
  */
 public class InjectedClassRuntime extends AbstractRuntime {
 
@@ -72,12 +73,19 @@ public class InjectedClassRuntime extends AbstractRuntime {
 		return 6;
 	}
 
+	@Override
+	public IExecutionDataAccessorGenerator createInvokeDynamicAccessorGenerator() {
+		return new InvokeDynamicAccessorGenerator(injectedClassName, this);
+	}
+
 	private static byte[] createClass(final String name) {
 		final ClassWriter cw = new ClassWriter(0);
 		cw.visit(Opcodes.V9, Opcodes.ACC_SYNTHETIC | Opcodes.ACC_PUBLIC,
 				name.replace('.', '/'), null, "java/lang/Object", null);
 		cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, FIELD_NAME,
 				FIELD_TYPE, null, null);
+		InvokeDynamicAccessorGenerator.createBootstrapMethod(cw,
+				name.replace('.', '/'), FIELD_NAME);
 		cw.visitEnd();
 		return cw.toByteArray();
 	}
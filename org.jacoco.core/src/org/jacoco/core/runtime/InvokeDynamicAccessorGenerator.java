@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Accessor generator which obtains the probe array with a single
+ * <code>invokedynamic</code> instruction. Class id, class name and probe count
+ * are passed as constant bootstrap arguments, therefore the instrumented class
+ * neither allocates an argument array nor boxes values. The bootstrap method
+ * must have been created with
+ * {@link #createBootstrapMethod(ClassVisitor, String, String)} in a class which
+ * is visible to all instrumented classes and which holds the
+ * {@link RuntimeData} instance in a static field.
+ *
+ * As <code>invokedynamic</code> requires class files of Java 7 or later the
+ * probe array strategies use the given fallback generator for older class
+ * files.
+ */
+public class InvokeDynamicAccessorGenerator
+		implements IExecutionDataAccessorGenerator {
+
+	/**
+	 * Name of the bootstrap method.
+	 */
+	public static final String BOOTSTRAP_NAME = "$jacocoBootstrap";
+
+	/**
+	 * Descriptor of the bootstrap method which takes class id, class name and
+	 * probe count as static arguments.
+	 */
+	public static final String BOOTSTRAP_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+			+ "Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+			+ "JLjava/lang/String;I)Ljava/lang/invoke/CallSite;";
+
+	private final String bootstrapOwner;
+
+	private final IExecutionDataAccessorGenerator fallback;
+
+	/**
+	 * Creates a new generator.
+	 *
+	 * @param bootstrapOwner
+	 *            VM name of the class declaring the bootstrap method
+	 * @param fallback
+	 *            generator for class files before Java 7
+	 */
+	public InvokeDynamicAccessorGenerator(final String bootstrapOwner,
+			final IExecutionDataAccessorGenerator fallback) {
+		this.bootstrapOwner = bootstrapOwner;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Returns the generator to be used for class files before Java 7.
+	 *
+	 * @return fallback generator
+	 */
+	public IExecutionDataAccessorGenerator getFallback() {
+		return fallback;
+	}
+
+	public int generateDataAccessor(final long classid, final String classname,
+			final int probecount, final MethodVisitor mv) {
+		final String desc = RuntimeData.getDataDesc(probecount);
+		mv.visitInvokeDynamicInsn(InstrSupport.DATAFIELD_NAME, "()" + desc,
+				new Handle(Opcodes.H_INVOKESTATIC, bootstrapOwner,
+						BOOTSTRAP_NAME, BOOTSTRAP_DESC, false),
+				Long.valueOf(classid), classname, Integer.valueOf(probecount));
+
+		// stack[0]: [Z or [I
+
+		return 1;
+	}
+
+	/**
+	 * Checks whether the current JVM supports <code>invokedynamic</code>, i.e.
+	 * whether the types used by the bootstrap method are available.
+	 *
+	 * @return <code>true</code> if bootstrap methods can be used
+	 */
+	public static boolean isSupported() {
+		try {
+			Class.forName("java.lang.invoke.ConstantCallSite");
+			return true;
+		} catch (final ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the public static bootstrap method to the given class. The method
+	 * retrieves the probe array from the {@link RuntimeData} instance stored in
+	 * the given static field once per call site and links the call site to this
+	 * array permanently.
+	 *
+	 * @param cv
+	 *            visitor of the class to add the method to
+	 * @param accessFieldOwner
+	 *            VM name of the class declaring the access field
+	 * @param accessFieldName
+	 *            name of the static field of type <code>java.lang.Object</code>
+	 *            holding the runtime data
+	 */
+	public static void createBootstrapMethod(final ClassVisitor cv,
+			final String accessFieldOwner, final String accessFieldName) {
+		final MethodVisitor mv = cv.visitMethod(
+				Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+				BOOTSTRAP_NAME, BOOTSTRAP_DESC, null, null);
+		mv.visitCode();
+
+		// Local variables:
+		// 0: Ljava/lang/invoke/MethodHandles$Lookup;
+		// 1: Ljava/lang/String;
+		// 2: Ljava/lang/invoke/MethodType;
+		// 3, 4: J class id
+		// 5: Ljava/lang/String; class name
+		// 6: I probe count
+
+		mv.visitFieldInsn(Opcodes.GETSTATIC, accessFieldOwner, accessFieldName,
+				"Ljava/lang/Object;");
+
+		// stack[0]: Ljava/lang/Object;
+
+		mv.visitInsn(Opcodes.ICONST_3);
+		mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitVarInsn(Opcodes.LLOAD, 3);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Long", "valueOf",
+				"(J)Ljava/lang/Long;", false);
+		mv.visitInsn(Opcodes.AASTORE);
+
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitVarInsn(Opcodes.ALOAD, 5);
+		mv.visitInsn(Opcodes.AASTORE);
+
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitInsn(Opcodes.ICONST_2);
+		mv.visitVarInsn(Opcodes.ILOAD, 6);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf",
+				"(I)Ljava/lang/Integer;", false);
+		mv.visitInsn(Opcodes.AASTORE);
+
+		// stack[1]: [Ljava/lang/Object;
+		// stack[0]: Ljava/lang/Object;
+
+		mv.visitInsn(Opcodes.DUP_X1);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "equals",
+				"(Ljava/lang/Object;)Z", false);
+		mv.visitInsn(Opcodes.POP);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.AALOAD);
+
+		// stack[0]: Ljava/lang/Object; (the probe array)
+
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/invoke/MethodType",
+				"returnType", "()Ljava/lang/Class;", false);
+		mv.visitInsn(Opcodes.SWAP);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				"java/lang/invoke/MethodHandles", "constant",
+				"(Ljava/lang/Class;Ljava/lang/Object;)Ljava/lang/invoke/MethodHandle;",
+				false);
+
+		// stack[0]: Ljava/lang/invoke/MethodHandle;
+
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/invoke/ConstantCallSite");
+		mv.visitInsn(Opcodes.DUP_X1);
+		mv.visitInsn(Opcodes.SWAP);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL,
+				"java/lang/invoke/ConstantCallSite", "<init>",
+				"(Ljava/lang/invoke/MethodHandle;)V", false);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(6, 7);
+		mv.visitEnd();
+	}
+
+}
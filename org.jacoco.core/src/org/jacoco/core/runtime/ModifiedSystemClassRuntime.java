@@ -18,6 +18,7 @@ import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
 
 import org.jacoco.core.internal.instr.InstrSupport;
@@ -30,8 +31,9 @@ import org.objectweb.asm.Opcodes;
 /**
  * This {@link IRuntime} implementation works with a modified system class. A
  * new static field is added to a bootstrap class that will be used by
- * instrumented classes. As the system class itself needs to be instrumented
- * this runtime requires a Java agent.
+ * instrumented classes. On request a bootstrap method for
+ * {@link InvokeDynamicAccessorGenerator} is added as well. As the system class
+ * itself needs to be instrumented this runtime requires a Java agent.
  */
 public class ModifiedSystemClassRuntime extends AbstractRuntime {
 
@@ -82,6 +84,18 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 		return 6;
 	}
 
+	@Override
+	public IExecutionDataAccessorGenerator createInvokeDynamicAccessorGenerator() {
+		for (final Method m : systemClass.getMethods()) {
+			if (InvokeDynamicAccessorGenerator.BOOTSTRAP_NAME
+					.equals(m.getName())) {
+				return new InvokeDynamicAccessorGenerator(systemClassName,
+						this);
+			}
+		}
+		return this;
+	}
+
 	/**
 	 * Creates a new {@link ModifiedSystemClassRuntime} using the given class as
 	 * the data container. Member is created with internal default name. The
@@ -98,7 +112,30 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 	 */
 	public static IRuntime createFor(final Instrumentation inst,
 			final String className) throws ClassNotFoundException {
-		return createFor(inst, className, "$jacocoAccess");
+		return createFor(inst, className, false);
+	}
+
+	/**
+	 * Creates a new {@link ModifiedSystemClassRuntime} using the given class as
+	 * the data container. Member is created with internal default name. The
+	 * given class must not have been loaded before by the agent.
+	 *
+	 * @param inst
+	 *            instrumentation interface
+	 * @param className
+	 *            VM name of the class to use
+	 * @param bootstrapMethod
+	 *            whether the bootstrap method for
+	 *            {@link InvokeDynamicAccessorGenerator} should be added
+	 * @return new runtime instance
+	 *
+	 * @throws ClassNotFoundException
+	 *             id the given class can not be found
+	 */
+	public static IRuntime createFor(final Instrumentation inst,
+			final String className, final boolean bootstrapMethod)
+			throws ClassNotFoundException {
+		return createFor(inst, className, "$jacocoAccess", bootstrapMethod);
 	}
 
 	/**
@@ -120,13 +157,38 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 	public static IRuntime createFor(final Instrumentation inst,
 			final String className, final String accessFieldName)
 			throws ClassNotFoundException {
+		return createFor(inst, className, accessFieldName, false);
+	}
+
+	/**
+	 * Creates a new {@link ModifiedSystemClassRuntime} using the given class as
+	 * the data container. The given class must not have been loaded before by
+	 * the agent.
+	 *
+	 * @param inst
+	 *            instrumentation interface
+	 * @param className
+	 *            VM name of the class to use
+	 * @param accessFieldName
+	 *            name of the added runtime access field
+	 * @param bootstrapMethod
+	 *            whether the bootstrap method for
+	 *            {@link InvokeDynamicAccessorGenerator} should be added
+	 * @return new runtime instance
+	 *
+	 * @throws ClassNotFoundException
+	 *             if the given class can not be found
+	 */
+	public static IRuntime createFor(final Instrumentation inst,
+			final String className, final String accessFieldName,
+			final boolean bootstrapMethod) throws ClassNotFoundException {
 		final ClassFileTransformer transformer = new ClassFileTransformer() {
 			public byte[] transform(final ClassLoader loader, final String name,
 					final Class<?> classBeingRedefined,
 					final ProtectionDomain protectionDomain,
 					final byte[] source) throws IllegalClassFormatException {
 				if (name.equals(className)) {
-					return instrument(source, accessFieldName);
+					return instrument(source, accessFieldName, bootstrapMethod);
 				}
 				return null;
 			}
@@ -151,10 +213,28 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 	 *            class definition source
 	 * @param accessFieldName
 	 *            name of the runtime access field
-	 * @return instrumented version with added members
+	 * @return instrumented version with added member
 	 */
 	public static byte[] instrument(final byte[] source,
 			final String accessFieldName) {
+		return instrument(source, accessFieldName, false);
+	}
+
+	/**
+	 * Adds the static data field to the given class definition. If requested
+	 * and the current JVM supports <code>invokedynamic</code> the bootstrap
+	 * method for {@link InvokeDynamicAccessorGenerator} is added as well.
+	 *
+	 * @param source
+	 *            class definition source
+	 * @param accessFieldName
+	 *            name of the runtime access field
+	 * @param bootstrapMethod
+	 *            whether the bootstrap method should be added
+	 * @return instrumented version with added members
+	 */
+	public static byte[] instrument(final byte[] source,
+			final String accessFieldName, final boolean bootstrapMethod) {
 		final ClassReader reader = InstrSupport.classReaderFor(source);
 		final ClassWriter writer = new ClassWriter(reader, 0);
 		reader.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION, writer) {
@@ -162,6 +242,11 @@ public class ModifiedSystemClassRuntime extends AbstractRuntime {
 			@Override
 			public void visitEnd() {
 				createDataField(cv, accessFieldName);
+				if (bootstrapMethod
+						&& InvokeDynamicAccessorGenerator.isSupported()) {
+					InvokeDynamicAccessorGenerator.createBootstrapMethod(cv,
+							reader.getClassName(), accessFieldName);
+				}
 				super.visitEnd();
 			}
 
@@ -48,6 +48,10 @@ public class OfflineInstrumentationAccessGenerator
 
 	public int generateDataAccessor(final long classid, final String classname,
 			final int probecount, final MethodVisitor mv) {
+		if (probecount < 0) {
+			throw new IllegalArgumentException(
+					"Hit counts are not supported for offline instrumentation.");
+		}
 		mv.visitLdcInsn(Long.valueOf(classid));
 		mv.visitLdcInsn(classname);
 		InstrSupport.push(mv, probecount);
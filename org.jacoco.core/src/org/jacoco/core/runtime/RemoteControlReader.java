@@ -42,6 +42,9 @@ public class RemoteControlReader extends ExecutionDataReader {
 		case RemoteControlWriter.BLOCK_CMDDUMP:
 			readDumpCommand();
 			return true;
+		case RemoteControlWriter.BLOCK_CMDDUMPDELTA:
+			readDeltaDumpCommand();
+			return true;
 		case RemoteControlWriter.BLOCK_CMDOK:
 			return false;
 		default:
@@ -68,4 +71,13 @@ public class RemoteControlReader extends ExecutionDataReader {
 		remoteCommandVisitor.visitDumpCommand(dump, reset);
 	}
 
+	private void readDeltaDumpCommand() throws IOException {
+		if (remoteCommandVisitor == null) {
+			throw new IOException("No remote command visitor.");
+		}
+		final String clientId = in.readUTF();
+		final boolean reset = in.readBoolean();
+		remoteCommandVisitor.visitDeltaDumpCommand(clientId, reset);
+	}
+
 }
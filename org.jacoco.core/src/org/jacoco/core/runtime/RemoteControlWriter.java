@@ -29,6 +29,9 @@ public class RemoteControlWriter extends ExecutionDataWriter
 	/** Block identifier for dump command */
 	public static final byte BLOCK_CMDDUMP = 0x40;
 
+	/** Block identifier for incremental dump command */
+	public static final byte BLOCK_CMDDUMPDELTA = 0x41;
+
 	/**
 	 * Creates a new writer based on the given output stream.
 	 *
@@ -59,4 +62,11 @@ public class RemoteControlWriter extends ExecutionDataWriter
 		out.writeBoolean(reset);
 	}
 
+	public void visitDeltaDumpCommand(final String clientId,
+			final boolean reset) throws IOException {
+		out.writeByte(RemoteControlWriter.BLOCK_CMDDUMPDELTA);
+		out.writeUTF(clientId);
+		out.writeBoolean(reset);
+	}
+
 }
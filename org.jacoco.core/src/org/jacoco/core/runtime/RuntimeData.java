@@ -12,8 +12,16 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.jacoco.core.data.ExecutionData;
-import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataDeltaVisitor;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
@@ -23,12 +31,39 @@ import org.objectweb.asm.Opcodes;
 
 /**
  * Container for runtime execution and meta data. All access to the runtime data
- * is thread safe.
+ * is thread safe. Lookup and registration of probe arrays is lock-free and
+ * never waits for a concurrent
+ * {@link #collect(IExecutionDataVisitor, ISessionInfoVisitor, boolean) collect}
+ * or {@link #reset() reset}. Collected data is copied into a snapshot first, so
+ * visitors are called outside of any lock and a slow output does not block
+ * resets.
  */
 public class RuntimeData {
 
 	/** store for execution data */
-	protected final ExecutionDataStore store;
+	private final ConcurrentMap<Long, ExecutionData> store;
+
+	/**
+	 * striped hit counts handed out to classes, summed up into the hit counts
+	 * of the corresponding entries of {@link #store} when data is collected
+	 */
+	private final ConcurrentMap<Long, int[]> stripes;
+
+	/**
+	 * guards snapshots and reset operations, probe arrays are copied directly
+	 * into the snapshot while holding this lock
+	 */
+	private final Object lock;
+
+	/**
+	 * data already reported to the clients of
+	 * {@link #collectDelta(String, IExecutionDataDeltaVisitor, ISessionInfoVisitor, boolean)},
+	 * only accessed while holding {@link #lock}
+	 */
+	private final Map<String, DeltaBaseline> baselines;
+
+	/** number of resets, invalidates all delta baselines */
+	private long resetCount;
 
 	private long startTimeStamp;
 
@@ -38,7 +73,11 @@ public class RuntimeData {
 	 * Creates a new runtime.
 	 */
 	public RuntimeData() {
-		store = new ExecutionDataStore();
+		store = new ConcurrentHashMap<Long, ExecutionData>();
+		stripes = new ConcurrentHashMap<Long, int[]>();
+		lock = new Object();
+		baselines = new HashMap<String, DeltaBaseline>();
+		resetCount = 0;
 		sessionId = "<none>";
 		startTimeStamp = System.currentTimeMillis();
 	}
@@ -69,7 +108,8 @@ public class RuntimeData {
 
 	/**
 	 * Collects the current execution data and writes it to the given
-	 * {@link IExecutionDataVisitor} object.
+	 * {@link IExecutionDataVisitor} object. The visitor receives copies of the
+	 * probe arrays which have been taken at the same point in time.
 	 *
 	 * @param executionDataVisitor
 	 *            handler to write coverage data to
@@ -81,23 +121,216 @@ public class RuntimeData {
 	 */
 	public final void collect(final IExecutionDataVisitor executionDataVisitor,
 			final ISessionInfoVisitor sessionInfoVisitor, final boolean reset) {
-		synchronized (store) {
-			final SessionInfo info = new SessionInfo(sessionId, startTimeStamp,
+		final SessionInfo info;
+		final ExecutionData[] entries;
+		synchronized (lock) {
+			info = new SessionInfo(sessionId, startTimeStamp,
 					System.currentTimeMillis());
-			sessionInfoVisitor.visitSessionInfo(info);
-			store.accept(executionDataVisitor);
+			sumStripes();
+			entries = store.values().toArray(new ExecutionData[0]);
+			for (int i = 0; i < entries.length; i++) {
+				entries[i] = copy(entries[i]);
+			}
 			if (reset) {
 				reset();
 			}
 		}
+		sessionInfoVisitor.visitSessionInfo(info);
+		for (final ExecutionData entry : entries) {
+			final int[] counts = entry.getCounts();
+			if (counts != null) {
+				final boolean[] probes = entry.getProbes();
+				for (int i = 0; i < counts.length; i++) {
+					probes[i] |= counts[i] != 0;
+				}
+			}
+			executionDataVisitor.visitClassExecution(entry);
+		}
+	}
+
+	private static ExecutionData copy(final ExecutionData entry) {
+		final int[] counts = entry.getCounts();
+		return new ExecutionData(entry.getId(), entry.getName(),
+				entry.getProbes().clone(),
+				counts == null ? null : counts.clone());
+	}
+
+	/**
+	 * Sums up the stripes of all hit counts, saturating at
+	 * {@link Integer#MAX_VALUE}. Only called while holding {@link #lock}.
+	 */
+	private void sumStripes() {
+		for (final Map.Entry<Long, int[]> e : stripes.entrySet()) {
+			final int[] counts = store.get(e.getKey()).getCounts();
+			final int[] striped = e.getValue();
+			for (int i = 0; i < counts.length; i++) {
+				long sum = 0;
+				for (int j = i; j < striped.length; j += counts.length) {
+					sum += striped[j];
+				}
+				counts[i] = sum > Integer.MAX_VALUE ? Integer.MAX_VALUE
+						: (int) sum;
+			}
+		}
+	}
+
+	/**
+	 * Collects the probes which have been executed since the previous delta
+	 * committed for the given client (or since the last reset) and writes them
+	 * to the given {@link IExecutionDataDeltaVisitor} object. Classes without
+	 * newly executed probes are skipped. Every client has its own baseline, so
+	 * merging all deltas of a client results in the same data as a complete
+	 * {@link #collect(IExecutionDataVisitor, ISessionInfoVisitor, boolean)
+	 * collect}. Complete dumps do not affect the deltas reported by this
+	 * method. The baseline of the client only advances with
+	 * {@link #commitDelta(String)}, until then the next delta for the client
+	 * contains the same probes again.
+	 *
+	 * @param clientId
+	 *            identifier of the client the delta is collected for
+	 * @param executionDataDeltaVisitor
+	 *            handler to write incremental coverage data to
+	 * @param sessionInfoVisitor
+	 *            handler to write session information to
+	 * @param reset
+	 *            if <code>true</code> the current coverage information is also
+	 *            cleared
+	 */
+	public final void collectDelta(final String clientId,
+			final IExecutionDataDeltaVisitor executionDataDeltaVisitor,
+			final ISessionInfoVisitor sessionInfoVisitor, final boolean reset) {
+		final SessionInfo info;
+		final List<ExecutionData> deltas = new ArrayList<ExecutionData>();
+		synchronized (lock) {
+			info = new SessionInfo(sessionId, startTimeStamp,
+					System.currentTimeMillis());
+			sumStripes();
+			DeltaBaseline baseline = baselines.get(clientId);
+			if (baseline == null) {
+				baseline = new DeltaBaseline(resetCount);
+				baselines.put(clientId, baseline);
+			}
+			final DeltaBaseline pending = new DeltaBaseline(resetCount);
+			final DeltaBaseline previous = baseline.resetCount == resetCount
+					? baseline
+					: new DeltaBaseline(resetCount);
+			for (final ExecutionData data : store.values()) {
+				final ExecutionData delta = getDelta(data, previous, pending);
+				if (delta != null) {
+					deltas.add(delta);
+				}
+			}
+			if (reset) {
+				reset();
+				baseline.pending = new DeltaBaseline(resetCount);
+			} else {
+				baseline.pending = pending;
+			}
+		}
+		sessionInfoVisitor.visitSessionInfo(info);
+		for (final ExecutionData delta : deltas) {
+			executionDataDeltaVisitor.visitClassExecutionDelta(delta);
+		}
+	}
+
+	/**
+	 * Confirms that the last delta collected for the given client has been
+	 * processed, e.g. written to its output. Subsequent deltas for this client
+	 * only contain probes executed afterwards.
+	 *
+	 * @param clientId
+	 *            identifier of the client
+	 */
+	public final void commitDelta(final String clientId) {
+		synchronized (lock) {
+			final DeltaBaseline baseline = baselines.get(clientId);
+			if (baseline != null) {
+				baseline.commit();
+			}
+		}
+	}
+
+	private static ExecutionData getDelta(final ExecutionData data,
+			final DeltaBaseline previous, final DeltaBaseline pending) {
+		final Long id = Long.valueOf(data.getId());
+		final boolean[] delta = getProbesDelta(id, data.getProbes(), previous,
+				pending);
+		final int[] counts = data.getCounts();
+		if (counts == null) {
+			return delta == null ? null
+					: new ExecutionData(data.getId(), data.getName(), delta);
+		}
+		final int[] countsDelta = getCountsDelta(id, counts, previous, pending);
+		if (delta == null && countsDelta == null) {
+			return null;
+		}
+		final boolean[] probes = delta == null ? new boolean[counts.length]
+				: delta;
+		final int[] hits = countsDelta == null ? new int[counts.length]
+				: countsDelta;
+		for (int i = 0; i < hits.length; i++) {
+			probes[i] |= hits[i] != 0;
+		}
+		return new ExecutionData(data.getId(), data.getName(), probes, hits);
+	}
+
+	private static boolean[] getProbesDelta(final Long id,
+			final boolean[] probes, final DeltaBaseline previous,
+			final DeltaBaseline pending) {
+		final boolean[] reported = previous.probes.get(id);
+		boolean[] delta = null;
+		boolean[] next = null;
+		for (int i = 0; i < probes.length; i++) {
+			if (probes[i] && (reported == null || !reported[i])) {
+				if (delta == null) {
+					delta = new boolean[probes.length];
+					next = reported == null ? new boolean[probes.length]
+							: reported.clone();
+					pending.probes.put(id, next);
+				}
+				delta[i] = true;
+				next[i] = true;
+			}
+		}
+		return delta;
+	}
+
+	private static int[] getCountsDelta(final Long id, final int[] counts,
+			final DeltaBaseline previous, final DeltaBaseline pending) {
+		final int[] reported = previous.counts.get(id);
+		int[] delta = null;
+		int[] next = null;
+		for (int i = 0; i < counts.length; i++) {
+			// Counts are not updated atomically, a lost update may lower a
+			// counter below the value already reported:
+			final int count = counts[i];
+			final int last = reported == null ? 0 : reported[i];
+			if (count > last) {
+				if (delta == null) {
+					delta = new int[counts.length];
+					next = reported == null ? new int[counts.length]
+							: reported.clone();
+					pending.counts.put(id, next);
+				}
+				delta[i] = count - last;
+				next[i] = count;
+			}
+		}
+		return delta;
 	}
 
 	/**
 	 * Resets all coverage information.
 	 */
 	public final void reset() {
-		synchronized (store) {
-			store.reset();
+		synchronized (lock) {
+			for (final ExecutionData data : store.values()) {
+				data.reset();
+			}
+			for (final int[] striped : stripes.values()) {
+				Arrays.fill(striped, 0);
+			}
+			resetCount++;
 			startTimeStamp = System.currentTimeMillis();
 		}
 	}
@@ -105,7 +338,9 @@ public class RuntimeData {
 	/**
 	 * Returns the coverage data for the class with the given identifier. If
 	 * there is no data available under the given id a new entry is created.
-	 * This is a synchronized access to the underlying store.
+	 * This method does not block: existing entries are looked up without
+	 * locking and new entries are registered atomically, so concurrent callers
+	 * for the same id always receive the same instance.
 	 *
 	 * @param id
 	 *            class identifier
@@ -117,9 +352,55 @@ public class RuntimeData {
 	 */
 	public ExecutionData getExecutionData(final Long id, final String name,
 			final int probecount) {
-		synchronized (store) {
-			return store.get(id, name, probecount);
+		ExecutionData entry = store.get(id);
+		if (entry == null) {
+			entry = new ExecutionData(id.longValue(), name, probecount);
+			final ExecutionData existing = store.putIfAbsent(id, entry);
+			if (existing == null) {
+				return entry;
+			}
+			entry = existing;
+		}
+		entry.assertCompatibility(id.longValue(), name, probecount);
+		return entry;
+	}
+
+	/**
+	 * Returns the coverage data for the class with the given identifier which
+	 * also records hit counts. An existing entry without hit counts is replaced
+	 * by an entry sharing its probe array.
+	 */
+	private ExecutionData getExecutionDataWithCounts(final Long id,
+			final String name, final int probecount) {
+		ExecutionData entry = getExecutionData(id, name, probecount);
+		while (entry.getCounts() == null) {
+			final ExecutionData counting = new ExecutionData(entry.getId(),
+					entry.getName(), entry.getProbes(), new int[probecount]);
+			if (store.replace(id, entry, counting)) {
+				return counting;
+			}
+			entry = store.get(id);
 		}
+		return entry;
+	}
+
+	/**
+	 * Returns the striped hit counts for the class with the given identifier.
+	 * The array holds <code>2^{@link InstrSupport#COUNTS_STRIPE_BITS}</code>
+	 * stripes of the probe count each.
+	 */
+	private int[] getStripedCounts(final Long id, final String name,
+			final int probecount) {
+		getExecutionDataWithCounts(id, name, probecount);
+		int[] striped = stripes.get(id);
+		if (striped == null) {
+			striped = new int[probecount << InstrSupport.COUNTS_STRIPE_BITS];
+			final int[] existing = stripes.putIfAbsent(id, striped);
+			if (existing != null) {
+				striped = existing;
+			}
+		}
+		return striped;
 	}
 
 	/**
@@ -130,13 +411,15 @@ public class RuntimeData {
 	 * <ul>
 	 * <li>args[0]: class id ({@link Long})
 	 * <li>args[1]: vm class name ({@link String})
-	 * <li>args[2]: probe count ({@link Integer})
+	 * <li>args[2]: probe count ({@link Integer}), negative to request hit
+	 * counts
 	 * </ul>
 	 *
 	 * Return value:
 	 *
 	 * <ul>
-	 * <li>args[0]: probe array (<code>boolean[]</code>)
+	 * <li>args[0]: probe array (<code>boolean[]</code>) or striped hit counts
+	 * (<code>int[]</code>) which are summed up when data is collected
 	 * </ul>
 	 *
 	 * @param args
@@ -146,7 +429,11 @@ public class RuntimeData {
 		final Long classid = (Long) args[0];
 		final String name = (String) args[1];
 		final int probecount = ((Integer) args[2]).intValue();
-		args[0] = getExecutionData(classid, name, probecount).getProbes();
+		if (probecount < 0) {
+			args[0] = getStripedCounts(classid, name, -probecount);
+		} else {
+			args[0] = getExecutionData(classid, name, probecount).getProbes();
+		}
 	}
 
 	/**
@@ -212,15 +499,16 @@ public class RuntimeData {
 	 * Generates the code that calls a {@link RuntimeData} instance through the
 	 * JRE API method {@link Object#equals(Object)}. The code pops a
 	 * {@link Object} instance from the stack and pushes the probe array of type
-	 * <code>boolean[]</code> on the operand stack. The generated code requires
-	 * a stack size of 6.
+	 * <code>boolean[]</code> on the operand stack. For a negative probe count
+	 * an <code>int[]</code> array of striped hit counts is pushed instead. The
+	 * generated code requires a stack size of 6.
 	 *
 	 * @param classid
 	 *            class identifier
 	 * @param classname
 	 *            VM class name
 	 * @param probecount
-	 *            probe count for this class
+	 *            probe count for this class, negative for hit counts
 	 * @param mv
 	 *            visitor to emit generated code
 	 */
@@ -249,9 +537,55 @@ public class RuntimeData {
 		mv.visitInsn(Opcodes.ICONST_0);
 		mv.visitInsn(Opcodes.AALOAD);
 
-		// stack[0]: [Z
+		// stack[0]: [Z or [I
+
+		mv.visitTypeInsn(Opcodes.CHECKCAST, getDataDesc(probecount));
+	}
+
+	/**
+	 * Returns the type of the array returned for the given probe count.
+	 */
+	static String getDataDesc(final int probecount) {
+		return probecount < 0 ? InstrSupport.DATAFIELD_COUNTS_DESC
+				: InstrSupport.DATAFIELD_DESC;
+	}
+
+	/**
+	 * Probes and hit counts reported to a client of
+	 * {@link RuntimeData#collectDelta(String, IExecutionDataDeltaVisitor, ISessionInfoVisitor, boolean)}
+	 * since the given reset.
+	 */
+	private static class DeltaBaseline {
+
+		final Map<Long, boolean[]> probes;
+
+		final Map<Long, int[]> counts;
+
+		long resetCount;
+
+		/** changes of the last collected delta, applied by commit */
+		DeltaBaseline pending;
+
+		DeltaBaseline(final long resetCount) {
+			this.probes = new HashMap<Long, boolean[]>();
+			this.counts = new HashMap<Long, int[]>();
+			this.resetCount = resetCount;
+		}
+
+		void commit() {
+			if (pending == null) {
+				return;
+			}
+			if (pending.resetCount != resetCount) {
+				probes.clear();
+				counts.clear();
+				resetCount = pending.resetCount;
+			}
+			probes.putAll(pending.probes);
+			counts.putAll(pending.counts);
+			pending = null;
+		}
 
-		mv.visitTypeInsn(Opcodes.CHECKCAST, InstrSupport.DATAFIELD_DESC);
 	}
 
 }
@@ -12,7 +12,11 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Matches strings against glob like wildcard expressions where <code>?</code>
@@ -22,7 +26,19 @@ import java.util.regex.Pattern;
  */
 public class WildcardMatcher {
 
-	private final Pattern pattern;
+	private boolean matchAll;
+
+	/** expressions without wildcards */
+	private final Set<String> literals;
+
+	/** expressions of the form <code>prefix*</code> */
+	private final Trie prefixes;
+
+	/** expressions of the form <code>*suffix</code>, stored reversed */
+	private final Trie suffixes;
+
+	/** all other expressions */
+	private final String[] globs;
 
 	/**
 	 * Creates a new matcher with the given expression.
@@ -31,35 +47,31 @@ public class WildcardMatcher {
 	 *            wildcard expressions
 	 */
 	public WildcardMatcher(final String expression) {
-		final String[] parts = expression.split("\\:");
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
-		boolean next = false;
-		for (final String part : parts) {
-			if (next) {
-				regex.append('|');
-			}
-			regex.append('(').append(toRegex(part)).append(')');
-			next = true;
-		}
-		pattern = Pattern.compile(regex.toString());
-	}
-
-	private static CharSequence toRegex(final String expression) {
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
-		for (final char c : expression.toCharArray()) {
-			switch (c) {
-			case '?':
-				regex.append(".");
-				break;
-			case '*':
-				regex.append(".*");
-				break;
-			default:
-				regex.append(Pattern.quote(String.valueOf(c)));
-				break;
+		literals = new HashSet<String>();
+		prefixes = new Trie();
+		suffixes = new Trie();
+		final List<String> other = new ArrayList<String>();
+		for (final String part : expression.split("\\:")) {
+			final int first = part.indexOf('*');
+			final int last = part.lastIndexOf('*');
+			if (part.indexOf('?') != -1) {
+				other.add(part);
+			} else if (first == -1) {
+				literals.add(part);
+			} else if (part.length() == 1) {
+				matchAll = true;
+			} else if (first != last) {
+				other.add(part);
+			} else if (first == part.length() - 1) {
+				prefixes.add(part.substring(0, first));
+			} else if (first == 0) {
+				suffixes.add(new StringBuilder(part.substring(1)).reverse()
+						.toString());
+			} else {
+				other.add(part);
 			}
 		}
-		return regex;
+		globs = other.toArray(new String[other.size()]);
 	}
 
 	/**
@@ -70,7 +82,145 @@ public class WildcardMatcher {
 	 * @return <code>true</code>, if the expression matches
 	 */
 	public boolean matches(final String s) {
-		return pattern.matcher(s).matches();
+		if (matchAll || literals.contains(s) || prefixes.matchesPrefix(s)
+				|| suffixes.matchesSuffix(s)) {
+			return true;
+		}
+		for (final String glob : globs) {
+			if (matches(glob, s)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches a single expression without backtracking over previous asterisks:
+	 * a mismatch only restarts the part after the last asterisk seen, which is
+	 * sufficient as any asterisk can absorb any characters.
+	 */
+	private static boolean matches(final String glob, final String s) {
+		final int glen = glob.length();
+		final int slen = s.length();
+		int g = 0;
+		int i = 0;
+		int star = -1;
+		int mark = 0;
+		while (i < slen) {
+			if (g < glen) {
+				final char c = glob.charAt(g);
+				if (c == '*') {
+					star = g++;
+					mark = i;
+					continue;
+				}
+				if (c == '?' || c == s.charAt(i)) {
+					g++;
+					i++;
+					continue;
+				}
+			}
+			if (star == -1) {
+				return false;
+			}
+			g = star + 1;
+			i = ++mark;
+		}
+		while (g < glen && glob.charAt(g) == '*') {
+			g++;
+		}
+		return g == glen;
+	}
+
+	/**
+	 * Character trie which tests whether any of its keys is a prefix or suffix
+	 * of a given string.
+	 */
+	private static final class Trie {
+
+		private final Node root = new Node();
+
+		private boolean empty = true;
+
+		void add(final String key) {
+			Node node = root;
+			for (int i = 0; i < key.length(); i++) {
+				node = node.getOrCreate(key.charAt(i));
+			}
+			node.terminal = true;
+			empty = false;
+		}
+
+		boolean matchesPrefix(final String s) {
+			if (empty) {
+				return false;
+			}
+			Node node = root;
+			for (int i = 0; !node.terminal; i++) {
+				if (i == s.length()) {
+					return false;
+				}
+				node = node.get(s.charAt(i));
+				if (node == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matchesSuffix(final String s) {
+			if (empty) {
+				return false;
+			}
+			Node node = root;
+			for (int i = s.length() - 1; !node.terminal; i--) {
+				if (i < 0) {
+					return false;
+				}
+				node = node.get(s.charAt(i));
+				if (node == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	private static final class Node {
+
+		private char[] keys = new char[0];
+
+		private Node[] children = new Node[0];
+
+		boolean terminal;
+
+		Node get(final char c) {
+			final int idx = Arrays.binarySearch(keys, c);
+			return idx < 0 ? null : children[idx];
+		}
+
+		Node getOrCreate(final char c) {
+			final int idx = Arrays.binarySearch(keys, c);
+			if (idx >= 0) {
+				return children[idx];
+			}
+			final int pos = -idx - 1;
+			final char[] newKeys = new char[keys.length + 1];
+			final Node[] newChildren = new Node[keys.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, pos);
+			System.arraycopy(children, 0, newChildren, 0, pos);
+			System.arraycopy(keys, pos, newKeys, pos + 1, keys.length - pos);
+			System.arraycopy(children, pos, newChildren, pos + 1,
+					keys.length - pos);
+			final Node node = new Node();
+			newKeys[pos] = c;
+			newChildren[pos] = node;
+			keys = newKeys;
+			children = newChildren;
+			return node;
+		}
+
 	}
 
 }
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.InstrSupport;
+
+/**
+ * Convenience utility to collect the ids of class files by their VM names, e.g.
+ * to tell modified classes from unchanged ones when comparing execution data of
+ * different builds. Class files are read from the same sources as the
+ * {@link Analyzer} supports, but not analyzed. If multiple class files have the
+ * same name, the last one wins.
+ */
+public class ClassFileIndex {
+
+	private final Map<String, Long> ids;
+
+	private final Analyzer scanner;
+
+	/**
+	 * New empty index.
+	 */
+	public ClassFileIndex() {
+		ids = new HashMap<String, Long>();
+		scanner = new Analyzer(new ExecutionDataStore(), null) {
+			@Override
+			public void analyzeClass(final byte[] buffer, final String location)
+					throws IOException {
+				add(buffer, location);
+			}
+		};
+	}
+
+	/**
+	 * Adds all class files found in the given input stream. The stream may
+	 * either represent a single class file, a ZIP archive, a Pack200 archive or
+	 * a gzip stream that is searched recursively for class files.
+	 *
+	 * @param input
+	 *            input data
+	 * @param location
+	 *            a location description used for exception messages
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the stream can't be read or a class can't be parsed
+	 */
+	public int loadAll(final InputStream input, final String location)
+			throws IOException {
+		return scanner.analyzeAll(input, location);
+	}
+
+	/**
+	 * Adds all class files found in the given file or folder. Class files can
+	 * also be packed into ZIP archives or Pack200 archives.
+	 *
+	 * @param file
+	 *            file or folder to look for class files
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the file can't be read or a class can't be parsed
+	 */
+	public int loadAll(final File file) throws IOException {
+		return scanner.analyzeAll(file);
+	}
+
+	/**
+	 * Returns the ids of all class files added so far.
+	 *
+	 * @return unmodifiable map of class ids by VM name
+	 */
+	public Map<String, Long> getClassIds() {
+		return Collections.unmodifiableMap(ids);
+	}
+
+	private void add(final byte[] buffer, final String location)
+			throws IOException {
+		final String name;
+		try {
+			name = InstrSupport.classReaderFor(buffer).getClassName();
+		} catch (final RuntimeException cause) {
+			final IOException ex = new IOException(
+					String.format("Error while analyzing %s.", location));
+			ex.initCause(cause);
+			throw ex;
+		}
+		ids.put(name, Long.valueOf(CRC64.classId(buffer)));
+	}
+
+}
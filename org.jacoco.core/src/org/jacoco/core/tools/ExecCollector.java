@@ -0,0 +1,485 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataDeltaVisitor;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+
+/**
+ * A server which collects execution data from any number of agents running in
+ * <code>tcpclient</code> output mode. Every agent connection is served by its
+ * own thread which merges incoming execution data directly into a striped
+ * store, so agents only contend if they report the same classes at the same
+ * time. Dumps can be requested from all connected agents at once and the merged
+ * content can be saved at any time without blocking the connections. Session
+ * infos with the same id are merged, therefore the memory required by the
+ * collector does not grow with the number of dumps. Full dumps report the hit
+ * counts since the last reset of the agent, therefore only the counts which
+ * have not been received from the same connection since the start of its
+ * current session are added.
+ */
+public class ExecCollector {
+
+	/**
+	 * Client identifier for incremental dumps, so other clients of the same
+	 * agent receive independent increments.
+	 */
+	private static final String CLIENT_ID = "collect";
+
+	private final StripedExecutionDataStore executionData;
+
+	private final Map<String, SessionInfo> sessionInfos;
+
+	private final Map<Connection, Boolean> connections;
+
+	private final AtomicLong dumpCount;
+
+	private volatile ServerSocket server;
+
+	private volatile boolean shutdown;
+
+	/**
+	 * Creates a new collector without any execution data.
+	 */
+	public ExecCollector() {
+		this.executionData = new StripedExecutionDataStore();
+		this.sessionInfos = new LinkedHashMap<String, SessionInfo>();
+		this.connections = new ConcurrentHashMap<Connection, Boolean>();
+		this.dumpCount = new AtomicLong();
+	}
+
+	/**
+	 * Merges the execution data from the given stream into this collector.
+	 *
+	 * @param stream
+	 *            stream to read execution data from
+	 * @throws IOException
+	 *             in case of problems while reading from the stream
+	 */
+	public void load(final InputStream stream) throws IOException {
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new BufferedInputStream(stream));
+		reader.setSessionInfoVisitor(new SessionInfoMerger());
+		reader.setExecutionDataVisitor(executionData);
+		reader.read();
+	}
+
+	/**
+	 * Merges the execution data from the given file into this collector.
+	 *
+	 * @param file
+	 *            file to read execution data from
+	 * @throws IOException
+	 *             in case of problems while reading from the file
+	 */
+	public void load(final File file) throws IOException {
+		final InputStream stream = new FileInputStream(file);
+		try {
+			load(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Starts accepting agent connections on the given server socket in a
+	 * separate daemon thread. The socket is closed by {@link #shutdown()}.
+	 *
+	 * @param server
+	 *            bound server socket to accept connections from
+	 */
+	public void start(final ServerSocket server) {
+		this.server = server;
+		final Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				acceptConnections(server);
+			}
+		});
+		acceptor.setName(getClass().getName());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	private void acceptConnections(final ServerSocket server) {
+		while (!shutdown) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch (final IOException e) {
+				if (!shutdown) {
+					onConnectionFailure(e);
+				}
+				return;
+			}
+			try {
+				final Connection connection = new Connection(socket);
+				connections.put(connection, Boolean.TRUE);
+				connection.start();
+			} catch (final IOException e) {
+				close(socket);
+				onConnectionFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Requests a dump from all currently connected agents. The request is only
+	 * sent, the execution data is merged asynchronously once it arrives.
+	 * Connections which can not be written to are closed.
+	 *
+	 * @param delta
+	 *            <code>true</code> if only execution data recorded since the
+	 *            previous incremental dump should be requested
+	 * @param reset
+	 *            <code>true</code> if the agents should reset their execution
+	 *            data afterwards
+	 * @return number of agents the request was sent to
+	 */
+	public int requestDump(final boolean delta, final boolean reset) {
+		int count = 0;
+		for (final Connection connection : connections.keySet()) {
+			try {
+				connection.requestDump(delta, reset);
+				count++;
+			} catch (final IOException e) {
+				connection.close();
+				onConnectionFailure(e);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes a copy of the current content to the given visitors. Execution
+	 * data which arrives concurrently may or may not be included.
+	 *
+	 * @param sessionInfoVisitor
+	 *            visitor for the merged session infos
+	 * @param executionDataVisitor
+	 *            visitor for the merged execution data
+	 */
+	public void accept(final ISessionInfoVisitor sessionInfoVisitor,
+			final IExecutionDataVisitor executionDataVisitor) {
+		final List<SessionInfo> infos;
+		synchronized (sessionInfos) {
+			infos = new ArrayList<SessionInfo>(sessionInfos.values());
+		}
+		for (final SessionInfo info : infos) {
+			sessionInfoVisitor.visitSessionInfo(info);
+		}
+		executionData.accept(executionDataVisitor);
+	}
+
+	/**
+	 * Saves the current content into the given file. The content is written to
+	 * a temporary file in the same directory first which then replaces the
+	 * given file, so the file always contains a complete checkpoint even if the
+	 * collector is terminated while saving. Parent directories are created as
+	 * needed.
+	 *
+	 * @param file
+	 *            file to save content to
+	 * @throws IOException
+	 *             in case of problems while writing the file
+	 */
+	public void save(final File file) throws IOException {
+		final File folder = file.getAbsoluteFile().getParentFile();
+		folder.mkdirs();
+		final File temp = File.createTempFile(file.getName(), ".tmp", folder);
+		try {
+			final OutputStream stream = new BufferedOutputStream(
+					new FileOutputStream(temp));
+			try {
+				final ExecutionDataWriter writer = new ExecutionDataWriter(
+						stream);
+				accept(writer, writer);
+			} finally {
+				stream.close();
+			}
+			// Some platforms do not replace existing files on rename:
+			if (!temp.renameTo(file)
+					&& !(file.delete() && temp.renameTo(file))) {
+				throw new IOException(
+						String.format("Unable to replace file %s.", file));
+			}
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Stops accepting new connections and closes all agent connections.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		if (server != null) {
+			close(server);
+		}
+		for (final Connection connection : connections.keySet()) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Returns the number of currently connected agents.
+	 *
+	 * @return number of connected agents
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Returns the number of dumps received from agents so far.
+	 *
+	 * @return number of received dumps
+	 */
+	public long getDumpCount() {
+		return dumpCount.get();
+	}
+
+	/**
+	 * This method can be overwritten to get an event when an agent has
+	 * connected. It is called from the thread serving the new connection.
+	 *
+	 * @param address
+	 *            address of the agent
+	 */
+	protected void onConnected(
+			@SuppressWarnings("unused") final InetAddress address) {
+	}
+
+	/**
+	 * This method can be overwritten to get an event when the connection to an
+	 * agent has been closed. It is called from the thread serving the
+	 * connection.
+	 *
+	 * @param address
+	 *            address of the agent
+	 */
+	protected void onDisconnected(
+			@SuppressWarnings("unused") final InetAddress address) {
+	}
+
+	/**
+	 * This method can be overwritten to get an event for connection failures.
+	 * It might be called from any thread.
+	 *
+	 * @param exception
+	 *            exception for the failure
+	 */
+	protected void onConnectionFailure(
+			@SuppressWarnings("unused") final IOException exception) {
+	}
+
+	private static void close(final Socket socket) {
+		try {
+			socket.close();
+		} catch (final IOException e) {
+			// nothing to do if closing fails
+		}
+	}
+
+	private static void close(final ServerSocket server) {
+		try {
+			server.close();
+		} catch (final IOException e) {
+			// nothing to do if closing fails
+		}
+	}
+
+	private class SessionInfoMerger implements ISessionInfoVisitor {
+
+		public void visitSessionInfo(final SessionInfo info) {
+			synchronized (sessionInfos) {
+				final SessionInfo other = sessionInfos.get(info.getId());
+				if (other == null) {
+					sessionInfos.put(info.getId(), info);
+				} else {
+					sessionInfos.put(info.getId(),
+							new SessionInfo(info.getId(),
+									Math.min(info.getStartTimeStamp(),
+											other.getStartTimeStamp()),
+									Math.max(info.getDumpTimeStamp(),
+											other.getDumpTimeStamp())));
+				}
+			}
+		}
+
+	}
+
+	private class Connection implements Runnable, ISessionInfoVisitor,
+			IExecutionDataVisitor, IExecutionDataDeltaVisitor {
+
+		private final Socket socket;
+
+		private final RemoteControlWriter writer;
+
+		private final RemoteControlReader reader;
+
+		private final ISessionInfoVisitor sessionInfoMerger;
+
+		/** Session of the last dump, only used by reader. */
+		private SessionInfo session;
+
+		/** Hit counts received since the last reset, only used by reader. */
+		private final Map<Long, int[]> received;
+
+		Connection(final Socket socket) throws IOException {
+			this.socket = socket;
+			// Commands are small, buffering avoids a packet per written field:
+			this.writer = new RemoteControlWriter(
+					new BufferedOutputStream(socket.getOutputStream()));
+			this.reader = new RemoteControlReader(
+					new BufferedInputStream(socket.getInputStream()));
+			this.reader.setSessionInfoVisitor(this);
+			this.reader.setExecutionDataVisitor(this);
+			this.reader.setExecutionDataDeltaVisitor(this);
+			this.sessionInfoMerger = new SessionInfoMerger();
+			this.received = new HashMap<Long, int[]>();
+		}
+
+		void start() {
+			final Thread thread = new Thread(this);
+			thread.setName(ExecCollector.class.getName() + " "
+					+ socket.getRemoteSocketAddress());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		void requestDump(final boolean delta, final boolean reset)
+				throws IOException {
+			synchronized (writer) {
+				if (delta) {
+					writer.visitDeltaDumpCommand(CLIENT_ID, reset);
+				} else {
+					writer.visitDumpCommand(true, reset);
+				}
+				writer.flush();
+			}
+		}
+
+		void close() {
+			ExecCollector.close(socket);
+		}
+
+		public void run() {
+			final InetAddress address = socket.getInetAddress();
+			onConnected(address);
+			try {
+				while (reader.read()) {
+					dumpCount.incrementAndGet();
+				}
+			} catch (final IOException e) {
+				if (!socket.isClosed()) {
+					onConnectionFailure(e);
+				}
+			} finally {
+				connections.remove(this);
+				close();
+				onDisconnected(address);
+			}
+		}
+
+		public void visitSessionInfo(final SessionInfo info) {
+			// Every reset of the agent starts a new session:
+			if (session != null
+					&& (!session.getId().equals(info.getId()) || session
+							.getStartTimeStamp() != info.getStartTimeStamp())) {
+				received.clear();
+			}
+			session = info;
+			sessionInfoMerger.visitSessionInfo(info);
+		}
+
+		/**
+		 * Full dumps report the hit counts since the last reset, only the
+		 * counts not received before are added.
+		 */
+		public void visitClassExecution(final ExecutionData data) {
+			final int[] counts = data.getCounts();
+			if (counts == null) {
+				executionData.visitClassExecution(data);
+				return;
+			}
+			final Long id = Long.valueOf(data.getId());
+			final int[] previous = received.get(id);
+			if (previous == null || previous.length != counts.length) {
+				received.put(id, counts.clone());
+				executionData.visitClassExecution(data);
+				return;
+			}
+			final int[] increment = new int[counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				// Counts are not updated atomically, a lost update may lower a
+				// counter below the value already received:
+				if (counts[i] > previous[i]) {
+					increment[i] = counts[i] - previous[i];
+					previous[i] = counts[i];
+				}
+			}
+			executionData.visitClassExecution(new ExecutionData(data.getId(),
+					data.getName(), data.getProbes(), increment));
+		}
+
+		/**
+		 * Incremental dumps report the hit counts since the previous increment,
+		 * they are added and also recorded as received.
+		 */
+		public void visitClassExecutionDelta(final ExecutionData delta) {
+			executionData.visitClassExecution(delta);
+			final int[] counts = delta.getCounts();
+			if (counts == null) {
+				return;
+			}
+			final Long id = Long.valueOf(delta.getId());
+			final int[] previous = received.get(id);
+			if (previous == null || previous.length != counts.length) {
+				received.put(id, counts.clone());
+				return;
+			}
+			for (int i = 0; i < counts.length; i++) {
+				final int sum = previous[i] + counts[i];
+				previous[i] = sum < 0 ? Integer.MAX_VALUE : sum;
+			}
+		}
+
+	}
+
+}
@@ -27,17 +27,22 @@ public class ExecDumpClient {
 
 	private boolean dump;
 	private boolean reset;
+	private boolean delta;
+	private String clientId;
 	private int retryCount;
 	private long retryDelay;
 
 	/**
 	 * New instance with the defaults <code>dump==true</code>,
-	 * <code>reset==false</code>, <code>retryCount==0</code> and
+	 * <code>reset==false</code>, <code>delta==false</code>,
+	 * <code>clientId=="dump"</code>, <code>retryCount==0</code> and
 	 * <code>retryDelay=1000</code>.
 	 */
 	public ExecDumpClient() {
 		this.dump = true;
 		this.reset = false;
+		this.delta = false;
+		this.clientId = "dump";
 		this.retryCount = 0;
 		this.setRetryDelay(1000);
 	}
@@ -62,6 +67,31 @@ public class ExecDumpClient {
 		this.reset = reset;
 	}
 
+	/**
+	 * Specifies whether only execution data recorded since the previous
+	 * incremental dump should be requested. Merging all incremental dumps of an
+	 * agent results in its complete execution data. This setting is ignored if
+	 * no dump is requested.
+	 *
+	 * @param delta
+	 *            <code>true</code> if an incremental dump should be requested
+	 */
+	public void setDelta(final boolean delta) {
+		this.delta = delta;
+	}
+
+	/**
+	 * Sets the identifier of this client for incremental dumps. The agent
+	 * tracks the probes already reported separately for every identifier, so
+	 * clients with different identifiers receive independent increments.
+	 *
+	 * @param clientId
+	 *            identifier of this client
+	 */
+	public void setClientId(final String clientId) {
+		this.clientId = clientId;
+	}
+
 	/**
 	 * Sets the number of retry attempts to connect to the target socket. This
 	 * allows to wait for a certain time until the target agent has initialized.
@@ -123,7 +153,11 @@ public class ExecDumpClient {
 			remoteReader
 					.setExecutionDataVisitor(loader.getExecutionDataStore());
 
-			remoteWriter.visitDumpCommand(dump, reset);
+			if (dump && delta) {
+				remoteWriter.visitDeltaDumpCommand(clientId, reset);
+			} else {
+				remoteWriter.visitDumpCommand(dump, reset);
+			}
 
 			if (!remoteReader.read()) {
 				throw new IOException("Socket closed unexpectedly.");
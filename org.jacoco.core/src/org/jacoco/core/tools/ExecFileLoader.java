@@ -20,10 +20,20 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataSource;
+import org.jacoco.core.data.IndexedExecutionDataFile;
+import org.jacoco.core.data.IndexedExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.data.SessionInfoStore;
 
 /**
@@ -32,8 +42,12 @@ import org.jacoco.core.data.SessionInfoStore;
  */
 public class ExecFileLoader {
 
+	/** Size of the file header: block type, magic number and version. */
+	private static final int HEADER_SIZE = 5;
+
 	private final SessionInfoStore sessionInfos;
 	private final ExecutionDataStore executionData;
+	private final List<IndexedExecutionDataFile> openFiles;
 
 	/**
 	 * New instance to combine session infos and execution data from multiple
@@ -42,10 +56,12 @@ public class ExecFileLoader {
 	public ExecFileLoader() {
 		sessionInfos = new SessionInfoStore();
 		executionData = new ExecutionDataStore();
+		openFiles = new ArrayList<IndexedExecutionDataFile>();
 	}
 
 	/**
-	 * Reads all data from given input stream.
+	 * Reads all data from given input stream. Both the sequential and the
+	 * indexed exec file format are supported.
 	 *
 	 * @param stream
 	 *            Stream to read data from
@@ -53,15 +69,24 @@ public class ExecFileLoader {
 	 *             in case of problems while reading from the stream
 	 */
 	public void load(final InputStream stream) throws IOException {
-		final ExecutionDataReader reader = new ExecutionDataReader(
-				new BufferedInputStream(stream));
+		final InputStream buffered = new BufferedInputStream(stream);
+		buffered.mark(HEADER_SIZE);
+		final boolean indexed = IndexedExecutionDataFile.isIndexed(buffered);
+		buffered.reset();
+		if (indexed) {
+			IndexedExecutionDataFile.read(buffered, sessionInfos,
+					executionData);
+			return;
+		}
+		final ExecutionDataReader reader = new ExecutionDataReader(buffered);
 		reader.setExecutionDataVisitor(executionData);
 		reader.setSessionInfoVisitor(sessionInfos);
 		reader.read();
 	}
 
 	/**
-	 * Reads all data from given input stream.
+	 * Reads all data from given file. Both the sequential and the indexed exec
+	 * file format are supported.
 	 *
 	 * @param file
 	 *            file to read data from
@@ -69,6 +94,10 @@ public class ExecFileLoader {
 	 *             in case of problems while reading from the stream
 	 */
 	public void load(final File file) throws IOException {
+		if (IndexedExecutionDataFile.isIndexed(file)) {
+			loadIndexed(file);
+			return;
+		}
 		final InputStream stream = new FileInputStream(file);
 		try {
 			load(stream);
@@ -77,6 +106,166 @@ public class ExecFileLoader {
 		}
 	}
 
+	private void loadIndexed(final File file) throws IOException {
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				file);
+		try {
+			for (final SessionInfo info : indexed.getSessionInfos()) {
+				sessionInfos.visitSessionInfo(info);
+			}
+			indexed.accept(executionData);
+		} finally {
+			indexed.close();
+		}
+	}
+
+	/**
+	 * Opens the given file for report generation. Sequential exec files are
+	 * loaded like with {@link #load(File)}. Indexed exec files are not loaded
+	 * into the execution data store but kept open, so only the execution data
+	 * of classes requested through {@link #getExecutionDataSource()} is read
+	 * from them. Opened files have to be released with {@link #close()}.
+	 *
+	 * @param file
+	 *            file to open
+	 * @throws IOException
+	 *             in case of problems while reading from the file
+	 */
+	public void open(final File file) throws IOException {
+		if (!IndexedExecutionDataFile.isIndexed(file)) {
+			load(file);
+			return;
+		}
+		final IndexedExecutionDataFile indexed = new IndexedExecutionDataFile(
+				file);
+		for (final SessionInfo info : indexed.getSessionInfos()) {
+			sessionInfos.visitSessionInfo(info);
+		}
+		openFiles.add(indexed);
+	}
+
+	/**
+	 * Closes all files opened with {@link #open(File)}. Loaded data is kept.
+	 *
+	 * @throws IOException
+	 *             in case of problems while closing a file
+	 */
+	public void close() throws IOException {
+		try {
+			for (final IndexedExecutionDataFile file : openFiles) {
+				file.close();
+			}
+		} finally {
+			openFiles.clear();
+		}
+	}
+
+	/**
+	 * Returns a source for the execution data of all loaded and opened files.
+	 * Execution data of opened indexed files is read on demand. Data of the
+	 * same class from different files is merged into a new object.
+	 *
+	 * @return execution data of all loaded and opened files
+	 */
+	public IExecutionDataSource getExecutionDataSource() {
+		if (openFiles.isEmpty()) {
+			return executionData;
+		}
+		return new IExecutionDataSource() {
+			public ExecutionData get(final long id) {
+				ExecutionData result = executionData.get(id);
+				boolean copied = false;
+				for (final IndexedExecutionDataFile file : openFiles) {
+					final ExecutionData data = file.get(id);
+					if (data == null) {
+						continue;
+					}
+					if (result == null) {
+						// every call reads a new object from the file:
+						result = data;
+						copied = true;
+					} else {
+						if (!copied) {
+							result = copy(result);
+							copied = true;
+						}
+						result.merge(data);
+					}
+				}
+				return result;
+			}
+
+			public boolean contains(final String name) {
+				if (executionData.contains(name)) {
+					return true;
+				}
+				for (final IndexedExecutionDataFile file : openFiles) {
+					if (file.contains(name)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the execution data of all loaded and opened files. Opened indexed
+	 * files are only read completely when the returned collection is accessed,
+	 * which is not the case for report formats which do not list the execution
+	 * data of every class. In this case the collection has to be accessed
+	 * before {@link #close()} is called.
+	 *
+	 * @return execution data of all loaded and opened files
+	 */
+	public Collection<ExecutionData> getExecutionDataContents() {
+		if (openFiles.isEmpty()) {
+			return executionData.getContents();
+		}
+		final List<IndexedExecutionDataFile> files = new ArrayList<IndexedExecutionDataFile>(
+				openFiles);
+		return new AbstractCollection<ExecutionData>() {
+
+			private Collection<ExecutionData> contents;
+
+			@Override
+			public Iterator<ExecutionData> iterator() {
+				return getContents().iterator();
+			}
+
+			@Override
+			public int size() {
+				return getContents().size();
+			}
+
+			private synchronized Collection<ExecutionData> getContents() {
+				if (contents == null) {
+					final ExecutionDataStore merged = new ExecutionDataStore();
+					for (final ExecutionData data : executionData
+							.getContents()) {
+						merged.put(copy(data));
+					}
+					try {
+						for (final IndexedExecutionDataFile file : files) {
+							file.accept(merged);
+						}
+					} catch (final IOException e) {
+						throw new IllegalStateException(e);
+					}
+					contents = merged.getContents();
+				}
+				return contents;
+			}
+		};
+	}
+
+	private static ExecutionData copy(final ExecutionData data) {
+		final int[] counts = data.getCounts();
+		return new ExecutionData(data.getId(), data.getName(),
+				data.getProbes().clone(),
+				counts == null ? null : counts.clone());
+	}
+
 	/**
 	 * Saves the current content into the given output stream.
 	 *
@@ -121,6 +310,32 @@ public class ExecFileLoader {
 		}
 	}
 
+	/**
+	 * Saves the current content into the given file using the indexed exec file
+	 * format which can be accessed with {@link IndexedExecutionDataFile}.
+	 * Parent directories are created as needed, an existing file is
+	 * overwritten.
+	 *
+	 * @param file
+	 *            file to save content to
+	 * @throws IOException
+	 *             in case of problems while writing to the stream
+	 */
+	public void saveIndexed(final File file) throws IOException {
+		final File folder = file.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		final OutputStream stream = new BufferedOutputStream(
+				new FileOutputStream(file));
+		try {
+			new IndexedExecutionDataWriter(stream).write(
+					sessionInfos.getInfos(), executionData.getContents());
+		} finally {
+			stream.close();
+		}
+	}
+
 	/**
 	 * Returns the session info store with all loaded sessions.
 	 *
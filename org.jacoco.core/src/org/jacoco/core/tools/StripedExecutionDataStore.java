@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+
+/**
+ * Thread-safe execution data store which distributes classes over a fixed
+ * number of {@link ExecutionDataStore} stripes by their id. Each stripe has its
+ * own lock, so concurrent writers only contend if they merge classes of the
+ * same stripe.
+ */
+class StripedExecutionDataStore implements IExecutionDataVisitor {
+
+	/** Default number of stripes, must be a power of two. */
+	static final int DEFAULT_STRIPES = 64;
+
+	private final ExecutionDataStore[] stripes;
+
+	private final int mask;
+
+	/**
+	 * Creates a new store with the default number of stripes.
+	 */
+	StripedExecutionDataStore() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new store with the given number of stripes.
+	 *
+	 * @param count
+	 *            number of stripes, must be a power of two
+	 */
+	StripedExecutionDataStore(final int count) {
+		if (Integer.bitCount(count) != 1) {
+			throw new IllegalArgumentException(
+					"Stripe count must be a power of two.");
+		}
+		stripes = new ExecutionDataStore[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ExecutionDataStore();
+		}
+		mask = count - 1;
+	}
+
+	/**
+	 * Writes a copy of the current content to the given visitor. Every stripe
+	 * is copied while holding its lock, the visitor is called afterwards
+	 * without holding any lock. Therefore the visitor may block without
+	 * delaying concurrent writers.
+	 *
+	 * @param visitor
+	 *            visitor to write content to
+	 */
+	void accept(final IExecutionDataVisitor visitor) {
+		for (final ExecutionDataStore stripe : stripes) {
+			final ExecutionDataStore copy = new ExecutionDataStore();
+			synchronized (stripe) {
+				for (final ExecutionData data : stripe.getContents()) {
+					copy.put(copy(data));
+				}
+			}
+			copy.accept(visitor);
+		}
+	}
+
+	private static ExecutionData copy(final ExecutionData data) {
+		final int[] counts = data.getCounts();
+		return new ExecutionData(data.getId(), data.getName(),
+				data.getProbes().clone(),
+				counts == null ? null : counts.clone());
+	}
+
+	// === IExecutionDataVisitor ===
+
+	/**
+	 * Merges the given execution data into the stripe of its class id. The
+	 * given object may become part of the store and must not be modified
+	 * afterwards.
+	 */
+	public void visitClassExecution(final ExecutionData data) {
+		final long id = data.getId();
+		final ExecutionDataStore stripe = stripes[(int) (id ^ (id >>> 32))
+				& mask];
+		synchronized (stripe) {
+			stripe.put(data);
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link IndexedSourceFileLocator}.
+ */
+public class IndexedSourceFileLocatorTest {
+
+	@Rule
+	public final TemporaryFolder sourceFolder = new TemporaryFolder();
+
+	private IndexedSourceFileLocator locator;
+
+	@Before
+	public void setup() {
+		locator = new IndexedSourceFileLocator("UTF-8", 4);
+		locator.add(new File(sourceFolder.getRoot(), "src1"));
+		locator.add(new File(sourceFolder.getRoot(), "src2"));
+	}
+
+	@Test
+	public void getTabWidth_should_return_given_value() {
+		assertEquals(4, locator.getTabWidth());
+	}
+
+	@Test
+	public void getSourceFile_should_return_null_when_source_does_not_exist()
+			throws IOException {
+		assertNull(locator.getSourceFile("org/jacoco/example",
+				"DoesNotExist.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_return_null_when_source_is_folder()
+			throws IOException {
+		new File(sourceFolder.getRoot(), "src1/org/jacoco/example").mkdirs();
+
+		assertNull(locator.getSourceFile("org/jacoco", "example"));
+	}
+
+	@Test
+	public void getSourceFile_should_return_content_when_file_exists()
+			throws IOException {
+		createFile("src2/org/jacoco/example/Test.java", "Source");
+
+		assertContent("Source",
+				locator.getSourceFile("org/jacoco/example", "Test.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_return_content_from_default_package()
+			throws IOException {
+		createFile("src1/Test.java", "Source");
+
+		assertContent("Source", locator.getSourceFile("", "Test.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_prefer_directories_added_first()
+			throws IOException {
+		createFile("src1/org/jacoco/example/Test.java", "First");
+		createFile("src2/org/jacoco/example/Test.java", "Second");
+
+		assertContent("First",
+				locator.getSourceFile("org/jacoco/example", "Test.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_not_find_files_created_after_first_lookup()
+			throws IOException {
+		createFile("src1/org/jacoco/example/Test.java", "Source");
+		assertNotNull(locator.getSourceFile("org/jacoco/example", "Test.java"));
+
+		createFile("src1/org/jacoco/example/Other.java", "Source");
+
+		assertNull(locator.getSourceFile("org/jacoco/example", "Other.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_return_null_when_file_was_deleted()
+			throws IOException {
+		createFile("src1/org/jacoco/example/Test.java", "Source");
+		createFile("src1/org/jacoco/example/Other.java", "Source");
+		assertNotNull(locator.getSourceFile("org/jacoco/example", "Test.java"));
+
+		new File(sourceFolder.getRoot(), "src1/org/jacoco/example/Other.java")
+				.delete();
+
+		assertNull(locator.getSourceFile("org/jacoco/example", "Other.java"));
+	}
+
+	@Test
+	public void getSourceFile_should_scan_directories_with_executor()
+			throws IOException {
+		createFile("src1/org/jacoco/example/Test.java", "First");
+		createFile("src2/org/jacoco/example/Test.java", "Second");
+		createFile("src2/org/jacoco/example/Other.java", "Other");
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			locator.setExecutor(executor);
+
+			assertContent("First",
+					locator.getSourceFile("org/jacoco/example", "Test.java"));
+			assertContent("Other",
+					locator.getSourceFile("org/jacoco/example", "Other.java"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void getSourceFile_should_scan_in_calling_thread_when_executor_is_busy()
+			throws IOException {
+		createFile("src1/org/jacoco/example/Test.java", "Source");
+		locator.setExecutor(new Executor() {
+			public void execute(final Runnable command) {
+				// never executes tasks
+			}
+		});
+
+		assertContent("Source",
+				locator.getSourceFile("org/jacoco/example", "Test.java"));
+	}
+
+	private void createFile(final String path, final String content)
+			throws IOException {
+		final File file = new File(sourceFolder.getRoot(), path);
+		file.getParentFile().mkdirs();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8");
+		writer.write(content);
+		writer.close();
+	}
+
+	private void assertContent(final String expected, final Reader source)
+			throws IOException {
+		assertNotNull(source);
+		final BufferedReader buffer = new BufferedReader(source);
+		assertEquals(expected, buffer.readLine());
+		assertNull(buffer.readLine());
+		buffer.close();
+	}
+
+}
@@ -96,6 +96,26 @@ public class RulesCheckerTest implements IViolationsOutput {
 				messages);
 	}
 
+	@Test
+	public void testStreamedBundle() throws IOException {
+		Rule bundleRule = new Rule();
+		Limit bundleLimit = bundleRule.createLimit();
+		bundleLimit.setValue(CounterValue.MISSEDCOUNT.name());
+		bundleLimit.setMaximum("5");
+		Rule packageRule = new Rule();
+		packageRule.setElement(ElementType.PACKAGE);
+		Limit packageLimit = packageRule.createLimit();
+		packageLimit.setValue(CounterValue.MISSEDCOUNT.name());
+		packageLimit.setMaximum("5");
+		checker.setRules(Arrays.asList(bundleRule, packageRule));
+
+		driver.sendStreamedBundle(checker.createVisitor(this));
+		assertEquals(Arrays.asList(
+				"Rule violated for package org.jacoco.example: instructions missed count is 10, but expected maximum is 5",
+				"Rule violated for bundle bundle: instructions missed count is 10, but expected maximum is 5"),
+				messages);
+	}
+
 	public void onViolation(ICoverageNode node, Rule rule, Limit limit,
 			String message) {
 		messages.add(message);
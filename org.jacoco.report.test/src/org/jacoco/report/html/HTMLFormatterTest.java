@@ -20,6 +20,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.MemoryMultiReportOutput;
@@ -98,6 +100,61 @@ public class HTMLFormatterTest {
 		output.assertNoFile("empty/Empty.java.html");
 	}
 
+	@Test
+	public void testStructureWithStreamedGroup() throws IOException {
+		final MemoryMultiReportOutput expected = new MemoryMultiReportOutput();
+		driver.sendGroup(new HTMLFormatter().createVisitor(expected));
+		driver.sendStreamedGroup(formatter.createVisitor(output));
+
+		assertSameFile(expected, "index.html");
+		assertSameFile(expected, "bundle/index.html");
+		assertSameFile(expected, "bundle/org.jacoco.example/index.html");
+		assertSameFile(expected, "bundle/org.jacoco.example/FooClass.html");
+		output.assertNoFile("bundle/empty/index.html");
+	}
+
+	@Test
+	public void testStructureWithStreamedBundle() throws IOException {
+		final MemoryMultiReportOutput expected = new MemoryMultiReportOutput();
+		driver.sendBundle(new HTMLFormatter().createVisitor(expected));
+		driver.sendStreamedBundle(formatter.createVisitor(output));
+
+		assertSameFile(expected, "index.html");
+		assertSameFile(expected, "org.jacoco.example/index.html");
+		assertSameFile(expected, "org.jacoco.example/index.source.html");
+		assertSameFile(expected, "org.jacoco.example/FooClass.html");
+		assertSameFile(expected, "org.jacoco.example/FooClass.java.html");
+		output.assertNoFile("empty/index.html");
+	}
+
+	@Test
+	public void testStructureWithExecutor() throws Exception {
+		final MemoryMultiReportOutput expected = new MemoryMultiReportOutput();
+		driver.sendGroup(new HTMLFormatter().createVisitor(expected));
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			formatter.setExecutor(executor);
+			driver.sendGroup(formatter.createVisitor(output));
+		} finally {
+			executor.shutdown();
+		}
+
+		assertSameFile(expected, "index.html");
+		assertSameFile(expected, "bundle/index.html");
+		assertSameFile(expected, "bundle/org.jacoco.example/index.html");
+		assertSameFile(expected, "bundle/org.jacoco.example/index.source.html");
+		assertSameFile(expected, "bundle/org.jacoco.example/FooClass.html");
+		assertSameFile(expected,
+				"bundle/org.jacoco.example/FooClass.java.html");
+		assertSameFile(expected, "jacoco-sessions.html");
+	}
+
+	private void assertSameFile(final MemoryMultiReportOutput expected,
+			final String path) throws IOException {
+		assertEquals(new String(expected.getFile(path), "UTF-8"),
+				new String(output.getFile(path), "UTF-8"));
+	}
+
 	@Test
 	public void testDefaultEncoding() throws Exception {
 		driver.sendBundle(formatter.createVisitor(output));
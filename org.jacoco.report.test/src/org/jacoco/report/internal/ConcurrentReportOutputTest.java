@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.report.MemoryMultiReportOutput;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConcurrentReportOutput}.
+ */
+public class ConcurrentReportOutputTest {
+
+	private MemoryMultiReportOutput delegate;
+
+	private ConcurrentReportOutput output;
+
+	@Before
+	public void setup() {
+		delegate = new MemoryMultiReportOutput();
+		output = new ConcurrentReportOutput(delegate);
+	}
+
+	@Test
+	public void should_write_file_when_closed() throws IOException {
+		final OutputStream out = output.createFile("a.html");
+		out.write(new byte[] { 1, 2, 3 });
+		delegate.assertEmpty();
+
+		out.close();
+
+		assertArrayEquals(new byte[] { 1, 2, 3 }, delegate.getFile("a.html"));
+	}
+
+	@Test
+	public void should_allow_interleaved_files() throws IOException {
+		final OutputStream a = output.createFile("a.html");
+		final OutputStream b = output.createFile("b.html");
+		a.write(1);
+		b.write(2);
+		a.write(3);
+		b.close();
+		a.close();
+		output.close();
+
+		assertArrayEquals(new byte[] { 1, 3 }, delegate.getFile("a.html"));
+		assertArrayEquals(new byte[] { 2 }, delegate.getFile("b.html"));
+		delegate.assertAllClosed();
+	}
+
+	@Test
+	public void should_write_file_only_once_when_closed_twice()
+			throws IOException {
+		final OutputStream out = output.createFile("a.html");
+		out.close();
+		out.close();
+
+		delegate.assertSingleFile("a.html");
+	}
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jacoco.report.internal.html.page.ReportPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PageRenderer}.
+ */
+public class PageRendererTest {
+
+	private ExecutorService executor;
+
+	private List<String> rendered;
+
+	@Before
+	public void setup() {
+		executor = Executors.newFixedThreadPool(4);
+		rendered = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void render_should_render_page_immediately_when_no_executor_is_given()
+			throws IOException {
+		final PageRenderer renderer = new PageRenderer(null);
+
+		renderer.render(new PageStub("a", null));
+
+		assertEquals(Collections.singletonList("a"), rendered);
+	}
+
+	@Test
+	public void finish_should_wait_for_all_pages_when_executor_is_given()
+			throws IOException {
+		final PageRenderer renderer = new PageRenderer(executor);
+
+		for (int i = 0; i < 1000; i++) {
+			renderer.render(new PageStub("p" + i, null));
+		}
+		renderer.finish();
+
+		assertEquals(1000, rendered.size());
+	}
+
+	@Test
+	public void finish_should_throw_exception_when_page_fails()
+			throws IOException {
+		final PageRenderer renderer = new PageRenderer(executor);
+		final IOException expected = new IOException("test");
+
+		renderer.render(new PageStub("a", expected));
+		try {
+			renderer.finish();
+			fail("exception expected");
+		} catch (final IOException e) {
+			assertSame(expected, e);
+		}
+		assertTrue(rendered.isEmpty());
+	}
+
+	private class PageStub extends ReportPage {
+
+		private final String name;
+
+		private final IOException failure;
+
+		PageStub(final String name, final IOException failure) {
+			super(null, null, null);
+			this.name = name;
+			this.failure = failure;
+		}
+
+		@Override
+		public void render() throws IOException {
+			if (failure != null) {
+				throw failure;
+			}
+			rendered.add(name);
+		}
+
+		@Override
+		protected String getFileName() {
+			return name;
+		}
+
+		@Override
+		protected void content(final HTMLElement body) {
+		}
+
+		public String getLinkStyle() {
+			return null;
+		}
+
+		public String getLinkLabel() {
+			return name;
+		}
+
+	}
+
+}
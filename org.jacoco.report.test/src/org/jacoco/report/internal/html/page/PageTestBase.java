@@ -22,6 +22,7 @@ import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLSupport;
 import org.jacoco.report.internal.html.IHTMLReportContext;
 import org.jacoco.report.internal.html.ILinkable;
+import org.jacoco.report.internal.html.PageRenderer;
 import org.jacoco.report.internal.html.LinkableStub;
 import org.jacoco.report.internal.html.index.IIndexUpdate;
 import org.jacoco.report.internal.html.resources.Resources;
@@ -49,6 +50,7 @@ public abstract class PageTestBase {
 		final Resources resources = new Resources(rootFolder);
 		final Table table = new Table();
 		table.add("Element", null, new LabelColumn(), true);
+		final PageRenderer pageRenderer = new PageRenderer(null);
 		context = new IHTMLReportContext() {
 
 			public ILanguageNames getLanguageNames() {
@@ -87,6 +89,10 @@ public abstract class PageTestBase {
 				return Locale.ENGLISH;
 			}
 
+			public PageRenderer getPageRenderer() {
+				return pageRenderer;
+			}
+
 		};
 		support = new HTMLSupport();
 	}
@@ -142,6 +142,45 @@ public class SourceHighlighterTest {
 				htmlSupport.findStr(doc, "//pre/span/@title"));
 	}
 
+	@Test
+	public void testHighlightExecutionCount() throws Exception {
+		source.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 1);
+		sourceHighlighter.highlight(parent.pre(null), source.getLine(1), 1, 5,
+				5);
+		final Document doc = parseDoc();
+		assertEquals("fc h4", htmlSupport.findStr(doc, "//pre/span/@class"));
+		assertEquals("Executed 5 times.",
+				htmlSupport.findStr(doc, "//pre/span/@title"));
+	}
+
+	@Test
+	public void testHighlightBranchesExecutionCount() throws Exception {
+		source.increment(CounterImpl.COUNTER_0_1, CounterImpl.getInstance(2, 3),
+				1);
+		sourceHighlighter.highlight(parent.pre(null), source.getLine(1), 1, 1,
+				1000);
+		final Document doc = parseDoc();
+		assertEquals("pc h1 bpc",
+				htmlSupport.findStr(doc, "//pre/span/@class"));
+		assertEquals("2 of 5 branches missed. Executed 1 time.",
+				htmlSupport.findStr(doc, "//pre/span/@title"));
+	}
+
+	@Test
+	public void testHighlightingExecutionCounts() throws Exception {
+		final String src = "A\nB";
+		source.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 1);
+		source.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 2);
+		source.incrementExecutionCount(1000, 1);
+		source.incrementExecutionCount(1, 2);
+		sourceHighlighter.render(parent, source, new StringReader(src));
+		final Document doc = parseDoc();
+		assertEquals("fc h4",
+				htmlSupport.findStr(doc, "//pre/span[text() = 'A']/@class"));
+		assertEquals("fc h1",
+				htmlSupport.findStr(doc, "//pre/span[text() = 'B']/@class"));
+	}
+
 	private Document parseDoc() throws Exception {
 		html.close();
 		return htmlSupport.parse(buffer);
@@ -129,6 +129,22 @@ public class XMLFormatterTest {
 		assertPathMatches("1", "report/counter[@type='CLASS']/@covered");
 	}
 
+	@Test
+	public void testStructureWithStreamedGroup() throws Exception {
+		final MemoryOutput expected = new MemoryOutput();
+		driver.sendGroup(formatter.createVisitor(expected));
+		driver.sendStreamedGroup(formatter.createVisitor(output));
+		assertEquals(expected.toString("UTF-8"), output.toString("UTF-8"));
+	}
+
+	@Test
+	public void testStructureWithStreamedBundle() throws Exception {
+		final MemoryOutput expected = new MemoryOutput();
+		driver.sendBundle(formatter.createVisitor(expected));
+		driver.sendStreamedBundle(formatter.createVisitor(output));
+		assertEquals(expected.toString("UTF-8"), output.toString("UTF-8"));
+	}
+
 	@Test
 	public void testStructureWithBundleOnly() throws Exception {
 		final IReportVisitor visitor = formatter.createVisitor(output);
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+
+/**
+ * Output-Interface for a bundle which is emitted package by package. Other than
+ * with
+ * {@link IReportGroupVisitor#visitBundle(IBundleCoverage, ISourceFileLocator)}
+ * the coverage data of the complete bundle never needs to be in memory at once:
+ * The report formatters write the content of every package immediately and only
+ * keep summary counters until {@link #visitEnd()} is called.
+ */
+public interface IReportBundleVisitor {
+
+	/**
+	 * Called to add a package to the bundle. Every package must be added only
+	 * once.
+	 *
+	 * @param pkg
+	 *            package with all its classes and source files
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void visitPackage(IPackageCoverage pkg) throws IOException;
+
+	/**
+	 * Has to be called after the last package of the bundle has been added.
+	 *
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void visitEnd() throws IOException;
+
+}
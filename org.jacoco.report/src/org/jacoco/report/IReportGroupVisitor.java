@@ -27,11 +27,15 @@ import org.jacoco.core.analysis.IBundleCoverage;
  *
  * <ul>
  * <li>A visitor instance can be used to either submit bundles (
- * {@link #visitBundle(IBundleCoverage, ISourceFileLocator)}) or groups
+ * {@link #visitBundle(IBundleCoverage, ISourceFileLocator)} or
+ * {@link #visitBundle(String, ISourceFileLocator)}) or groups
  * {@link #visitGroup(String)}). Bundles and groups are not allowed for the same
  * visitor.</li>
  * <li>When creating nested groups with {@link #visitGroup(String)} the
  * hierarchy has to be processed in a "deep first" manner.</li>
+ * <li>A bundle created with {@link #visitBundle(String, ISourceFileLocator)}
+ * has to be completed with {@link IReportBundleVisitor#visitEnd()} before this
+ * or any parent visitor can be used again.</li>
  * </ul>
  */
 public interface IReportGroupVisitor {
@@ -49,6 +53,22 @@ public interface IReportGroupVisitor {
 	void visitBundle(IBundleCoverage bundle, ISourceFileLocator locator)
 			throws IOException;
 
+	/**
+	 * Called to add a bundle to the report whose packages are provided one by
+	 * one through the returned {@link IReportBundleVisitor}. This allows
+	 * reports for bundles which are too large to be kept in memory at once.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator for this bundle
+	 * @return visitor for the packages of the bundle
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	IReportBundleVisitor visitBundle(String name, ISourceFileLocator locator)
+			throws IOException;
+
 	/**
 	 * Called to add a new group to the report. The returned
 	 * {@link IReportGroupVisitor} instance can be used to add nested bundles or
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Locator for source files in multiple directories of the file system. In
+ * contrast to a {@link MultiSourceFileLocator} of
+ * {@link DirectorySourceFileLocator}s the directories are scanned only once
+ * with the first lookup. All further lookups are answered from an index without
+ * accessing the file system for missing files. If a file exists in multiple
+ * directories the file of the directory added first is used. Lookups are thread
+ * safe.
+ */
+public class IndexedSourceFileLocator extends InputStreamSourceFileLocator {
+
+	private final List<File> directories;
+
+	private Executor executor;
+
+	private Map<String, File> index;
+
+	/**
+	 * Creates a new locator without directories.
+	 *
+	 * @param encoding
+	 *            encoding of the source files, <code>null</code> for platform
+	 *            default encoding
+	 * @param tabWidth
+	 *            tab width in source files as number of blanks
+	 */
+	public IndexedSourceFileLocator(final String encoding, final int tabWidth) {
+		super(encoding, tabWidth);
+		this.directories = new ArrayList<File>();
+	}
+
+	/**
+	 * Adds a directory to search for source files. Directories must be added
+	 * before the first lookup.
+	 *
+	 * @param directory
+	 *            directory to search for source files
+	 */
+	public void add(final File directory) {
+		directories.add(directory);
+	}
+
+	/**
+	 * Sets an executor to scan the directories concurrently. The executor has
+	 * to be available with the first lookup.
+	 *
+	 * @param executor
+	 *            executor to scan directories or <code>null</code> to scan them
+	 *            in the calling thread
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	@Override
+	protected InputStream getSourceStream(final String path)
+			throws IOException {
+		final File file = getIndex().get(path);
+		if (file == null) {
+			return null;
+		}
+		try {
+			return new FileInputStream(file);
+		} catch (final FileNotFoundException e) {
+			// the file has been removed since the directory was scanned
+			return null;
+		}
+	}
+
+	private synchronized Map<String, File> getIndex() throws IOException {
+		if (index == null) {
+			index = executor == null ? scan() : scanConcurrently();
+		}
+		return index;
+	}
+
+	private Map<String, File> scan() {
+		final Map<String, File> result = new HashMap<String, File>();
+		for (final File directory : directories) {
+			putAbsent(result, scan(directory));
+		}
+		return result;
+	}
+
+	private Map<String, File> scanConcurrently() throws IOException {
+		final List<FutureTask<Map<String, File>>> tasks = new ArrayList<FutureTask<Map<String, File>>>();
+		for (final File directory : directories) {
+			final FutureTask<Map<String, File>> task = new FutureTask<Map<String, File>>(
+					new Callable<Map<String, File>>() {
+						public Map<String, File> call() {
+							return scan(directory);
+						}
+					});
+			executor.execute(task);
+			tasks.add(task);
+		}
+		final Map<String, File> result = new HashMap<String, File>();
+		try {
+			for (final FutureTask<Map<String, File>> task : tasks) {
+				// Lookups may happen on the same executor, e.g. when HTML pages
+				// are rendered concurrently. Therefore tasks which have not
+				// been started yet are executed in the calling thread.
+				task.run();
+				putAbsent(result, task.get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning source files.");
+		} catch (final ExecutionException e) {
+			final IOException ex = new IOException(
+					"Error while scanning source files.");
+			ex.initCause(e.getCause());
+			throw ex;
+		}
+		return result;
+	}
+
+	private static void putAbsent(final Map<String, File> target,
+			final Map<String, File> source) {
+		for (final Map.Entry<String, File> e : source.entrySet()) {
+			if (!target.containsKey(e.getKey())) {
+				target.put(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private static Map<String, File> scan(final File directory) {
+		final Map<String, File> result = new HashMap<String, File>();
+		scan(directory, "", result, new HashSet<String>());
+		return result;
+	}
+
+	private static void scan(final File directory, final String prefix,
+			final Map<String, File> result, final Set<String> visited) {
+		try {
+			// guard against cycles through symbolic links:
+			if (!visited.add(directory.getCanonicalPath())) {
+				return;
+			}
+		} catch (final IOException e) {
+			return;
+		}
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			final String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				scan(file, path + "/", result, visited);
+			} else {
+				result.put(path, file);
+			}
+		}
+	}
+
+}
@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 
@@ -71,6 +72,15 @@ class MultiGroupVisitor implements IReportGroupVisitor {
 		}
 	}
 
+	public IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final List<IReportBundleVisitor> children = new ArrayList<IReportBundleVisitor>();
+		for (final IReportGroupVisitor v : visitors) {
+			children.add(v.visitBundle(name, locator));
+		}
+		return new MultiBundleVisitor(children);
+	}
+
 	public IReportGroupVisitor visitGroup(final String name)
 			throws IOException {
 		final List<IReportGroupVisitor> children = new ArrayList<IReportGroupVisitor>();
@@ -81,3 +91,25 @@ class MultiGroupVisitor implements IReportGroupVisitor {
 	}
 
 }
+
+class MultiBundleVisitor implements IReportBundleVisitor {
+
+	private final List<IReportBundleVisitor> visitors;
+
+	MultiBundleVisitor(final List<IReportBundleVisitor> visitors) {
+		this.visitors = visitors;
+	}
+
+	public void visitPackage(final IPackageCoverage pkg) throws IOException {
+		for (final IReportBundleVisitor v : visitors) {
+			v.visitPackage(pkg);
+		}
+	}
+
+	public void visitEnd() throws IOException {
+		for (final IReportBundleVisitor v : visitors) {
+			v.visitEnd();
+		}
+	}
+
+}
@@ -17,10 +17,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
@@ -86,6 +90,23 @@ public class RulesChecker {
 				bundleChecker.checkBundle(bundle);
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				final CoverageNodeImpl total = new CoverageNodeImpl(
+						ElementType.BUNDLE, name);
+				return new IReportBundleVisitor() {
+					public void visitPackage(final IPackageCoverage pkg)
+							throws IOException {
+						total.increment(pkg);
+						bundleChecker.checkPackage(pkg);
+					}
+
+					public void visitEnd() throws IOException {
+						bundleChecker.checkBundleCounters(total);
+					}
+				};
+			}
+
 			public void visitInfo(final List<SessionInfo> sessionInfos,
 					final Collection<ExecutionData> executionData)
 					throws IOException {
@@ -17,6 +17,7 @@ import java.io.IOException;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.ISourceFileLocator;
 
@@ -43,11 +44,31 @@ class CSVGroupHandler implements IReportGroupVisitor {
 			final ISourceFileLocator locator) throws IOException {
 		final String name = appendName(bundle.getName());
 		for (final IPackageCoverage p : bundle.getPackages()) {
-			final String packageName = p.getName();
-			for (final IClassCoverage c : p.getClasses()) {
-				if (c.containsCode()) {
-					writer.writeRow(name, packageName, c);
-				}
+			writePackage(name, p);
+		}
+	}
+
+	public IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final String bundleName = appendName(name);
+		return new IReportBundleVisitor() {
+			public void visitPackage(final IPackageCoverage pkg)
+					throws IOException {
+				writePackage(bundleName, pkg);
+			}
+
+			public void visitEnd() throws IOException {
+				// no summary rows in CSV reports
+			}
+		};
+	}
+
+	private void writePackage(final String bundleName, final IPackageCoverage p)
+			throws IOException {
+		final String packageName = p.getName();
+		for (final IClassCoverage c : p.getClasses()) {
+			if (c.containsCode()) {
+				writer.writeRow(bundleName, packageName, c);
 			}
 		}
 	}
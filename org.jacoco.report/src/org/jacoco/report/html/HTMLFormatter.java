@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
@@ -23,14 +24,17 @@ import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.JavaNames;
+import org.jacoco.report.internal.ConcurrentReportOutput;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLGroupVisitor;
 import org.jacoco.report.internal.html.IHTMLReportContext;
 import org.jacoco.report.internal.html.ILinkable;
+import org.jacoco.report.internal.html.PageRenderer;
 import org.jacoco.report.internal.html.index.ElementIndex;
 import org.jacoco.report.internal.html.index.IIndexUpdate;
 import org.jacoco.report.internal.html.page.BundlePage;
@@ -63,7 +67,16 @@ public class HTMLFormatter implements IHTMLReportContext {
 
 	private SessionsPage sessionsPage;
 
-	private Table table;
+	private Executor executor;
+
+	private PageRenderer pageRenderer;
+
+	private final ThreadLocal<Table> table = new ThreadLocal<Table>() {
+		@Override
+		protected Table initialValue() {
+			return createTable();
+		}
+	};
 
 	/**
 	 * New instance with default settings.
@@ -113,6 +126,21 @@ public class HTMLFormatter implements IHTMLReportContext {
 		this.outputEncoding = outputEncoding;
 	}
 
+	/**
+	 * Sets an executor to render the pages of classes and source files
+	 * concurrently. The report files are still passed to the output one after
+	 * the other, so any {@link IMultiReportOutput} implementation can be used.
+	 * Default is <code>null</code>, i.e. all pages are rendered in the calling
+	 * thread. The visitors of this formatter must not be called from the
+	 * threads of the given executor as they would wait for each other.
+	 *
+	 * @param executor
+	 *            executor to render pages or <code>null</code>
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
 	// === IHTMLReportContext ===
 
 	public ILanguageNames getLanguageNames() {
@@ -124,10 +152,8 @@ public class HTMLFormatter implements IHTMLReportContext {
 	}
 
 	public Table getTable() {
-		if (table == null) {
-			table = createTable();
-		}
-		return table;
+		// columns keep state during rendering, hence one table per thread:
+		return table.get();
 	}
 
 	private Table createTable() {
@@ -176,6 +202,10 @@ public class HTMLFormatter implements IHTMLReportContext {
 		return locale;
 	}
 
+	public PageRenderer getPageRenderer() {
+		return pageRenderer;
+	}
+
 	/**
 	 * Creates a new visitor to write a report to the given output.
 	 *
@@ -187,10 +217,12 @@ public class HTMLFormatter implements IHTMLReportContext {
 	 */
 	public IReportVisitor createVisitor(final IMultiReportOutput output)
 			throws IOException {
-		final ReportOutputFolder root = new ReportOutputFolder(output);
+		final ReportOutputFolder root = new ReportOutputFolder(
+				executor == null ? output : new ConcurrentReportOutput(output));
 		resources = new Resources(root);
 		resources.copyResources();
 		index = new ElementIndex(root);
+		pageRenderer = new PageRenderer(executor);
 		return new IReportVisitor() {
 
 			private List<SessionInfo> sessionInfos;
@@ -213,6 +245,14 @@ public class HTMLFormatter implements IHTMLReportContext {
 				page.render();
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				final BundlePage page = new BundlePage(name, null, locator,
+						root, HTMLFormatter.this);
+				createSessionsPage(page);
+				return page;
+			}
+
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
 				groupHandler = new HTMLGroupVisitor(null, root,
@@ -231,6 +271,7 @@ public class HTMLFormatter implements IHTMLReportContext {
 				if (groupHandler != null) {
 					groupHandler.visitEnd();
 				}
+				pageRenderer.finish();
 				sessionsPage.render();
 				output.close();
 			}
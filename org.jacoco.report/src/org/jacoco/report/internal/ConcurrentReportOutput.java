@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jacoco.report.IMultiReportOutput;
+
+/**
+ * Decorator which allows multiple threads to create and write files at the same
+ * time, even if the underlying output like a ZIP file can only write one file
+ * after the other. The content of every file is buffered in memory and handed
+ * over to the underlying output in one piece when the file is closed.
+ */
+public class ConcurrentReportOutput implements IMultiReportOutput {
+
+	private final IMultiReportOutput delegate;
+
+	/**
+	 * Creates a new decorator for the given output.
+	 *
+	 * @param delegate
+	 *            output to write the completed files to
+	 */
+	public ConcurrentReportOutput(final IMultiReportOutput delegate) {
+		this.delegate = delegate;
+	}
+
+	public OutputStream createFile(final String path) throws IOException {
+		return new ByteArrayOutputStream() {
+
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					writeFile(path, this);
+				}
+			}
+		};
+	}
+
+	private synchronized void writeFile(final String path,
+			final ByteArrayOutputStream content) throws IOException {
+		final OutputStream out = delegate.createFile(path);
+		content.writeTo(out);
+		out.close();
+	}
+
+	public synchronized void close() throws IOException {
+		delegate.close();
+	}
+
+}
@@ -80,4 +80,11 @@ public interface IHTMLReportContext {
 	 */
 	Locale getLocale();
 
+	/**
+	 * Returns the renderer for pages which do not depend on other pages.
+	 *
+	 * @return renderer for independent pages
+	 */
+	PageRenderer getPageRenderer();
+
 }
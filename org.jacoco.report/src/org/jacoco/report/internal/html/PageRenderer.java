@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.html;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.jacoco.report.internal.html.page.ReportPage;
+
+/**
+ * Renders pages which do not depend on the output of other pages, like class
+ * and source file pages. Without an executor pages are rendered immediately in
+ * the calling thread. Otherwise pages are rendered concurrently on the executor
+ * and {@link #finish()} must be called to wait for their completion.
+ */
+public class PageRenderer {
+
+	/** Maximum number of pages scheduled but not completed yet */
+	private static final int MAX_PENDING = 256;
+
+	private final Executor executor;
+
+	private final LinkedList<Future<Void>> pending;
+
+	/**
+	 * Creates a new renderer.
+	 *
+	 * @param executor
+	 *            executor to render pages concurrently or <code>null</code>
+	 */
+	public PageRenderer(final Executor executor) {
+		this.executor = executor;
+		this.pending = new LinkedList<Future<Void>>();
+	}
+
+	/**
+	 * Renders the given page. If an executor is used, this method returns
+	 * before the page is completed and the page must not be accessed by the
+	 * caller any more except for links and table items.
+	 *
+	 * @param page
+	 *            page to render
+	 * @throws IOException
+	 *             if the page or a previously scheduled page can't be written
+	 */
+	public void render(final ReportPage page) throws IOException {
+		if (executor == null) {
+			page.render();
+			return;
+		}
+		final FutureTask<Void> task = new FutureTask<Void>(
+				new Callable<Void>() {
+					public Void call() throws IOException {
+						page.render();
+						return null;
+					}
+				});
+		executor.execute(task);
+		pending.add(task);
+		while (!pending.isEmpty() && (pending.size() > MAX_PENDING
+				|| pending.getFirst().isDone())) {
+			await(pending.removeFirst());
+		}
+	}
+
+	/**
+	 * Waits until all scheduled pages have been rendered.
+	 *
+	 * @throws IOException
+	 *             if one of the pages can't be written
+	 */
+	public void finish() throws IOException {
+		while (!pending.isEmpty()) {
+			await(pending.removeFirst());
+		}
+	}
+
+	private void await(final Future<Void> task) throws IOException {
+		try {
+			task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new InterruptedIOException();
+		} catch (final ExecutionException e) {
+			cancel();
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+
+	private void cancel() {
+		for (final Future<Void> task : pending) {
+			task.cancel(false);
+		}
+		pending.clear();
+	}
+
+}
@@ -14,9 +14,12 @@ package org.jacoco.report.internal.html.page;
 
 import java.io.IOException;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLElement;
@@ -24,14 +27,22 @@ import org.jacoco.report.internal.html.IHTMLReportContext;
 
 /**
  * Page showing coverage information for a bundle. The page contains a table
- * with all packages of the bundle.
+ * with all packages of the bundle. Packages can either be provided with a
+ * complete bundle or added one by one as {@link IReportBundleVisitor}. In both
+ * cases the page of every package is rendered immediately and only the
+ * package's summary is kept until this page is rendered.
  */
-public class BundlePage extends TablePage<ICoverageNode> {
+public class BundlePage extends TablePage<ICoverageNode>
+		implements IReportBundleVisitor {
 
 	private final ISourceFileLocator locator;
 
+	private final CoverageNodeImpl total;
+
 	private IBundleCoverage bundle;
 
+	private boolean empty;
+
 	/**
 	 * Creates a new visitor in the given context.
 	 *
@@ -49,32 +60,72 @@ public class BundlePage extends TablePage<ICoverageNode> {
 	public BundlePage(final IBundleCoverage bundle, final ReportPage parent,
 			final ISourceFileLocator locator, final ReportOutputFolder folder,
 			final IHTMLReportContext context) {
-		super(bundle.getPlainCopy(), parent, folder, context);
+		this(bundle.getName(), parent, locator, folder, context);
 		this.bundle = bundle;
+	}
+
+	/**
+	 * Creates a new visitor in the given context for a bundle whose packages
+	 * are added with {@link #visitPackage(IPackageCoverage)}.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 * @param parent
+	 *            optional hierarchical parent
+	 * @param locator
+	 *            source locator
+	 * @param folder
+	 *            base folder for this bundle
+	 * @param context
+	 *            settings context
+	 */
+	public BundlePage(final String name, final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context) {
+		this(new CoverageNodeImpl(ElementType.BUNDLE, name), parent, locator,
+				folder, context);
+	}
+
+	private BundlePage(final CoverageNodeImpl total, final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context) {
+		super(total, parent, folder, context);
+		this.total = total;
 		this.locator = locator;
+		this.empty = true;
 	}
 
 	@Override
 	public void render() throws IOException {
-		renderPackages();
+		if (bundle != null) {
+			for (final IPackageCoverage p : bundle.getPackages()) {
+				visitPackage(p);
+			}
+			// Don't keep the bundle structure in memory
+			bundle = null;
+		}
 		super.render();
-		// Don't keep the bundle structure in memory
-		bundle = null;
 	}
 
-	private void renderPackages() throws IOException {
-		for (final IPackageCoverage p : bundle.getPackages()) {
-			if (!p.containsCode()) {
-				continue;
-			}
-			final String packagename = p.getName();
-			final String foldername = packagename.length() == 0 ? "default"
-					: packagename.replace('/', '.');
-			final PackagePage page = new PackagePage(p, this, locator,
-					folder.subFolder(foldername), context);
-			page.render();
-			addItem(page);
+	// === IReportBundleVisitor ===
+
+	public void visitPackage(final IPackageCoverage p) throws IOException {
+		empty = false;
+		total.increment(p);
+		if (!p.containsCode()) {
+			return;
 		}
+		final String packagename = p.getName();
+		final String foldername = packagename.length() == 0 ? "default"
+				: packagename.replace('/', '.');
+		final PackagePage page = new PackagePage(p, this, locator,
+				folder.subFolder(foldername), context);
+		page.render();
+		addItem(new PackageItem(page));
+	}
+
+	public void visitEnd() throws IOException {
+		render();
 	}
 
 	@Override
@@ -89,9 +140,9 @@ public class BundlePage extends TablePage<ICoverageNode> {
 
 	@Override
 	protected void content(HTMLElement body) throws IOException {
-		if (bundle.getPackages().isEmpty()) {
+		if (empty) {
 			body.p().text("No class files specified.");
-		} else if (!bundle.containsCode()) {
+		} else if (!total.containsCode()) {
 			body.p().text(
 					"None of the analyzed classes contain code relevant for code coverage.");
 		} else {
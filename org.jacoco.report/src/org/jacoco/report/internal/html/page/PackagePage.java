@@ -73,7 +73,7 @@ public class PackagePage extends TablePage<IPackageCoverage> {
 					.getSourceFilePage(c.getSourceFileName());
 			final ClassPage page = new ClassPage(c, this, sourceFilePage,
 					folder, context);
-			page.render();
+			context.getPageRenderer().render(page);
 			addItem(page);
 		}
 	}
@@ -91,7 +91,7 @@ public class PackageSourcePage extends TablePage<IPackageCoverage> {
 			} else {
 				final SourceFilePage sourcePage = new SourceFilePage(s, reader,
 						locator.getTabWidth(), this, folder, context);
-				sourcePage.render();
+				context.getPageRenderer().render(sourcePage);
 				sourceFilePages.put(sourcename, sourcePage);
 				addItem(sourcePage);
 			}
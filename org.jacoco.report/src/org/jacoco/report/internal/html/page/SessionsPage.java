@@ -49,7 +49,7 @@ public class SessionsPage extends ReportPage {
 
 	private final DateFormat dateFormat;
 
-	private final List<ExecutionData> executionData;
+	private final Collection<ExecutionData> executionData;
 
 	private final ElementIndex index;
 
@@ -75,17 +75,12 @@ public class SessionsPage extends ReportPage {
 			final ReportOutputFolder folder, final IHTMLReportContext context) {
 		super(parent, folder, context);
 		this.sessionInfos = sessionInfos;
-		this.executionData = new ArrayList<ExecutionData>(executionData);
+		// The execution data is only copied when the page is rendered, as it
+		// might be read lazily from an indexed exec file:
+		this.executionData = executionData;
 		this.index = index;
 		this.dateFormat = DateFormat.getDateTimeInstance(DateFormat.DEFAULT,
 				DateFormat.DEFAULT, context.getLocale());
-		final ILanguageNames names = context.getLanguageNames();
-		Collections.sort(this.executionData, new Comparator<ExecutionData>() {
-			public int compare(final ExecutionData e1, final ExecutionData e2) {
-				return names.getQualifiedClassName(e1.getName())
-						.compareTo(names.getQualifiedClassName(e2.getName()));
-			}
-		});
 	}
 
 	@Override
@@ -96,14 +91,28 @@ public class SessionsPage extends ReportPage {
 			body.p().text(MSG_SESSIONS);
 			sessionTable(body);
 		}
-		if (executionData.isEmpty()) {
+		final List<ExecutionData> sorted = sortedExecutionData();
+		if (sorted.isEmpty()) {
 			body.p().text(MSG_NO_EXECDATA);
 		} else {
 			body.p().text(MSG_EXECDATA);
-			executionDataTable(body);
+			executionDataTable(body, sorted);
 		}
 	}
 
+	private List<ExecutionData> sortedExecutionData() {
+		final List<ExecutionData> sorted = new ArrayList<ExecutionData>(
+				executionData);
+		final ILanguageNames names = context.getLanguageNames();
+		Collections.sort(sorted, new Comparator<ExecutionData>() {
+			public int compare(final ExecutionData e1, final ExecutionData e2) {
+				return names.getQualifiedClassName(e1.getName())
+						.compareTo(names.getQualifiedClassName(e2.getName()));
+			}
+		});
+		return sorted;
+	}
+
 	private void sessionTable(final HTMLElement body) throws IOException {
 		final HTMLElement table = body.table(Styles.COVERAGETABLE);
 		{
@@ -121,7 +130,8 @@ public class SessionsPage extends ReportPage {
 		}
 	}
 
-	private void executionDataTable(final HTMLElement body) throws IOException {
+	private void executionDataTable(final HTMLElement body,
+			final List<ExecutionData> executionData) throws IOException {
 		final HTMLElement table = body.table(Styles.COVERAGETABLE);
 		{
 			final HTMLElement tr = table.thead().tr();
@@ -15,6 +15,7 @@ package org.jacoco.report.internal.html.page;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 
 import org.jacoco.core.analysis.ICounter;
@@ -28,8 +29,13 @@ import org.jacoco.report.internal.html.resources.Styles;
  */
 final class SourceHighlighter {
 
+	private static final String[] HEAT = { Styles.HEAT_1, Styles.HEAT_2,
+			Styles.HEAT_3, Styles.HEAT_4 };
+
 	private final Locale locale;
 
+	private final boolean localizedDigits;
+
 	private String lang;
 
 	/**
@@ -40,6 +46,8 @@ final class SourceHighlighter {
 	 */
 	public SourceHighlighter(final Locale locale) {
 		this.locale = locale;
+		this.localizedDigits = new DecimalFormatSymbols(locale)
+				.getZeroDigit() != '0';
 		lang = "java";
 	}
 
@@ -55,7 +63,9 @@ final class SourceHighlighter {
 	}
 
 	/**
-	 * Highlights the given source file.
+	 * Highlights the given source file. If execution counts are available every
+	 * executed line is additionally marked with a heat level relative to the
+	 * highest execution count of the file.
 	 *
 	 * @param parent
 	 *            parent HTML element
@@ -71,22 +81,40 @@ final class SourceHighlighter {
 		final HTMLElement pre = parent
 				.pre(Styles.SOURCE + " lang-" + lang + " linenums");
 		final BufferedReader lineBuffer = new BufferedReader(contents);
+		final int maxCount = getMaxExecutionCount(source);
 		String line;
 		int nr = 0;
 		while ((line = lineBuffer.readLine()) != null) {
 			nr++;
-			renderCodeLine(pre, line, source.getLine(nr), nr);
+			renderCodeLine(pre, line, source.getLine(nr), nr,
+					source.getExecutionCount(nr), maxCount);
+		}
+	}
+
+	private static int getMaxExecutionCount(final ISourceNode source) {
+		int max = 0;
+		final int last = source.getLastLine();
+		for (int nr = source.getFirstLine(); nr <= last; nr++) {
+			max = Math.max(max, source.getExecutionCount(nr));
 		}
+		return max;
 	}
 
 	private void renderCodeLine(final HTMLElement pre, final String linesrc,
-			final ILine line, final int lineNr) throws IOException {
-		highlight(pre, line, lineNr).text(linesrc);
+			final ILine line, final int lineNr, final int count,
+			final int maxCount) throws IOException {
+		highlight(pre, line, lineNr, count, maxCount).text(linesrc);
 		pre.text("\n");
 	}
 
 	HTMLElement highlight(final HTMLElement pre, final ILine line,
 			final int lineNr) throws IOException {
+		return highlight(pre, line, lineNr, 0, 0);
+	}
+
+	HTMLElement highlight(final HTMLElement pre, final ILine line,
+			final int lineNr, final int count, final int maxCount)
+			throws IOException {
 		final String style;
 		switch (line.getStatus()) {
 		case ICounter.NOT_COVERED:
@@ -103,30 +131,71 @@ final class SourceHighlighter {
 		}
 
 		final String lineId = "L" + Integer.toString(lineNr);
+		final String heat = count > 0 ? " " + HEAT[heatLevel(count, maxCount)]
+				: "";
 		final ICounter branches = line.getBranchCounter();
+		final HTMLElement span;
 		switch (branches.getStatus()) {
 		case ICounter.NOT_COVERED:
-			return span(pre, lineId, style, Styles.BRANCH_NOT_COVERED,
-					"All %2$d branches missed.", branches);
+			span = pre.span(style + heat + " " + Styles.BRANCH_NOT_COVERED,
+					lineId);
+			span.attr("title",
+					withExecutions("All " + number(branches.getTotalCount())
+							+ " branches missed.", count));
+			return span;
 		case ICounter.FULLY_COVERED:
-			return span(pre, lineId, style, Styles.BRANCH_FULLY_COVERED,
-					"All %2$d branches covered.", branches);
+			span = pre.span(style + heat + " " + Styles.BRANCH_FULLY_COVERED,
+					lineId);
+			span.attr("title",
+					withExecutions("All " + number(branches.getTotalCount())
+							+ " branches covered.", count));
+			return span;
 		case ICounter.PARTLY_COVERED:
-			return span(pre, lineId, style, Styles.BRANCH_PARTLY_COVERED,
-					"%1$d of %2$d branches missed.", branches);
+			span = pre.span(style + heat + " " + Styles.BRANCH_PARTLY_COVERED,
+					lineId);
+			span.attr("title",
+					withExecutions(number(branches.getMissedCount()) + " of "
+							+ number(branches.getTotalCount())
+							+ " branches missed.", count));
+			return span;
 		default:
-			return pre.span(style, lineId);
+			span = pre.span(style + heat, lineId);
+			if (count > 0) {
+				span.attr("title", executions(count));
+			}
+			return span;
+		}
+	}
+
+	/**
+	 * Maps the given execution count to an index of {@link #HEAT} on a
+	 * logarithmic scale up to the given maximum.
+	 */
+	private static int heatLevel(final int count, final int maxCount) {
+		if (count >= maxCount) {
+			return HEAT.length - 1;
 		}
+		return (int) ((HEAT.length - 1) * Math.log(count) / Math.log(maxCount));
+	}
+
+	private String withExecutions(final String title, final int count) {
+		return count > 0 ? title + " " + executions(count) : title;
 	}
 
-	private HTMLElement span(final HTMLElement parent, final String id,
-			final String style1, final String style2, final String title,
-			final ICounter branches) throws IOException {
-		final HTMLElement span = parent.span(style1 + " " + style2, id);
-		final Integer missed = Integer.valueOf(branches.getMissedCount());
-		final Integer total = Integer.valueOf(branches.getTotalCount());
-		span.attr("title", String.format(locale, title, missed, total));
-		return span;
+	private String executions(final int count) {
+		return "Executed " + number(count)
+				+ (count == 1 ? " time." : " times.");
+	}
+
+	/**
+	 * Formats the given number like <code>%d</code> with the locale of this
+	 * highlighter but without the overhead of {@link String#format}.
+	 */
+	private String number(final int value) {
+		if (localizedDigits) {
+			return String.format(locale, "%d", Integer.valueOf(value));
+		}
+		return Integer.toString(value);
 	}
 
 }
@@ -98,6 +98,18 @@ public final class Styles {
 	/** Part of source code where branches are fully covered */
 	public static final String BRANCH_FULLY_COVERED = "bfc";
 
+	/** Part of source code with the lowest execution counts of the file */
+	public static final String HEAT_1 = "h1";
+
+	/** Part of source code with low execution counts */
+	public static final String HEAT_2 = "h2";
+
+	/** Part of source code with high execution counts */
+	public static final String HEAT_3 = "h3";
+
+	/** Part of source code with the highest execution counts of the file */
+	public static final String HEAT_4 = "h4";
+
 	/**
 	 * Returns a combined style from the given styles.
 	 *
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2020 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report.internal.xml;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.CoverageNodeImpl;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
+
+/**
+ * A {@link IReportBundleVisitor} that writes every package as XML element
+ * immediately and the summary counters of the bundle at the end.
+ */
+public class XMLBundleVisitor implements IReportBundleVisitor {
+
+	private final ReportElement element;
+
+	private final CoverageNodeImpl total;
+
+	/**
+	 * New handler for a bundle with the given name.
+	 *
+	 * @param element
+	 *            XML-Element representing the bundle
+	 * @param name
+	 *            name of the bundle
+	 */
+	public XMLBundleVisitor(final ReportElement element, final String name) {
+		this.element = element;
+		this.total = new CoverageNodeImpl(ElementType.BUNDLE, name);
+	}
+
+	public void visitPackage(final IPackageCoverage pkg) throws IOException {
+		total.increment(pkg);
+		XMLCoverageWriter.writePackage(pkg, element);
+	}
+
+	public void visitEnd() throws IOException {
+		XMLCoverageWriter.writeCounters(total, element);
+	}
+
+}
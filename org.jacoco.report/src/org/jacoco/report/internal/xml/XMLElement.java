@@ -14,6 +14,7 @@ package org.jacoco.report.internal.xml;
 
 import static java.lang.String.format;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -81,7 +82,8 @@ public class XMLElement {
 			final String system, final boolean standalone,
 			final String encoding, final OutputStream output)
 			throws IOException {
-		this(new OutputStreamWriter(output, encoding), name, true);
+		this(new BufferedWriter(new OutputStreamWriter(output, encoding)), name,
+				true);
 		if (standalone) {
 			writer.write(format(HEADER_STANDALONE, encoding));
 		} else {
@@ -134,26 +136,31 @@ public class XMLElement {
 
 	private void quote(final String text) throws IOException {
 		final int len = text.length();
+		int start = 0;
 		for (int i = 0; i < len; i++) {
-			final char c = text.charAt(i);
-			switch (c) {
+			final String entity;
+			switch (text.charAt(i)) {
 			case '<':
-				writer.write("&lt;");
+				entity = "&lt;";
 				break;
 			case '>':
-				writer.write("&gt;");
+				entity = "&gt;";
 				break;
 			case '"':
-				writer.write("&quot;");
+				entity = "&quot;";
 				break;
 			case '&':
-				writer.write("&amp;");
+				entity = "&amp;";
 				break;
 			default:
-				writer.write(c);
-				break;
+				continue;
 			}
+			// write unquoted characters in one chunk:
+			writer.write(text, start, i - start);
+			writer.write(entity);
+			start = i + 1;
 		}
+		writer.write(text, start, len - start);
 	}
 
 	/**
@@ -16,6 +16,7 @@ package org.jacoco.report.internal.xml;
 import java.io.IOException;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.AbstractGroupVisitor;
 
@@ -52,6 +53,12 @@ public class XMLGroupVisitor extends AbstractGroupVisitor {
 		XMLCoverageWriter.writeBundle(bundle, child);
 	}
 
+	@Override
+	protected IReportBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		return new XMLBundleVisitor(element.group(name), name);
+	}
+
 	@Override
 	protected AbstractGroupVisitor handleGroup(final String name)
 			throws IOException {
@@ -20,10 +20,12 @@ import java.util.List;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.xml.ReportElement;
+import org.jacoco.report.internal.xml.XMLBundleVisitor;
 import org.jacoco.report.internal.xml.XMLCoverageWriter;
 import org.jacoco.report.internal.xml.XMLGroupVisitor;
 
@@ -73,6 +75,12 @@ public class XMLFormatter {
 				XMLCoverageWriter.writeBundle(bundle, report);
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				createRootElement(name);
+				return new XMLBundleVisitor(report, name);
+			}
+
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
 				createRootElement(name);